@@ -6,4 +6,5 @@ plugins {
     alias(libs.plugins.android.library) apply false
     alias(libs.plugins.kotlin.serialization) apply false
     alias(libs.plugins.kapt) apply false
+    alias(libs.plugins.jmh) apply false
 }
\ No newline at end of file
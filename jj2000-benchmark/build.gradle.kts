@@ -0,0 +1,24 @@
+// JMH benchmarks of the stages of the JPEG 2000 decoder, run on a plain JVM:
+//   ./gradlew :jj2000-benchmark:jmh
+// The throughput of each stage includes that of the stages before it; the
+// "pixels" secondary result is in pixels per second and the gc profiler
+// reports the allocation rate.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmhImplementation(project(":jj2000"))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
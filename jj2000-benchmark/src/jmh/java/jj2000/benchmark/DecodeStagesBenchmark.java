@@ -0,0 +1,326 @@
+package jj2000.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import jj2000.colorspace.ColorSpace;
+import jj2000.j2k.codestream.HeaderInfo;
+import jj2000.j2k.codestream.reader.BitstreamReaderAgent;
+import jj2000.j2k.codestream.reader.HeaderDecoder;
+import jj2000.j2k.decoder.Decoder;
+import jj2000.j2k.decoder.DecoderSpecs;
+import jj2000.j2k.entropy.decoder.EntropyDecoder;
+import jj2000.j2k.fileformat.reader.FileFormatReader;
+import jj2000.j2k.image.BlkImgDataSrc;
+import jj2000.j2k.image.Coord;
+import jj2000.j2k.image.DataBlk;
+import jj2000.j2k.image.DataBlkFloat;
+import jj2000.j2k.image.DataBlkInt;
+import jj2000.j2k.image.ImgDataConverter;
+import jj2000.j2k.image.invcomptransf.InvCompTransf;
+import jj2000.j2k.image.output.ImgWriterPacked;
+import jj2000.j2k.image.output.PixelImage;
+import jj2000.j2k.quantization.dequantizer.Dequantizer;
+import jj2000.j2k.roi.ROIDeScaler;
+import jj2000.j2k.util.BufferRandomAccessIO;
+import jj2000.j2k.util.ParameterList;
+import jj2000.j2k.wavelet.synthesis.InverseWT;
+import jj2000.j2k.wavelet.synthesis.MultiResImgData;
+import jj2000.j2k.wavelet.synthesis.SubbandSyn;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of the stages of the JPEG 2000 decoding chain, over a corpus of
+ * synthetic face images the size of those found in passports.
+ *
+ * <p>Each benchmark builds the decoding chain up to, and including, its
+ * stage and pulls all the data of the image through it, as Decoder.run()
+ * does. The time spent in a stage is the difference with the benchmark of
+ * the previous stage. Besides operations per second, the "pixels" result
+ * gives the throughput in pixels per second.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeStagesBenchmark {
+
+    /** The codestream or JP2 file to decode, in the corpus resources. */
+    @Param({
+            "face240x320_97.jp2",
+            "face240x320_53.jp2",
+            "face240x320_grey97.jp2",
+            "face240x320_97_icc.jp2",
+            "face240x320_53_icclut.jp2",
+            "face240x320_grey97_icc.jp2",
+            "face240x320_97_sycc.jp2",
+            "face240x320_97_cb32.j2k",
+            "face240x320_53_cb16x64.j2k",
+            "face480x640_97_l4.j2k",
+            "face480x640_97_rlcp.j2k",
+            "face480x640_97_tiled.j2k"
+    })
+    public String image;
+
+    private byte[] data;
+
+    private ParameterList pl;
+
+    /** Counts the decoded pixels, reported as a rate. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Pixels {
+        public long pixels;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pixels = 0;
+        }
+    }
+
+    /** The modules of a decoding chain, built up to the requested stage. */
+    private static final class Chain {
+        FileFormatReader ff;
+        HeaderDecoder hd;
+        DecoderSpecs decSpec;
+        int[] depth;
+        BitstreamReaderAgent breader;
+        EntropyDecoder entdec;
+        Dequantizer deq;
+        InverseWT invWT;
+        BlkImgDataSrc ictransf;
+        BlkImgDataSrc color;
+    }
+
+    private static final int HEADER = 0;
+    private static final int PACKETS = 1;
+    private static final int ENTROPY = 2;
+    private static final int DEQUANTIZATION = 3;
+    private static final int WAVELET = 4;
+    private static final int COMPONENT_TRANSFORM = 5;
+    private static final int COLOR_SPACE = 6;
+
+    @Setup
+    public void setup() throws IOException {
+        try (InputStream is = getClass().getResourceAsStream("/corpus/" + image)) {
+            if (is == null) {
+                throw new IOException("No image " + image + " in the corpus");
+            }
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = is.read(buf)) > 0) {
+                os.write(buf, 0, n);
+            }
+            data = os.toByteArray();
+        }
+
+        String[][] pinfo = Decoder.getAllParameters();
+        ParameterList defpl = new ParameterList();
+        for (int i = pinfo.length - 1; i >= 0; --i) {
+            if (pinfo[i][3] != null) {
+                defpl.put(pinfo[i][0], pinfo[i][3]);
+            }
+        }
+        pl = new ParameterList(defpl);
+    }
+
+    /**
+     * Builds the decoding chain, as Decoder.run() does, up to the given
+     * stage.
+     */
+    private Chain build(int stage) throws Exception {
+        Chain ch = new Chain();
+        BufferRandomAccessIO in = new BufferRandomAccessIO(data);
+
+        ch.ff = new FileFormatReader(in);
+        ch.ff.readFileFormat();
+        if (ch.ff.JP2FFUsed) {
+            in.seek(ch.ff.getFirstCodeStreamPos());
+        }
+        HeaderInfo hi = new HeaderInfo();
+        ch.hd = new HeaderDecoder(in, pl, hi);
+        ch.decSpec = ch.hd.getDecoderSpecs();
+        ch.depth = new int[ch.hd.getNumComps()];
+        for (int i = 0; i < ch.depth.length; i++) {
+            ch.depth[i] = ch.hd.getOriginalBitDepth(i);
+        }
+        if (stage == HEADER) return ch;
+
+        ch.breader = BitstreamReaderAgent.createInstance(in, ch.hd, pl, ch.decSpec, false, hi);
+        if (stage == PACKETS) return ch;
+
+        ch.entdec = ch.hd.createEntropyDecoder(ch.breader, pl);
+        if (stage == ENTROPY) return ch;
+
+        ROIDeScaler roids = ch.hd.createROIDeScaler(ch.entdec, pl, ch.decSpec);
+        ch.deq = ch.hd.createDequantizer(roids, ch.depth, ch.decSpec);
+        if (stage == DEQUANTIZATION) return ch;
+
+        ch.invWT = InverseWT.createInstance(ch.deq, ch.decSpec, pl);
+        ch.invWT.setImgResLevel(ch.breader.getImgRes());
+        if (stage == WAVELET) return ch;
+
+        ImgDataConverter converter = new ImgDataConverter(ch.invWT, 0);
+        ch.ictransf = new InvCompTransf(converter, ch.decSpec, ch.depth, pl);
+        ch.color = ch.ictransf;
+        if (stage == COMPONENT_TRANSFORM) return ch;
+
+        if (ch.ff.JP2FFUsed) {
+            ColorSpace csMap = new ColorSpace(in, ch.hd, pl);
+            BlkImgDataSrc channels = ch.hd.createChannelDefinitionMapper(ch.ictransf, csMap);
+            BlkImgDataSrc resampled = ch.hd.createResampler(channels, csMap);
+            BlkImgDataSrc palettized = ch.hd.createPalettizedColorSpaceMapper(resampled, csMap);
+            ch.color = ch.hd.createColorSpaceMapper(palettized, csMap);
+        }
+        return ch;
+    }
+
+    /**
+     * Gets all the code-blocks of all the tiles from 'src'. The dequantized
+     * ones are written in a tile-component buffer, as the inverse wavelet
+     * transform does.
+     */
+    private static void pullCodeBlocks(MultiResImgData src, boolean wt, Blackhole bh) {
+        Coord nt = src.getNumTiles(null);
+        DataBlk[] cblks = null;
+
+        for (int y = 0; y < nt.y; y++) {
+            for (int x = 0; x < nt.x; x++) {
+                src.setTile(x, y);
+                int t = src.getTileIdx();
+                for (int c = src.getNumComps() - 1; c >= 0; c--) {
+                    SubbandSyn root = src.getSynSubbandTree(t, c);
+                    DataBlk img = null;
+                    if (wt) {
+                        img = (root.hFilter == null || root.hFilter.getDataType() == DataBlk.TYPE_INT)
+                                ? new DataBlkInt(0, 0, root.w, root.h)
+                                : new DataBlkFloat(0, 0, root.w, root.h);
+                    }
+                    for (int r = 0; r <= root.resLvl; r++) {
+                        for (int s = (r == 0) ? 0 : 1; s <= ((r == 0) ? 0 : 3); s++) {
+                            SubbandSyn sb = (SubbandSyn) root.getSubbandByIdx(r, s);
+                            if (sb == null || sb.w == 0 || sb.h == 0) continue;
+                            if (wt) {
+                                ((Dequantizer) src).getSubbandData(c, sb, img);
+                            } else {
+                                cblks = ((EntropyDecoder) src).getCodeBlocks(c, sb, null);
+                                bh.consume(cblks);
+                            }
+                        }
+                    }
+                    if (wt) {
+                        bh.consume(img.getData());
+                    }
+                }
+            }
+        }
+    }
+
+    /** Gets all the data of all the tiles from 'src'. */
+    private static void pullImage(BlkImgDataSrc src, Blackhole bh) {
+        Coord nt = src.getNumTiles(null);
+        DataBlk blk = new DataBlkInt();
+
+        for (int y = 0; y < nt.y; y++) {
+            for (int x = 0; x < nt.x; x++) {
+                src.setTile(x, y);
+                int t = src.getTileIdx();
+                for (int c = src.getNumComps() - 1; c >= 0; c--) {
+                    blk.ulx = 0;
+                    blk.uly = 0;
+                    blk.w = src.getTileCompWidth(t, c);
+                    blk.h = src.getTileCompHeight(t, c);
+                    blk = src.getInternCompData(blk, c);
+                    bh.consume(blk.getData());
+                }
+            }
+        }
+    }
+
+    private static void count(Chain ch, Pixels px) {
+        px.pixels += (long) ch.hd.getImgWidth() * ch.hd.getImgHeight();
+    }
+
+    @Benchmark
+    public void mainHeader(Pixels px, Blackhole bh) throws Exception {
+        Chain ch = build(HEADER);
+        bh.consume(ch.decSpec);
+        count(ch, px);
+    }
+
+    @Benchmark
+    public void packetParsing(Pixels px, Blackhole bh) throws Exception {
+        Chain ch = build(PACKETS);
+        Coord nt = ch.breader.getNumTiles(null);
+        for (int y = 0; y < nt.y; y++) {
+            for (int x = 0; x < nt.x; x++) {
+                ch.breader.setTile(x, y);
+            }
+        }
+        bh.consume(ch.breader);
+        count(ch, px);
+    }
+
+    @Benchmark
+    public void entropyDecoding(Pixels px, Blackhole bh) throws Exception {
+        Chain ch = build(ENTROPY);
+        pullCodeBlocks(ch.entdec, false, bh);
+        count(ch, px);
+    }
+
+    @Benchmark
+    public void dequantization(Pixels px, Blackhole bh) throws Exception {
+        Chain ch = build(DEQUANTIZATION);
+        pullCodeBlocks(ch.deq, true, bh);
+        count(ch, px);
+    }
+
+    @Benchmark
+    public void inverseWavelet(Pixels px, Blackhole bh) throws Exception {
+        Chain ch = build(WAVELET);
+        pullImage(ch.invWT, bh);
+        count(ch, px);
+    }
+
+    @Benchmark
+    public void componentTransform(Pixels px, Blackhole bh) throws Exception {
+        Chain ch = build(COMPONENT_TRANSFORM);
+        pullImage(ch.ictransf, bh);
+        count(ch, px);
+    }
+
+    @Benchmark
+    public void colorSpaceMapping(Pixels px, Blackhole bh) throws Exception {
+        Chain ch = build(COLOR_SPACE);
+        pullImage(ch.color, bh);
+        count(ch, px);
+    }
+
+    @Benchmark
+    public void pixelOutput(Pixels px, Blackhole bh) throws Exception {
+        Chain ch = build(COLOR_SPACE);
+        ImgWriterPacked writer = new ImgWriterPacked(ch.color, PixelImage.RGBA_8888);
+        writer.writeAll();
+        bh.consume(writer.get());
+        count(ch, px);
+    }
+}
@@ -0,0 +1,60 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.vanniktech.publish)
+    signing
+}
+
+version = "3.0.4"
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "ISO-8859-1"
+}
+
+// The tests decode the images of the benchmark corpus
+sourceSets {
+    test {
+        resources.srcDir("../jj2000-benchmark/src/jmh/resources")
+    }
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+mavenPublishing {
+    coordinates("com.appliedrec", "jj2000")
+    pom {
+        name.set("JJ2000")
+        description.set("JPEG 2000 decoder producing raw pixel buffers, with no Android dependencies")
+        url.set("https://github.com/AppliedRecognition/Passport-Reader-Android")
+        licenses {
+            license {
+                name.set("JJ2000 License")
+                url.set("https://github.com/AppliedRecognition/Passport-Reader-Android/tree/main/jj2000")
+            }
+        }
+        scm {
+            connection.set("scm:git:git://github.com/AppliedRecognition/Passport-Reader-Android.git")
+            developerConnection.set("scm:git:ssh://github.com/AppliedRecognition/Passport-Reader-Android.git")
+            url.set("https://github.com/AppliedRecognition/Passport-Reader-Android")
+        }
+        developers {
+            developer {
+                id.set("appliedrecognition")
+                name.set("Applied Recognition Corp.")
+                email.set("support@appliedrecognition.com")
+            }
+        }
+    }
+    publishToMavenCentral(automaticRelease = true)
+}
+
+signing {
+    useGpgCmd()
+    sign(publishing.publications)
+}
@@ -177,6 +177,49 @@ public abstract class ColorSpaceMapper extends ImgDataAdapter
 
         setInternalBuffer (tgt); }
 
+    /**
+     * Returns true if the components 0 to n-1 of the source have integer
+     * data with at most 8 bits, which is what the mappers producing packed 8
+     * bit pixels (see PackedRGBSrc) support.
+     *   @param n number of components
+     * @return whether the source data can be packed
+     */
+    protected boolean isPackable (int n) {
+        if (n > ncomps) return false;
+        for (int i=0; i<n; ++i) {
+            if (fixedPtBitsArray[i] != 0 || maxValueArray[i] > 255)
+                return false; }
+        return true; }
+
+    /**
+     * Gets, into 'inInt', the area specified by 'blk' of the components 0
+     * to n-1 of the source, and assures that 'blk' has a buffer for the
+     * pixels of the area. The 'offset' and 'scanw' of 'blk' are set to 0
+     * and its width, and its 'progressive' attribute is set if the data of
+     * any of the components is progressive.
+     *   @param blk specifies the area of the packed pixels
+     *   @param n number of components
+     */
+    protected void getPackingData (DataBlkInt blk, int n) {
+        int [] data = blk.getDataInt();
+
+        blk.progressive = false;
+        for (int i=0; i<n; ++i) {
+            inInt[i].ulx = blk.ulx;
+            inInt[i].uly = blk.uly;
+            inInt[i].w   = blk.w;
+            inInt[i].h   = blk.h;
+            if (inInt[i].getDataInt() != null &&
+                inInt[i].getDataInt().length < blk.w*blk.h)
+                inInt[i].setData(null);
+            inInt[i] = (DataBlkInt) src.getInternCompData(inInt[i], i);
+            blk.progressive |= inInt[i].progressive; }
+
+        if (data == null || data.length < blk.w*blk.h)
+            blk.setData(new int [blk.w*blk.h]);
+        blk.offset = 0;
+        blk.scanw  = blk.w; }
+
 
     /**
      * Factory method for creating instances of this class.
@@ -10,6 +10,8 @@ package jj2000.colorspace;
 
 import jj2000.j2k.image.BlkImgDataSrc;
 import jj2000.j2k.image.DataBlk;
+import jj2000.j2k.image.DataBlkInt;
+import jj2000.j2k.image.PackedRGBSrc;
 
 /**
  * This class provides Enumerated ColorSpace API for the jj2000.j2k imaging chain
@@ -21,6 +23,7 @@ import jj2000.j2k.image.DataBlk;
  * @author	Bruce A. Kern
  */
 public class EnumeratedColorSpaceMapper extends ColorSpaceMapper
+    implements PackedRGBSrc
 {
     /**
      * Factory method for creating instances of this class.
@@ -126,6 +129,79 @@ public class EnumeratedColorSpaceMapper extends ColorSpaceMapper
     public DataBlk getInternCompData (DataBlk out, int c) {
        return src.getInternCompData(out, c);}
 
+    /**
+     * Returns true if the pixels of the image can be obtained with
+     * getPackedRGB(), which is the case if the components written, the first
+     * 3 or only the first one if there are less than 3, have at most 8 bits.
+     *
+     * @return Whether getPackedRGB() can be used.
+     *
+     * @see PackedRGBSrc
+     **/
+    public boolean isPackable () {
+        return isPackable((ncomps >= 3) ? 3 : 1); }
+
+    /**
+     * Returns, in the blk argument, the 8 bit pixels of the specified
+     * area. The samples of the components are converted to 8 bits and packed
+     * into pixels in a single pass. If there are less than 3 components the
+     * first one is written as a greyscale.
+     *
+     * @param blk Its coordinates and dimensions specify the area to
+     * return. Some fields in this object are modified to return the data.
+     *
+     * @return The requested DataBlk
+     *
+     * @see PackedRGBSrc
+     **/
+    public DataBlkInt getPackedRGB (DataBlkInt blk) {
+        int [] ri, gi, bi, out;
+        int i, k, kr, kg, kb, end, r, g, b;
+        int rm = maxValueArray[0], rs = shiftValueArray[0];
+        int rsc = 8-(32-Integer.numberOfLeadingZeros(rm));
+
+        if (ncomps < 3) {
+            // Greyscale, written to R, G and B
+            getPackingData(blk, 1);
+            ri  = inInt[0].getDataInt();
+            out = blk.getDataInt();
+            k = 0;
+            for (i=0; i<blk.h; ++i) {
+                kr  = inInt[0].offset+i*inInt[0].scanw;
+                end = k+blk.w;
+                while (k < end) {
+                    r = ri[kr++]+rs;
+                    r = ((r<0) ? 0 : ((r>rm) ? rm : r)) << rsc;
+                    out[k++] = 0xFF000000 | (r<<16) | (r<<8) | r; }}
+            return blk; }
+
+        int gm = maxValueArray[1], gs = shiftValueArray[1];
+        int bm = maxValueArray[2], bs = shiftValueArray[2];
+        int gsc = 8-(32-Integer.numberOfLeadingZeros(gm));
+        int bsc = 8-(32-Integer.numberOfLeadingZeros(bm));
+
+        getPackingData(blk, 3);
+        ri  = inInt[0].getDataInt();
+        gi  = inInt[1].getDataInt();
+        bi  = inInt[2].getDataInt();
+        out = blk.getDataInt();
+        k = 0;
+        for (i=0; i<blk.h; ++i) {
+            kr  = inInt[0].offset+i*inInt[0].scanw;
+            kg  = inInt[1].offset+i*inInt[1].scanw;
+            kb  = inInt[2].offset+i*inInt[2].scanw;
+            end = k+blk.w;
+            while (k < end) {
+                r = ri[kr++]+rs;
+                r = ((r<0) ? 0 : ((r>rm) ? rm : r)) << rsc;
+                g = gi[kg++]+gs;
+                g = ((g<0) ? 0 : ((g>gm) ? gm : g)) << gsc;
+                b = bi[kb++]+bs;
+                b = ((b<0) ? 0 : ((b>bm) ? bm : b)) << bsc;
+                out[k++] = 0xFF000000 | (r<<16) | (g<<8) | b; }}
+
+        return blk; }
+
     /* end class EnumeratedColorSpaceMapper */ }
 
 
@@ -12,6 +12,7 @@ import jj2000.j2k.image.BlkImgDataSrc;
 import jj2000.j2k.image.DataBlk;
 import jj2000.j2k.image.DataBlkFloat;
 import jj2000.j2k.image.DataBlkInt;
+import jj2000.j2k.image.PackedRGBSrc;
 
 
 /**
@@ -23,6 +24,7 @@ import jj2000.j2k.image.DataBlkInt;
  * @author	Bruce A. Kern
  */
 public class SYccColorSpaceMapper extends ColorSpaceMapper
+    implements PackedRGBSrc
 {
     /* sYCC colorspace matrix */
         
@@ -36,6 +38,15 @@ public class SYccColorSpaceMapper extends ColorSpaceMapper
     /** Matrix component for ycc transform. */ static protected float Matrix21 = (float) 1.772;
     /** Matrix component for ycc transform. */ static protected float Matrix22 = 0; 
 
+    /** Fractional bits of the fixed point matrix. */
+    private static final int FRAC_BITS = 16;
+
+    /** The ycc transform matrix in fixed point, row by row. */
+    private static final int [] fixedMatrix = {
+        toFixed(Matrix00), toFixed(Matrix01), toFixed(Matrix02),
+        toFixed(Matrix10), toFixed(Matrix11), toFixed(Matrix12),
+        toFixed(Matrix20), toFixed(Matrix21), toFixed(Matrix22) };
+
        
     /**
      * Factory method for creating instances of this class.
@@ -187,6 +198,88 @@ public class SYccColorSpaceMapper extends ColorSpaceMapper
     public DataBlk getInternCompData (DataBlk out, int c) {
         return getCompData(out, c);}
 
+    /**
+     * Returns true if the pixels of the image can be obtained with
+     * getPackedRGB(), which is the case if it has 3 components of at most 8
+     * bits.
+     *
+     * @return Whether getPackedRGB() can be used.
+     *
+     * @see PackedRGBSrc
+     **/
+    public boolean isPackable () {
+        return ncomps == 3 && isPackable(3); }
+
+    /**
+     * Returns, in the blk argument, the 8 bit sRGB pixels of the specified
+     * area. The ycc matrix is applied in fixed point and the results are
+     * converted to 8 bits and packed into pixels in a single pass.
+     *
+     * @param blk Its coordinates and dimensions specify the area to
+     * return. Some fields in this object are modified to return the data.
+     *
+     * @return The requested DataBlk
+     *
+     * @see PackedRGBSrc
+     **/
+    public DataBlkInt getPackedRGB (DataBlkInt blk) {
+        int [] m = fixedMatrix;
+        int [] yIn, cbIn, crIn, out;
+        int i, ky, kcb, kcr, k, end, y, cb, cr, r, g, b;
+        int rm = maxValueArray[0], rs = shiftValueArray[0];
+        int gm = maxValueArray[1], gs = shiftValueArray[1];
+        int bm = maxValueArray[2], bs = shiftValueArray[2];
+        int rsc = 8-(32-Integer.numberOfLeadingZeros(rm));
+        int gsc = 8-(32-Integer.numberOfLeadingZeros(gm));
+        int bsc = 8-(32-Integer.numberOfLeadingZeros(bm));
+
+        getPackingData(blk, 3);
+        yIn  = inInt[0].getDataInt();
+        cbIn = inInt[1].getDataInt();
+        crIn = inInt[2].getDataInt();
+        out  = blk.getDataInt();
+
+        k = 0;
+        for (i=0; i<blk.h; ++i) {
+            ky  = inInt[0].offset+i*inInt[0].scanw;
+            kcb = inInt[1].offset+i*inInt[1].scanw;
+            kcr = inInt[2].offset+i*inInt[2].scanw;
+            end = k+blk.w;
+            while (k < end) {
+                y  = yIn[ky++];
+                cb = cbIn[kcb++];
+                cr = crIn[kcr++];
+
+                // Apply the matrix, truncating the results as the
+                // conversion of the floating point ones to int does, then
+                // level shift, clip and scale them to 8 bits.
+                r = truncate(m[0]*y + m[1]*cb + m[2]*cr) + rs;
+                r = ((r<0) ? 0 : ((r>rm) ? rm : r)) << rsc;
+                g = truncate(m[3]*y + m[4]*cb + m[5]*cr) + gs;
+                g = ((g<0) ? 0 : ((g>gm) ? gm : g)) << gsc;
+                b = truncate(m[6]*y + m[7]*cb + m[8]*cr) + bs;
+                b = ((b<0) ? 0 : ((b>bm) ? bm : b)) << bsc;
+                out[k++] = 0xFF000000 | (r<<16) | (g<<8) | b; }}
+
+        return blk; }
+
+    /**
+     * Drops the fractional bits of a fixed point value, rounding towards
+     * zero.
+     *   @param s the fixed point value
+     * @return the integer part
+     */
+    private static int truncate (int s) {
+        return (s>=0) ? s>>FRAC_BITS : -((-s)>>FRAC_BITS); }
+
+    /**
+     * Converts a matrix coefficient to fixed point.
+     *   @param f the coefficient
+     * @return the fixed point coefficient
+     */
+    private static int toFixed (float f) {
+        return Math.round(f*(1<<FRAC_BITS)); }
+
 
     /**
      * Output a DataBlkFloat array where each sample in each component
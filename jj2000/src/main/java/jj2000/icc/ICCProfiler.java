@@ -0,0 +1,544 @@
+/*****************************************************************************
+ *
+ * $Id: ICCProfiler.java 169 2012-01-15 18:33:24Z mroland $
+ *
+ * Copyright Eastman Kodak Company, 343 State Street, Rochester, NY 14650
+ * $Date $
+ *****************************************************************************/
+package jj2000.icc;
+
+import java.io.IOException;
+
+import jj2000.colorspace.ColorSpace;
+import jj2000.colorspace.ColorSpaceException;
+import jj2000.colorspace.ColorSpaceMapper;
+import jj2000.icc.lut.MatrixBasedTransformException;
+import jj2000.icc.lut.MatrixBasedTransformTosRGB;
+import jj2000.icc.lut.MonochromeTransformException;
+import jj2000.icc.lut.MonochromeTransformTosRGB;
+import jj2000.j2k.image.BlkImgDataSrc;
+import jj2000.j2k.image.DataBlk;
+import jj2000.j2k.image.DataBlkFloat;
+import jj2000.j2k.image.DataBlkInt;
+import jj2000.j2k.image.PackedRGBSrc;
+
+/**
+ * This class provides ICC Profiling API for the jj2000.j2k imaging chain
+ * by implementing the BlkImgDataSrc interface, in particular the getCompData
+ * and getInternCompData methods.
+ * 
+ * @see		jj2000.j2k.icc.ICCProfile
+ * @version	1.0
+ * @author	Bruce A. Kern
+ */
+public class ICCProfiler extends ColorSpaceMapper implements PackedRGBSrc {
+
+    /** The prefix for ICC Profiler options */
+    public final static char OPT_PREFIX = 'I';
+
+    /** Platform dependant end of line String. */
+    protected final static String eol = System.getProperty("line.separator");
+
+    // Renamed for convenience:
+    private static final int GRAY  = RestrictedICCProfile.GRAY;
+    private static final int RED   = RestrictedICCProfile.RED;
+    private static final int GREEN = RestrictedICCProfile.GREEN;
+    private static final int BLUE  = RestrictedICCProfile.BLUE;
+
+    // ICCProfiles.
+    RestrictedICCProfile ricc = null;
+    ICCProfile icc = null;
+
+    // Temporary variables needed during profiling.
+    private DataBlkInt[]    tempInt; // Holds the results of the transform.
+    private DataBlkFloat [] tempFloat; // Holds the results of the transform.
+
+    private Object  xform = null;
+
+    /** The tile of the area whose results are in 'tempInt' or 'tempFloat',
+     * or -1 if there are no valid results */
+    private int computedTile = -1;
+
+    /** The data type of the valid results */
+    private int computedType;
+
+    /** The image's ICC profile. */
+    private RestrictedICCProfile iccp = null;
+
+    /**
+     * Factory method for creating instances of this class.
+     *   @param src -- source of image data
+     *   @param csMap -- provides colorspace info
+     * @return ICCProfiler instance
+     * @exception IOException profile access exception
+     * @exception ICCProfileException profile content exception
+     */
+    public static BlkImgDataSrc createInstance(BlkImgDataSrc src, 
+					       ColorSpace csMap) 
+        throws IOException, ICCProfileException, ColorSpaceException {
+        return new ICCProfiler (src, csMap); 
+    }
+
+    /**
+     * Ctor which creates an ICCProfile for the image and initializes
+     * all data objects (input, working, output).
+     *
+     *   @param src -- Source of image data
+     *   @param csm -- provides colorspace info
+     *
+     * @exception IOException
+     * @exception ICCProfileException
+     * @exception IllegalArgumentException
+     */
+    protected ICCProfiler (BlkImgDataSrc src, ColorSpace csMap)  
+        throws ColorSpaceException, IOException, ICCProfileException, 
+	       IllegalArgumentException {
+        super (src, csMap);
+        initialize ();
+
+        // The profile is parsed and its transform built only the first
+        // time it is seen with these components, and then shared.
+        ICCTransformCache.Key key = null;
+        ICCTransformCache.Entry entry = null;
+        if (ncomps==1 || ncomps==3) {
+            key = new ICCTransformCache.Key(csMap.getICCProfile(),
+                                            maxValueArray, shiftValueArray);
+            entry = ICCTransformCache.get(key); }
+
+        if (entry==null) {
+            iccp = getICCProfile(csMap);
+            if(ncomps==1) {
+                xform = new MonochromeTransformTosRGB(iccp,maxValueArray[0], 
+                                                      shiftValueArray[0]);
+            } else {
+                xform = new MatrixBasedTransformTosRGB(iccp,maxValueArray,
+                                                       shiftValueArray);
+            }
+            entry = ICCTransformCache.put
+                (key, new ICCTransformCache.Entry(iccp, xform)); }
+
+        iccp = ricc = entry.ricc;
+        if (ncomps==1) {
+            xform = entry.xform; 
+        } else {
+            // The intermediate buffer of the transform is not shared
+            xform = new MatrixBasedTransformTosRGB
+                ((MatrixBasedTransformTosRGB) entry.xform); }
+
+        /* end ICCProfiler ctor */ }
+    
+    /** General utility used by ctors */
+    private void initialize() { 
+
+        tempInt     = new DataBlkInt [ncomps];
+        tempFloat   = new DataBlkFloat [ncomps];
+
+        /* For each component, get the maximum data value, a reference
+         * to the pixel data and set up working and temporary DataBlks
+         * for both integer and float output.
+         */
+        for (int i=0;i<ncomps;++i) {
+            tempInt [i] = new DataBlkInt();
+            tempFloat [i] = new DataBlkFloat(); }}
+
+   /**
+    * Get the ICCProfile information JP2 ColorSpace
+    *   @param csm provides all necessary info about the colorspace
+    * @return ICCMatrixBasedInputProfile for 3 component input and
+    * ICCMonochromeInputProfile for a 1 component source.  Returns
+    * null if exceptions were encountered.
+    * @exception ColorSpaceException
+    * @exception ICCProfileException
+    * @exception IllegalArgumentException
+    */
+    private RestrictedICCProfile getICCProfile (ColorSpace csm) 
+        throws ColorSpaceException, ICCProfileException, 
+	       IllegalArgumentException {
+
+        switch (ncomps) {
+        case 1:
+            icc=ICCMonochromeInputProfile.createInstance  (csm);
+            ricc = icc.parse();
+            if (ricc.getType() != RestrictedICCProfile.kMonochromeInput) 
+                throw new IllegalArgumentException("wrong ICCProfile type"+
+						   " for image");
+            break;
+        case 3:
+            icc=ICCMatrixBasedInputProfile.createInstance  (csm);
+            ricc =  icc.parse();
+            if (ricc.getType() != RestrictedICCProfile.kThreeCompInput) 
+                throw new IllegalArgumentException("wrong ICCProfile type"+
+						   " for image");
+            break;
+        default:
+            throw new IllegalArgumentException ("illegal number of "+
+						"components ("+ncomps+
+						") in image");
+        }
+        return ricc; 
+    }
+
+    /**
+     * Returns, in the blk argument, a block of image data containing the
+     * specifed rectangular area, in the specified component. The data is
+     * returned, as a copy of the internal data, therefore the returned data
+     * can be modified "in place".
+     *
+     * <P>The rectangular area to return is specified by the 'ulx', 'uly', 'w'
+     * and 'h' members of the 'blk' argument, relative to the current
+     * tile. These members are not modified by this method. The 'offset' of
+     * the returned data is 0, and the 'scanw' is the same as the block's
+     * width. See the 'DataBlk' class.
+     *
+     * <P>If the data array in 'blk' is 'null', then a new one is created. If
+     * the data array is not 'null' then it is reused, and it must be large
+     * enough to contain the block's data. Otherwise an 'ArrayStoreException'
+     * or an 'IndexOutOfBoundsException' is thrown by the Java system.
+     *
+     * <P>The returned data has its 'progressive' attribute set to that of the
+     * input data.
+     *
+     * @param out Its coordinates and dimensions specify the area to
+     * return. If it contains a non-null data array, then it must have the
+     * correct dimensions. If it contains a null data array a new one is
+     * created. The fields in this object are modified to return the data.
+     *
+     * @param c The index of the component from which to get the data. Only 0
+     * and 3 are valid.
+     *
+     * @return The requested DataBlk
+     *
+     * @see #getInternCompData
+     **/
+    public DataBlk getCompData (DataBlk outblk, int c) {
+        Object data;
+        int n;
+
+        if (ncomps != 1 && ncomps != 3) {
+            return src.getCompData(outblk, c); }
+
+        // Get the profiled data, which is internal, and copy it to the
+        // array of 'outblk'
+        data = outblk.getData();
+        if (getInternCompData(outblk, c) == null) {
+            return null; }
+        n = outblk.w*outblk.h;
+        if (outblk.getDataType() == DataBlk.TYPE_INT) {
+            if (data == null || ((int[]) data).length < n) {
+                data = new int [n]; }
+        } else {
+            if (data == null || ((float[]) data).length < n) {
+                data = new float [n]; }
+        }
+        System.arraycopy(outblk.getData(), 0, data, 0, n);
+        outblk.setData(data);
+        return outblk; 
+    }
+
+    /**
+     * Returns, in the blk argument, a block of image data containing the
+     * specifed rectangular area, in the specified component. The data is
+     * returned, as a reference to the internal data, if any, instead of as a
+     * copy, therefore the returned data should not be modified.
+     *
+     * <P>The rectangular area to return is specified by the 'ulx', 'uly', 'w'
+     * and 'h' members of the 'blk' argument, relative to the current
+     * tile. These members are not modified by this method. The 'offset' and
+     * 'scanw' of the returned data can be arbitrary. See the 'DataBlk' class.
+     *
+     * <P>This method, in general, is more efficient than the 'getCompData()'
+     * method since it may not copy the data. However if the array of returned
+     * data is to be modified by the caller then the other method is probably
+     * preferable.
+     *
+     * <P>If possible, the data in the returned 'DataBlk' should be the
+     * internal data itself, instead of a copy, in order to increase the data
+     * transfer efficiency. However, this depends on the particular
+     * implementation (it may be more convenient to just return a copy of the
+     * data). This is the reason why the returned data should not be modified.
+     *
+     * <P>If the data array in <tt>blk</tt> is <tt>null</tt>, then a new one
+     * is created if necessary. The implementation of this interface may
+     * choose to return the same array or a new one, depending on what is more
+     * efficient. Therefore, the data array in <tt>blk</tt> prior to the
+     * method call should not be considered to contain the returned data, a
+     * new array may have been created. Instead, get the array from
+     * <tt>blk</tt> after the method has returned.
+     *
+     * <P>The returned data may have its 'progressive' attribute set. In this
+     * case the returned data is only an approximation of the "final" data.
+     *
+     * @param blk Its coordinates and dimensions specify the area to return,
+     * relative to the current tile. Some fields in this object are modified
+     * to return the data.
+     *
+     * @param c The index of the component from which to get the data.
+     *
+     * @return The requested DataBlk
+     * 
+     * @see #getCompData
+     **/
+    public DataBlk getInternCompData(DataBlk out, int c) {
+
+        try {
+            if (ncomps != 1 && ncomps != 3) {
+                return src.getInternCompData(out, c); }
+
+            int type = out.getDataType();
+
+            // All the components are transformed at once, so the other ones
+            // are kept for their requests of the same area.
+            if (!isComputed(out, type)) {
+                transform(out, type); }
+
+            switch (type) { // Int and Float data only
+
+            case DataBlk.TYPE_INT:
+                out.progressive = inInt[c].progressive;
+                out.setData(tempInt[c].getData());
+                break;
+
+            case DataBlk.TYPE_FLOAT:
+                out.progressive = inFloat[c].progressive;
+                out.setData(tempFloat[c].getData());
+                break;
+
+            default:
+                // Unsupported output type. 
+                throw new IllegalArgumentException ("invalid source datablock"+
+						    " type"); 
+	    }
+
+            // Initialize the output block geometry and set the profiled
+            // data into the output block.
+            out.offset = 0;
+            out.scanw = out.w; 
+	} catch (MatrixBasedTransformException e) { 
+	    return null; 
+	} catch (MonochromeTransformException e) { 
+            return null; 
+	}
+
+        return out; 
+    }
+
+    /**
+     * Returns the position of the fixed point in the specified component.
+     * The profile transform removes the fractional bits of the source
+     * data, so the integer data returned by this object has none, whatever
+     * the fixed point of the source.
+     *
+     * @param c The index of the component.
+     *
+     * @return The position of the fixed point, which is always 0.
+     **/
+    public int getFixedPoint(int c) {
+        return 0;
+    }
+
+    /**
+     * Returns true if the pixels of the image can be obtained with
+     * getPackedRGB(), which is the case if its components have at most 8
+     * bits.
+     *
+     * @return Whether getPackedRGB() can be used.
+     *
+     * @see PackedRGBSrc
+     **/
+    public boolean isPackable () {
+        if (!isPackable(ncomps)) {
+            return false; }
+        return (ncomps == 1) ?
+            ((MonochromeTransformTosRGB) xform).isPackable() :
+            ((MatrixBasedTransformTosRGB) xform).isPackable(); 
+    }
+
+    /**
+     * Returns, in the blk argument, the profiled 8 bit pixels of the
+     * specified area. The input data of all the components is transformed
+     * and packed into pixels in a single pass, without the intermediate
+     * blocks of getInternCompData().
+     *
+     * @param blk Its coordinates and dimensions specify the area to
+     * return. Some fields in this object are modified to return the data.
+     *
+     * @return The requested DataBlk
+     *
+     * @see PackedRGBSrc
+     **/
+    public DataBlkInt getPackedRGB (DataBlkInt blk) {
+        getPackingData(blk, ncomps);
+        if (ncomps == 1) {
+            ((MonochromeTransformTosRGB) xform).applyPacked(inInt[0], blk); 
+        } else {
+            ((MatrixBasedTransformTosRGB) xform).applyPacked(inInt, blk); 
+        }
+        return blk; 
+    }
+
+    /**
+     * Returns true if the results of the last transform are those of the
+     * area of 'blk' in the current tile, for the data type 'type'. Results
+     * of progressive data are never reused.
+     *
+     * @param blk Its coordinates and dimensions specify the area.
+     *
+     * @param type The data type.
+     *
+     * @return Whether the results can be reused.
+     **/
+    private boolean isComputed (DataBlk blk, int type) {
+        DataBlk res = (type == DataBlk.TYPE_INT) ?
+            (DataBlk) tempInt[0] : (DataBlk) tempFloat[0];
+
+        return computedTile == getTileIdx() && computedType == type &&
+            res.ulx == blk.ulx && res.uly == blk.uly &&
+            res.w == blk.w && res.h == blk.h; 
+    }
+
+    /**
+     * Gets the specified area of all the components from the source and
+     * applies the profile transform to them. The input, working and result
+     * blocks are reused from one call to the next, they are only
+     * reallocated when a larger area is requested. The results are in
+     * 'tempInt' or 'tempFloat', depending on the data type.
+     *
+     * @param outblk Its coordinates and dimensions specify the area to
+     * transform.
+     *
+     * @param type The data type, DataBlk.TYPE_INT or DataBlk.TYPE_FLOAT.
+     *
+     * @exception MatrixBasedTransformException
+     * @exception MonochromeTransformException
+     **/
+    private void transform (DataBlk outblk, int type) 
+        throws MatrixBasedTransformException, MonochromeTransformException {
+        boolean progressive = false;
+
+        computedTile = -1;
+
+        int leftedgeOut= -1;  // offset to the start of the output scanline
+        int rightedgeOut= -1; // offset to the end of the output
+                              // scanline + 1
+        int leftedgeIn= -1; // offset to the start of the input scanline
+        int rightedgeIn= -1; // offset to the end of the input
+                             // scanline + 1
+
+        // Calculate all components:
+        for (int i=0; i<ncomps; ++i) {
+
+            int fixedPtBits  = src.getFixedPoint(i);
+            int roundVal     = (fixedPtBits>0) ? 1<<(fixedPtBits-1) : 0;
+            int shiftVal     = shiftValueArray[i];
+            int maxVal       = maxValueArray[i];
+
+            // Initialize general input and output indexes
+            int kOut= -1;
+            int kIn=  -1;
+
+            switch (type) { // Int and Float data only
+
+            case DataBlk.TYPE_INT:
+
+                // Set up the DataBlk geometry
+                copyGeometry (workInt[i],   outblk);
+                copyGeometry (tempInt[i],   outblk);
+                copyGeometry (inInt[i],     outblk);
+
+                // Reference the output array
+                workDataInt[i] = (int[])workInt[i].getData();
+
+                // Request data from the source.
+                inInt[i] = (DataBlkInt) src.getInternCompData(inInt[i], i);
+                dataInt[i] = inInt[i].getDataInt();
+
+                // The nitty-gritty.
+
+                for(int row=0; row<outblk.h; ++row) {
+                    leftedgeIn  = inInt[i].offset + row*inInt[i].scanw;
+                    rightedgeIn = leftedgeIn + inInt[i].w;
+                    leftedgeOut  = row*outblk.w;
+                    rightedgeOut = leftedgeOut + outblk.w;
+
+                    for(kOut=leftedgeOut,kIn=leftedgeIn; kIn<rightedgeIn;
+                        ++kIn, ++kOut) {
+                        int tmpInt = (dataInt[i][kIn]+roundVal >>
+                                      fixedPtBits)+shiftVal;
+                        workDataInt[i][kOut] =
+                            ((tmpInt<0) ? 0 :
+                             ((tmpInt>maxVal)?maxVal:tmpInt));
+                    }
+                }
+                break;
+
+            case DataBlk.TYPE_FLOAT:
+
+                // Set up the DataBlk geometry
+                copyGeometry (workFloat[i], outblk);
+                copyGeometry (tempFloat[i], outblk);
+                copyGeometry (inFloat[i],   outblk);
+
+                // Reference the output array
+                workDataFloat[i] = (float[])workFloat[i].getData();
+
+                // Request data from the source.
+                inFloat[i] =
+                    (DataBlkFloat) src.getInternCompData(inFloat[i], i);
+                dataFloat[i] = inFloat[i].getDataFloat();
+
+                // The nitty-gritty.
+
+                for(int row=0; row<outblk.h; ++row) {
+                    leftedgeIn  = inFloat[i].offset + row*inFloat[i].scanw;
+                    rightedgeIn = leftedgeIn + inFloat[i].w;
+                    leftedgeOut  = row*outblk.w;
+                    rightedgeOut = leftedgeOut + outblk.w;
+
+                    for(kOut=leftedgeOut, kIn=leftedgeIn; kIn<rightedgeIn;
+                        ++kIn, ++kOut) {
+                        float tmpFloat = dataFloat[i][kIn] /
+                            (1<<fixedPtBits) + shiftVal;
+                        workDataFloat[i][kOut] =
+                            ((tmpFloat<0) ? 0 :
+                             ((tmpFloat>maxVal)?maxVal:tmpFloat));
+                    }
+                }
+                break;
+
+            case DataBlk.TYPE_SHORT:
+            case DataBlk.TYPE_BYTE:
+            default:
+                // Unsupported output type.
+                throw new IllegalArgumentException ("Invalid source "+
+                                                    "datablock type");
+            }
+
+            progressive |= (type == DataBlk.TYPE_INT) ?
+                inInt[i].progressive : inFloat[i].progressive;
+        }
+
+        if (type == DataBlk.TYPE_INT) {
+            if (ncomps == 1) {
+                ((MonochromeTransformTosRGB) xform).apply(workInt[0],
+                                                          tempInt[0]); 
+            } else { // ncomps == 3
+                ((MatrixBasedTransformTosRGB) xform).apply(workInt, 
+                                                           tempInt); 
+            }
+        } else {
+            if (ncomps == 1) {
+                ((MonochromeTransformTosRGB) xform).apply(workFloat[0],
+                                                          tempFloat[0]); 
+            } else { // ncomps == 3
+                ((MatrixBasedTransformTosRGB) xform).apply(workFloat,
+                                                           tempFloat); 
+            }
+        }
+
+        // Remember the transformed area, unless the data may improve
+        if (!progressive) {
+            computedTile = getTileIdx();
+            computedType = type; }
+    }
+
+    /* end class ICCProfiler */ }
@@ -0,0 +1,124 @@
+/*****************************************************************************
+ *
+ * $Id$
+ *
+ *****************************************************************************/
+package jj2000.icc;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the restricted profiles and the transforms to sRGB built
+ * from the ICC profiles of the images decoded, so that a profile seen before
+ * is not parsed again and its lookup tables are not rebuilt. It is shared by
+ * all the ICCProfiler instances of the process and its methods can be
+ * called concurrently from different threads.
+ *
+ * <p>An entry is identified by the bytes of the profile and the maximum and
+ * shift values of the components, which determine the size and the contents
+ * of the lookup tables. Only the most recently used entries are kept.</p>
+ *
+ * <p>The cached objects are shared and must not be modified. The
+ * MatrixBasedTransformTosRGB kept has to be copied before being applied,
+ * since it holds a working buffer.</p>
+ *
+ * @see ICCProfiler
+ */
+final class ICCTransformCache {
+
+    /** The maximum number of entries kept */
+    private static final int MAX_ENTRIES = 8;
+
+    /** The entries, the least recently used one first */
+    private static final LinkedHashMap<Key,Entry> entries =
+        new LinkedHashMap<Key,Entry>(16,0.75f,true) {
+            protected boolean removeEldestEntry
+                (Map.Entry<Key,ICCTransformCache.Entry> eldest) {
+                return size() > MAX_ENTRIES; }};
+
+    /** A parsed profile and the transform built from it. */
+    static final class Entry {
+
+        /** The restricted profile */
+        final RestrictedICCProfile ricc;
+
+        /** The transform, a MonochromeTransformTosRGB or a
+         * MatrixBasedTransformTosRGB */
+        final Object xform;
+
+        Entry (RestrictedICCProfile ricc, Object xform) {
+            this.ricc = ricc;
+            this.xform = xform; }}
+
+    /** The identification of an entry. */
+    static final class Key {
+
+        private final byte [] profile;
+        private final int [] maxValues;
+        private final int [] shiftValues;
+        private final int hash;
+
+        /**
+         * Creates the key of a profile for the given components. The arrays
+         * are copied.
+         *   @param profile the bytes of the ICC profile
+         *   @param maxValues the maximum value of each component
+         *   @param shiftValues the level shift of each component
+         */
+        Key (byte [] profile, int [] maxValues, int [] shiftValues) {
+            this.profile = profile.clone();
+            this.maxValues = maxValues.clone();
+            this.shiftValues = shiftValues.clone();
+            hash = (Arrays.hashCode(this.profile)*31 +
+                    Arrays.hashCode(this.maxValues))*31 +
+                Arrays.hashCode(this.shiftValues); }
+
+        public int hashCode () {
+            return hash; }
+
+        public boolean equals (Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return hash == k.hash &&
+                Arrays.equals(maxValues, k.maxValues) &&
+                Arrays.equals(shiftValues, k.shiftValues) &&
+                Arrays.equals(profile, k.profile); }}
+
+    private ICCTransformCache () {
+    }
+
+    /**
+     * Returns the entry of the key, or null if there is none.
+     *   @param key identifies the entry
+     * @return the cached entry or null.
+     */
+    static Entry get (Key key) {
+        synchronized (entries) {
+            return entries.get(key); }}
+
+    /**
+     * Adds an entry, which may drop the least recently used one. If another
+     * thread added an entry for the same key in the meantime, that one is
+     * kept and returned instead.
+     *   @param key identifies the entry
+     *   @param entry the entry to add
+     * @return the entry kept for the key.
+     */
+    static Entry put (Key key, Entry entry) {
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e != null) return e;
+            entries.put(key, entry);
+            return entry; }}
+
+    /**
+     * Drops all the entries, so that the next profilers parse their profile
+     * and build their transform again.
+     */
+    static void clear () {
+        synchronized (entries) {
+            entries.clear(); }}
+
+    /* end class ICCTransformCache */ }
@@ -76,6 +76,11 @@ public class MatrixBasedTransformTosRGB {
 
     private float [][] fBuf = null;      // Intermediate output of the first LUT operation.
 
+    private static final int PACKED_FRAC_BITS = 16; // Fractional bits of 'fxLut'
+
+    private int [][]  fxLut = null;      // Input LUTs times each matrix coefficient, in fixed point.
+    private byte [][] out8  = null;      // Final 8 bit sample of each component for each index of 'lut'.
+
 
     /**
      * Construct a 3 component transform based on an input RestricedICCProfile
@@ -115,7 +120,111 @@ public class MatrixBasedTransformTosRGB {
         lut = LookUpTable32LinearSRGBtoSRGB.createInstance
             (dwMaxValue[0], dwMaxValue[0], 
              ksRGBShadowCutoff, ksRGBShadowSlope, 
-             ksRGBScaleAfterExp, ksRGBExponent, ksRGBReduceAfterExp); }
+             ksRGBScaleAfterExp, ksRGBExponent, ksRGBReduceAfterExp);
+
+        // Create the tables of the packed pixels, for 8 bit components.
+        if (dwMaxValue[0]<=255 && dwMaxValue[1]<=255 && dwMaxValue[2]<=255) {
+            createPackingTables(); }}
+
+    /**
+     * Construct a transform that shares the luts and the matrix of another
+     * one, which are not modified once built, but has its own intermediate
+     * buffer. The two transforms can then be applied concurrently.
+     *   @param xform the transform to copy
+     */
+    public MatrixBasedTransformTosRGB (MatrixBasedTransformTosRGB xform) {
+        this .dwMaxValue   = xform.dwMaxValue;
+        this .dwShiftValue = xform.dwShiftValue;
+        fLut   = xform.fLut;
+        matrix = xform.matrix;
+        lut    = xform.lut;
+        fxLut  = xform.fxLut;
+        out8   = xform.out8; }
+
+    /**
+     * Create the tables used by applyPacked.  Each input LUT is multiplied
+     * by the matrix coefficients it is combined with, so that the matrix
+     * is applied by adding 3 fixed point values, and the final LUT is
+     * followed by the conversion of the output samples to 8 bits.
+     */
+    private void createPackingTables () {
+        int c, i, k;
+
+        fxLut = new int [9][];
+        for (k=0; k<9; ++k) {
+            float [] lutFP = fLut[k%3].lut;
+            fxLut[k] = new int [lutFP.length];
+            for (i=0; i<lutFP.length; ++i) {
+                fxLut[k][i] = (int) Math.floor(matrix[k] * lutFP[i] * 
+                                               (1<<PACKED_FRAC_BITS) + 0.5); }}
+
+        out8 = new byte [3][lut.lut.length];
+        for (c=0; c<3; ++c) {
+            int bits = 32 - Integer.numberOfLeadingZeros(dwMaxValue[c]);
+            for (i=0; i<lut.lut.length; ++i) {
+                int v = lut.lut[i] + dwShiftValue[c];
+                v = (v<0) ? 0 : ((v>dwMaxValue[c]) ? dwMaxValue[c] : v);
+                out8[c][i] = (byte) (v << (8-bits)); }}}
+
+    /**
+     * Returns true if applyPacked can be used, that is if all the
+     * components have at most 8 bits.
+     * @return whether the packing tables exist
+     */
+    public boolean isPackable () {
+        return fxLut != null; }
+
+    /**
+     * Performs the transform and packs the resulting 8 bit sRGB samples
+     * into pixels, in a single pass over the data.  The input samples are
+     * those of the source, before they are shifted to be positive.  The
+     * input LUTs, the matrix and the final LUT are applied through the
+     * tables created with the transform, the matrix in fixed point, and the
+     * output samples are converted to 8 bits as if written by
+     * ImgWriterPacked.
+     *   @param inb input data blocks, with the samples of the area of 'outb'
+     *   @param outb output block, its buffer must have room for all the
+     *   pixels of its area, with an offset of 0 and a scan width equal to
+     *   its width.
+     * @see jj2000.j2k.image.PackedRGBSrc
+     */
+    public void applyPacked (DataBlkInt inb [], DataBlkInt outb) {
+        int [] ri = inb[RED].getDataInt();
+        int [] gi = inb[GREEN].getDataInt();
+        int [] bi = inb[BLUE].getDataInt();
+        int [] out = outb.getDataInt();
+
+        int [] l00 = fxLut[M00], l01 = fxLut[M01], l02 = fxLut[M02];
+        int [] l10 = fxLut[M10], l11 = fxLut[M11], l12 = fxLut[M12];
+        int [] l20 = fxLut[M20], l21 = fxLut[M21], l22 = fxLut[M22];
+        byte [] ro = out8[RED], go = out8[GREEN], bo = out8[BLUE];
+
+        int rs = dwShiftValue[RED], gs = dwShiftValue[GREEN], bs = dwShiftValue[BLUE];
+        int rm = dwMaxValue[RED], gm = dwMaxValue[GREEN], bm = dwMaxValue[BLUE];
+        int last = lut.lut.length-1;
+        int half = 1<<(PACKED_FRAC_BITS-1);
+
+        int r, g, b, val, k=0;
+        for (int y=0; y<outb.h; ++y) {
+            int kr = inb[RED].offset + y*inb[RED].scanw;
+            int kg = inb[GREEN].offset + y*inb[GREEN].scanw;
+            int kb = inb[BLUE].offset + y*inb[BLUE].scanw;
+            int end = k+outb.w;
+            while (k < end) {
+                // Shift the input samples and clip them to their range
+                r = ri[kr++]+rs; r = (r<0) ? 0 : ((r>rm) ? rm : r);
+                g = gi[kg++]+gs; g = (g<0) ? 0 : ((g>gm) ? gm : g);
+                b = bi[kb++]+bs; b = (b<0) ? 0 : ((b>bm) ? bm : b);
+
+                // Apply the matrix and the final LUT to each component
+                int p = 0xFF000000;
+                val = (l00[r] + l01[g] + l02[b] + half) >> PACKED_FRAC_BITS;
+                p |= (ro[(val<0) ? 0 : ((val>last) ? last : val)]&0xFF)<<16;
+                val = (l10[r] + l11[g] + l12[b] + half) >> PACKED_FRAC_BITS;
+                p |= (go[(val<0) ? 0 : ((val>last) ? last : val)]&0xFF)<<8;
+                val = (l20[r] + l21[g] + l22[b] + half) >> PACKED_FRAC_BITS;
+                p |= (bo[(val<0) ? 0 : ((val>last) ? last : val)]&0xFF);
+                out[k++] = p; }}}
 
 
     private double [] createMatrix (RestrictedICCProfile ricc, int [] maxValues) {
@@ -41,6 +41,8 @@ public class MonochromeTransformTosRGB {
     private short [] lut = null;
     private int dwInputMaxValue = 0;
     private LookUpTableFP fLut = null;
+    private int dwInputShiftValue = 0;
+    private int [] lutPacked = null;
 
     /**
      * Construct the lut from the RestrictedICCProfile.
@@ -69,7 +71,52 @@ public class MonochromeTransformTosRGB {
         // Now calculate the rest   
         for (; i <= dwInputMaxValue; i++)
             lut[i] = (short)(Math.floor (ksRGB8ScaleAfterExp * Math.pow((double)fLut.lut[i], ksRGBExponent) -
-                                         ksRGB8ReduceAfterExp + 0.5) - dwInputShiftValue); }
+                                         ksRGB8ReduceAfterExp + 0.5) - dwInputShiftValue);
+
+        // For 8 bit input, the packed pixel of each lut value
+        this.dwInputShiftValue = dwInputShiftValue;
+        if (dwInputMaxValue <= 255) {
+            int bits = 32 - Integer.numberOfLeadingZeros(dwInputMaxValue);
+            lutPacked = new int [dwInputMaxValue+1];
+            for (i = 0; i <= dwInputMaxValue; i++) {
+                int v = lut[i] + dwInputShiftValue;
+                v = (v<0) ? 0 : ((v>dwInputMaxValue) ? dwInputMaxValue : v);
+                v <<= 8-bits;
+                lutPacked[i] = 0xFF000000 | (v<<16) | (v<<8) | v; }}}
+
+    /**
+     * Returns true if applyPacked can be used, that is if the input has at
+     * most 8 bits.
+     * @return whether the packed pixel lut exists
+     */
+    public boolean isPackable () {
+        return lutPacked != null; }
+
+    /**
+     * Populate the output block with packed 8 bit grey pixels, by looking up
+     * the input samples in a lut combining the transform with the conversion
+     * to 8 bits done by ImgWriterPacked.  The input samples are those of the
+     * source, before they are shifted to be positive.
+     *   @param inb input samples, of the area of 'outb'
+     *   @param outb output pixels, its buffer must have room for all the
+     *   pixels of its area, with an offset of 0 and a scan width equal to
+     *   its width.
+     * @see jj2000.j2k.image.PackedRGBSrc
+     */
+    public void applyPacked (DataBlkInt inb, DataBlkInt outb) {
+        int [] in  = inb.getDataInt();
+        int [] out = outb.getDataInt();
+        int [] lp  = lutPacked;
+        int j, k=0;
+
+        for (int y=0; y<outb.h; ++y) {
+            int i = inb.offset + y*inb.scanw;
+            int end = k+outb.w;
+            while (k < end) {
+                j = in[i++]+dwInputShiftValue;
+                if (j<0) j=0;
+                else if (j>dwInputMaxValue) j=dwInputMaxValue;
+                out[k++] = lp[j]; }}}
 
     /**
      * Populate the output block by looking up the values in the lut, using the input
@@ -58,6 +58,12 @@ public class IntegerSpec extends ModuleSpec {
     /** The largest value of type int */
     protected static int MAX_INT = Integer.MAX_VALUE;
 
+    /** The value of each tile-component as an int, indexed as the array
+     * returned by getTileCompVals(), followed by the minimum and the maximum
+     * of all tile-components and of the default value. Null if not built
+     * since the last change of the specifications. */
+    private volatile int[] intVals;
+
     /**
      * Constructs a new 'IntegerSpec' for the specified number of tiles and
      * components and with allowed type of specifications. This constructor is
@@ -226,24 +232,65 @@ public class IntegerSpec extends ModuleSpec {
         
     }
 
+    /**
+     * Drops the int values built from the specifications.
+     * */
+    protected void specChanged() {
+        super.specChanged();
+        intVals = null;
+    }
+
+    /**
+     * Returns the int value of each tile-component, followed by the minimum
+     * and the maximum values. The array is built the first time it is needed
+     * after a change of the specifications and must not be modified.
+     *
+     * @return The int values.
+     * */
+    private int[] getIntVals() {
+        int[] iv = intVals;
+        if(iv==null) {
+            Object[] v = getTileCompVals();
+            int n = v.length;
+            int min = (def!=null) ? ((Integer)def).intValue() : MAX_INT;
+            int max = (def!=null) ? ((Integer)def).intValue() : -MAX_INT-1;
+            iv = new int[n+2];
+            for(int i=0; i<n; i++) {
+                iv[i] = ((Integer)v[i]).intValue();
+                if(min>iv[i])
+                    min = iv[i];
+                if(max<iv[i])
+                    max = iv[i];
+            }
+            iv[n] = min;
+            iv[n+1] = max;
+            intVals = iv;
+        }
+        return iv;
+    }
+
+    /**
+     * Gets the value of the specified tile-component as an int. Contrary to
+     * getTileCompVal() it can be used whatever the type of the
+     * specifications.
+     *
+     * @param t The tile index
+     *
+     * @param c The component index
+     *
+     * @return The value of this tile-component
+     * */
+    public int getIntVal(int t,int c) {
+        return getIntVals()[t*nComp+c];
+    }
+
     /** 
      * Gets the maximum value of all tile-components.
      *
      * @return The maximum value
      * */
     public int getMax() {
-	int max = ((Integer)def).intValue();
-	int tmp;
-
-	for(int t=0; t<nTiles; t++) {
-	    for(int c=0; c<nComp; c++) {
-		tmp = ((Integer)getSpec(t,c)).intValue();
-		if(max<tmp)
-		    max = tmp;
-	    }
-	}
-
-	return max;
+        return getIntVals()[nTiles*nComp+1];
     }
 
     /** 
@@ -252,18 +299,7 @@ public class IntegerSpec extends ModuleSpec {
      * @return The minimum value
      * */
     public int getMin() {
-	int min = ((Integer)def).intValue();
-	int tmp;
-
-	for(int t=0; t<nTiles; t++) {
-	    for(int c=0; c<nComp; c++) {
-		tmp = ((Integer)getSpec(t,c)).intValue();
-		if(min>tmp)
-		    min = tmp;
-	    }
-	}
-
-	return min;
+        return getIntVals()[nTiles*nComp];
     }
 
     /** 
@@ -274,13 +310,12 @@ public class IntegerSpec extends ModuleSpec {
      * @return The maximum value
      * */
     public int getMaxInComp(int c) {
+        int[] iv = getIntVals();
 	int max = 0;
-	int tmp;
 
 	for(int t=0; t<nTiles; t++) {
-	    tmp = ((Integer)getSpec(t,c)).intValue();
-	    if(max<tmp)
-		max = tmp;
+	    if(max<iv[t*nComp+c])
+		max = iv[t*nComp+c];
 	}
 
 	return max;
@@ -294,13 +329,12 @@ public class IntegerSpec extends ModuleSpec {
      * @return The minimum value
      * */
     public int getMinInComp(int c) {
+        int[] iv = getIntVals();
 	int min = MAX_INT; // Big value
-	int tmp;
 
 	for(int t=0; t<nTiles; t++) {
-	    tmp = ((Integer)getSpec(t,c)).intValue();
-	    if(min>tmp)
-		min = tmp;
+	    if(min>iv[t*nComp+c])
+		min = iv[t*nComp+c];
 	}
 
 	return min;
@@ -314,13 +348,12 @@ public class IntegerSpec extends ModuleSpec {
      * @return The maximum value
      * */
     public int getMaxInTile(int t) {
+        int[] iv = getIntVals();
 	int max = 0;
-	int tmp;
 
 	for(int c=0; c<nComp; c++) {
-	    tmp = ((Integer)getSpec(t,c)).intValue();
-	    if(max<tmp)
-		max = tmp;
+	    if(max<iv[t*nComp+c])
+		max = iv[t*nComp+c];
 	}
 
 	return max;
@@ -334,13 +367,12 @@ public class IntegerSpec extends ModuleSpec {
      * @return The minimum value
      * */
     public int getMinInTile(int t) {
+        int[] iv = getIntVals();
 	int min = MAX_INT; // Big value
-	int tmp;
 
 	for(int c=0; c<nComp; c++) {
-	    tmp = ((Integer)getSpec(t,c)).intValue();
-	    if(min>tmp)
-		min = tmp;
+	    if(min>iv[t*nComp+c])
+		min = iv[t*nComp+c];
 	}
 
 	return min;
@@ -118,6 +118,12 @@ public class ModuleSpec implements Cloneable {
      * tile-component specific value is defined */
     protected Hashtable tileCompVal;
 
+    /** The value of each tile-component, the one of tile t and component c
+     * being at index t*nComp+c. It is built when first needed and dropped
+     * whenever a specification changes, so that getSpec is a simple array
+     * access. Null if not built. */
+    private volatile Object[] tileCompVals;
+
     public ModuleSpec getCopy() {
         return (ModuleSpec)this.clone();
     }
@@ -136,6 +142,13 @@ public class ModuleSpec implements Cloneable {
                 ms.specValType[t][c] = specValType[t][c];
             }
         } 
+        // Create a copy of compDef
+        if(compDef!=null) {
+            ms.compDef = new Object[nComp];
+            for(int c=0; c<nComp; c++) {
+                ms.compDef[c] = compDef[c];
+            }
+        }
         // Create a copy of tileDef
         if(tileDef!=null) {
             ms.tileDef = new Object[nTiles];
@@ -214,6 +227,7 @@ public class ModuleSpec implements Cloneable {
             }
             tileCompVal = tmptcv;
         }
+        specChanged();
     }
 
     /**
@@ -250,6 +264,7 @@ public class ModuleSpec implements Cloneable {
      * */
     public void setDefault(Object value) {
 	def = value;
+        specChanged();
     }
 
     /** 
@@ -283,6 +298,7 @@ public class ModuleSpec implements Cloneable {
             }
 	}
 	compDef[c] = value;
+        specChanged();
     }
 
     /** 
@@ -329,6 +345,7 @@ public class ModuleSpec implements Cloneable {
 	    }
 	}
 	tileDef[t] = value;
+        specChanged();
     }
 
     /** 
@@ -377,6 +394,7 @@ public class ModuleSpec implements Cloneable {
 	    tileCompVal = new Hashtable();
 	specValType[t][c] = SPEC_TILE_COMP; 
 	tileCompVal.put("t"+t+"c"+c,value);
+        specChanged();
     }
 
     /** 
@@ -414,6 +432,53 @@ public class ModuleSpec implements Cloneable {
      * @return Value for this tile component.
      * */
     protected Object getSpec(int t,int c) {
+        return getTileCompVals()[t*nComp+c];
+    }
+
+    /**
+     * Returns the value of each tile-component, the one of tile 't' and
+     * component 'c' being at index t*nComp+c. The array is built from the
+     * specifications the first time it is needed and is then kept until a
+     * specification changes. It may be called concurrently from different
+     * threads and must not be modified.
+     *
+     * @return The value of each tile-component.
+     * */
+    protected final Object[] getTileCompVals() {
+        Object[] v = tileCompVals;
+        if(v==null) {
+            v = new Object[nTiles*nComp];
+            for(int t=0; t<nTiles; t++) {
+                for(int c=0; c<nComp; c++) {
+                    v[t*nComp+c] = lookupSpec(t,c);
+                }
+            }
+            tileCompVals = v;
+        }
+        return v;
+    }
+
+    /**
+     * Called whenever a specification changes. It drops the values built
+     * from the specifications, so that they are built again when needed.
+     * Subclasses keeping their own values derived from the specifications
+     * must drop them here too.
+     * */
+    protected void specChanged() {
+        tileCompVals = null;
+    }
+
+    /**
+     * Looks up the value of the specified tile-component in the
+     * specifications, following their hierarchy.
+     *
+     * @param t Tile index
+     *
+     * @param c Component index
+     *
+     * @return Value for this tile component.
+     * */
+    private Object lookupSpec(int t,int c) {
 	switch(specValType[t][c]) {
 	case SPEC_DEF:
 	    return getDefault();
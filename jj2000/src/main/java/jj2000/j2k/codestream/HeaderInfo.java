@@ -337,41 +337,41 @@ public class HeaderInfo implements Markers,ProgressionType,FilterTypes,
 
     /** Reference to the SOT marker segments found in tile-part headers. The
      * kwy is given by "t"+tileIdx"_tp"+tilepartIndex. */
-    public Hashtable sot = new Hashtable();
+    public Hashtable<String,SOT> sot = new Hashtable<String,SOT>();
 
     /** Reference to the COD marker segments found in main and first tile-part
      * header. The key is either "main" or "t"+tileIdx.*/
-    public Hashtable cod = new Hashtable();
+    public Hashtable<String,COD> cod = new Hashtable<String,COD>();
 
     /** Reference to the COC marker segments found in main and first tile-part
      * header. The key is either "main_c"+componentIndex or
      * "t"+tileIdx+"_c"+component_index. */
-    public Hashtable coc = new Hashtable();
+    public Hashtable<String,COC> coc = new Hashtable<String,COC>();
 
     /** Reference to the RGN marker segments found in main and first tile-part
      * header. The key is either "main_c"+componentIndex or
      * "t"+tileIdx+"_c"+component_index. */
-    public Hashtable rgn = new Hashtable();
+    public Hashtable<String,RGN> rgn = new Hashtable<String,RGN>();
 
     /** Reference to the QCD marker segments found in main and first tile-part
      * header. The key is either "main" or "t"+tileIdx. */
-    public Hashtable qcd = new Hashtable();
+    public Hashtable<String,QCD> qcd = new Hashtable<String,QCD>();
 
     /** Reference to the QCC marker segments found in main and first tile-part
      * header. They key is either "main_c"+componentIndex or
      * "t"+tileIdx+"_c"+component_index. */
-    public Hashtable qcc = new Hashtable();
+    public Hashtable<String,QCC> qcc = new Hashtable<String,QCC>();
 
     /** Reference to the POC marker segments found in main and first tile-part
      * header. They key is either "main" or "t"+tileIdx. */
-    public Hashtable poc = new Hashtable();
+    public Hashtable<String,POC> poc = new Hashtable<String,POC>();
 
     /** Reference to the CRG marker segment found in main header */
     public CRG crg;
 
     /** Reference to the COM marker segments found in main and tile-part
      * headers. The key is either "main_"+comIdx or "t"+tileIdx+"_"+comIdx. */
-    public Hashtable com = new Hashtable();
+    public Hashtable<String,COM> com = new Hashtable<String,COM>();
 
     /** Number of found COM marker segment */
     private int ncom = 0;
@@ -384,33 +384,33 @@ public class HeaderInfo implements Markers,ProgressionType,FilterTypes,
         String str = ""+siz;
         // COD
         if(cod.get("main")!=null) {
-            str += ""+(COD)cod.get("main");
+            str += ""+cod.get("main");
         }
         // COCs
         for(int c=0; c<nc; c++) {
             if(coc.get("main_c"+c)!=null) {
-                str += ""+(COC)coc.get("main_c"+c);
+                str += ""+coc.get("main_c"+c);
             }
         }
         // QCD
         if(qcd.get("main")!=null) {
-            str += ""+(QCD)qcd.get("main");
+            str += ""+qcd.get("main");
         }
         // QCCs
         for(int c=0; c<nc; c++) {
             if(qcc.get("main_c"+c)!=null) {
-                str += ""+(QCC)qcc.get("main_c"+c);
+                str += ""+qcc.get("main_c"+c);
             }
         }
         // RGN
         for(int c=0; c<nc; c++) {
             if(rgn.get("main_c"+c)!=null) {
-                str += ""+(RGN)rgn.get("main_c"+c);
+                str += ""+rgn.get("main_c"+c);
             }
         }
         // POC
         if(poc.get("main")!=null) {
-            str += ""+(POC)poc.get("main");
+            str += ""+poc.get("main");
         }
         // CRG
         if(crg!=null) {
@@ -419,7 +419,7 @@ public class HeaderInfo implements Markers,ProgressionType,FilterTypes,
         // COM
         for(int i=0; i<ncom; i++) {
             if(com.get("main_"+i)!=null) {
-                str += ""+(COM)com.get("main_"+i);
+                str += ""+com.get("main_"+i);
             }
         }
         return str;
@@ -438,37 +438,37 @@ public class HeaderInfo implements Markers,ProgressionType,FilterTypes,
         // SOT
         for(int i=0; i<ntp; i++) {
             str += "Tile-part "+i+", tile "+t+":\n";
-            str += ""+(SOT)sot.get("t"+t+"_tp"+i);
+            str += ""+sot.get("t"+t+"_tp"+i);
         }
         // COD
         if(cod.get("t"+t)!=null) {
-            str += ""+(COD)cod.get("t"+t);
+            str += ""+cod.get("t"+t);
         }
         // COCs
         for(int c=0; c<nc; c++) {
             if(coc.get("t"+t+"_c"+c)!=null) {
-                str += ""+(COC)coc.get("t"+t+"_c"+c);
+                str += ""+coc.get("t"+t+"_c"+c);
             }
         }
         // QCD
         if(qcd.get("t"+t)!=null) {
-            str += ""+(QCD)qcd.get("t"+t);
+            str += ""+qcd.get("t"+t);
         }
         // QCCs
         for(int c=0; c<nc; c++) {
             if(qcc.get("t"+t+"_c"+c)!=null) {
-                str += ""+(QCC)qcc.get("t"+t+"_c"+c);
+                str += ""+qcc.get("t"+t+"_c"+c);
             }
         }
         // RGN
         for(int c=0; c<nc; c++) {
             if(rgn.get("t"+t+"_c"+c)!=null) {
-                str += ""+(RGN)rgn.get("t"+t+"_c"+c);
+                str += ""+rgn.get("t"+t+"_c"+c);
             }
         }
         // POC
         if(poc.get("t"+t)!=null) {
-            str += ""+(POC)poc.get("t"+t);
+            str += ""+poc.get("t"+t);
         }
         return str;
     }
@@ -486,33 +486,33 @@ public class HeaderInfo implements Markers,ProgressionType,FilterTypes,
         String str = "";
         // COD
         if(cod.get("t"+t)!=null) {
-            str += ""+(COD)cod.get("t"+t);
+            str += ""+cod.get("t"+t);
         }
         // COCs
         for(int c=0; c<nc; c++) {
             if(coc.get("t"+t+"_c"+c)!=null) {
-                str += ""+(COC)coc.get("t"+t+"_c"+c);
+                str += ""+coc.get("t"+t+"_c"+c);
             }
         }
         // QCD
         if(qcd.get("t"+t)!=null) {
-            str += ""+(QCD)qcd.get("t"+t);
+            str += ""+qcd.get("t"+t);
         }
         // QCCs
         for(int c=0; c<nc; c++) {
             if(qcc.get("t"+t+"_c"+c)!=null) {
-                str += ""+(QCC)qcc.get("t"+t+"_c"+c);
+                str += ""+qcc.get("t"+t+"_c"+c);
             }
         }
         // RGN
         for(int c=0; c<nc; c++) {
             if(rgn.get("t"+t+"_c"+c)!=null) {
-                str += ""+(RGN)rgn.get("t"+t+"_c"+c);
+                str += ""+rgn.get("t"+t+"_c"+c);
             }
         }
         // POC
         if(poc.get("t"+t)!=null) {
-            str += ""+(POC)poc.get("t"+t);
+            str += ""+poc.get("t"+t);
         }
         return str;
     }
@@ -529,12 +529,12 @@ public class HeaderInfo implements Markers,ProgressionType,FilterTypes,
         nhi.siz = siz.getCopy();
         // COD
         if(cod.get("main")!=null) {
-            COD ms = (COD)cod.get("main");
+            COD ms = cod.get("main");
             nhi.cod.put("main",ms.getCopy());
         }
         for (int t=0; t<nt; t++) {
             if(cod.get("t"+t)!=null) {
-                COD ms = (COD)cod.get("t"+t);
+                COD ms = cod.get("t"+t);
                 nhi.cod.put("t"+t,ms.getCopy());
             }
         }
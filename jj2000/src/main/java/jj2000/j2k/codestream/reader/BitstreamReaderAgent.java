@@ -47,6 +47,7 @@ import java.io.IOException;
 
 import jj2000.j2k.ModuleSpec;
 import jj2000.j2k.codestream.HeaderInfo;
+import jj2000.j2k.decoder.DecodeStats;
 import jj2000.j2k.decoder.DecoderSpecs;
 import jj2000.j2k.entropy.decoder.CodedCBlkDataSrcDec;
 import jj2000.j2k.image.Coord;
@@ -207,6 +208,9 @@ public abstract class BitstreamReaderAgent implements CodedCBlkDataSrcDec {
     /** Actual number of read bytes */
     protected int anbytes;
 
+    /** Where to record the time spent reading the packets, or null */
+    protected DecodeStats stats;
+
     /** Target decoding rate in bpp */
     protected float trate;
 
@@ -845,6 +849,31 @@ public abstract class BitstreamReaderAgent implements CodedCBlkDataSrcDec {
         return new FileBitstreamReaderAgent(hd,in,decSpec,pl,cdstrInfo,hi);
     }
 
+    /**
+     * Returns a new bit stream reader of the same codestream as this one,
+     * which reads the tiles independently of the other readers of the
+     * codestream, so that different tiles can be decoded concurrently. The
+     * returned reader shares the headers already read by this one, and it
+     * reads the coded data from 'in', which must be a different
+     * RandomAccessIO over the same data as the one of this reader.
+     *
+     * <p>The number of read bytes of the returned reader only counts the
+     * data of the tiles that it reads.</p>
+     *
+     * <p>This implementation returns null. Implementing classes return null
+     * if the decoding of a tile depends on the tiles decoded before it (for
+     * instance when the bytes left by a tile are given to the next
+     * one).</p>
+     *
+     * @param in The RandomAccessIO source from which to read the bit stream.
+     *
+     * @return The new bit stream reader, or null if the tiles can not be read
+     * independently.
+     * */
+    public BitstreamReaderAgent getTileReader(RandomAccessIO in) {
+        return null;
+    }
+
     /**
      * Returns the parameters that are used in this class and implementing
      * classes. It returns a 2D String array. Each of the 1D arrays is for a
@@ -1063,6 +1092,17 @@ public abstract class BitstreamReaderAgent implements CodedCBlkDataSrcDec {
         return anbytes;
     }
 
+    /**
+     * Sets where to record the time spent reading the tile-part and packet
+     * headers and the coded data.
+     *
+     * @param stats The statistics of the image being decoded, or null if
+     * they are not collected.
+     * */
+    public void setStats(DecodeStats stats) {
+        this.stats = stats;
+    }
+
     /** Returns the horizontal offset of tile partition */
     public int getTilePartULX() {
         return hd.getTilingOrigin(null).x;
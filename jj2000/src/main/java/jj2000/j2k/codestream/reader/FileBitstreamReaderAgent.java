@@ -45,7 +45,6 @@ package jj2000.j2k.codestream.reader;
 import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.util.Vector;
 
 import jj2000.j2k.NoNextElementException;
 import jj2000.j2k.NotImplementedError;
@@ -54,6 +53,7 @@ import jj2000.j2k.codestream.HeaderInfo;
 import jj2000.j2k.codestream.Markers;
 import jj2000.j2k.codestream.PrecInfo;
 import jj2000.j2k.codestream.ProgressionType;
+import jj2000.j2k.decoder.DecodeStats;
 import jj2000.j2k.decoder.DecoderSpecs;
 import jj2000.j2k.entropy.StdEntropyCoderOptions;
 import jj2000.j2k.entropy.decoder.DecLyrdCBlk;
@@ -61,6 +61,7 @@ import jj2000.j2k.image.Coord;
 import jj2000.j2k.io.RandomAccessIO;
 import jj2000.j2k.quantization.dequantizer.StdDequantizerParams;
 import jj2000.j2k.util.ArrayUtil;
+import jj2000.j2k.util.BufferRandomAccessIO;
 import jj2000.j2k.util.MathUtil;
 import jj2000.j2k.util.ParameterList;
 import jj2000.j2k.wavelet.synthesis.SubbandSyn;
@@ -152,8 +153,12 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
     /** Length of all tile-part headers */
     private int[][] tilePartHeadLen;
 
-    /** Length of each packet head found in the tile */
-    private Vector pktHL;
+    /** Length of each packet head found in the tile, in the order the
+     * packets were read. Only the first 'nPktHL' elements are valid. */
+    private int[] pktHL;
+
+    /** Number of packet head lengths stored in 'pktHL' */
+    private int nPktHL;
 
     /** True if truncation mode is used. False if parsing mode */
     private boolean isTruncMode;
@@ -173,6 +178,27 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
     /** The current tile part being used */
     private int curTilePart;
 
+    /** The byte array holding the codestream, when it is entirely in
+     * memory. The code-block data is then referenced in it instead of being
+     * copied. Null otherwise. */
+    private byte[] inArray;
+
+    /** The index in 'inArray' of the first byte of the codestream */
+    private int inArrayOff;
+
+    /** The lengths of the packets of the current tile, in codestream order,
+     * as signalled in the PLT or PLM marker segments. Null if they are not
+     * known or if all the packets must be read. */
+    private int[] pktLen;
+
+    /** The index, in codestream order, of the next packet of the current
+     * tile */
+    private int pktIdx;
+
+    /** The highest resolution level of each component of the current tile
+     * whose packets are read when their lengths are known */
+    private int[] maxPktRes;
+
     /** The number of the tile-parts found in the codestream after reading the
      * tp'th tile-part of tile t */
     private int[][] tilePartNum;
@@ -207,6 +233,14 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
     /** Whether or not to use only first progression order */
     private boolean usePOCQuit = false;
 
+    /** The maximum number of code-blocks to read, or -1 if there is no such
+     * limit */
+    private int ncbQuit;
+
+    /** Whether or not the tiles are read independently of each other, in
+     * which case the number of read bytes only counts the tiles' data. */
+    private boolean independentTiles = false;
+
     /** 
      * Reads all tiles headers and keep offset of their first
      * packet. Finally it calls the rate allocation method.
@@ -303,7 +337,12 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
         }
        
         // initializations
+        this.ncbQuit = ncbQuit;
         in = ehs;
+        if(ehs instanceof BufferRandomAccessIO) {
+            inArray = ((BufferRandomAccessIO)ehs).array();
+            inArrayOff = ((BufferRandomAccessIO)ehs).arrayOffset();
+        }
         pktDec = new PktDecoder(decSpec,hd,ehs,this,isTruncMode,ncbQuit);
 
         tileParts = new int[nt];
@@ -529,6 +568,92 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
         }
     }
 
+    /**
+     * Creates a reader of the same codestream as 'src' which reads the tiles
+     * independently of it. The tile-part headers and the rate allocation are
+     * shared with 'src', the data is read from 'ehs'.
+     *
+     * @param src The reader which read the tile-part headers.
+     *
+     * @param ehs The input stream where to read bit-stream.
+     *
+     * @see #getTileReader
+     * */
+    private FileBitstreamReaderAgent(FileBitstreamReaderAgent src,
+                                     RandomAccessIO ehs) {
+        super(src.hd,src.decSpec);
+
+        pl = src.pl;
+        hi = src.hi;
+        usePOCQuit = src.usePOCQuit;
+        trate = src.trate;
+        tnbytes = src.tnbytes;
+        isTruncMode = src.isTruncMode;
+        ncbQuit = src.ncbQuit;
+        lQuit = src.lQuit;
+        targetRes = src.targetRes;
+        independentTiles = true;
+
+        in = ehs;
+        if(ehs instanceof BufferRandomAccessIO) {
+            inArray = ((BufferRandomAccessIO)ehs).array();
+            inArrayOff = ((BufferRandomAccessIO)ehs).arrayOffset();
+        }
+        pktDec = new PktDecoder(decSpec,hd,ehs,this,isTruncMode,ncbQuit);
+
+        // The tile-part headers are not modified once read
+        tileParts = src.tileParts;
+        totTileLen = src.totTileLen;
+        tilePartLen = src.tilePartLen;
+        tilePartNum = src.tilePartNum;
+        firstPackOff = src.firstPackOff;
+        tilePartsRead = src.tilePartsRead;
+        totTileHeadLen = src.totTileHeadLen;
+        tilePartHeadLen = src.tilePartHeadLen;
+        totTilePartsRead = src.totTilePartsRead;
+        firstTilePartHeadLen = src.firstTilePartHeadLen;
+        totAllTileLen = src.totAllTileLen;
+        mainHeadLen = src.mainHeadLen;
+        headLen = src.headLen;
+        remainingTileParts = src.remainingTileParts;
+        isEOCFound = src.isEOCFound;
+        isPsotEqualsZero = src.isPsotEqualsZero;
+
+        baknBytes = src.baknBytes;
+        nBytes = new int[nt];
+        anbytes = 0;
+    }
+
+    /**
+     * Returns a new bit stream reader of the same codestream as this one,
+     * which reads the tiles independently of the other readers of the
+     * codestream. The tiles can be read independently in truncation mode,
+     * when no limit is set on the number of code-blocks to read, or in
+     * parsing mode when the rate allocated to each tile is enough to read it
+     * entirely (which is the case when no rate is specified). Otherwise the
+     * rate left by a tile goes to the following ones, and null is returned.
+     *
+     * @param in The RandomAccessIO source from which to read the bit stream.
+     *
+     * @return The new bit stream reader, or null if the tiles can not be read
+     * independently.
+     * */
+    public BitstreamReaderAgent getTileReader(RandomAccessIO in) {
+        if(ncbQuit!=-1) {
+            return null;
+        }
+        if(!isTruncMode) {
+            for(int t=0; t<nt; t++) {
+                if(baknBytes[t]<totTileLen[t]-totTileHeadLen[t]) {
+                    return null;
+                }
+            }
+        }
+        FileBitstreamReaderAgent br = new FileBitstreamReaderAgent(this,in);
+        br.setStats(stats);
+        return br;
+    }
+
     /** 
      * Allocates output bit-rate for each tile in parsing mode: The allocator
      * simulates the truncation of a virtual layer-resolution progressive
@@ -821,6 +946,11 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
                                 tilePartHeadLen[t][curTilePart]; 
                         }
 
+                        // Skip the packet if its data is never requested
+                        if(skipPkt(l,r,c)) {
+                            continue;
+                        }
+
                         // Read SOP marker segment if necessary
                         status = pktDec.readSOPMarker(nBytes,p,c,r);
 
@@ -839,7 +969,7 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
 
 			// Store packet's head length
                         hlen = in.getPos()-start;
-			pktHL.addElement(new Integer(hlen));
+			addPktHeadLen(hlen);
 
 			// Reads packet's body
 			status = pktDec.readPktBody(l,r,c,p,cbI[c][r],nBytes);
@@ -938,6 +1068,11 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
                                 tilePartHeadLen[t][curTilePart]; 
                         }
 
+                        // Skip the packet if its data is never requested
+                        if(skipPkt(l,r,c)) {
+                            continue;
+                        }
+
                         // Read SOP marker segment if necessary
                         status = pktDec.readSOPMarker(nBytes,p,c,r);
 
@@ -957,7 +1092,7 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
 
 			// Store packet's head length
                         hlen = in.getPos()-start;
-			pktHL.addElement(new Integer(hlen));
+			addPktHeadLen(hlen);
 
 			// Reads packet's body
 			status = pktDec.readPktBody(l,r,c,p,cbI[c][r],nBytes);
@@ -1123,6 +1258,11 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
                                     tilePartHeadLen[t][curTilePart]; 
                             }
 
+                            // Skip the packet if its data is never requested
+                            if(skipPkt(l,r,c)) {
+                                continue;
+                            }
+
                             // Read SOP marker segment if necessary
                             status = pktDec.readSOPMarker(nBytes,
                                                           nextPrec[c][r],c,r);
@@ -1144,7 +1284,7 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
 
                             // Store packet's head length
                             hlen = in.getPos()-start;
-                            pktHL.addElement(new Integer(hlen));
+                            addPktHeadLen(hlen);
                             
                             // Reads packet's body
                             status = pktDec.readPktBody(l,r,c,nextPrec[c][r],
@@ -1319,6 +1459,11 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
                                     tilePartHeadLen[t][curTilePart]; 
                             }
 
+                            // Skip the packet if its data is never requested
+                            if(skipPkt(l,r,c)) {
+                                continue;
+                            }
+
                             // Read SOP marker segment if necessary
                             status = pktDec.readSOPMarker(nBytes,
                                                           nextPrec[c][r],c,r);
@@ -1340,7 +1485,7 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
 
                             // Store packet's head length
                             hlen = in.getPos()-start;
-                            pktHL.addElement(new Integer(hlen));
+                            addPktHeadLen(hlen);
                             
                             // Reads packet's body
                             status = pktDec.readPktBody(l,r,c,nextPrec[c][r],
@@ -1518,6 +1663,11 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
                                     tilePartHeadLen[t][curTilePart]; 
                             }
 
+                            // Skip the packet if its data is never requested
+                            if(skipPkt(l,r,c)) {
+                                continue;
+                            }
+
                             // Read SOP marker segment if necessary
                             status = pktDec.readSOPMarker(nBytes,
                                                           nextPrec[c][r],c,r);
@@ -1539,7 +1689,7 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
 
                             // Store packet's head length
                             hlen = in.getPos()-start;
-                            pktHL.addElement(new Integer(hlen));
+                            addPktHeadLen(hlen);
                             
                             // Reads packet's body
                             status = pktDec.readPktBody(l,r,c,nextPrec[c][r],
@@ -1570,6 +1720,50 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
 	return false; // Decoding rate was not reached
     }
 
+    /**
+     * Appends the length of the last read packet head to 'pktHL', growing
+     * the array if necessary.
+     *
+     * @param hlen The length of the packet head, in bytes
+     * */
+    private void addPktHeadLen(int hlen) {
+        if(nPktHL==pktHL.length) {
+            int[] tmp = new int[2*pktHL.length];
+            System.arraycopy(pktHL,0,tmp,0,nPktHL);
+            pktHL = tmp;
+        }
+        pktHL[nPktHL++] = hlen;
+    }
+
+    /**
+     * Skips the current packet if its length is known and its data is never
+     * requested, that is if it belongs to a resolution level discarded by
+     * the '-res' option or to a layer beyond the 'l_quit' condition. In
+     * truncation mode, the skipped bytes are counted as read, as when the
+     * packet is actually read. In any case the current packet index is
+     * incremented.
+     *
+     * @param l The layer index of the packet
+     *
+     * @param r The resolution level index of the packet
+     *
+     * @param c The component index of the packet
+     *
+     * @return True if the packet has been skipped.
+     * */
+    private boolean skipPkt(int l,int r,int c) throws IOException {
+        int i = pktIdx++;
+        if(pktLen==null || i>=pktLen.length ||
+           (r<=maxPktRes[c] && (lQuit==-1 || l<lQuit))) {
+            return false;
+        }
+        pktDec.skipPkt(pktLen[i]);
+        if(isTruncMode) {
+            nBytes[getTileIdx()] -= pktLen[i];
+        }
+        return true;
+    }
+
     /** 
      * Finish initialization of members for specified tile, reads packets head
      * of each tile and keeps location of each code-block's codewords. The
@@ -1585,7 +1779,10 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
      * @see PktDecoder
      * */
     private void readTilePkts(int t) throws IOException {
-	pktHL = new Vector();
+	if(pktHL==null) {
+	    pktHL = new int[64];
+	}
+	nPktHL = 0;
 
         // Number of layers
         int nl = ((Integer)decSpec.nls.getTileDef(t)).intValue();
@@ -1656,9 +1853,27 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
 	int nb = nBytes[t];
 	int[][] lys = new int[nc][];
 	for(int c=0; c<nc; c++) {
-	    lys[c] = new int[((Integer)decSpec.dls.getTileCompVal(t,c)).
-			    intValue()+1];
+	    lys[c] = new int[decSpec.dls.getIntVal(t,c)+1];
 	}
+
+        // If the packet lengths are signalled, the packets whose data is
+        // never requested need not be read: those of the resolution levels
+        // discarded by the '-res' option and those of the layers beyond the
+        // 'l_quit' condition. This is only done when the whole tile fits in
+        // the rate, since the other packets are then all read anyway.
+        pktLen = null;
+        pktIdx = 0;
+        if(ncbQuit==-1 && nb>=totTileLen[t]-totTileHeadLen[t] &&
+           !((Boolean)decSpec.pphs.getTileDef(t)).booleanValue()) {
+            pktLen = hd.getPktLengths(t);
+        }
+        if(pktLen!=null) {
+            maxPktRes = new int[nc];
+            for(int c=0; c<nc; c++) {
+                maxPktRes[c] = targetRes+decSpec.dls.getIntVal(t,c)-
+                    decSpec.dls.getMin();
+            }
+        }
 	    
 	try {
             for(int chg=0; chg<nChg; chg++) {
@@ -1669,6 +1884,18 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
                 comps = change[chg][4];
                 compe = change[chg][5];
 
+                // With a resolution-major progression, the packets of the
+                // resolution levels discarded by the '-res' option come last
+                // and need not be read if no other progression follows
+                if(chg==nChg-1 &&
+                   (change[chg][0]==RES_LY_COMP_POS_PROG ||
+                    change[chg][0]==RES_POS_COMP_LY_PROG) &&
+                   rese>targetRes+decSpec.dls.getMaxInTile(t)-
+                   decSpec.dls.getMin()+1) {
+                    rese = targetRes+decSpec.dls.getMaxInTile(t)-
+                        decSpec.dls.getMin()+1;
+                }
+
                 switch(change[chg][0]) {
                 case LY_RES_COMP_POS_PROG:
                     status = readLyResCompPos(lys,lye,ress,rese,comps,compe);
@@ -1730,10 +1957,7 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
             // Stop reading any data from the bit stream
             boolean stopCount = false;
             // Length of each packet's head (in an array)
-            int[] pktHeadLen = new int[pktHL.size()];
-            for(int i=pktHL.size()-1;i>=0;i--) {
-                pktHeadLen[i] = ((Integer)pktHL.elementAt(i)).intValue();
-            }
+            int[] pktHeadLen = pktHL;
             
             // Parse each code-block, layer per layer until nBytes[t] is
             // reached
@@ -1881,7 +2105,9 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
         int t = (y*ntX+x);
 
         // Reset number of read bytes if needed
-        if(t==0) {
+        if(independentTiles) {
+            nBytes[t] = baknBytes[t];
+        } else if(t==0) {
             anbytes = headLen;
             if(!isTruncMode) {
                 anbytes += 2;
@@ -1917,7 +2143,7 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
             params[c] = 
                 (StdDequantizerParams)decSpec.qsss.getTileCompVal(t,c);
             gb[c] = ((Integer)decSpec.gbs.getTileCompVal(t,c)).intValue();
-            mdl[c] = ((Integer)decSpec.dls.getTileCompVal(t,c)).intValue();
+            mdl[c] = decSpec.dls.getIntVal(t,c);
 
             subbTrees[c] =
                 new SubbandSyn(getTileCompWidth(t,c,mdl[c]),
@@ -1930,7 +2156,9 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
         
         // Read tile's packets
         try {
+            if(stats!=null) stats.begin(DecodeStats.PACKETS);
             readTilePkts(t);
+            if(stats!=null) stats.end(DecodeStats.PACKETS);
         } catch(IOException e) {
             e.printStackTrace();
             throw new Error("IO Error when reading tile "+x+" x "+y);
@@ -2014,15 +2242,15 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
 
         // Number of layers
         int numLayers = ((Integer)decSpec.nls.getTileDef(t)).intValue();
-        int options = ((Integer)decSpec.ecopts.getTileCompVal(t,c)).intValue();
+        int options = decSpec.ecopts.getIntVal(t,c);
         if(nl<0) {
             nl = numLayers-fl+1;
         }
         
         // If the l quit condition is used, Make sure that no layer 
         // after lquit is returned
-        if(lQuit != -1 && fl+nl>lQuit){
-          nl = lQuit - fl;
+        if(lQuit != -1 && fl+nl-1>lQuit){
+          nl = lQuit - fl + 1;
         }
 
         // Check validity of resquested resolution level (according to the
@@ -2127,10 +2355,19 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
             nts = 1;
         }
 
-        // ccb.data creation
-        if(ccb.data==null || ccb.data.length<ccb.dl) {
+        // ccb.data creation, unless the data is referenced in the
+        // codestream. A referenced array must never be written.
+        if(inArray!=null) {
+            if(ccb.dataOff==null || ccb.dataOff.length<nl) {
+                ccb.dataOff = new int[nl];
+                ccb.dataLen = new int[nl];
+            }
+            ccb.data = inArray;
+        } else if(ccb.nDataFrags!=0 || ccb.data==null ||
+                  ccb.data.length<ccb.dl) {
             ccb.data = new byte[ccb.dl];
         }
+        ccb.nDataFrags = 0;
 
         // ccb.tsLengths creation
         if (nts>1 && (ccb.tsLengths==null || ccb.tsLengths.length<nts)) {
@@ -2153,15 +2390,20 @@ public class FileBitstreamReaderAgent extends BitstreamReaderAgent
             // No data in this layer
             if(rcb.len[l]==0) continue;
 
-            // Read data
+            // Reference or read data
             // NOTE: we should never get an EOFException here since all
             // data is checked to be within the file.
-            try {
-                in.seek(rcb.off[l]);
-                in.readFully(ccb.data,dataIdx+1,rcb.len[l]);
-                dataIdx += rcb.len[l];
-            } catch (IOException e) {
-                throw new Error(e);
+            if(inArray!=null) {
+                ccb.dataOff[ccb.nDataFrags] = inArrayOff+rcb.off[l];
+                ccb.dataLen[ccb.nDataFrags++] = rcb.len[l];
+            } else {
+                try {
+                    in.seek(rcb.off[l]);
+                    in.readFully(ccb.data,dataIdx+1,rcb.len[l]);
+                    dataIdx += rcb.len[l];
+                } catch (IOException e) {
+                    throw new Error(e);
+                }
             }
             
             // Get the terminated segment lengths, if any
@@ -83,6 +83,7 @@ import jj2000.j2k.util.ParameterList;
 import jj2000.j2k.wavelet.FilterTypes;
 import jj2000.j2k.wavelet.synthesis.SynWTFilter;
 import jj2000.j2k.wavelet.synthesis.SynWTFilterFloatLift9x7;
+import jj2000.j2k.wavelet.synthesis.SynWTFilterIntLift9x7;
 import jj2000.j2k.wavelet.synthesis.SynWTFilterIntLift5x3;
 
 /**
@@ -151,6 +152,10 @@ public class HeaderDecoder implements ProgressionType, Markers,
     /** Whether or not to display general information */
     private boolean verbose;
 
+    /** Whether the irreversible 9x7 filter works on fixed-point int data
+     * instead of floating-point data, as set by the 'fixed_point' option */
+    private boolean fixedPoint;
+
     /** Current header information in a string */
     private String hdStr = "";
 
@@ -183,6 +188,9 @@ public class HeaderDecoder implements ProgressionType, Markers,
     /** Counts number of PPT markers found in the header */
     private int[][] nPPTMarkSeg = null;
 
+    /** Counts number of PLT markers found in the tile-part header */
+    private int nPLTMarkSeg = 0;
+
     /** Flag bit for SIZ marker segment found */
     private static final int SIZ_FOUND = 1;
 
@@ -267,6 +275,24 @@ public class HeaderDecoder implements ProgressionType, Markers,
     /** The packed packet headers if the PPM or PPT markers are used */
     private ByteArrayOutputStream[] pkdPktHeaders;
 
+    /** The lengths of the packets of each tile-part, in the order of the
+     * tile-parts in the codestream, as found in the PLM marker segment. The
+     * element of a tile-part is null if the lengths of its packets are not
+     * all found. Null if there is no PLM marker segment. */
+    private int[][] plmPktLen;
+
+    /** The lengths of the packets of each tile, in codestream order, as
+     * found in the PLT or PLM marker segments of the tile-parts read so
+     * far */
+    private int[][] pktLen;
+
+    /** The number of packet lengths in 'pktLen' for each tile, or -1 if the
+     * lengths of the packets of a tile-part of the tile are not known */
+    private int[] nPktLen;
+
+    /** The number of tile-part headers read so far */
+    private int nTilePartHeads = 0;
+
     /** 
      * Return the maximum height among all components 
      *
@@ -499,6 +525,9 @@ public class HeaderDecoder implements ProgressionType, Markers,
         // Return filter based on ID
         switch (kid) {
         case FilterTypes.W9X7:
+            if(fixedPoint) {
+                return new SynWTFilterIntLift9x7();
+            }
             return new SynWTFilterFloatLift9x7();
         case FilterTypes.W5X3:
             return new SynWTFilterIntLift5x3();
@@ -1517,7 +1546,7 @@ public class HeaderDecoder implements ProgressionType, Markers,
         if(mainh || hi.poc.get("t"+t)==null) {
             ms = hi.getNewPOC();
         } else {
-            ms = (HeaderInfo.POC)hi.poc.get("t"+t);
+            ms = hi.poc.get("t"+t);
             nOldChg = ms.rspoc.length;
         }
 
@@ -1632,7 +1661,8 @@ public class HeaderDecoder implements ProgressionType, Markers,
     /**
      * Reads TLM marker segment and realigns the codestream where the next
      * marker should be found. Informations stored in these fields are
-     * currently NOT taken into account.
+     * currently NOT taken into account, since the tile-part headers are all
+     * read anyway and give the tile-part lengths.
      *
      * @param ehs The encoder header stream.
      *
@@ -1648,9 +1678,9 @@ public class HeaderDecoder implements ProgressionType, Markers,
     }
 
     /**
-     * Reads PLM marker segment and realigns the codestream where the next
-     * marker should be found. Informations stored in these fields are
-     * currently not taken into account.
+     * Reads PLM marker segment and keeps the lengths of the packets of each
+     * tile-part, which are associated to the tiles as the tile-part headers
+     * are read.
      *
      * @param ehs The encoder header stream.
      *
@@ -1659,28 +1689,139 @@ public class HeaderDecoder implements ProgressionType, Markers,
      * */
     private void readPLM(DataInputStream ehs) throws IOException{
 	int length;
+        Vector<int[]> v = new Vector<int[]>();
 	
 	length = ehs.readUnsignedShort();
-	//Ignore all informations contained
-	ehs.skipBytes(length-2);
+        // Zplm (there is only one PLM marker segment)
+        ehs.readUnsignedByte();
+        length -= 3;
+        while(length>0) {
+            // Nplm
+            int nplm = ehs.readUnsignedByte();
+            length--;
+            if(nplm>length) {
+                // The lengths would continue in another PLM marker segment
+                v.addElement(null);
+                break;
+            }
+            // Iplm
+            v.addElement(readPktLengths(ehs,nplm));
+            length -= nplm;
+        }
+        plmPktLen = new int[v.size()][];
+        v.copyInto(plmPktLen);
     }
 
     /**
-     * Reads the PLT fields and realigns the codestream where the next marker
-     * should be found. Informations stored in these fields are currently NOT
-     * taken into account.
+     * Reads the PLT fields and keeps the lengths of the packets of the
+     * current tile-part.
      *
      * @param ehs The encoder header stream.
      *
+     * @param tileIdx The index of the current tile
+     *
      * @exception IOException If an I/O error occurs while reading from the
      * encoder header stream
      * */
-    private void readPLTFields(DataInputStream ehs) throws IOException{
+    private void readPLTFields(DataInputStream ehs,int tileIdx)
+        throws IOException{
 	int length;
 	
 	length = ehs.readUnsignedShort();
-	//Ignore all informations contained
-	ehs.skipBytes(length-2);
+        // Zplt (the marker segments are read in the order they are found)
+        ehs.readUnsignedByte();
+        // Iplt
+        addPktLengths(tileIdx,readPktLengths(ehs,length-3));
+    }
+
+    /**
+     * Reads packet lengths in the format of the Iplt and Iplm fields: each
+     * length is coded on one or more bytes, 7 bits per byte, most significant
+     * bits first, the most significant bit of a byte being set if the
+     * following byte belongs to the same length.
+     *
+     * @param ehs The encoder header stream.
+     *
+     * @param n The number of bytes to read.
+     *
+     * @return The packet lengths, or null if the last one is not complete.
+     *
+     * @exception IOException If an I/O error occurs while reading from the
+     * encoder header stream
+     * */
+    private static int[] readPktLengths(DataInputStream ehs,int n)
+        throws IOException {
+        int[] len = new int[n];
+        int nLen = 0;
+        int val = 0;
+        int b = 0;
+        for(int i=0; i<n; i++) {
+            b = ehs.readUnsignedByte();
+            val = (val<<7) | (b&0x7F);
+            if((b&0x80)==0) {
+                len[nLen++] = val;
+                val = 0;
+            }
+        }
+        if((b&0x80)!=0) {
+            return null;
+        }
+        int[] res = new int[nLen];
+        System.arraycopy(len,0,res,0,nLen);
+        return res;
+    }
+
+    /**
+     * Appends the lengths of packets of the specified tile to the ones
+     * already found. If they are not known, the packet lengths of the tile
+     * are no longer available.
+     *
+     * @param t The tile index
+     *
+     * @param len The packet lengths, or null if they are not known
+     * */
+    private void addPktLengths(int t,int[] len) {
+        if(pktLen==null) {
+            pktLen = new int[nTiles][];
+            nPktLen = new int[nTiles];
+        }
+        if(nPktLen[t]<0) {
+            return;
+        }
+        if(len==null) {
+            pktLen[t] = null;
+            nPktLen[t] = -1;
+            return;
+        }
+        int n = nPktLen[t]+len.length;
+        if(pktLen[t]==null || pktLen[t].length<n) {
+            int[] tmp = new int[Math.max(n,2*nPktLen[t])];
+            if(pktLen[t]!=null) {
+                System.arraycopy(pktLen[t],0,tmp,0,nPktLen[t]);
+            }
+            pktLen[t] = tmp;
+        }
+        System.arraycopy(len,0,pktLen[t],nPktLen[t],len.length);
+        nPktLen[t] = n;
+    }
+
+    /**
+     * Returns the lengths of the packets of the specified tile, in the
+     * order they appear in the codestream, as signalled in the PLT or PLM
+     * marker segments of the tile-parts read. This allows packets to be
+     * skipped without reading their head.
+     *
+     * @param t The tile index
+     *
+     * @return The packet lengths, or null if they are not known.
+     * */
+    public int[] getPktLengths(int t) {
+        if(pktLen==null || nPktLen[t]<=0) {
+            return null;
+        }
+        int[] len = new int[nPktLen[t]];
+        System.arraycopy(pktLen[t],0,len,0,len.length);
+        return len;
     }
 
     /**
@@ -2105,7 +2246,8 @@ public class HeaderDecoder implements ProgressionType, Markers,
                                                        "though PLM marker "+
                                                        "found in main header");
             }
-            htKey = "UNKNOWN";
+            nfMarkSeg |= PLT_FOUND;
+            htKey = "PLT"+(nPLTMarkSeg++);
             break;
 	default:
             htKey = "UNKNOWN";
@@ -2205,6 +2347,12 @@ public class HeaderDecoder implements ProgressionType, Markers,
 	    }
 	}
 
+	// PLM marker segment
+	if((nfMarkSeg&PLM_FOUND) != 0) {
+	    bais = new ByteArrayInputStream( (byte[])(ht.get("PLM")));
+	    readPLM(new DataInputStream(bais));
+	}
+
         // Reset the hashtable
         ht = null;
     }
@@ -2281,6 +2429,20 @@ public class HeaderDecoder implements ProgressionType, Markers,
 	    }
 	}
 
+	// PLT marker segments, or else the PLM marker segment, give the
+	// lengths of the packets of the tile-part
+	if((nfMarkSeg&PLT_FOUND) != 0) {
+	    for(int i=0; i<nPLTMarkSeg; i++) {
+		bais = new ByteArrayInputStream( (byte[])(ht.get("PLT"+i)) );
+		readPLTFields(new DataInputStream(bais),tileIdx);
+	    }
+	} else if(plmPktLen!=null && nTilePartHeads<plmPktLen.length) {
+            addPktLengths(tileIdx,plmPktLen[nTilePartHeads]);
+        } else {
+            addPktLengths(tileIdx,null);
+        }
+        nTilePartHeads++;
+
         // Reset ht
         ht = null;
     }
@@ -2320,6 +2482,7 @@ public class HeaderDecoder implements ProgressionType, Markers,
         //this.verbose = verbose;
         
         pl.checkList(OPT_PREFIX,ParameterList.toNameArray(pinfo));
+        fixedPoint = pl.getBooleanParameter("fixed_point");
 
         mainHeadOff = ehs.getPos();
         if( ((short)ehs.readShort()) != Markers.SOC ) {
@@ -2337,8 +2500,90 @@ public class HeaderDecoder implements ProgressionType, Markers,
         } while ((nfMarkSeg & SOT_FOUND)==0); //Stop when SOT is found
 	ehs.seek(ehs.getPos()-2); // Realign codestream on SOT marker
 
+        // Reuse the main header read from an identical one, if any. The PPM
+        // and PLM marker segments hold data of the image itself, so headers
+        // with them are not shared.
+        MainHeaderCache.Key key = null;
+        if((nfMarkSeg & (PPM_FOUND|PLM_FOUND))==0) {
+            key = new MainHeaderCache.Key(readMainHeadBytes(ehs),fixedPoint);
+            HeaderDecoder tmpl = MainHeaderCache.get(key);
+            if(tmpl!=null) {
+                copyMainHead(tmpl);
+                ht = null;
+                return;
+            }
+        }
+
 	// Second pass: Read each marker segment previously found
 	readFoundMainMarkSeg();
+
+        if(key!=null) {
+            MainHeaderCache.put(key,new HeaderDecoder(this));
+        }
+    }
+
+    /**
+     * Creates a template holding a copy of the main header information of
+     * the given HeaderDecoder, to be kept in the MainHeaderCache. It is
+     * never used for decoding.
+     *
+     * @param src The HeaderDecoder which read the main header
+     * */
+    private HeaderDecoder(HeaderDecoder src) {
+        hi = new HeaderInfo();
+        fixedPoint = src.fixedPoint;
+        copyMainHead(src);
+    }
+
+    /**
+     * Returns the bytes of the main header, from the SOC marker up to the
+     * current position of the encoded header stream, which is left
+     * unchanged.
+     *
+     * @param ehs The encoded header stream, positioned on the first SOT
+     * marker.
+     *
+     * @return The bytes of the main header
+     * */
+    private byte[] readMainHeadBytes(RandomAccessIO ehs) throws IOException {
+        int end = ehs.getPos();
+        byte[] head = new byte[end-mainHeadOff];
+        ehs.seek(mainHeadOff);
+        ehs.readFully(head,0,head.length);
+        ehs.seek(end);
+        return head;
+    }
+
+    /**
+     * Sets the main header information of this object, the decoder
+     * specifications and the marker segments in the HeaderInfo, to copies of
+     * the ones of the given HeaderDecoder. The marker segment objects are
+     * shared, since they are not modified once read. The decoder
+     * specifications are copied since the tile-part headers modify them.
+     *
+     * @param src The HeaderDecoder which read the main header
+     * */
+    private void copyMainHead(HeaderDecoder src) {
+        nComp = src.nComp;
+        nTiles = src.nTiles;
+        cb0x = src.cb0x;
+        cb0y = src.cb0y;
+        nfMarkSeg = src.nfMarkSeg;
+        nCOCMarkSeg = src.nCOCMarkSeg;
+        nQCCMarkSeg = src.nQCCMarkSeg;
+        nCOMMarkSeg = src.nCOMMarkSeg;
+        nRGNMarkSeg = src.nRGNMarkSeg;
+        decSpec = src.decSpec.getCopy();
+
+        hi.siz = src.hi.siz.getCopy();
+        hi.crg = src.hi.crg;
+        hi.cod.putAll(src.hi.cod);
+        hi.coc.putAll(src.hi.coc);
+        hi.rgn.putAll(src.hi.rgn);
+        hi.qcd.putAll(src.hi.qcd);
+        hi.qcc.putAll(src.hi.qcc);
+        hi.poc.putAll(src.hi.poc);
+        hi.com.putAll(src.hi.com);
     }
     
     /**
@@ -2358,6 +2603,7 @@ public class HeaderDecoder implements ProgressionType, Markers,
                                                ParameterList pl) {
         boolean doer;
         int mMax;
+        int nThreads;
 
         // Check parameters
         pl.checkList(EntropyDecoder.OPT_PREFIX,
@@ -2368,7 +2614,10 @@ public class HeaderDecoder implements ProgressionType, Markers,
 
         // Get maximum number of bit planes from m quit condition
         mMax = pl.getIntParameter("m_quit");
-        return new StdEntropyDecoder(src,decSpec,doer,false,mMax);
+
+        // Get maximum number of code-blocks to decode concurrently
+        nThreads = pl.getIntParameter("Cthreads");
+        return new StdEntropyDecoder(src,decSpec,doer,false,mMax,nThreads);
 
     }
 
@@ -2480,6 +2729,7 @@ public class HeaderDecoder implements ProgressionType, Markers,
         nQCCMarkSeg = 0;
         nCOMMarkSeg = 0;
         nRGNMarkSeg = 0; 
+        nPLTMarkSeg = 0;
     }
 
     /**
@@ -2515,7 +2765,7 @@ public class HeaderDecoder implements ProgressionType, Markers,
      * @exception IOException If an I/O error occurs while reading from the
      * encoder header stream
      * */
-     public ByteArrayInputStream getPackedPktHead(int tile) 
+     public synchronized ByteArrayInputStream getPackedPktHead(int tile) 
          throws IOException {
         
         if(pkdPktHeaders==null) {
@@ -0,0 +1,149 @@
+/*
+ * CVS identifier:
+ *
+ * $Id$
+ *
+ * Class:                   MainHeaderCache
+ *
+ * Description:             Main headers shared across codestreams
+ *
+ *
+ *
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Raphal Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askelf (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, Flix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ * */
+package jj2000.j2k.codestream.reader;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the main headers read from the codestreams decoded, so
+ * that the marker segments of a main header seen before are not read again
+ * and the decoder specifications are not built again from them. It is
+ * shared by all the HeaderDecoder instances of the process and its methods
+ * can be called concurrently from different threads.
+ *
+ * <p>An entry is identified by the bytes of the main header, from the SOC
+ * marker to the first SOT marker excluded, and by the 'fixed_point' option,
+ * which selects the synthesis filters. Only the most recently used entries
+ * are kept.</p>
+ *
+ * <p>The cached HeaderDecoder instances are templates which are never used
+ * for decoding: each decoder gets copies of their specifications.</p>
+ *
+ * @see HeaderDecoder
+ * */
+final class MainHeaderCache {
+
+    /** The maximum number of entries kept */
+    private static final int MAX_ENTRIES = 8;
+
+    /** The entries, the least recently used one first */
+    private static final LinkedHashMap<Key,HeaderDecoder> entries =
+        new LinkedHashMap<Key,HeaderDecoder>(16,0.75f,true) {
+            protected boolean removeEldestEntry(Map.Entry<Key,HeaderDecoder>
+                                                eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+
+    /** The identification of an entry. */
+    static final class Key {
+
+        /** The bytes of the main header */
+        private final byte[] head;
+
+        /** The 'fixed_point' option */
+        private final boolean fixedPoint;
+
+        /** The hash code of the key */
+        private final int hash;
+
+        /**
+         * Creates the key of a main header. The array is not copied and
+         * must not be modified afterwards.
+         *
+         * @param head The bytes of the main header
+         *
+         * @param fixedPoint The 'fixed_point' option
+         * */
+        Key(byte[] head,boolean fixedPoint) {
+            this.head = head;
+            this.fixedPoint = fixedPoint;
+            hash = Arrays.hashCode(head)*31 + (fixedPoint ? 1 : 0);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) return false;
+            Key k = (Key)o;
+            return hash==k.hash && fixedPoint==k.fixedPoint &&
+                Arrays.equals(head,k.head);
+        }
+    }
+
+    private MainHeaderCache() {
+    }
+
+    /**
+     * Returns the template of the key, or null if there is none.
+     *
+     * @param key Identifies the main header
+     *
+     * @return The cached template or null.
+     * */
+    static HeaderDecoder get(Key key) {
+        synchronized(entries) {
+            return entries.get(key);
+        }
+    }
+
+    /**
+     * Adds the template of a main header, which may drop the least recently
+     * used one.
+     *
+     * @param key Identifies the main header
+     *
+     * @param hd The template, which must not be modified afterwards
+     * */
+    static void put(Key key,HeaderDecoder hd) {
+        synchronized(entries) {
+            if(!entries.containsKey(key)) {
+                entries.put(key,hd);
+            }
+        }
+    }
+}
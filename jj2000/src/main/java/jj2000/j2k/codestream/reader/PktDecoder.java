@@ -46,7 +46,6 @@ package jj2000.j2k.codestream.reader;
 import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.util.Vector;
 
 import jj2000.j2k.codestream.CBlkCoordInfo;
 import jj2000.j2k.codestream.Markers;
@@ -168,8 +167,23 @@ public class PktDecoder implements StdEntropyCoderOptions {
     private int pktIdx;
 
     /** List of code-blocks found in last read packet head (one list
-     * per subband) */
-    private Vector[] cblks;
+     * per subband). Only the first 'nCblks[s]' elements of each list are
+     * valid. */
+    private CBlkCoordInfo[][] cblks = new CBlkCoordInfo[4][];
+
+    /** Number of code-blocks found in last read packet head, for each
+     * subband */
+    private int[] nCblks = new int[4];
+
+    /** The tag trees of the previous tile, available for reuse by the
+     * current one. Only the first 'nTtPool' elements are valid. */
+    private TagTreeDecoder[] ttPool;
+
+    /** Number of tag trees available in 'ttPool' */
+    private int nTtPool;
+
+    /** The packet header reader used for packed packet headers */
+    private PktHeaderBitReader pphbin;
 
     /** Number of codeblocks encountered. used for ncb quit condition*/
     private int ncb;
@@ -259,6 +273,13 @@ public class PktDecoder implements StdEntropyCoderOptions {
         this.tIdx = src.getTileIdx();
         this.pph = pph;
         this.pphbais = pphbais;
+        if(pph) {
+            if(pphbin==null) {
+                pphbin = new PktHeaderBitReader(pphbais);
+            } else {
+                pphbin.setInput(pphbais);
+            }
+        }
         
         sopUsed = ((Boolean)decSpec.sops.getTileDef(tIdx)).booleanValue();
         pktIdx = 0;
@@ -266,6 +287,8 @@ public class PktDecoder implements StdEntropyCoderOptions {
 
         cbI = new CBlkInfo[nc][][][][];
         lblock = new int[nc][][][][];
+        releaseTagTrees(ttIncl);
+        releaseTagTrees(ttMaxBP);
         ttIncl = new TagTreeDecoder[nc][][][];
         ttMaxBP = new TagTreeDecoder[nc][][][];
         numPrec = new Coord[nc][];
@@ -357,6 +380,57 @@ public class PktDecoder implements StdEntropyCoderOptions {
         return cbI;
     }
     
+    /**
+     * Adds all the tag trees of the given array to the pool of tag trees
+     * that can be reused by the next tile.
+     *
+     * @param tt The tag trees of the previous tile, indexed by component,
+     * resolution level, precinct and subband. May be null.
+     * */
+    private void releaseTagTrees(TagTreeDecoder[][][][] tt) {
+        if(tt==null) return;
+        for(int c=0; c<tt.length; c++) {
+            if(tt[c]==null) continue;
+            for(int r=0; r<tt[c].length; r++) {
+                if(tt[c][r]==null) continue;
+                for(int p=0; p<tt[c][r].length; p++) {
+                    for(int s=0; s<tt[c][r][p].length; s++) {
+                        if(tt[c][r][p][s]==null) continue;
+                        if(ttPool==null || nTtPool==ttPool.length) {
+                            TagTreeDecoder[] tmp = new TagTreeDecoder[
+                                (ttPool==null) ? 64 : 2*ttPool.length];
+                            if(ttPool!=null) {
+                                System.arraycopy(ttPool,0,tmp,0,nTtPool);
+                            }
+                            ttPool = tmp;
+                        }
+                        ttPool[nTtPool++] = tt[c][r][p][s];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a tag tree decoder with the given dimensions, reusing one of
+     * the previous tile if any is available.
+     *
+     * @param h The number of elements along the vertical direction.
+     *
+     * @param w The number of elements along the horizontal direction.
+     *
+     * @return The tag tree decoder, in its initial state.
+     * */
+    private TagTreeDecoder getTagTree(int h,int w) {
+        if(nTtPool==0) {
+            return new TagTreeDecoder(h,w);
+        }
+        TagTreeDecoder tt = ttPool[--nTtPool];
+        ttPool[nTtPool] = null;
+        tt.reset(h,w);
+        return tt;
+    }
+
     /** 
      * Retrives precincts and code-blocks coordinates in the given resolution,
      * level and component. Finishes TagTreeEncoder initialization as well.
@@ -486,13 +560,13 @@ public class PktDecoder implements StdEntropyCoderOptions {
                     
                     if(s1x-s0x<=0 || s1y-s0y<=0) {
                         ppinfo[c][r][nPrec].nblk[0] = 0;
-                        ttIncl[c][r][nPrec][0] = new TagTreeDecoder(0,0);
-                        ttMaxBP[c][r][nPrec][0] = new TagTreeDecoder(0,0);
+                        ttIncl[c][r][nPrec][0] = getTagTree(0,0);
+                        ttMaxBP[c][r][nPrec][0] = getTagTree(0,0);
                     } else {
                         ttIncl[c][r][nPrec][0] = 
-                            new TagTreeDecoder(kend-kstart+1,lend-lstart+1);
+                            getTagTree(kend-kstart+1,lend-lstart+1);
                         ttMaxBP[c][r][nPrec][0] = 
-                            new TagTreeDecoder(kend-kstart+1,lend-lstart+1);
+                            getTagTree(kend-kstart+1,lend-lstart+1);
                         ppinfo[c][r][nPrec].cblk[0] = 
                             new CBlkCoordInfo[kend-kstart+1][lend-lstart+1];
                         ppinfo[c][r][nPrec].
@@ -556,13 +630,13 @@ public class PktDecoder implements StdEntropyCoderOptions {
 
                     if(s1x-s0x<=0 || s1y-s0y<=0) {
                         ppinfo[c][r][nPrec].nblk[1] = 0;
-                        ttIncl[c][r][nPrec][1] = new TagTreeDecoder(0,0);
-                        ttMaxBP[c][r][nPrec][1] = new TagTreeDecoder(0,0);
+                        ttIncl[c][r][nPrec][1] = getTagTree(0,0);
+                        ttMaxBP[c][r][nPrec][1] = getTagTree(0,0);
                     } else {
                         ttIncl[c][r][nPrec][1] = 
-                            new TagTreeDecoder(kend-kstart+1,lend-lstart+1);
+                            getTagTree(kend-kstart+1,lend-lstart+1);
                         ttMaxBP[c][r][nPrec][1] = 
-                            new TagTreeDecoder(kend-kstart+1,lend-lstart+1);
+                            getTagTree(kend-kstart+1,lend-lstart+1);
                         ppinfo[c][r][nPrec].cblk[1] = 
                             new CBlkCoordInfo[kend-kstart+1][lend-lstart+1];
                         ppinfo[c][r][nPrec].
@@ -626,13 +700,13 @@ public class PktDecoder implements StdEntropyCoderOptions {
 
                     if(s1x-s0x<=0 || s1y-s0y<=0) {
                         ppinfo[c][r][nPrec].nblk[2] = 0;
-                        ttIncl[c][r][nPrec][2] = new TagTreeDecoder(0,0);
-                        ttMaxBP[c][r][nPrec][2] = new TagTreeDecoder(0,0);
+                        ttIncl[c][r][nPrec][2] = getTagTree(0,0);
+                        ttMaxBP[c][r][nPrec][2] = getTagTree(0,0);
                     } else {
                         ttIncl[c][r][nPrec][2] = 
-                            new TagTreeDecoder(kend-kstart+1,lend-lstart+1);
+                            getTagTree(kend-kstart+1,lend-lstart+1);
                         ttMaxBP[c][r][nPrec][2] = 
-                            new TagTreeDecoder(kend-kstart+1,lend-lstart+1);
+                            getTagTree(kend-kstart+1,lend-lstart+1);
                         ppinfo[c][r][nPrec].cblk[2] = 
                             new CBlkCoordInfo[kend-kstart+1][lend-lstart+1];
                         ppinfo[c][r][nPrec].
@@ -696,13 +770,13 @@ public class PktDecoder implements StdEntropyCoderOptions {
 
                     if(s1x-s0x<=0 || s1y-s0y<=0) {
                         ppinfo[c][r][nPrec].nblk[3] = 0;
-                        ttIncl[c][r][nPrec][3] = new TagTreeDecoder(0,0);
-                        ttMaxBP[c][r][nPrec][3] = new TagTreeDecoder(0,0);
+                        ttIncl[c][r][nPrec][3] = getTagTree(0,0);
+                        ttMaxBP[c][r][nPrec][3] = getTagTree(0,0);
                     } else {
                         ttIncl[c][r][nPrec][3] = 
-                            new TagTreeDecoder(kend-kstart+1,lend-lstart+1);
+                            getTagTree(kend-kstart+1,lend-lstart+1);
                         ttMaxBP[c][r][nPrec][3] = 
-                            new TagTreeDecoder(kend-kstart+1,lend-lstart+1);
+                            getTagTree(kend-kstart+1,lend-lstart+1);
                         ppinfo[c][r][nPrec].cblk[3] = 
                             new CBlkCoordInfo[kend-kstart+1][lend-lstart+1];
                         ppinfo[c][r][nPrec].
@@ -802,7 +876,7 @@ public class PktDecoder implements StdEntropyCoderOptions {
         // If packed packet headers was used, use separate stream for reading
         // of packet headers
 	if(pph) {
-            bin = new PktHeaderBitReader(pphbais);
+            bin = pphbin;
         } else {
             bin = this.bin;
         }
@@ -828,9 +902,8 @@ public class PktDecoder implements StdEntropyCoderOptions {
         // If packet is empty there is no info in it (i.e. no code-blocks)
         if(bin.readBit()==0) {
             // No code-block is included
-            cblks = new Vector[maxs+1];
             for(int s=mins; s<maxs; s++){
-                cblks[s] = new Vector();
+                nCblks[s] = 0;
             }
 	    pktIdx++;
 	    
@@ -856,16 +929,8 @@ public class PktDecoder implements StdEntropyCoderOptions {
 
         // Packet is not empty => decode info
         // Loop on each subband in this resolution level
-        if(cblks==null || cblks.length<maxs+1) {
-            cblks = new Vector[maxs+1];
-        }
-
         for(int s=mins; s<maxs; s++) {
-            if(cblks[s]==null) {
-                cblks[s] = new Vector();
-            } else {
-                cblks[s].removeAllElements();
-            }
+            nCblks[s] = 0;
             sb = (SubbandSyn)root.getSubbandByIdx(r,s);
             // No code-block in this precinct
             if(prec.nblk[s]==0) {
@@ -968,7 +1033,7 @@ public class PktDecoder implements StdEntropyCoderOptions {
                         }
                         ccb.addNTP(l,totnewtp);
                         sumtotnewtp += totnewtp;
-                        cblks[s].addElement(prec.cblk[s][m][n]);
+                        addCBlk(s,prec.cblk[s][m][n]);
 
                         // Code-block length
                         
@@ -986,9 +1051,7 @@ public class PktDecoder implements StdEntropyCoderOptions {
                         // then there is one termination per bypass/MQ and
                         // MQ/bypass transition. Otherwise the only
                         // termination is at the end of the code-block.
-                        int options = 
-                            ((Integer)decSpec.ecopts.getTileCompVal(tIdx,c)).
-                            intValue();
+                        int options = decSpec.ecopts.getIntVal(tIdx,c);
 		    
                         if( (options&OPT_TERM_PASS) != 0) {
                             // Regular termination in use, one segment per new
@@ -1141,6 +1204,26 @@ public class PktDecoder implements StdEntropyCoderOptions {
 	return false;
     }
 
+    /**
+     * Appends a code-block to the list of code-blocks found in the last read
+     * packet head for the given subband, growing the list if necessary.
+     *
+     * @param s The subband index
+     *
+     * @param cb The coordinates of the code-block
+     * */
+    private void addCBlk(int s,CBlkCoordInfo cb) {
+        CBlkCoordInfo[] lst = cblks[s];
+        if(lst==null) {
+            lst = cblks[s] = new CBlkCoordInfo[16];
+        } else if(nCblks[s]==lst.length) {
+            lst = new CBlkCoordInfo[2*nCblks[s]];
+            System.arraycopy(cblks[s],0,lst,0,nCblks[s]);
+            cblks[s] = lst;
+        }
+        lst[nCblks[s]++] = cb;
+    }
+
     /** 
      * Reads specificied packet body in order to find offset of each
      * code-block's piece of codeword. This use the list of found code-blocks
@@ -1184,8 +1267,8 @@ public class PktDecoder implements StdEntropyCoderOptions {
         }
 
         for(int s=mins; s<maxs; s++) {
-            for(int numCB=0; numCB<cblks[s].size(); numCB++) {
-                cbc = ((CBlkCoordInfo)cblks[s].elementAt(numCB)).idx;
+            for(int numCB=0; numCB<nCblks[s]; numCB++) {
+                cbc = cblks[s][numCB].idx;
                 ccb = cbI[s][cbc.y][cbc.x];
                 ccb.off[l] = curOff;
                 curOff += ccb.len[l];
@@ -1275,6 +1358,20 @@ public class PktDecoder implements StdEntropyCoderOptions {
         return decSpec.pss.getPPY(t,c,rl);
     }
 
+    /**
+     * Skips the packet starting at the current position of the bit stream,
+     * without reading its head. Its length must be known, from the PLT or
+     * PLM marker segments. The state of the precinct is not updated, so no
+     * later packet of the same precinct can be read afterwards.
+     *
+     * @param len The length of the packet, including its SOP marker segment
+     * and its head.
+     * */
+    public void skipPkt(int len) throws IOException {
+        ehs.seek(ehs.getPos()+len);
+        pktIdx++;
+    }
+
     /**
      * Try to read a SOP marker and check that its sequence number if not out
      * of sequence. If so, an error is thrown.
@@ -99,7 +99,23 @@ public class TagTreeDecoder {
      * @param w The number of elements along the horizontal direction.
      * */
     public TagTreeDecoder(int h, int w) {
-        int i;
+        reset(h,w);
+    }
+
+    /**
+     * Re-initializes this tag tree decoder to 'w' elements along the
+     * horizontal dimension and 'h' elements along the vertical direction, as
+     * if it had just been created with these dimensions. The arrays holding
+     * the tree values and states are reused when they are large enough, so
+     * that a decoder may serve several precincts of successive tiles without
+     * new allocations.
+     *
+     * @param h The number of elements along the vertical direction.
+     *
+     * @param w The number of elements along the horizontal direction.
+     * */
+    public void reset(int h, int w) {
+        int i,n;
 
         // Check arguments
         if ( w < 0 || h < 0 ) {
@@ -119,18 +135,36 @@ public class TagTreeDecoder {
                 lvls++;
             }
         }
-        // Allocate tree values and states
-        treeV = new int[lvls][];
-        treeS = new int[lvls][];
+        // Allocate tree values and states, keeping the levels already
+        // allocated
+        if (treeV == null || treeV.length < lvls) {
+            int[][] tmpV = new int[lvls][];
+            int[][] tmpS = new int[lvls][];
+            if (treeV != null) {
+                System.arraycopy(treeV,0,tmpV,0,treeV.length);
+                System.arraycopy(treeS,0,tmpS,0,treeS.length);
+            }
+            treeV = tmpV;
+            treeS = tmpS;
+        }
         w = this.w;
         h = this.h;
         for (i=0; i<lvls; i++) {
-            treeV[i] = new int[h*w];
-            // Initialize to infinite value
-            ArrayUtil.intArraySet(treeV[i],Integer.MAX_VALUE);
+            n = h*w;
+            if (treeV[i] == null || treeV[i].length < n) {
+                treeV[i] = new int[n];
+                // Initialize to infinite value
+                ArrayUtil.intArraySet(treeV[i],Integer.MAX_VALUE);
 
-            // (no need to initialize to 0 since it's the default)
-            treeS[i] = new int[h*w];
+                // (no need to initialize to 0 since it's the default)
+                treeS[i] = new int[n];
+            } else {
+                // Initialize to infinite value and clear the states
+                for (n--; n>=0; n--) {
+                    treeV[i][n] = Integer.MAX_VALUE;
+                    treeS[i][n] = 0;
+                }
+            }
             w = (w+1)>>1;
             h = (h+1)>>1;
         }
@@ -0,0 +1,579 @@
+/*
+ * CVS identifier:
+ *
+ * $Id$
+ *
+ * Class:                   DecodeStats
+ *
+ * Description:             Counters and timings of one decoding
+ *
+ *
+ *
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Raphal Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askelf (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, Flix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ * */
+package jj2000.j2k.decoder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.function.LongSupplier;
+
+/**
+ * This class collects the counters and timings of the decoding of one image
+ * by a Decoder, for instance to find which images are slow to decode and
+ * why. It is filled when statistics are enabled on the decoder, and
+ * obtained after the run with Decoder.getStats().
+ *
+ * <p>The time is split among the stages of the decoding chain: main header,
+ * packets (tile-part and packet headers, and reading the coded data),
+ * entropy decoding, dequantization (including ROI de-scaling), inverse
+ * wavelet transform and output (component transform, color space mapping
+ * and pixel packing). Since the chain pulls the data from the output end,
+ * the stages are nested in one another. The time of each stage excludes the
+ * time of the stages it pulls its data from, so the stage times add up to
+ * at most the total time.</p>
+ *
+ * <p>The wall times are measured on the decoding thread, i.e. the one that
+ * calls Decoder.run(). The CPU times also include the time that the worker
+ * threads spend decoding code-blocks. They are measured with the clock
+ * given to Decoder.setStatsEnabled() or, by default, with the CPU time of
+ * threads provided by the JVM (java.lang.management). Without such a
+ * clock, as on Android by default, they are -1.</p>
+ *
+ * <p>The methods that record the timings and counters are called by the
+ * modules of the decoding chain, they can be called concurrently from
+ * different threads.</p>
+ *
+ * @see Decoder#setStatsEnabled
+ * @see Decoder#getStats
+ * */
+public class DecodeStats {
+
+    /** The stage of the main header and the file format boxes */
+    public final static int HEADER = 0;
+
+    /** The stage of the tile-part and packet headers and the reading of the
+     * coded data */
+    public final static int PACKETS = 1;
+
+    /** The stage of the entropy decoding of the code-blocks */
+    public final static int ENTROPY = 2;
+
+    /** The stage of the ROI de-scaling and dequantization */
+    public final static int DEQUANTIZATION = 3;
+
+    /** The stage of the inverse wavelet transform */
+    public final static int WAVELET = 4;
+
+    /** The stage of the component transform, color space mapping and pixel
+     * packing */
+    public final static int OUTPUT = 5;
+
+    /** The number of stages */
+    public final static int NUM_STAGES = 6;
+
+    /** The names of the stages */
+    private final static String STAGE_NAMES[] = {"header", "packets",
+                                                 "entropy", "dequantization",
+                                                 "wavelet", "output"};
+
+    /** The CPU time of the current thread provided by the JVM, or null
+     * if it is not available */
+    private final static LongSupplier jvmCpuClock;
+
+    static {
+        LongSupplier c;
+        try {
+            c = CpuClock.isSupported() ? new CpuClock() : null;
+        } catch (LinkageError e) {
+            // No java.lang.management, as on Android
+            c = null;
+        }
+        jvmCpuClock = c;
+    }
+
+    /** The clock giving the CPU time of the current thread, in
+     * nanoseconds, or null if the CPU time is not measured */
+    private final LongSupplier cpuClock;
+
+    /** The thread that decodes the image */
+    private Thread owner;
+
+    /** The wall time of each stage, in nanoseconds */
+    private final long wall[] = new long[NUM_STAGES];
+
+    /** The CPU time of each stage, in nanoseconds */
+    private final long cpu[] = new long[NUM_STAGES];
+
+    /** The stages that are being timed on the decoding thread, the
+     * innermost one last */
+    private int frameStage[] = new int[8];
+
+    /** The wall time at which each stage being timed started */
+    private long frameWall[] = new long[8];
+
+    /** The CPU time at which each stage being timed started */
+    private long frameCpu[] = new long[8];
+
+    /** The number of stages being timed */
+    private int depth;
+
+    /** The wall and CPU time at which the decoding started */
+    private long startWall, startCpu;
+
+    /** The total wall and CPU time of the decoding */
+    private long totalWall, totalCpu;
+
+    /** The number of bytes of the input that were used */
+    private long nBytes;
+
+    /** The number of tiles */
+    private int nTiles;
+
+    /** The number of code-blocks decoded */
+    private long nCblks;
+
+    /** The number of coding passes decoded */
+    private long nPasses;
+
+    /** The number of symbols decoded by the MQ decoder */
+    private long nSymbols;
+
+    /** The number of magnitude bit-planes decoded */
+    private long nBitPlanes;
+
+    /** The size of the largest temporary buffers, in bytes */
+    private long peakBufSize;
+
+    /** The exit code of the decoder */
+    private int exitCode;
+
+    /** The reason why the decoding failed, or null */
+    private String failure;
+
+    /**
+     * Creates empty statistics, whose CPU times are measured with the
+     * specified clock.
+     *
+     * @param cpuClock The clock returning the CPU time of the calling
+     * thread, in nanoseconds. It is called from the decoding thread and
+     * the worker threads. If null, the CPU time provided by the JVM is
+     * used if available, otherwise CPU times are not measured.
+     * */
+    DecodeStats(LongSupplier cpuClock) {
+        this.cpuClock = (cpuClock!=null) ? cpuClock : jvmCpuClock;
+    }
+
+    /**
+     * Returns the CPU time of the calling thread.
+     *
+     * @return The CPU time in nanoseconds, or -1 if it is not available.
+     * */
+    public long getThreadCpuTime() {
+        return (cpuClock!=null) ? cpuClock.getAsLong() : -1;
+    }
+
+    /**
+     * Returns the name of the specified stage.
+     *
+     * @param stage The stage, HEADER, PACKETS, ENTROPY, DEQUANTIZATION,
+     * WAVELET or OUTPUT.
+     *
+     * @return The name of the stage.
+     * */
+    public static String getStageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    /**
+     * Starts the timing of the decoding, on the calling thread. Called by
+     * the decoder.
+     * */
+    void start() {
+        owner = Thread.currentThread();
+        depth = 0;
+        startWall = System.nanoTime();
+        startCpu = getThreadCpuTime();
+    }
+
+    /**
+     * Stops the timing of the decoding. The stages still being timed, if the
+     * decoding failed, are ended. Called by the decoder.
+     * */
+    synchronized void stop() {
+        while (depth>0) {
+            end(frameStage[depth-1]);
+        }
+        totalWall = System.nanoTime()-startWall;
+        if (cpuClock!=null) {
+            totalCpu += getThreadCpuTime()-startCpu;
+        }
+        depth = 0;
+        owner = null;
+    }
+
+    /**
+     * Returns true if the calling thread is the one that decodes the image.
+     *
+     * @return True if on the decoding thread.
+     * */
+    public boolean isDecodingThread() {
+        return Thread.currentThread()==owner;
+    }
+
+    /**
+     * Starts the timing of a stage on the decoding thread, nested in the
+     * stage being timed, if any. It must be followed by a call to end()
+     * with the same stage. Nothing is done if the calling thread is not the
+     * decoding thread.
+     *
+     * @param stage The stage.
+     * */
+    public void begin(int stage) {
+        if (Thread.currentThread()!=owner) {
+            return;
+        }
+        if (depth==frameStage.length) {
+            frameStage = grow(frameStage);
+            frameWall = grow(frameWall);
+            frameCpu = grow(frameCpu);
+        }
+        frameStage[depth] = stage;
+        frameCpu[depth] = getThreadCpuTime();
+        frameWall[depth] = System.nanoTime();
+        depth++;
+    }
+
+    /**
+     * Ends the timing of a stage on the decoding thread. Its time is added
+     * to the stage, and removed from the stage it is nested in. Nothing is
+     * done if the calling thread is not the decoding thread.
+     *
+     * @param stage The stage, which must be the one given to the matching
+     * begin().
+     * */
+    public void end(int stage) {
+        long dw,dc;
+
+        if (Thread.currentThread()!=owner || depth==0 ||
+            frameStage[depth-1]!=stage) {
+            return;
+        }
+        depth--;
+        dw = System.nanoTime()-frameWall[depth];
+        dc = getThreadCpuTime()-frameCpu[depth];
+        synchronized (this) {
+            wall[stage] += dw;
+            cpu[stage] += dc;
+            if (depth>0) {
+                wall[frameStage[depth-1]] -= dw;
+                cpu[frameStage[depth-1]] -= dc;
+            }
+        }
+    }
+
+    /**
+     * Adds CPU time spent in a stage by a thread other than the decoding
+     * thread.
+     *
+     * @param stage The stage.
+     *
+     * @param t The CPU time in nanoseconds, as a difference of
+     * getThreadCpuTime() values.
+     * */
+    public synchronized void addCpuTime(int stage, long t) {
+        if (cpuClock!=null) {
+            cpu[stage] += t;
+            totalCpu += t;
+        }
+    }
+
+    /**
+     * Adds decoded code-blocks.
+     *
+     * @param cblks The number of code-blocks.
+     *
+     * @param passes The number of coding passes decoded in them.
+     *
+     * @param bitPlanes The number of magnitude bit-planes decoded in them.
+     *
+     * @param symbols The number of MQ symbols decoded in them.
+     * */
+    public synchronized void addCodeBlocks(int cblks, int passes,
+                                           int bitPlanes, long symbols) {
+        nCblks += cblks;
+        nPasses += passes;
+        nBitPlanes += bitPlanes;
+        nSymbols += symbols;
+    }
+
+    /**
+     * Sets the number of bytes of the input used. Called by the decoder.
+     * */
+    void setBytesRead(long n) {
+        nBytes = n;
+    }
+
+    /**
+     * Sets the number of tiles. Called by the decoder.
+     * */
+    void setNumTiles(int n) {
+        nTiles = n;
+    }
+
+    /**
+     * Records the size of temporary buffers, keeping the largest. Called by
+     * the decoder.
+     * */
+    void setBufferSize(long size) {
+        if (size>peakBufSize) {
+            peakBufSize = size;
+        }
+    }
+
+    /**
+     * Records why the decoding failed. Only the first failure is kept.
+     * Called by the decoder.
+     * */
+    void setFailure(String msg, int code) {
+        exitCode = code;
+        if (failure==null) {
+            failure = msg;
+        }
+    }
+
+    /**
+     * Returns the number of bytes of the input that were used, including
+     * the file format boxes before the codestream.
+     *
+     * @return The number of bytes.
+     * */
+    public long getBytesRead() {
+        return nBytes;
+    }
+
+    /**
+     * Returns the number of tiles of the image.
+     *
+     * @return The number of tiles.
+     * */
+    public int getNumTiles() {
+        return nTiles;
+    }
+
+    /**
+     * Returns the number of code-blocks decoded, including those with no
+     * coded data.
+     *
+     * @return The number of code-blocks.
+     * */
+    public synchronized long getNumCodeBlocks() {
+        return nCblks;
+    }
+
+    /**
+     * Returns the number of coding passes decoded.
+     *
+     * @return The number of passes.
+     * */
+    public synchronized long getNumPasses() {
+        return nPasses;
+    }
+
+    /**
+     * Returns the number of symbols decoded by the MQ decoder. The bits of
+     * the raw (bypass) passes are not included.
+     *
+     * @return The number of symbols.
+     * */
+    public synchronized long getNumSymbols() {
+        return nSymbols;
+    }
+
+    /**
+     * Returns the number of magnitude bit-planes decoded, summed over the
+     * code-blocks.
+     *
+     * @return The number of bit-planes.
+     * */
+    public synchronized long getNumBitPlanes() {
+        return nBitPlanes;
+    }
+
+    /**
+     * Returns the wall time spent in the specified stage on the decoding
+     * thread, excluding the stages it pulls its data from.
+     *
+     * @param stage The stage.
+     *
+     * @return The time in nanoseconds.
+     * */
+    public synchronized long getWallTime(int stage) {
+        return wall[stage];
+    }
+
+    /**
+     * Returns the CPU time spent in the specified stage, on all threads,
+     * excluding the stages it pulls its data from.
+     *
+     * @param stage The stage.
+     *
+     * @return The time in nanoseconds, or -1 if not available.
+     * */
+    public synchronized long getCpuTime(int stage) {
+        return (cpuClock!=null) ? cpu[stage] : -1;
+    }
+
+    /**
+     * Returns the wall time of the whole decoding.
+     *
+     * @return The time in nanoseconds.
+     * */
+    public synchronized long getTotalWallTime() {
+        return totalWall;
+    }
+
+    /**
+     * Returns the CPU time of the whole decoding, on all threads.
+     *
+     * @return The time in nanoseconds, or -1 if not available.
+     * */
+    public synchronized long getTotalCpuTime() {
+        return (cpuClock!=null) ? totalCpu : -1;
+    }
+
+    /**
+     * Returns the size of the largest temporary buffers used at the same
+     * time: those of the inverse wavelet transform and the pixel buffer.
+     *
+     * @return The size in bytes.
+     * */
+    public long getPeakBufferSize() {
+        return peakBufSize;
+    }
+
+    /**
+     * Returns the exit code of the decoder, 0 if the image was decoded.
+     *
+     * @return The exit code.
+     * */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Returns why the decoding failed.
+     *
+     * @return The error message, or null if the image was decoded.
+     * */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns a one line summary of the statistics, suitable for logging.
+     *
+     * @return The summary.
+     * */
+    public synchronized String toString() {
+        StringBuffer sb = new StringBuffer();
+
+        sb.append("exit=").append(exitCode);
+        if (failure!=null) {
+            sb.append(" (").append(failure.replace('\n',' ')).append(')');
+        }
+        sb.append(" bytes=").append(nBytes);
+        sb.append(" tiles=").append(nTiles);
+        sb.append(" cblks=").append(nCblks);
+        sb.append(" passes=").append(nPasses);
+        sb.append(" bitplanes=").append(nBitPlanes);
+        sb.append(" symbols=").append(nSymbols);
+        sb.append(" peakbuf=").append(peakBufSize);
+        for (int i=0; i<NUM_STAGES; i++) {
+            sb.append(' ').append(STAGE_NAMES[i]).append('=');
+            appendTimes(sb,wall[i],cpu[i]);
+        }
+        sb.append(" total=");
+        appendTimes(sb,totalWall,totalCpu);
+        return sb.toString();
+    }
+
+    /**
+     * Appends a wall time and a CPU time, in milliseconds.
+     * */
+    private void appendTimes(StringBuffer sb, long w, long c) {
+        sb.append(w/1000/1000f).append("ms");
+        if (cpuClock!=null) {
+            sb.append('/').append(c/1000/1000f).append("ms");
+        }
+    }
+
+    /**
+     * Returns a copy of the array, twice as long.
+     * */
+    private static int[] grow(int a[]) {
+        int b[] = new int[2*a.length];
+        System.arraycopy(a,0,b,0,a.length);
+        return b;
+    }
+
+    /**
+     * Returns a copy of the array, twice as long.
+     * */
+    private static long[] grow(long a[]) {
+        long b[] = new long[2*a.length];
+        System.arraycopy(a,0,b,0,a.length);
+        return b;
+    }
+
+    /**
+     * Access to the CPU time of threads. It is kept apart so that this
+     * class can be used where java.lang.management is not available.
+     * */
+    private static class CpuClock implements LongSupplier {
+
+        /** The thread management of the JVM */
+        private final static ThreadMXBean threads =
+            ManagementFactory.getThreadMXBean();
+
+        /** Returns true if the CPU time of the current thread is
+         * available */
+        static boolean isSupported() {
+            return threads.isCurrentThreadCpuTimeSupported() &&
+                threads.isThreadCpuTimeEnabled();
+        }
+
+        /** Returns the CPU time of the current thread, in nanoseconds */
+        public long getAsLong() {
+            return threads.getCurrentThreadCpuTime();
+        }
+    }
+}
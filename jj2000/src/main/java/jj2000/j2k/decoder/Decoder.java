@@ -0,0 +1,1328 @@
+/*
+ * CVS identifier:
+ *
+ * $Id: Decoder.java 169 2012-01-15 18:33:24Z mroland $
+ *
+ * Class:                   Decoder
+ *
+ * Description:             The decoder object
+ *
+ *
+ *
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Rapha�l Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askel�f (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, F�lix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ * */
+package jj2000.j2k.decoder;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Vector;
+import java.util.function.LongSupplier;
+
+import jj2000.colorspace.ColorSpace;
+import jj2000.colorspace.ColorSpaceException;
+import jj2000.colorspace.ColorSpaceMapper;
+import jj2000.icc.ICCProfiler;
+import jj2000.j2k.ModuleSpec;
+import jj2000.j2k.codestream.HeaderInfo;
+import jj2000.j2k.codestream.reader.BitstreamReaderAgent;
+import jj2000.j2k.codestream.reader.HeaderDecoder;
+import jj2000.j2k.entropy.decoder.EntropyDecoder;
+import jj2000.j2k.fileformat.reader.FileFormatReader;
+import jj2000.j2k.image.BlkImgDataSrc;
+import jj2000.j2k.image.DataBlk;
+import jj2000.j2k.image.ImgDataConverter;
+import jj2000.j2k.image.invcomptransf.InvCompTransf;
+import jj2000.j2k.image.output.ImgWriterPacked;
+import jj2000.j2k.image.output.PixelImage;
+import jj2000.j2k.io.RandomAccessIO;
+import jj2000.j2k.quantization.dequantizer.Dequantizer;
+import jj2000.j2k.roi.ROIDeScaler;
+import jj2000.j2k.util.BufferRandomAccessIO;
+import jj2000.j2k.util.ISRandomAccessIO;
+import jj2000.j2k.util.ParameterList;
+import jj2000.j2k.util.WorkerPool;
+import jj2000.j2k.wavelet.synthesis.InverseWT;
+
+/**
+ * This class is the main class of JJ2000's decoder. It instantiates all
+ * objects and performs the decoding operations. It then writes the image to
+ * the output file or displays it.
+ *
+ * <p>First the decoder should be initialized with a ParameterList object
+ * given through the constructor. The when the run() method is invoked and the
+ * decoder executes. The exit code of the class can be obtained with the
+ * getExitCode() method, after the constructor and after the run method. A
+ * non-zero value indicates that an error has ocurred.</p>
+ *
+ * <p>The decoding chain corresponds to the following sequence of modules:</p>
+ *
+ * <ul>
+ * <li>BitstreamReaderAgent</li>
+ * <li>EntropyDecoder</li>
+ * <li>ROIDeScaler</li>
+ * <li>Dequantizer</li>
+ * <li>InverseWT</li>
+ * <li>ImgDataConverter</li>
+ * <li>EnumratedColorSpaceMapper, SyccColorSpaceMapper or ICCProfiler</li>
+ * <li>ComponentDemixer (if needed)</li>
+ * <li>ImgDataAdapter (if ComponentDemixer is needed)</li>
+ * <li>ImgWriter</li>
+ * <li>BlkImgDataSrcImageProducer</li>
+ * </ul>
+ *
+ * <p>The 2 last modules cannot be used at the same time and corresponds
+ * respectively to the writing of decoded image into a file or the graphical
+ * display of this same image.</p>
+ *
+ * <p>The behaviour of each module may be modified according to the current
+ * tile-component. All the specifications are kept in modules extending
+ * ModuleSpec and accessible through an instance of DecoderSpecs class.</p>
+ *
+ * <p>The tiles of an image that is in memory are decoded concurrently when
+ * they can be read independently of each other: each thread then has its own
+ * decoding chain, from the BitstreamReaderAgent to the color space mapping,
+ * sharing the main header and the codestream data with the other ones, and
+ * it writes the tiles it decodes to their own part of the output buffer. The
+ * number of threads is given by the 'tile_threads' parameter.</p>
+ *
+ * @see BitstreamReaderAgent
+ * @see EntropyDecoder
+ * @see ROIDeScaler
+ * @see Dequantizer
+ * @see InverseWT
+ * @see ImgDataConverter
+ * @see InvCompTransf
+ * @see ModuleSpec
+ * @see DecoderSpecs
+ * */
+public class Decoder {
+
+	/** Parses the inputstream to analyze the box structure of the JP2
+	 * file. */
+	private ColorSpace csMap = null;
+
+	/** The exit code of the run method */
+	private int exitCode;
+
+	/** The parameter list (arguments) */
+	private ParameterList pl;
+
+	/** Information contained in the codestream's headers */
+	private HeaderInfo hi;
+
+	/** The pixel format of the decoded image */
+	private int outFormat = PixelImage.RGBA_8888;
+
+	/** The buffer where the decoded pixels are written, null to allocate a
+	 * new one for each image */
+	private ByteBuffer outBuf = null;
+
+	/** The buffers of the inverse wavelet transform of the last image,
+	 * reused for the next one */
+	private DataBlk wtBufs[];
+
+	/** The pixel buffer of the last image, reused for the next one if no
+	 * output buffer is set */
+	private ByteBuffer pixBuf;
+
+	/** Whether the statistics of the decoding are collected */
+	private boolean statsEnabled;
+
+	/** The clock measuring the CPU time of threads for the statistics, or
+	 * null for the one of the JVM */
+	private LongSupplier cpuClock;
+
+	/** The statistics of the last image, or null if not collected */
+	private DecodeStats stats;
+
+	/** The maximum number of quality layers to decode, 0 if not limited */
+	private int maxLayers;
+
+	/** The maximum number of bytes of the codestream to decode, 0 if not
+	 * limited */
+	private int maxBytes;
+
+	/** The maximum number of bit-planes to decode in each code-block, 0 if
+	 * not limited */
+	private int maxBitPlanes;
+
+	/** The number of quality layers of the last image decoded */
+	private int numLayers;
+
+	/** The window of the image to decode, as {x,y,w,h} at full
+	 * resolution, or null to decode the whole image */
+	private int window[];
+
+	/** The number of bit-planes of each code-block decoded for the first
+	 * image of the progressive mode */
+	private final static int COARSE_BIT_PLANES = 2;
+
+	/** The number of bit-planes of each code-block beyond which all of them
+	 * are decoded, in the progressive mode */
+	private final static int MAX_COARSE_BIT_PLANES = 4;
+
+	/** The minimum amount of data, in bytes, from which a preview is
+	 * decoded in the streaming mode */
+	public final static int MIN_PREVIEW_BYTES = 4096;
+
+	/** The valid list of options prefixes */
+	private final static char vprfxs[] = {BitstreamReaderAgent.OPT_PREFIX,
+		EntropyDecoder.OPT_PREFIX,
+		ROIDeScaler.OPT_PREFIX,
+		Dequantizer.OPT_PREFIX,
+		InverseWT.OPT_PREFIX,
+		InvCompTransf.OPT_PREFIX,
+		HeaderDecoder.OPT_PREFIX,
+		ColorSpaceMapper.OPT_PREFIX
+	};
+
+	/** The parameter information for this class */
+	private final static String[][] pinfo = {
+						{ "res", "<resolution level index>",
+							"", null},
+            { "rate","<decoding rate in bpp>",
+              "","-1"},
+            { "nbytes","<decoding rate in bytes>",
+              "","-1"},
+            { "parsing", null,
+              "","on"},
+            { "ncb_quit","<max number of code blocks>",
+              "","-1"},
+            { "l_quit","<max number of layers>",
+              "","-1"},
+            { "m_quit","<max number of bit planes>",
+              "","-1"},
+            { "poc_quit",null,
+              "","off"},
+            { "comp_transf",null,
+              "","on"},
+            { "nocolorspace",null,
+              "","off"},
+            { "fixed_point",null,
+              "","off"},
+            { "tile_threads","<number of threads>",
+              "","0"}
+	};
+
+	/**
+	 * Instantiates a decoder object, with the ParameterList object given as
+	 * argument. It also retrieves the default ParameterList.
+	 *
+	 * @param pl The ParameterList for this decoder (contains also defaults
+	 * values).
+	 * */
+	public Decoder(ParameterList pl) {
+		this.pl = pl;
+	}
+
+	/**
+	 * Resets this decoder so that it can decode another image, as if it had
+	 * just been created with the same parameter list. The buffers allocated
+	 * for the previous images are kept, and reused when large enough, so a
+	 * decoder that is reset and reused allocates less than a new one.
+	 * */
+	public void reset() {
+		exitCode = 0;
+		hi = null;
+		csMap = null;
+		outFormat = PixelImage.RGBA_8888;
+		outBuf = null;
+		statsEnabled = false;
+		cpuClock = null;
+		stats = null;
+		maxLayers = 0;
+		maxBytes = 0;
+		maxBitPlanes = 0;
+		window = null;
+	}
+
+	/**
+	 * Returns the exit code of the class. This is only initialized after the
+	 * constructor and when the run method returns.
+	 *
+	 * @return The exit code of the constructor and the run() method.
+	 * */
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * Sets the pixel format of the images returned by the run() methods.
+	 * The default is RGBA_8888. Greyscale images are replicated to R, G and
+	 * B in RGBA_8888 and RGB_565, and color images are converted to
+	 * luminance in GREY_8.
+	 *
+	 * @param format The pixel format, PixelImage.RGBA_8888, RGB_565 or
+	 * GREY_8.
+	 * */
+	public void setOutputFormat(int format) {
+		PixelImage.getBytesPerPixel(format); // Check it
+		outFormat = format;
+	}
+
+	/**
+	 * Sets the buffer where the decoded pixels are written. This allows the
+	 * buffer to be reused among images. If it is too small for an image, or
+	 * null, the buffer of the previous image is reused if it is large
+	 * enough, otherwise a new one is allocated.
+	 *
+	 * @param buf The buffer for the pixels, or null.
+	 *
+	 * @see ImgWriterPacked#getBufferSize
+	 * */
+	public void setOutputBuffer(ByteBuffer buf) {
+		outBuf = buf;
+	}
+
+	/**
+	 * Sets whether the counters and timings of the decoding of each image
+	 * are collected. They are obtained with getStats() after each run.
+	 * Collecting them slows the decoding down slightly. They are not
+	 * collected by default.
+	 *
+	 * @param enabled Whether the statistics are collected.
+	 *
+	 * @see DecodeStats
+	 * */
+	public void setStatsEnabled(boolean enabled) {
+		setStatsEnabled(enabled,null);
+	}
+
+	/**
+	 * Sets whether the counters and timings of the decoding of each image
+	 * are collected, measuring the CPU times with the specified clock. This
+	 * allows CPU times to be obtained where the JVM does not provide the CPU
+	 * time of threads, as on Android, where it can be given as
+	 * SystemClock.currentThreadTimeMillis()*1000000.
+	 *
+	 * @param enabled Whether the statistics are collected.
+	 *
+	 * @param cpuClock The clock returning the CPU time of the calling
+	 * thread, in nanoseconds. It is called from the decoding thread and the
+	 * worker threads. If null, the CPU time of threads provided by the JVM
+	 * is used if available, otherwise the CPU times are -1.
+	 *
+	 * @see DecodeStats
+	 * */
+	public void setStatsEnabled(boolean enabled, LongSupplier cpuClock) {
+		statsEnabled = enabled;
+		this.cpuClock = cpuClock;
+	}
+
+	/**
+	 * Limits the data decoded by the run() methods, so that a coarser image
+	 * is obtained in less time. The limits apply in addition to the 'l_quit',
+	 * 'nbytes' and 'm_quit' parameters, the lowest one being used. There are
+	 * no limits by default.
+	 *
+	 * @param layers The maximum number of quality layers to decode, or 0 if
+	 * not limited.
+	 *
+	 * @param bytes The maximum number of bytes of the codestream to decode,
+	 * headers included, or 0 if not limited.
+	 *
+	 * @param bitPlanes The maximum number of bit-planes to decode in each
+	 * code-block, starting from the most significant one, or 0 if not
+	 * limited.
+	 * */
+	public void setLimits(int layers, int bytes, int bitPlanes) {
+		if(layers<0 || bytes<0 || bitPlanes<0) {
+			throw new IllegalArgumentException("Negative decoding limit");
+		}
+		maxLayers = layers;
+		maxBytes = bytes;
+		maxBitPlanes = bitPlanes;
+	}
+
+	/**
+	 * Restricts the decoding of the run() methods to a window of the image.
+	 * The returned image is the window, at the resolution level at which the
+	 * window, rather than the whole image, is at least as large as the
+	 * requested size. Only the code-blocks that contribute to the window are
+	 * decoded, and only the tiles that overlap it are reconstructed, so a
+	 * small window is decoded much faster than the whole image. The whole
+	 * image is decoded by default.
+	 *
+	 * @param x The horizontal offset of the window from the upper-left
+	 * corner of the image, at full resolution.
+	 *
+	 * @param y The vertical offset of the window from the upper-left corner
+	 * of the image, at full resolution.
+	 *
+	 * @param w The width of the window at full resolution, or 0 to decode
+	 * the whole image.
+	 *
+	 * @param h The height of the window at full resolution, or 0 to decode
+	 * the whole image.
+	 * */
+	public void setWindow(int x, int y, int w, int h) {
+		if(x<0 || y<0 || w<0 || h<0) {
+			throw new IllegalArgumentException("Negative window "+
+					"coordinates");
+		}
+		window = (w>0 && h>0) ? new int[] {x,y,w,h} : null;
+	}
+
+	/**
+	 * Returns the statistics of the last image decoded, whether it could be
+	 * decoded or not. In the streaming mode they are the ones of the final
+	 * image, not of the previews.
+	 *
+	 * @return The statistics, or null if they are not collected.
+	 *
+	 * @see #setStatsEnabled
+	 * */
+	public DecodeStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Returns the parameters that are used in this class. It returns a 2D
+	 * String array. Each of the 1D arrays is for a different option, and they
+	 * have 3 elements. The first element is the option name, the second one
+	 * is the synopsis and the third one is a long description of what the
+	 * parameter is. The synopsis or description may be 'null', in which case
+	 * it is assumed that there is no synopsis or description of the option,
+	 * respectively.
+	 *
+	 * @return the options name, their synopsis and their explanation.
+	 * */
+	public static String[][] getParameterInfo() {
+		return pinfo;
+	}
+
+	/**
+	 * Runs the decoder. After completion the exit code is set, a non-zero
+	 * value indicates that an error ocurred.
+	 *
+	 * <p>The pixels of the returned image are in the output buffer, if one
+	 * is set, or else in a buffer that this decoder reuses for the next
+	 * image. They must be used or copied before the decoder is run again,
+	 * or given back to its pool.</p>
+	 *
+	 * @return The decoded image, or null if an error ocurred.
+	 *
+	 * @see #getExitCode
+	 * */
+	public PixelImage run(byte[] input) {
+		return run(input,0,0);
+	}
+
+	/**
+	 * Runs the decoder, reconstructing the image at the lowest resolution
+	 * level at which it is still at least 'maxWidth' wide and 'maxHeight'
+	 * high, or at full resolution if it is smaller. The packets and
+	 * code-blocks of the higher resolution levels are not decoded. If the
+	 * 'res' parameter is set it takes precedence over the requested
+	 * size. After completion the exit code is set, a non-zero value
+	 * indicates that an error ocurred.
+	 *
+	 * @param input The JPEG 2000 codestream or JP2 file to decode.
+	 *
+	 * @param maxWidth The width the image is to be displayed at, or 0 if
+	 * not constrained.
+	 *
+	 * @param maxHeight The height the image is to be displayed at, or 0 if
+	 * not constrained.
+	 *
+	 * @see #getExitCode
+	 * */
+	public PixelImage run(byte[] input, int maxWidth, int maxHeight) {
+    if (input == null) return null;
+
+		return run(ByteBuffer.wrap(input),maxWidth,maxHeight);
+	}
+
+	/**
+	 * Runs the decoder on the remaining data of 'input', from its position
+	 * to its limit. The data is read in place, it is not copied. After
+	 * completion the exit code is set, a non-zero value indicates that an
+	 * error ocurred.
+	 *
+	 * @param input The JPEG 2000 codestream or JP2 file to decode. Its
+	 * position and limit are not modified.
+	 *
+	 * @see #getExitCode
+	 * */
+	public PixelImage run(ByteBuffer input) {
+		return run(input,0,0);
+	}
+
+	/**
+	 * Runs the decoder on the remaining data of 'input', from its position
+	 * to its limit, reconstructing the image at the lowest resolution level
+	 * at which it is still at least 'maxWidth' wide and 'maxHeight' high.
+	 * The data is read in place, it is not copied.
+	 *
+	 * @param input The JPEG 2000 codestream or JP2 file to decode. Its
+	 * position and limit are not modified.
+	 *
+	 * @param maxWidth The width the image is to be displayed at, or 0 if
+	 * not constrained.
+	 *
+	 * @param maxHeight The height the image is to be displayed at, or 0 if
+	 * not constrained.
+	 *
+	 * @see #run(byte[],int,int)
+	 * @see #getExitCode
+	 * */
+	public PixelImage run(ByteBuffer input, int maxWidth, int maxHeight) {
+    if (input == null) return null;
+
+		// Creates a BufferRandomAccessIO instance reading the file format and
+		// codestream data in place
+		return run(new BufferRandomAccessIO(input),maxWidth,maxHeight,0);
+	}
+
+	/**
+	 * Runs the decoder on the remaining data of 'input', refining the image
+	 * until its full quality is reached or there is not time enough left to
+	 * refine it further. The data is read in place, it is not copied.
+	 *
+	 * <p>The first image is decoded from the first quality layer and the
+	 * most significant bit-planes of each code-block only, which is several
+	 * times faster than decoding the full image. Then each new image doubles
+	 * the number of bit-planes if the codestream has a single layer, or
+	 * else the number of layers, with all their bit-planes, until all of
+	 * them are decoded. A new image is only decoded if twice the time taken by the
+	 * previous one is left before the time limit, so the limit may be
+	 * exceeded by the first image only, or if the estimate is wrong.</p>
+	 *
+	 * <p>Each image but the last one is given to 'listener', the last one is
+	 * returned. The images do not go beyond the limits set with
+	 * setLimits().</p>
+	 *
+	 * @param input The JPEG 2000 codestream or JP2 file to decode. Its
+	 * position and limit are not modified.
+	 *
+	 * @param maxWidth The width the image is to be displayed at, or 0 if
+	 * not constrained.
+	 *
+	 * @param maxHeight The height the image is to be displayed at, or 0 if
+	 * not constrained.
+	 *
+	 * @param timeLimit The time within which the image is to be decoded, in
+	 * milliseconds, or 0 if not constrained.
+	 *
+	 * @param listener Where to send the coarser images, or null if they are
+	 * not wanted.
+	 *
+	 * @see #run(byte[],int,int)
+	 * @see #setLimits
+	 * @see #getExitCode
+	 * */
+	public PixelImage run(ByteBuffer input, int maxWidth, int maxHeight,
+			long timeLimit, PreviewListener listener) {
+    if (input == null) return null;
+
+		BufferRandomAccessIO in = new BufferRandomAccessIO(input);
+		int userLayers = maxLayers;
+		int userBitPlanes = maxBitPlanes;
+		int layers = 1; // layers of the next image, 0 for all
+		int bitPlanes = COARSE_BIT_PLANES; // bit-planes, 0 for all
+		long end = System.nanoTime()+timeLimit*1000000L;
+		long start,last;
+		PixelImage img;
+
+		try {
+			while(true) {
+				maxLayers = minLimit(layers,userLayers);
+				maxBitPlanes = minLimit(bitPlanes,userBitPlanes);
+				start = System.nanoTime();
+				img = run(in,maxWidth,maxHeight,0);
+				if(img==null) {
+					return null;
+				}
+				last = System.nanoTime()-start;
+
+				// Refine the bit-planes of single layer codestreams, and
+				// the layers of the others with all their bit-planes
+				if(bitPlanes!=0 && numLayers==1) {
+					bitPlanes = (2*bitPlanes>MAX_COARSE_BIT_PLANES) ?
+						0 : 2*bitPlanes;
+				} else if(layers<numLayers) {
+					bitPlanes = 0;
+					layers = Math.min(2*layers,numLayers);
+				} else {
+					return img;
+				}
+
+				// Stop if the image would not change or there is not time
+				// enough to decode it
+				if(minLimit(layers,userLayers)==maxLayers &&
+						minLimit(bitPlanes,userBitPlanes)==maxBitPlanes) {
+					return img;
+				}
+				if(timeLimit>0 && System.nanoTime()+2*last>end) {
+					return img;
+				}
+				if(listener!=null) {
+					listener.previewDecoded(img);
+				}
+			}
+		} finally {
+			maxLayers = userLayers;
+			maxBitPlanes = userBitPlanes;
+		}
+	}
+
+	/**
+	 * Returns the lowest of two limits, 0 meaning no limit.
+	 * */
+	private static int minLimit(int a, int b) {
+		if(a==0) return b;
+		if(b==0) return a;
+		return Math.min(a,b);
+	}
+
+	/**
+	 * Runs the decoder on the data of 'input' as it is received. The main
+	 * header and the packets are parsed as soon as their data is
+	 * available, blocking on 'input' as necessary, so that only the
+	 * decoding of the code-blocks remains to be done when the last byte is
+	 * received.
+	 *
+	 * <p>If 'listener' is not null, preview images are decoded from the
+	 * data received so far, each time its amount has doubled (starting at
+	 * MIN_PREVIEW_BYTES), and given to the listener. For resolution or
+	 * layer progressive codestreams that is roughly one preview per
+	 * resolution level or quality layer. The previews are decoded in the
+	 * calling thread, between reads from 'input'.</p>
+	 *
+	 * @param input The JPEG 2000 codestream or JP2 file to decode. It is
+	 * read until its end and closed.
+	 *
+	 * @param length The length of the data in 'input', or 0 if not known.
+	 * It should be given, otherwise the JP2 file format, and in some cases
+	 * the codestream, can not be parsed until all the data has been
+	 * received.
+	 *
+	 * @param maxWidth The width the image is to be displayed at, or 0 if
+	 * not constrained.
+	 *
+	 * @param maxHeight The height the image is to be displayed at, or 0 if
+	 * not constrained.
+	 *
+	 * @param listener Where to send the preview images, or null if none
+	 * should be decoded.
+	 *
+	 * @see #run(byte[],int,int)
+	 * @see #getExitCode
+	 * */
+	public PixelImage run(InputStream input, int length, int maxWidth,
+			int maxHeight, PreviewListener listener) {
+    if (input == null) return null;
+
+		ISRandomAccessIO in;
+		PixelImage preview;
+		int n;
+
+		in = (length>0) ? new ISRandomAccessIO(input,length) :
+			new ISRandomAccessIO(input);
+		try {
+			if(listener!=null) {
+				for(n=MIN_PREVIEW_BYTES; in.fill(n)>=n && !in.isComplete() &&
+						(length<=0 || in.getCachedLength()<length); n<<=1) {
+					preview = run(in,maxWidth,maxHeight,in.getCachedLength());
+					if(preview!=null) {
+						listener.previewDecoded(preview);
+					}
+				}
+			}
+		} catch (IOException e) {
+			stats = statsEnabled ? new DecodeStats(cpuClock) : null;
+			error("I/O error while reading input"+
+					((e.getMessage() != null) ?
+							(":\n"+e.getMessage()) : ""),4);
+			return null;
+		}
+		return run(in,maxWidth,maxHeight,0);
+	}
+
+	/**
+	 * Runs the decoder on the data of 'in'. After completion the exit code
+	 * is set, a non-zero value indicates that an error ocurred.
+	 *
+	 * @param in The JPEG 2000 codestream or JP2 file to decode, from
+	 * position 0.
+	 *
+	 * @param maxWidth The width the image is to be displayed at, or 0 if
+	 * not constrained.
+	 *
+	 * @param maxHeight The height the image is to be displayed at, or 0 if
+	 * not constrained.
+	 *
+	 * @param avail If positive, only the first 'avail' bytes of 'in' are
+	 * used, decoding the packets that are complete within them. Otherwise
+	 * all the data is used.
+	 *
+	 * @see #getExitCode
+	 * */
+	private PixelImage run(RandomAccessIO in, int maxWidth, int maxHeight,
+			int avail) {
+		PixelImage img;
+
+		if(!statsEnabled) {
+			stats = null;
+			return decode(in,maxWidth,maxHeight,avail);
+		}
+		stats = new DecodeStats(cpuClock);
+		stats.start();
+		img = decode(in,maxWidth,maxHeight,avail);
+		stats.stop();
+		return img;
+	}
+
+	/**
+	 * Decodes the data of 'in', as run(RandomAccessIO,int,int,int), while
+	 * recording the statistics in 'stats' if it is not null.
+	 * */
+	private PixelImage decode(RandomAccessIO in, int maxWidth,
+			int maxHeight, int avail) {
+		int res; // resolution level to reconstruct
+		int csStart; // position of the codestream in the input
+		ParameterList brpl; // parameters of the bit stream reader
+		FileFormatReader ff;
+		BitstreamReaderAgent breader;
+		HeaderDecoder hd;
+		EntropyDecoder entdec;
+		ROIDeScaler roids;
+		Dequantizer deq;
+		InverseWT invWT;
+		InvCompTransf ictransf;
+		BlkImgDataSrc converter;
+		DecoderSpecs decSpec = null;
+		BlkImgDataSrc palettized;
+		BlkImgDataSrc channels;
+		BlkImgDataSrc resampled;
+		BlkImgDataSrc color;
+		BitstreamReaderAgent tileReaders[]; // readers of the tile chains
+		BlkImgDataSrc tileChains[]; // chains decoding the tiles concurrently
+		InverseWT tileWT[];
+		int i;
+		int depth[];
+		int win[]; // window to decode at the reconstructed level, or null
+		int imgX0,imgY0,imgX1,imgY1; // decoded area at full resolution
+
+		exitCode = 0;
+		try {
+
+			// **** Check parameters ****
+			try {
+				pl.checkList(vprfxs,pl.toNameArray(pinfo));
+			} catch (IllegalArgumentException e) {
+				error(e.getMessage(),2);
+				return null;
+			}
+
+			// **** Open input stream **** 
+			if(stats!=null) stats.begin(DecodeStats.HEADER);
+			in.seek(0);
+
+			// **** File Format ****
+			// If the codestream is wrapped in the jp2 fileformat, Read the
+			// file format wrapper
+			ff = new FileFormatReader(in);
+			ff.readFileFormat();
+			csStart = 0;
+			if(ff.JP2FFUsed) {
+				csStart = ff.getFirstCodeStreamPos();
+				in.seek(csStart);
+			}
+
+			// +----------------------------+
+			// | Instantiate decoding chain |
+			// +----------------------------+
+
+			// **** Header decoder ****
+			// Instantiate header decoder and read main header 
+			hi = new HeaderInfo();
+			try {
+				hd = new HeaderDecoder(in,pl,hi);
+			} catch (EOFException e) {
+				error("Codestream too short or bad header, "+
+						"unable to decode.",2);
+				return null;
+			}
+
+			int nCompCod = hd.getNumComps();
+			int nTiles = hi.siz.getNumTiles();
+			decSpec = hd.getDecoderSpecs();
+			numLayers = decSpec.nls.getMax();
+			if(stats!=null) {
+				stats.end(DecodeStats.HEADER);
+				stats.setNumTiles(nTiles);
+			}
+
+			// Get demixed bitdepths
+			depth = new int[nCompCod];
+			for(i=0; i<nCompCod;i++) { depth[i] = hd.getOriginalBitDepth(i); }
+
+			// The area of the reference grid to decode
+			imgX0 = hd.getImgULX();
+			imgY0 = hd.getImgULY();
+			imgX1 = imgX0+hd.getImgWidth();
+			imgY1 = imgY0+hd.getImgHeight();
+			if(window!=null) {
+				if(window[0]>=imgX1-imgX0 || window[1]>=imgY1-imgY0) {
+					error("Window outside of the image",2);
+					return null;
+				}
+				imgX1 = Math.min(imgX0+window[0]+window[2],imgX1);
+				imgY1 = Math.min(imgY0+window[1]+window[3],imgY1);
+				imgX0 += window[0];
+				imgY0 += window[1];
+			}
+
+			// Reduce the resolution level to the requested size, unless one
+			// has been specified
+			brpl = pl;
+			if((maxWidth>0 || maxHeight>0) && pl.getParameter("res")==null) {
+				brpl = new ParameterList(pl);
+				brpl.put("res",Integer.toString(
+						getResLevel(imgX0,imgY0,imgX1,imgY1,
+								decSpec.dls.getMin(),maxWidth,maxHeight)));
+			}
+
+			// Limit the decoded data as requested
+			if(maxLayers>0 || maxBytes>0 || maxBitPlanes>0) {
+				if(brpl==pl) {
+					brpl = new ParameterList(pl);
+				}
+				putLimit(brpl,"l_quit",maxLayers);
+				putLimit(brpl,"nbytes",maxBytes);
+				putLimit(brpl,"m_quit",maxBitPlanes);
+			}
+
+			// Use only the available data, in truncation mode so that the
+			// packets beyond it are not parsed
+			if(avail>0) {
+				if(brpl==pl) {
+					brpl = new ParameterList(pl);
+				}
+				brpl.put("parsing","off");
+				putLimit(brpl,"nbytes",avail-csStart);
+			}
+
+			// **** Bit stream reader ****
+			try {
+				if(stats!=null) stats.begin(DecodeStats.PACKETS);
+				breader = BitstreamReaderAgent.
+				createInstance(in,hd,brpl,decSpec,false,hi);
+				if(stats!=null) stats.end(DecodeStats.PACKETS);
+				breader.setStats(stats);
+				tileReaders = getTileReaders(breader,in,nTiles);
+			} catch (IOException e) {
+				error("Error while reading bit stream header or parsing "+
+						"packets"+((e.getMessage() != null) ?
+								(":\n"+e.getMessage()) : ""),4);
+				return null;
+			} catch (IllegalArgumentException e) {
+				error("Cannot instantiate bit stream reader"+
+						((e.getMessage() != null) ?
+								(":\n"+e.getMessage()) : ""),2);
+				return null;
+			}
+
+			// **** Entropy decoder ****
+			try {
+				entdec = hd.createEntropyDecoder(breader,brpl);
+				entdec.setStats(stats);
+			} catch (IllegalArgumentException e) {
+				error("Cannot instantiate entropy decoder"+
+						((e.getMessage() != null) ?
+								(":\n"+e.getMessage()) : ""),2);
+				return null;
+			}
+
+			// **** ROI de-scaler ****
+			try {
+				roids = hd.createROIDeScaler(entdec,pl,decSpec);
+			} catch (IllegalArgumentException e) {
+				error("Cannot instantiate roi de-scaler."+
+						((e.getMessage() != null) ?
+								(":\n"+e.getMessage()) : ""),2);
+				return null;
+			}
+
+			// **** Dequantizer ****
+			try {
+				deq = hd.createDequantizer(roids,depth,decSpec);
+			} catch (IllegalArgumentException e) {
+				error("Cannot instantiate dequantizer"+
+						((e.getMessage() != null) ?
+								(":\n"+e.getMessage()) : ""),2);
+				return null;
+			}
+
+			// **** Inverse wavelet transform ***
+			try {
+				// full page inverse wavelet transform
+				invWT = InverseWT.createInstance(deq,decSpec,pl);
+				invWT.reuseBuffers(wtBufs);
+				invWT.setStats(stats);
+				wtBufs = null;
+			} catch (IllegalArgumentException e) {
+				error("Cannot instantiate inverse wavelet transform"+
+						((e.getMessage() != null) ?
+								(":\n"+e.getMessage()) : ""),2);
+				return null;
+			}
+
+			res = breader.getImgRes();
+			invWT.setImgResLevel(res);
+			win = getWindow(breader,decSpec.dls.getMin(),res,
+					imgX0,imgY0,imgX1,imgY1);
+			if(win!=null) {
+				invWT.setWindow(win[0],win[1],win[2],win[3]);
+			}
+
+			// **** Data converter **** (after inverse transform module)
+			// With fixed-point data the inverse transform already gives
+			// ints, with the fixed point the next modules are told about
+			if(pl.getBooleanParameter("fixed_point")) {
+				converter = invWT;
+			} else {
+				converter = new ImgDataConverter(invWT,0);
+			}
+
+			// **** Inverse component transformation **** 
+			ictransf = new InvCompTransf(converter,decSpec,depth,pl);
+
+			// **** Color space mapping ****
+			if(ff.JP2FFUsed && pl.getParameter("nocolorspace").equals("off")) {
+				try {
+					csMap = new ColorSpace(in,hd,pl);
+					channels = hd.
+					createChannelDefinitionMapper(ictransf,csMap);
+					resampled  = hd.createResampler (channels,csMap);
+					palettized = hd.
+					createPalettizedColorSpaceMapper (resampled,csMap);
+					color = hd.createColorSpaceMapper(palettized,csMap);
+				} catch (IllegalArgumentException e) {
+					error("Could not instantiate ICC profiler"+
+							((e.getMessage() != null) ?
+									(":\n"+e.getMessage()) : ""),1,e);
+					return null; 
+				} catch (ColorSpaceException e) {
+					error("error processing jp2 colorspace information"+
+							((e.getMessage() != null) ?
+									(": "+e.getMessage()) : "    "),1,e);
+					return null;
+        }
+			} else { // Skip colorspace mapping
+				color = ictransf; 
+			}
+
+			// **** Tile decoding chains ****
+			// If the tiles are decoded concurrently each thread has its own
+			// chain, the one above only gives the image's properties
+			tileChains = null;
+			tileWT = null;
+			if(tileReaders!=null) {
+				tileChains = new BlkImgDataSrc[tileReaders.length];
+				tileWT = new InverseWT[tileReaders.length];
+				for(i=0; i<tileReaders.length; i++) {
+					entdec = hd.createEntropyDecoder(tileReaders[i],brpl);
+					entdec.setStats(stats);
+					roids = hd.createROIDeScaler(entdec,pl,decSpec);
+					deq = hd.createDequantizer(roids,depth,decSpec);
+					tileWT[i] = InverseWT.createInstance(deq,decSpec,pl);
+					tileWT[i].setStats(stats);
+					tileWT[i].setImgResLevel(res);
+					if(win!=null) {
+						tileWT[i].setWindow(win[0],win[1],win[2],win[3]);
+					}
+					converter = (pl.getBooleanParameter("fixed_point")) ?
+						(BlkImgDataSrc)tileWT[i] :
+						new ImgDataConverter(tileWT[i],0);
+					tileChains[i] = new InvCompTransf(converter,decSpec,depth,pl);
+					if(color!=ictransf) {
+						channels = hd.createChannelDefinitionMapper(
+								tileChains[i],csMap);
+						resampled  = hd.createResampler(channels,csMap);
+						palettized = hd.
+						createPalettizedColorSpaceMapper(resampled,csMap);
+						tileChains[i] =
+							hd.createColorSpaceMapper(palettized,csMap);
+					}
+				}
+				tileWT[0].reuseBuffers(invWT.releaseBuffers());
+				invWT = tileWT[0];
+			}
+
+			// This is the last image in the decoding chain and should be
+			// assigned by the last transformation:
+			BlkImgDataSrc decodedImage = color;
+			if(color==null) {
+				decodedImage = ictransf;
+			}
+			int nCompImg = decodedImage.getNumComps();
+
+			// **** Create image writers/image display ****
+			// Write decoded image to specified output file
+
+			// output as packed pixels, in the requested format
+			if(win==null) {
+				win = new int[] {0,0,decodedImage.getImgWidth(),
+					decodedImage.getImgHeight()};
+			}
+			int size = win[2]*win[3]*PixelImage.getBytesPerPixel(outFormat);
+			ByteBuffer buf = outBuf;
+			if(buf==null || buf.capacity()<size) {
+				buf = (pixBuf!=null && pixBuf.capacity()>=size) ?
+					pixBuf : null;
+			}
+      ImgWriterPacked imwriter =
+          new ImgWriterPacked(decodedImage,outFormat,buf,win[0],win[1],
+              win[2],win[3]);
+
+      try {
+        if(stats!=null) stats.begin(DecodeStats.OUTPUT);
+        if(tileChains!=null) {
+          imwriter.writeAll(tileChains);
+        } else {
+          imwriter.writeAll();
+        }
+        if(stats!=null) stats.end(DecodeStats.OUTPUT);
+      } catch (IOException e) {
+        error("I/O error while writing output file" +
+            ((e.getMessage() != null) ?
+                (":\n"+e.getMessage()) : ""),2);
+        return null;
+      }
+      PixelImage img = imwriter.get();
+
+      // Keep the buffers to reuse them for the next image
+      wtBufs = invWT.releaseBuffers();
+      if(imwriter.getBuffer()!=outBuf) {
+        pixBuf = imwriter.getBuffer();
+      }
+      if(stats!=null) {
+        long nBytes = csStart+breader.getActualNbytes();
+        long bufSize = getBufferSize(wtBufs)+size;
+        if(tileReaders!=null) {
+          // The tile readers only count the data of the tiles, and the
+          // buffers of all the tile chains were in use at the same time
+          for(i=0; i<tileReaders.length; i++) {
+            nBytes += tileReaders[i].getActualNbytes();
+            if(i>0) {
+              bufSize += getBufferSize(tileWT[i].releaseBuffers());
+            }
+          }
+        }
+        stats.setBytesRead(nBytes);
+        stats.setBufferSize(bufSize);
+      }
+      return img;
+
+		} catch (IllegalArgumentException e) {
+			error(e.getMessage(),2);
+			return null;
+		} catch (Error e) {
+			if(e.getMessage()!=null) {
+				error(e.getMessage(),2);
+			} else {
+				error("An error has occured during decoding.",2);
+			}
+			return null;
+		} catch (RuntimeException e) {
+			if(e.getMessage()!=null) {
+				error("An uncaught runtime exception has occurred:\n"+
+						e.getMessage(),2);
+			} else {
+				error("An uncaught runtime exception has occurred.",2);
+			}
+			return null;
+		} catch (Throwable e) {
+			error("An uncaught exception has occurred.",2);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the bit stream readers of the decoding chains which decode the
+	 * tiles concurrently, one chain per thread, or null if the tiles are
+	 * decoded one after the other by the main chain. The tiles are decoded
+	 * concurrently if the image has several of them, the 'tile_threads'
+	 * parameter allows more than one thread, the data is in memory, and the
+	 * tiles can be read independently of each other.
+	 *
+	 * @param breader The bit stream reader of the main chain.
+	 *
+	 * @param in Where the codestream is read from.
+	 *
+	 * @param nTiles The number of tiles of the image.
+	 *
+	 * @return The readers, or null.
+	 *
+	 * @see BitstreamReaderAgent#getTileReader
+	 * */
+	private BitstreamReaderAgent[] getTileReaders(BitstreamReaderAgent breader,
+			RandomAccessIO in, int nTiles) {
+		BitstreamReaderAgent readers[];
+		int n;
+
+		n = pl.getIntParameter("tile_threads");
+		if(n<=0) {
+			n = WorkerPool.getParallelism();
+		}
+		if(n>nTiles) {
+			n = nTiles;
+		}
+		if(n<=1 || !(in instanceof BufferRandomAccessIO)) {
+			return null;
+		}
+		readers = new BitstreamReaderAgent[n];
+		for(int i=0; i<n; i++) {
+			readers[i] = breader.
+				getTileReader(((BufferRandomAccessIO)in).duplicate());
+			if(readers[i]==null) {
+				return null;
+			}
+		}
+		return readers;
+	}
+
+	/**
+	 * Lowers the value of an integer parameter to 'limit', unless it is
+	 * already lower. A negative value of the parameter means no limit.
+	 *
+	 * @param pl The parameter list where to change the parameter.
+	 *
+	 * @param name The name of the parameter.
+	 *
+	 * @param limit The limit, or 0 if there is none.
+	 * */
+	private static void putLimit(ParameterList pl, String name, int limit) {
+		int v;
+
+		if(limit<=0) {
+			return;
+		}
+		v = pl.getIntParameter(name);
+		if(v<0 || v>limit) {
+			pl.put(name,Integer.toString(limit));
+		}
+	}
+
+	/**
+	 * Returns the window to decode, at the reconstructed resolution level
+	 * and relative to the image at that level, if one is set.
+	 *
+	 * @param breader The bit stream reader of the codestream.
+	 *
+	 * @param mdl The number of decomposition levels, i.e. the highest
+	 * resolution level.
+	 *
+	 * @param res The reconstructed resolution level.
+	 *
+	 * @param x0 The horizontal coordinate of the window's upper-left corner
+	 * in the reference grid.
+	 *
+	 * @param y0 The vertical coordinate of the window's upper-left corner
+	 * in the reference grid.
+	 *
+	 * @param x1 The horizontal coordinate after the window's lower-right
+	 * corner in the reference grid.
+	 *
+	 * @param y1 The vertical coordinate after the window's lower-right
+	 * corner in the reference grid.
+	 *
+	 * @return The window, as {x,y,w,h}, or null if the whole image is
+	 * decoded.
+	 * */
+	private int[] getWindow(BitstreamReaderAgent breader, int mdl, int res,
+			int x0, int y0, int x1, int y1) {
+		int d,ulx,uly,w,h;
+
+		if(window==null) {
+			return null;
+		}
+		d = 1<<(mdl-res);
+		ulx = breader.getImgULX(res);
+		uly = breader.getImgULY(res);
+		x0 = (x0+d-1)/d-ulx;
+		y0 = (y0+d-1)/d-uly;
+		w = Math.max((x1+d-1)/d-ulx-x0,1);
+		h = Math.max((y1+d-1)/d-uly-y0,1);
+		// A window thinner than a sample at this level keeps one
+		x0 = Math.min(x0,breader.getImgWidth(res)-w);
+		y0 = Math.min(y0,breader.getImgHeight(res)-h);
+		return new int[] {x0,y0,w,h};
+	}
+
+	/**
+	 * Returns the lowest resolution level at which an area of the image is
+	 * at least 'w' wide and 'h' high, or the highest one if there is no such
+	 * level.
+	 *
+	 * @param x0 The horizontal coordinate of the area's upper-left corner in
+	 * the reference grid.
+	 *
+	 * @param y0 The vertical coordinate of the area's upper-left corner in
+	 * the reference grid.
+	 *
+	 * @param x1 The horizontal coordinate after the area's lower-right
+	 * corner in the reference grid.
+	 *
+	 * @param y1 The vertical coordinate after the area's lower-right corner
+	 * in the reference grid.
+	 *
+	 * @param mdl The number of decomposition levels, i.e. the highest
+	 * resolution level.
+	 *
+	 * @param w The minimum width, or 0 if not constrained.
+	 *
+	 * @param h The minimum height, or 0 if not constrained.
+	 *
+	 * @return The resolution level index.
+	 * */
+	private static int getResLevel(int x0, int y0, int x1, int y1, int mdl,
+			int w, int h) {
+		int r,d;
+
+		for(r=0; r<mdl; r++) {
+			// Image extent at this resolution level, in the reduced grid
+			d = 1<<(mdl-r);
+			if((x1+d-1)/d-(x0+d-1)/d>=w && (y1+d-1)/d-(y0+d-1)/d>=h) {
+				break;
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Sets the exitCode to 'code'. An exit code different than 0
+	 * indicates that there where problems. 
+	 *
+	 * @param msg The error message
+	 *
+	 * @param code The exit code to set
+	 * */
+	private void error(String msg, int code) {
+		exitCode = code;
+		if(stats!=null) {
+			stats.setFailure(msg,code);
+		}
+	}
+
+	/**
+	 * Sets the exitCode to 'code'. An exit code
+	 * different than 0 indicates that there where problems.
+	 *
+	 * @param msg The error message
+	 *
+	 * @param code The exit code to set
+	 *
+	 * @param ex The exception associated with the call
+	 * */
+	private void error(String msg, int code, Throwable ex) {
+		exitCode = code;
+		if(stats!=null) {
+			stats.setFailure(msg,code);
+		}
+	}
+
+	/**
+	 * Returns the size of the data arrays of the specified blocks.
+	 *
+	 * @param bufs The blocks, or null.
+	 *
+	 * @return The size in bytes.
+	 * */
+	private static long getBufferSize(DataBlk bufs[]) {
+		long n = 0;
+
+		if(bufs!=null) {
+			for(int i=0; i<bufs.length; i++) {
+				if(bufs[i]==null) continue;
+				Object data = bufs[i].getData();
+				if(data instanceof int[]) {
+					n += 4L*((int[])data).length;
+				} else if(data instanceof float[]) {
+					n += 4L*((float[])data).length;
+				}
+			}
+		}
+		return n;
+	}
+
+	/** 
+	 * Returns all the parameters used in the decoding chain. It calls
+	 * parameter from each module and store them in one array (one row per
+	 * parameter and 4 columns).
+	 *
+	 * @return All decoding parameters
+	 *
+	 * @see #getParameterInfo 
+	 * */
+	public static String[][] getAllParameters() {
+		Vector<String[]> vec = new Vector<String[]>();
+		int i;
+
+		String[][] str = BitstreamReaderAgent.getParameterInfo();
+		if(str!=null) for(i=str.length-1; i>=0; i--) vec.addElement(str[i]);
+
+		str = EntropyDecoder.getParameterInfo();
+		if(str!=null) for(i=str.length-1; i>=0; i--) vec.addElement(str[i]);
+
+		str = ROIDeScaler.getParameterInfo();
+		if(str!=null) for(i=str.length-1; i>=0; i--) vec.addElement(str[i]);
+
+		str = Dequantizer.getParameterInfo();
+		if(str!=null) for(i=str.length-1; i>=0; i--) vec.addElement(str[i]);
+
+		str = InverseWT.getParameterInfo();
+		if(str!=null) for(i=str.length-1; i>=0; i--) vec.addElement(str[i]);
+
+		str = InvCompTransf.getParameterInfo();
+		if(str!=null) for(i=str.length-1; i>=0; i--) vec.addElement(str[i]);
+
+		str = HeaderDecoder.getParameterInfo();
+		if(str!=null) for(i=str.length-1; i>=0; i--) vec.addElement(str[i]);
+
+		str = ICCProfiler.getParameterInfo();
+		if(str!=null) for(i=str.length-1; i>=0; i--) vec.addElement(str[i]);
+
+		str = getParameterInfo();
+		if(str!=null) for(i=str.length-1; i>=0; i--) vec.addElement(str[i]);
+
+		str = new String[vec.size()][4];
+		if(str!=null) for(i=str.length-1; i>=0; i--)
+			str[i] = vec.elementAt(i);
+
+		return str;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * CVS identifier:
+ *
+ * $Id$
+ *
+ * Class:                   DecoderPool
+ *
+ * Description:             Pool of reusable decoders
+ *
+ *
+ *
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Raphal Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askelf (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, Flix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ * */
+package jj2000.j2k.decoder;
+
+import java.util.ArrayDeque;
+
+import jj2000.j2k.util.ParameterList;
+
+/**
+ * This class keeps a small number of idle Decoder objects, so that their
+ * buffers are reused from one image to the next instead of being allocated
+ * for each one. All the decoders of a pool use the same parameter list.
+ *
+ * <p>A decoder is obtained with acquire(), used by one thread at a time and
+ * given back with release(), which resets it. The methods of this class can
+ * be called concurrently from different threads.</p>
+ *
+ * @see Decoder#reset
+ * */
+public class DecoderPool {
+
+    /** The parameter list of the decoders */
+    private final ParameterList pl;
+
+    /** The maximum number of idle decoders kept */
+    private final int maxIdle;
+
+    /** The idle decoders, the most recently released one first */
+    private final ArrayDeque<Decoder> idle;
+
+    /**
+     * Creates a new pool of decoders using the specified parameter list.
+     *
+     * @param pl The parameter list of the decoders (contains also defaults
+     * values). It should not be modified while the pool is used.
+     *
+     * @param maxIdle The maximum number of idle decoders kept in the pool.
+     * Decoders released when the pool is full are discarded.
+     * */
+    public DecoderPool(ParameterList pl, int maxIdle) {
+        if (pl == null || maxIdle < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.pl = pl;
+        this.maxIdle = maxIdle;
+        idle = new ArrayDeque<Decoder>(maxIdle);
+    }
+
+    /**
+     * Returns an idle decoder from the pool, or a new one if there is none.
+     * It should be given back with release() after use.
+     *
+     * @return The decoder.
+     * */
+    public Decoder acquire() {
+        Decoder dec;
+
+        synchronized (idle) {
+            dec = idle.pollFirst();
+        }
+        return (dec != null) ? dec : new Decoder(pl);
+    }
+
+    /**
+     * Resets the decoder and puts it back in the pool, unless the pool is
+     * full. The decoder may not be used anymore by the caller, nor the
+     * pixels of the images it returned, unless they were written to a
+     * buffer given with Decoder.setOutputBuffer().
+     *
+     * @param dec The decoder, which must have been obtained from acquire().
+     * */
+    public void release(Decoder dec) {
+        dec.reset();
+        synchronized (idle) {
+            if (idle.size() < maxIdle) {
+                idle.addFirst(dec);
+            }
+        }
+    }
+}
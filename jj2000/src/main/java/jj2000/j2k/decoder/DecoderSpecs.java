@@ -91,7 +91,7 @@ public class DecoderSpecs implements Cloneable {
     public IntegerSpec pos;
     
     /** The Entropy decoder options specifications */
-    public ModuleSpec ecopts;
+    public IntegerSpec ecopts;
 
     /** The component transformation specifications */
     public CompTransfSpec cts;
@@ -119,7 +119,9 @@ public class DecoderSpecs implements Cloneable {
     public ModuleSpec pphs;
 
     /** 
-     * Returns a copy of the current object.
+     * Returns a copy of the current object. All the specifications are
+     * copied, so that tile specific values can be set in the copy without
+     * affecting this object. The values themselves are shared.
      * */
     public DecoderSpecs getCopy() {
         DecoderSpecs decSpec2;
@@ -141,6 +143,23 @@ public class DecoderSpecs implements Cloneable {
         if(rois!=null) {
             decSpec2.rois = (MaxShiftSpec)rois.getCopy();
         }
+        // Entropy decoder
+        decSpec2.ecopts = (IntegerSpec)ecopts.getCopy();
+        decSpec2.ers = ers.getCopy();
+        decSpec2.cblks = (CBlkSizeSpec)cblks.getCopy();
+        // Precinct partition
+        decSpec2.pss = pss.getCopy(decSpec2.dls);
+        // Codestream
+        decSpec2.nls = (IntegerSpec)nls.getCopy();
+        decSpec2.pos = (IntegerSpec)pos.getCopy();
+        decSpec2.pcs = pcs.getCopy();
+        decSpec2.sops = sops.getCopy();
+        decSpec2.ephs = ephs.getCopy();
+        decSpec2.pphs = pphs.getCopy();
+        // Color space
+        if(iccs!=null) {
+            decSpec2.iccs = iccs.getCopy();
+        }
         return decSpec2;
     }
 
@@ -165,7 +184,7 @@ public class DecoderSpecs implements Cloneable {
         cts = new CompTransfSpec(nt,nc,ModuleSpec.SPEC_TYPE_TILE_COMP);
 
         // Entropy decoder
-        ecopts = new ModuleSpec(nt,nc,ModuleSpec.SPEC_TYPE_TILE_COMP);
+        ecopts = new IntegerSpec(nt,nc,ModuleSpec.SPEC_TYPE_TILE_COMP);
         ers = new ModuleSpec(nt,nc,ModuleSpec.SPEC_TYPE_TILE_COMP);
         cblks = new CBlkSizeSpec(nt,nc,ModuleSpec.SPEC_TYPE_TILE_COMP);
 
@@ -70,6 +70,13 @@ public class PrecinctSizeSpec extends ModuleSpec {
     /** Reference to wavelet number of decomposition levels for each
      * tile-component.  */
     private IntegerSpec dls;
+
+    /** The precinct partition widths and heights of each tile-component, in
+     * the order of the Vector values. The widths of tile t and component c
+     * are at index 2*(t*nComp+c) and the heights at the following
+     * index. Null if not built since the last change of the
+     * specifications. */
+    private volatile int[][] ppDims;
     
     /**
      * Creates a new PrecinctSizeSpec object for the specified number of tiles
@@ -90,6 +97,21 @@ public class PrecinctSizeSpec extends ModuleSpec {
         this.dls = dls;
     }
     
+    /**
+     * Returns a copy of this object which refers to the given number of
+     * decomposition levels specification instead of the one of this object.
+     *
+     * @param dls The number of decomposition levels specification of the
+     * copy
+     *
+     * @return The copy
+     * */
+    public PrecinctSizeSpec getCopy(IntegerSpec dls) {
+        PrecinctSizeSpec pss = (PrecinctSizeSpec)getCopy();
+        pss.dls = dls;
+        return pss;
+    }
+
     /**
      * Creates a new PrecinctSizeSpec object for the specified number of tiles
      * and components and the ParameterList instance.
@@ -314,6 +336,44 @@ public class PrecinctSizeSpec extends ModuleSpec {
         } // while
     }
     
+    /**
+     * Drops the precinct partition sizes built from the specifications.
+     * */
+    protected void specChanged() {
+        super.specChanged();
+        ppDims = null;
+    }
+
+    /**
+     * Returns the precinct partition widths and heights of each
+     * tile-component, building them from the specifications the first time
+     * they are needed.
+     *
+     * @return The precinct partition sizes, which must not be modified.
+     * */
+    private int[][] getPPDims() {
+        int[][] ppd = ppDims;
+        if(ppd==null) {
+            Object[] vals = getTileCompVals();
+            ppd = new int[2*vals.length][];
+            for(int i=0; i<vals.length; i++) {
+                Vector<?>[] v = (Vector<?>[])vals[i];
+                if(v==null) {
+                    continue;
+                }
+                for(int j=0; j<2; j++) {
+                    int[] d = new int[v[j].size()];
+                    for(int k=0; k<d.length; k++) {
+                        d[k] = ((Integer)v[j].elementAt(k)).intValue();
+                    }
+                    ppd[2*i+j] = d;
+                }
+            }
+            ppDims = ppd;
+        }
+        return ppd;
+    }
+
     /**
      * Returns the precinct partition width in component 'n' and tile 't' at
      * resolution level 'rl'. If the tile index is equal to -1 or if the
@@ -341,8 +401,9 @@ public class PrecinctSizeSpec extends ModuleSpec {
         // (Vector array) containing the precinct dimensions (width and
         // height) for the specified (or not) tile/component
         if (tileSpecified && compSpecified) {
-            mrl = ((Integer)dls.getTileCompVal(t, c)).intValue();
-            v = (Vector[])getTileCompVal(t, c);
+            int[] ppx = getPPDims()[2*(t*nComp+c)];
+            idx = dls.getIntVal(t,c) - rl;
+            return ppx[(ppx.length>idx) ? idx : ppx.length-1];
         } else if (tileSpecified && !compSpecified) {
             mrl = ((Integer)dls.getTileDef(t)).intValue();
             v = (Vector[])getTileDef(t);
@@ -388,8 +449,9 @@ public class PrecinctSizeSpec extends ModuleSpec {
         // (Vector array) containing the precinct dimensions (width and
         // height) for the specified (or not) tile/component
         if ( tileSpecified && compSpecified ) {
-            mrl = ((Integer)dls.getTileCompVal(t, c)).intValue();
-            v = (Vector[])getTileCompVal(t, c);
+            int[] ppy = getPPDims()[2*(t*nComp+c)+1];
+            idx = dls.getIntVal(t,c) - rl;
+            return ppy[(ppy.length>idx) ? idx : ppy.length-1];
         }
         else if ( tileSpecified && !compSpecified ) {
             mrl = ((Integer)dls.getTileDef(t)).intValue();
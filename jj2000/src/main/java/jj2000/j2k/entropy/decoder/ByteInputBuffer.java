@@ -61,6 +61,11 @@ import java.io.InputStream;
  * <p>This class can modify the contents of the buffer given to the
  * constructor, when the addByteArray() method is called.</p>
  *
+ * <p>The data may also be made of several fragments of a byte array, which
+ * are read one after the other as if they were contiguous (see
+ * setFragments()). This allows to read the data of a code-block where it
+ * lies in the codestream, without copying it.</p>
+ *
  * @see InputStream
  * */
 public class ByteInputBuffer {
@@ -76,6 +81,25 @@ public class ByteInputBuffer {
      * */
     private int pos;
 
+    /** The index in 'buf' of each fragment of the data. Only used if
+     * 'nFrags' is not 0. */
+    private int fragOff[];
+
+    /** The length of each fragment of the data. Only used if 'nFrags' is not
+     * 0. */
+    private int fragLen[];
+
+    /** The number of fragments of the data, 0 if the data is not
+     * fragmented */
+    private int nFrags;
+
+    /** The index of the current fragment */
+    private int frag;
+
+    /** The number of bytes of the current segment in the fragments following
+     * the current one */
+    private int left;
+
     /**
      * Creates a new byte array input stream that reads data from the
      * specified byte array. The byte array is not copied.
@@ -124,6 +148,23 @@ public class ByteInputBuffer {
      * @param length the maximum number of bytes to read frmo the buffer.
      * */
     public void setByteArray(byte buf[], int offset, int length) {
+        // Following segment in fragmented data?
+        if (buf==null && offset<0 && nFrags!=0) {
+            if (length < 0) {
+                throw new IllegalArgumentException();
+            }
+            // Skip what remains of the current segment
+            pos = count;
+            while (left>0) {
+                frag++;
+                pos = fragOff[frag]+Math.min(left,fragLen[frag]);
+                left -= pos-fragOff[frag];
+            }
+            setSegment(length);
+            return;
+        }
+        nFrags = 0;
+        left = 0;
         // In same buffer?
         if (buf==null) {
             if (length < 0 || count+length>this.buf.length) {
@@ -146,6 +187,79 @@ public class ByteInputBuffer {
         }
     }
 
+    /**
+     * Sets the underlying buffer byte array to the given one, the data being
+     * made of 'n' fragments of it, which are read one after the other. The
+     * first segment to read is the first 'length' bytes of the data, the
+     * following ones are set by calling setByteArray() with a null 'buf' and
+     * a negative 'offset'.
+     *
+     * <p>Neither the byte array nor the arrays of the fragments are
+     * copied. The fragments must not be empty.</p>
+     *
+     * @param buf the input buffer.
+     *
+     * @param off the index in 'buf' of each fragment.
+     *
+     * @param len the length of each fragment.
+     *
+     * @param n the number of fragments.
+     *
+     * @param length the number of bytes of the first segment.
+     * */
+    public void setFragments(byte buf[], int off[], int len[], int n,
+                             int length) {
+        if (n<=0 || length<0) {
+            throw new IllegalArgumentException();
+        }
+        this.buf = buf;
+        fragOff = off;
+        fragLen = len;
+        nFrags = n;
+        frag = 0;
+        pos = off[0];
+        setSegment(length);
+    }
+
+    /**
+     * Sets the window of the current fragment for a segment of fragmented
+     * data starting at 'pos'. If 'pos' is at the end of the current fragment
+     * the segment starts in the next one.
+     *
+     * @param length the number of bytes of the segment.
+     * */
+    private void setSegment(int length) {
+        if (pos==fragOff[frag]+fragLen[frag] && frag<nFrags-1) {
+            frag++;
+            pos = fragOff[frag];
+        }
+        int n = Math.min(length,fragOff[frag]+fragLen[frag]-pos);
+        count = pos+n;
+        left = length-n;
+        if (left>0 && frag+1>=nFrags) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Moves to the next fragment of the current segment and reads its first
+     * byte.
+     *
+     * @return The byte read in the range 0-255, or -1 if the end of the
+     * segment has been reached.
+     * */
+    private int readNextFragment() {
+        if (left<=0) {
+            return -1;
+        }
+        frag++;
+        pos = fragOff[frag];
+        int n = Math.min(left,fragLen[frag]);
+        count = pos+n;
+        left -= n;
+        return (int)buf[pos++] & 0xFF;
+    }
+
     /**
      * Adds the specified data to the end of the byte array stream. This
      * method modifies the byte array buffer. It can also discard the already
@@ -201,6 +315,8 @@ public class ByteInputBuffer {
     public int readChecked() throws IOException {
         if (pos<count) {
             return (int)buf[pos++] & 0xFF;
+        } else if (left>0) {
+            return readNextFragment();
         } else {
             throw new EOFException();
         }
@@ -220,7 +336,7 @@ public class ByteInputBuffer {
         if (pos<count) {
             return (int)buf[pos++] & 0xFF;
         } else {
-            return -1;
+            return readNextFragment();
         }
     }
 
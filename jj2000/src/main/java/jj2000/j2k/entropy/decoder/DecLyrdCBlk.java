@@ -78,6 +78,21 @@ public class DecLyrdCBlk extends CodedCBlk {
      * array (see super class).  */
     public int dl;
 
+    /** The number of fragments of 'data' making the coded data, which is then
+     * not copied out of the codestream. The coded data is the concatenation
+     * of the 'dataLen[i]' bytes at index 'dataOff[i]' of 'data', for 'i' from
+     * 0 to 'nDataFrags-1', and 'data' must not be modified. If 0, the coded
+     * data is the first 'dl' bytes of 'data'. */
+    public int nDataFrags;
+
+    /** The index in 'data' of each fragment of the coded data, if
+     * 'nDataFrags' is not 0. */
+    public int dataOff[];
+
+    /** The length of each fragment of the coded data, if 'nDataFrags' is not
+     * 0. */
+    public int dataLen[];
+
     /** The progressive flag, false by default (see above). */
     public boolean prog;
 
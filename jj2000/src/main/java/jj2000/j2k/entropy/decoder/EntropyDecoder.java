@@ -42,6 +42,7 @@
  * */
 package jj2000.j2k.entropy.decoder;
 
+import jj2000.j2k.decoder.DecodeStats;
 import jj2000.j2k.quantization.dequantizer.CBlkQuantDataSrcDec;
 import jj2000.j2k.wavelet.synthesis.MultiResImgData;
 import jj2000.j2k.wavelet.synthesis.MultiResImgDataAdapter;
@@ -76,12 +77,18 @@ public abstract class EntropyDecoder extends MultiResImgDataAdapter
     private final static String [][] pinfo = {
         {"Cer", "<error detection [on|off]>",
          "", "on"},
+        {"Cthreads", "<number of threads>",
+         "", "0"},
     };
 
     /** The bit stream transport from where to get the compressed data
      * (the source) */
     protected CodedCBlkDataSrcDec src;
 
+    /** Where to record the counters and timings of the entropy decoding,
+     * or null */
+    protected DecodeStats stats;
+
     /**
      * Initializes the source of compressed data.
      *
@@ -92,6 +99,17 @@ public abstract class EntropyDecoder extends MultiResImgDataAdapter
         this.src = src;
     }
 
+    /**
+     * Sets where to record the number of decoded code-blocks, passes,
+     * bit-planes and symbols, and the time spent decoding them.
+     *
+     * @param stats The statistics of the image being decoded, or null if
+     * they are not collected.
+     * */
+    public void setStats(DecodeStats stats) {
+        this.stats = stats;
+    }
+
     /**
      * Returns the subband tree, for the specified tile-component. This method
      * returns the root element of the subband tree structure, see Subband and
@@ -115,6 +115,9 @@ public class MQDecoder {
     /** The initial state of each context */
     final int initStates[];
 
+    /** The number of symbols decoded since this object was created */
+    long nSymbols;
+
     /**
      * Instantiates a new MQ-decoder, with the specified number of contexts
      * and initial states. The compressed bytestream is read from the
@@ -180,6 +183,7 @@ public class MQDecoder {
         int la;  // cache for A register
         int i;   // counter
 
+        nSymbols += n;
         idx = I[ctxt];
         q = qe[idx];
 
@@ -322,6 +326,7 @@ public class MQDecoder {
         // => one renormalization shift is enough for MPS
         // => no need to do a renormalization while loop for MPS
 
+        nSymbols += n;
         for (i=0; i<n; i++) {
             ctxt = cX[i];
 
@@ -402,6 +407,16 @@ public class MQDecoder {
     }
 
 
+    /**
+     * Returns the number of symbols decoded by this object since it was
+     * created, whatever the segments and contexts they were decoded from.
+     *
+     * @return The number of decoded symbols.
+     * */
+    public final long getNumSymbols() {
+        return nSymbols;
+    }
+
     /**
      * Arithmetically decodes one symbol from the bit stream with the given
      * context and returns its decoded value.
@@ -420,6 +435,7 @@ public class MQDecoder {
         int index;
         int decision;
 
+        nSymbols++;
         index = I[context];
         q = qe[index];
         
@@ -673,6 +689,32 @@ public class MQDecoder {
         init();
     }
 
+    /**
+     * Resets the MQ decoder to start a new segment, at the beginning of data
+     * made of several fragments of a byte array. The following segments are
+     * started with nextSegment(null,-1,len).
+     *
+     * @param buf The byte array containing the MQ encoded data.
+     *
+     * @param off The index of each fragment of the data in 'buf'.
+     *
+     * @param len The length of each fragment of the data.
+     *
+     * @param n The number of fragments.
+     *
+     * @param length The number of bytes to be decoded. Any subsequent bytes
+     * are taken to be 0xFF.
+     *
+     * @see ByteInputBuffer#setFragments
+     * */
+    public final void nextSegment(byte buf[], int off[], int len[], int n,
+                                  int length) {
+        // Set the new input
+        in.setFragments(buf,off,len,n,length);
+        // Reinitialize MQ
+        init();
+    }
+
     /**
      * Returns the underlying 'ByteInputBuffer' from where the MQ coded input
      * bytes are read.
@@ -42,11 +42,15 @@
  * */
 package jj2000.j2k.entropy.decoder;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jj2000.j2k.decoder.DecodeStats;
 import jj2000.j2k.decoder.DecoderSpecs;
 import jj2000.j2k.entropy.StdEntropyCoderOptions;
 import jj2000.j2k.image.DataBlk;
 import jj2000.j2k.image.DataBlkInt;
 import jj2000.j2k.util.ArrayUtil;
+import jj2000.j2k.util.WorkerPool;
 import jj2000.j2k.wavelet.Subband;
 import jj2000.j2k.wavelet.synthesis.SubbandSyn;
 
@@ -64,39 +68,20 @@ import jj2000.j2k.wavelet.synthesis.SubbandSyn;
  * used for sign-coding (SC) and contexts 16-18 are used for
  * magnitude-refinement (MR).</p>
  *
- * <p>This implementation also provides some timing features. They can be
- * enabled by setting the 'DO_TIMING' constant of this class to true and
- * recompiling. The timing uses the 'System.currentTimeMillis()' Java API
- * call, which returns wall clock time, not the actual CPU time used. The
- * timing results will be printed on the message output. Since the times
- * reported are wall clock times and not CPU usage times they can not be added
- * to find the total used time (i.e. some time might be counted in several
- * places). When timing is disabled ('DO_TIMING' is false) there is no penalty
- * if the compiler performs some basic optimizations. Even if not the penalty
- * should be negligeable.</p>
+ * <p>If statistics are collected (see setStats()), the number of decoded
+ * code-blocks, coding passes, bit-planes and MQ symbols is counted, and the
+ * time spent decoding is recorded in the ENTROPY stage, including the CPU
+ * time of the worker threads. When they are not collected there is no
+ * penalty besides the counting of the MQ symbols.</p>
+ *
+ * @see DecodeStats
  * */
 public class StdEntropyDecoder extends EntropyDecoder 
     implements StdEntropyCoderOptions {
 
-    /** The bit based input for arithmetic coding bypass (i.e. raw) coding */
-    private ByteToBitInput bin;
-
-    /** The MQ decoder to use. It has in as the underlying source of coded
-     * data. */
-    private MQDecoder mq;
-
     /** The decoder spec */
     private DecoderSpecs decSpec;
 
-    /** The options that are turned on, as flag bits. The options are
-     * 'OPT_TERM_PASS', 'OPT_RESET_MQ', 'OPT_VERT_STR_CAUSAL', 'OPT_BYPASS'
-     * and 'OPT_SEG_SYMBOLS' as defined in the StdEntropyCoderOptions
-     * interface
-     *
-     * @see StdEntropyCoderOptions
-     **/
-    private int options;
-
     /** Flag to indicate if we should try to detect errors or just ignore any
      * error resilient information */
     private final boolean doer;
@@ -162,39 +147,92 @@ public class StdEntropyDecoder extends EntropyDecoder
     private static final int SEG_SYMBOL = 10;
 
     /**
-     * The state array for entropy coding. Each element of the state array
-     * stores the state of two coefficients. The lower 16 bits store the state
-     * of a coefficient in row 'i' and column 'j', while the upper 16 bits
-     * store the state of a coefficient in row 'i+1' and column 'j'. The 'i'
-     * row is either the first or the third row of a stripe. This packing of
-     * the states into 32 bit words allows a faster scan of all coefficients
-     * on each coding pass and diminished the amount of data transferred. The
-     * size of the state array is increased by 1 on each side (top, bottom,
-     * left, right) to handle boundary conditions without any special logic.
-     *
-     * <P>The state of a coefficient is stored in the following way in the
-     * lower 16 bits, where bit 0 is the least significant bit. Bit 15 is the
-     * significance of a coefficient (0 if non-significant, 1 otherwise). Bit
-     * 14 is the visited state (i.e. if a coefficient has been coded in the
-     * significance propagation pass of the current bit-plane). Bit 13 is the
-     * "non zero-context" state (i.e. if one of the eight immediate neighbors
-     * is significant it is 1, otherwise is 0). Bits 12 to 9 store the sign of
-     * the already significant left, right, up and down neighbors (1 for
-     * negative, 0 for positive or not yet significant). Bit 8 indicates if
-     * the magnitude refinement has already been applied to the
-     * coefficient. Bits 7 to 4 store the significance of the left, right, up
-     * and down neighbors (1 for significant, 0 for non significant). Bits 3
-     * to 0 store the significance of the diagonal coefficients (up-left,
-     * up-right, down-left and down-right; 1 for significant, 0 for non
-     * significant).
-     *
-     * <P>The upper 16 bits the state is stored as in the lower 16 bits, but
-     * with the bits shifted up by 16.
-     *
-     * <P>The lower 16 bits are referred to as "row 1" ("R1") while the upper
-     * 16 bits are referred to as "row 2" ("R2").
+     * The working storage used to decode one code-block. Each thread uses its
+     * own instance, which is kept from one code-block to the next and from
+     * one decoder to the next.
      * */
-    private final int state[];
+    private static class EngineState {
+
+        /**
+         * The state array for entropy coding. Each element of the state array
+         * stores the state of two coefficients. The lower 16 bits store the
+         * state of a coefficient in row 'i' and column 'j', while the upper 16
+         * bits store the state of a coefficient in row 'i+1' and column 'j'.
+         * The 'i' row is either the first or the third row of a stripe. This
+         * packing of the states into 32 bit words allows a faster scan of all
+         * coefficients on each coding pass and diminished the amount of data
+         * transferred. The size of the state array is increased by 1 on each
+         * side (top, bottom, left, right) to handle boundary conditions
+         * without any special logic.
+         *
+         * <P>The state of a coefficient is stored in the following way in the
+         * lower 16 bits, where bit 0 is the least significant bit. Bit 15 is
+         * the significance of a coefficient (0 if non-significant, 1
+         * otherwise). Bit 14 is the visited state (i.e. if a coefficient has
+         * been coded in the significance propagation pass of the current
+         * bit-plane). Bit 13 is the "non zero-context" state (i.e. if one of
+         * the eight immediate neighbors is significant it is 1, otherwise is
+         * 0). Bits 12 to 9 store the sign of the already significant left,
+         * right, up and down neighbors (1 for negative, 0 for positive or not
+         * yet significant). Bit 8 indicates if the magnitude refinement has
+         * already been applied to the coefficient. Bits 7 to 4 store the
+         * significance of the left, right, up and down neighbors (1 for
+         * significant, 0 for non significant). Bits 3 to 0 store the
+         * significance of the diagonal coefficients (up-left, up-right,
+         * down-left and down-right; 1 for significant, 0 for non significant).
+         *
+         * <P>The upper 16 bits the state is stored as in the lower 16 bits,
+         * but with the bits shifted up by 16.
+         *
+         * <P>The lower 16 bits are referred to as "row 1" ("R1") while the
+         * upper 16 bits are referred to as "row 2" ("R2").
+         * */
+        final int state[];
+
+        /** The MQ decoder to use. It has in as the underlying source of
+         * coded data. */
+        MQDecoder mq;
+
+        /** The bit based input for arithmetic coding bypass (i.e. raw)
+         * coding */
+        ByteToBitInput bin;
+
+        /** The number of code-blocks decoded since the counters were last
+         * added to the statistics */
+        int nCblks;
+
+        /** The number of coding passes decoded since the counters were last
+         * added to the statistics */
+        int nPasses;
+
+        /** The number of bit-planes decoded since the counters were last
+         * added to the statistics */
+        int nBitPlanes;
+
+        /** The number of MQ symbols decoded since the counters were last
+         * added to the statistics */
+        long nSymbols;
+
+        /**
+         * Creates the working storage for code-blocks which need a state
+         * array of at most 'size' elements.
+         * */
+        EngineState(int size) {
+            state = new int[size];
+        }
+    }
+
+    /** The working storage of each decoding thread, shared by all the
+     * instances of this class */
+    private static final ThreadLocal<EngineState> engines =
+        new ThreadLocal<EngineState>();
+
+    /** The size of the state array needed for the code-blocks decoded by
+     * this object */
+    private final int stateSize;
+
+    /** The maximum number of code-blocks to decode concurrently */
+    private final int nThreads;
 
     /** The separation between the upper and lower bits in the state array: 16
      * */
@@ -372,6 +410,15 @@ public class StdEntropyDecoder extends EntropyDecoder
     /** The maximum number of bit planes to decode for any code-block */
     private int mQuit;
 
+    /** The source code-blocks of a whole subband, when decoding all of them
+     * at once (avoids reallocation for each subband). */
+    private DecLyrdCBlk srcblks[];
+
+    /** The minimum number of code-blocks in a subband to decode them
+     * concurrently. Below it the overhead of dispatching the work is not
+     * worth it. */
+    private static final int MIN_PAR_CBLKS = 4;
+
     /** Static initializer: initializes all the lookup tables. */
     static {
         int i,j;
@@ -599,20 +646,44 @@ public class StdEntropyDecoder extends EntropyDecoder
      *
      * @param mQuit the maximum number of bit planes to decode according to
      * the m quit condition
+     *
+     * @param nThreads The maximum number of code-blocks to decode
+     * concurrently when all the code-blocks of a subband are requested at
+     * once. If 0 or negative, the parallelism of the shared worker pool is
+     * used.
+     *
+     * @see WorkerPool
      * */
     public StdEntropyDecoder(CodedCBlkDataSrcDec src, DecoderSpecs decSpec, 
-                             boolean doer, boolean verber, int mQuit) {
+                             boolean doer, boolean verber, int mQuit,
+                             int nThreads) {
         super(src);
 
         this.decSpec = decSpec;
         this.doer = doer;
         this.mQuit = mQuit;
 
-        // If we do timing create necessary structures
-
         // Initialize internal variables
-        state = new int[(decSpec.cblks.getMaxCBlkWidth()+2) *
-                       ((decSpec.cblks.getMaxCBlkHeight()+1)/2+2)];
+        if (nThreads<=0) nThreads = WorkerPool.getParallelism();
+        this.nThreads = nThreads;
+        stateSize = (decSpec.cblks.getMaxCBlkWidth()+2) *
+            ((decSpec.cblks.getMaxCBlkHeight()+1)/2+2);
+    }
+
+    /**
+     * Returns the working storage of the calling thread, allocating it if
+     * the thread has none yet or if its state array is too small for the
+     * code-blocks of this object.
+     *
+     * @return The working storage of the calling thread.
+     * */
+    private EngineState getEngine() {
+        EngineState es = engines.get();
+        if (es==null || es.state.length<stateSize) {
+            es = new EngineState(stateSize);
+            engines.set(es);
+        }
+        return es;
     }
 
     /**
@@ -659,7 +730,177 @@ public class StdEntropyDecoder extends EntropyDecoder
      * @see DataBlk
      * */
     public DataBlk getCodeBlock(int c,int m,int n,SubbandSyn sb,DataBlk cblk) {
-        long stime = 0L;  // Start time for timed sections
+        int options;      // The entropy coding options
+
+        // Get the code-block to decode
+        srcblk = src.getCodeBlock(c,m,n,sb,1,-1,srcblk);
+
+        
+        // Retrieve options from decSpec
+        options = decSpec.ecopts.getIntVal(tIdx,c);
+
+        if (stats==null) {
+            return decodeCodeBlock(srcblk,sb,options,cblk,getEngine());
+        }
+        EngineState es = getEngine();
+        stats.begin(DecodeStats.ENTROPY);
+        cblk = decodeCodeBlock(srcblk,sb,options,cblk,es);
+        stats.end(DecodeStats.ENTROPY);
+        addCounts(es);
+        return cblk;
+    }
+
+    /**
+     * Adds the counters of 'es' to the statistics, and resets them.
+     *
+     * @param es The working storage of the calling thread.
+     * */
+    private void addCounts(EngineState es) {
+        stats.addCodeBlocks(es.nCblks,es.nPasses,es.nBitPlanes,es.nSymbols);
+        es.nCblks = 0;
+        es.nPasses = 0;
+        es.nBitPlanes = 0;
+        es.nSymbols = 0;
+    }
+
+    /**
+     * Returns all the code-blocks of the specified subband, in the current
+     * tile for the specified component, as copies (see getCodeBlock()).
+     *
+     * <p>The coded data of all the code-blocks is first obtained from the
+     * source, in raster order, and the code-blocks are then decoded
+     * concurrently on the shared worker pool, each decoding thread using its
+     * own MQ decoder and state array. Subbands with only a few code-blocks
+     * are decoded on the calling thread.</p>
+     *
+     * <p>The code-blocks not needed to reconstruct the decoded window (see
+     * SubbandSyn.isCBlkNeeded()) are neither read nor decoded, their
+     * elements of the array being left as they are.</p>
+     *
+     * @param c The component for which to return the code-blocks.
+     *
+     * @param sb The subband in which the code-blocks to return are.
+     *
+     * @param cblks If non-null, and long enough, this array will be used to
+     * return the code-blocks, reusing its non-null elements as in
+     * getCodeBlock(). Otherwise a new array is allocated.
+     *
+     * @return The code-blocks of the subband, the code-block with vertical
+     * index 'm' and horizontal index 'n' being at index
+     * 'm*sb.numCb.x+n'.
+     *
+     * @see #getCodeBlock
+     * */
+    public DataBlk[] getCodeBlocks(int c, SubbandSyn sb, DataBlk cblks[]) {
+        final int ncbx = sb.numCb.x;
+        final int ncb = ncbx*sb.numCb.y;
+        final int options;
+        final DataBlk out[];
+        final DecLyrdCBlk in[];
+        final SubbandSyn fsb = sb;
+        final AtomicInteger next;
+        final DecodeStats st = stats;
+        final int sel[] = sb.getNeededCBlks();
+        final int nsel = (sel==null) ? ncb : sel.length;
+        Runnable tasks[];
+        int nt,i,k;
+
+        if (st!=null) st.begin(DecodeStats.ENTROPY);
+
+        if (cblks==null || cblks.length<ncb) {
+            out = new DataBlk[ncb];
+            if (cblks!=null) System.arraycopy(cblks,0,out,0,cblks.length);
+        } else {
+            out = cblks;
+        }
+
+        // Get the coded data of all the code-blocks, in the same order as
+        // when they are requested one by one
+        if (srcblks==null || srcblks.length<ncb) {
+            in = new DecLyrdCBlk[ncb];
+            if (srcblks!=null) System.arraycopy(srcblks,0,in,0,srcblks.length);
+            srcblks = in;
+        } else {
+            in = srcblks;
+        }
+        if (st!=null) st.begin(DecodeStats.PACKETS);
+        for (i=0; i<nsel; i++) {
+            k = (sel==null) ? i : sel[i];
+            in[k] = src.getCodeBlock(c,k/ncbx,k%ncbx,sb,1,-1,in[k]);
+        }
+        if (st!=null) st.end(DecodeStats.PACKETS);
+
+        // Retrieve options from decSpec
+        options = decSpec.ecopts.getIntVal(tIdx,c);
+
+        nt = Math.min(nThreads,nsel);
+        if (nsel<MIN_PAR_CBLKS || nt<=1) {
+            EngineState es = getEngine();
+            for (i=0; i<nsel; i++) {
+                k = (sel==null) ? i : sel[i];
+                out[k] = decodeCodeBlock(in[k],sb,options,out[k],es);
+            }
+            if (st!=null) {
+                st.end(DecodeStats.ENTROPY);
+                addCounts(es);
+            }
+            return out;
+        }
+
+        // Decode concurrently, each task taking the next code-block not yet
+        // decoded until there are none left
+        next = new AtomicInteger();
+        tasks = new Runnable[nt];
+        for (k=0; k<nt; k++) {
+            tasks[k] = new Runnable() {
+                    public void run() {
+                        EngineState es = getEngine();
+                        long t0 = 0;
+                        int i,j;
+                        if (st!=null && !st.isDecodingThread()) {
+                            t0 = st.getThreadCpuTime();
+                        }
+                        while ((j = next.getAndIncrement())<nsel) {
+                            i = (sel==null) ? j : sel[j];
+                            out[i] = decodeCodeBlock(in[i],fsb,options,
+                                                     out[i],es);
+                        }
+                        if (st!=null) {
+                            if (!st.isDecodingThread()) {
+                                st.addCpuTime(DecodeStats.ENTROPY,
+                                    st.getThreadCpuTime()-t0);
+                            }
+                            addCounts(es);
+                        }
+                    }
+                };
+        }
+        WorkerPool.invokeAll(tasks);
+        if (st!=null) st.end(DecodeStats.ENTROPY);
+        return out;
+    }
+
+    /**
+     * Decodes the coded data of a code-block into 'cblk'.
+     *
+     * @param srcblk The coded data of the code-block.
+     *
+     * @param sb The subband in which the code-block is.
+     *
+     * @param options The entropy coding options of the code-block, as flag
+     * bits.
+     *
+     * @param cblk If non-null this object will be used to return the
+     * decoded code-block, as in getCodeBlock().
+     *
+     * @param es The working storage to use. It can not be used by any other
+     * thread while this method runs.
+     *
+     * @return The decoded code-block.
+     * */
+    private DataBlk decodeCodeBlock(DecLyrdCBlk srcblk, SubbandSyn sb,
+                                    int options, DataBlk cblk,
+                                    EngineState es) {
         int zc_lut[];     // The ZC lookup table to use
         int out_data[];   // The outupt data buffer
         int npasses;      // The number of coding passes to perform
@@ -668,16 +909,14 @@ public class StdEntropyDecoder extends EntropyDecoder
         int tslen;        // Length of first terminated segment
         int tsidx;        // Index of current terminated segment
         ByteInputBuffer in = null;
+        int state[] = es.state;
+        MQDecoder mq;
+        ByteToBitInput bin;
+        int passes;       // The number of coding passes to decode
+        long symbols;     // The number of MQ symbols decoded before
 
         boolean isterm;
 
-        // Get the code-block to decode
-        srcblk = src.getCodeBlock(c,m,n,sb,1,-1,srcblk);
-
-        
-        // Retrieve options from decSpec
-        options = ((Integer)decSpec.ecopts.getTileCompVal(tIdx,c)).intValue();
-
         // Reset state
         ArrayUtil.intArraySet(state,0);
 
@@ -702,6 +941,7 @@ public class StdEntropyDecoder extends EntropyDecoder
 
         if (srcblk.nl<=0 || srcblk.nTrunc<=0) {
             // 0 layers => no data to decode => return all 0s
+            if (stats!=null) es.nCblks++;
             return cblk;
         }
 
@@ -710,22 +950,29 @@ public class StdEntropyDecoder extends EntropyDecoder
         tsidx = 0;
         // Initialize for decoding
         npasses = srcblk.nTrunc;
-        if (mq==null) {
-            in = new ByteInputBuffer(srcblk.data,0,tslen);
-            mq = new MQDecoder(in,NUM_CTXTS,MQ_INIT);
+        if (es.mq==null) {
+            in = new ByteInputBuffer(srcblk.data,0,0);
+            es.mq = new MQDecoder(in,NUM_CTXTS,MQ_INIT);
+        }
+        // We always start by an MQ segment
+        if (srcblk.nDataFrags==0) {
+            es.mq.nextSegment(srcblk.data,0,tslen);
         } else {
-            // We always start by an MQ segment
-            mq.nextSegment(srcblk.data,0,tslen);
-            mq.resetCtxts();
+            es.mq.nextSegment(srcblk.data,srcblk.dataOff,srcblk.dataLen,
+                              srcblk.nDataFrags,tslen);
         }
+        es.mq.resetCtxts();
+        mq = es.mq;
         error = false;
+        symbols = mq.getNumSymbols();
 
         if ((options&OPT_BYPASS) != 0) {
-            if(bin==null){
+            if(es.bin==null){
                 if (in==null) in = mq.getByteInputBuffer();
-                bin = new ByteToBitInput(in);
+                es.bin = new ByteToBitInput(in);
             }
         }
+        bin = es.bin;
 
         // Choose correct ZC lookup table for global orientation
         switch (sb.orientation) {
@@ -760,13 +1007,14 @@ public class StdEntropyDecoder extends EntropyDecoder
         if(mQuit != -1 && (mQuit*3-2) < npasses){
             npasses = mQuit*3-2;
         }
+        passes = npasses;
 
         // First bit-plane has only the cleanup pass
         if (curbp>=0 && npasses>0) {
             isterm = (options & OPT_TERM_PASS) != 0 ||
                 ((options & OPT_BYPASS) != 0 &&
                  (31-NUM_NON_BYPASS_MS_BP-srcblk.skipMSBP)>=curbp);
-            error = cleanuppass(cblk,mq,curbp,state,zc_lut,isterm);
+            error = cleanuppass(cblk,mq,curbp,state,zc_lut,options,isterm);
             npasses--;
             if (!error || !doer) curbp--;
         }
@@ -783,7 +1031,8 @@ public class StdEntropyDecoder extends EntropyDecoder
                     // Here starts a new raw segment
                     bin.setByteArray(null,-1,srcblk.tsLengths[++tsidx]);
                     isterm = (options & OPT_TERM_PASS) != 0;
-                    error = rawSigProgPass(cblk,bin,curbp,state,isterm);
+                    error = rawSigProgPass(cblk,bin,curbp,state,options,
+                                           isterm);
                     npasses--;
                     if (npasses<=0 || (error&&doer)) break;
 
@@ -794,14 +1043,15 @@ public class StdEntropyDecoder extends EntropyDecoder
                     isterm = (options & OPT_TERM_PASS) != 0 ||
                         ((options & OPT_BYPASS) != 0 &&
                          (31-NUM_NON_BYPASS_MS_BP-srcblk.skipMSBP>curbp));
-                    error = rawMagRefPass(cblk,bin,curbp,state,isterm);
+                    error = rawMagRefPass(cblk,bin,curbp,state,options,isterm);
                 } else { // Do not use bypass decoding mode
                     if ((options&OPT_TERM_PASS)!=0) {
                         // Here starts a new MQ segment
                         mq.nextSegment(null,-1,srcblk.tsLengths[++tsidx]);
                     }
                     isterm = (options&OPT_TERM_PASS)!=0;
-                    error = sigProgPass(cblk,mq,curbp,state,zc_lut,isterm);
+                    error = sigProgPass(cblk,mq,curbp,state,zc_lut,options,
+                                        isterm);
                     npasses--;
                     if (npasses<=0 || (error&&doer)) break;
 
@@ -812,7 +1062,7 @@ public class StdEntropyDecoder extends EntropyDecoder
                     isterm = (options & OPT_TERM_PASS) != 0 ||
                         ((options & OPT_BYPASS) != 0 &&
                          (31-NUM_NON_BYPASS_MS_BP-srcblk.skipMSBP>curbp));
-                    error = magRefPass(cblk,mq,curbp,state,isterm);
+                    error = magRefPass(cblk,mq,curbp,state,options,isterm);
                 }
 
                 npasses--;
@@ -827,7 +1077,7 @@ public class StdEntropyDecoder extends EntropyDecoder
                 isterm = (options&OPT_TERM_PASS) != 0 ||
                     ((options&OPT_BYPASS) != 0 &&
                      (31-NUM_NON_BYPASS_MS_BP-srcblk.skipMSBP)>=curbp);
-                error = cleanuppass(cblk,mq,curbp,state,zc_lut,isterm);
+                error = cleanuppass(cblk,mq,curbp,state,zc_lut,options,isterm);
                 npasses--;
                 if (error && doer) break;
                 // Goto next bit-plane
@@ -840,6 +1090,15 @@ public class StdEntropyDecoder extends EntropyDecoder
             conceal(cblk,curbp);
         }
 
+        if (stats!=null) {
+            // The first bit-plane has 1 pass and the others 3
+            passes -= Math.max(npasses,0);
+            es.nCblks++;
+            es.nPasses += passes;
+            es.nBitPlanes += (passes>0) ? 1+(passes+1)/3 : 0;
+            es.nSymbols += mq.getNumSymbols()-symbols;
+        }
+
         // Return decoded block
         return cblk;
     }
@@ -917,6 +1176,9 @@ public class StdEntropyDecoder extends EntropyDecoder
      *
      * @param zc_lut The ZC lookup table to use in ZC.
      *
+     * @param options The entropy coding options of the code-block, as flag
+     * bits.
+     *
      * @param isterm If this pass has been terminated. If the pass has been
      * terminated it can be used to check error resilience.
      *
@@ -924,7 +1186,8 @@ public class StdEntropyDecoder extends EntropyDecoder
      * otherwise.
      * */
     private boolean sigProgPass(DataBlk cblk, MQDecoder mq, int bp,
-                                int state[], int zc_lut[], boolean isterm) {
+                                int state[], int zc_lut[], int options,
+                                boolean isterm) {
         int j,sj;        // The state index for line and stripe
         int k,sk;        // The data index for line and stripe
         int dscanw;      // The data scan-width
@@ -1261,6 +1524,9 @@ public class StdEntropyDecoder extends EntropyDecoder
      *
      * @param state The state information for the code-block
      *
+     * @param options The entropy coding options of the code-block, as flag
+     * bits.
+     *
      * @param isterm If this pass has been terminated. If the pass has been
      * terminated it can be used to check error resilience.
      *
@@ -1268,7 +1534,8 @@ public class StdEntropyDecoder extends EntropyDecoder
      * otherwise.
      * */
     private boolean rawSigProgPass(DataBlk cblk, ByteToBitInput bin, int bp,
-                                   int state[], boolean isterm) {
+                                   int state[], int options,
+                                   boolean isterm) {
         int j,sj;        // The state index for line and stripe
         int k,sk;        // The data index for line and stripe
         int dscanw;      // The data scan-width
@@ -1585,6 +1852,9 @@ public class StdEntropyDecoder extends EntropyDecoder
      *
      * @param state The state information for the code-block
      *
+     * @param options The entropy coding options of the code-block, as flag
+     * bits.
+     *
      * @param isterm If this pass has been terminated. If the pass has been
      * terminated it can be used to check error resilience.
      *
@@ -1592,7 +1862,8 @@ public class StdEntropyDecoder extends EntropyDecoder
      * otherwise.
      * */
     private boolean magRefPass(DataBlk cblk, MQDecoder mq, int bp,
-                               int state[], boolean isterm) {
+                               int state[], int options,
+                               boolean isterm) {
         int j,sj;        // The state index for line and stripe
         int k,sk;        // The data index for line and stripe
         int dscanw;      // The data scan-width
@@ -1749,6 +2020,9 @@ public class StdEntropyDecoder extends EntropyDecoder
      *
      * @param state The state information for the code-block
      *
+     * @param options The entropy coding options of the code-block, as flag
+     * bits.
+     *
      * @param isterm If this pass has been terminated. If the pass has been
      * terminated it can be used to check error resilience.
      *
@@ -1756,7 +2030,8 @@ public class StdEntropyDecoder extends EntropyDecoder
      * otherwise.
      * */
     private boolean rawMagRefPass(DataBlk cblk, ByteToBitInput bin, int bp, 
-                                  int state[], boolean isterm) {
+                                  int state[], int options,
+                                  boolean isterm) {
         int j,sj;        // The state index for line and stripe
         int k,sk;        // The data index for line and stripe
         int dscanw;      // The data scan-width
@@ -1898,6 +2173,9 @@ public class StdEntropyDecoder extends EntropyDecoder
      *
      * @param zc_lut The ZC lookup table to use in ZC.
      *
+     * @param options The entropy coding options of the code-block, as flag
+     * bits.
+     *
      * @param isterm If this pass has been terminated. If the pass has been
      * terminated it can be used to check error resilience.
      *
@@ -1905,7 +2183,8 @@ public class StdEntropyDecoder extends EntropyDecoder
      * otherwise.
      * */
     private boolean cleanuppass(DataBlk cblk, MQDecoder mq, int bp, 
-                                int state[], int zc_lut[], boolean isterm) {
+                                int state[], int zc_lut[], int options,
+                                boolean isterm) {
         int j,sj;        // The state index for line and stripe
         int k,sk;        // The data index for line and stripe
         int dscanw;      // The data scan-width
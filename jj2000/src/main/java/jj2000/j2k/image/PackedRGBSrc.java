@@ -0,0 +1,97 @@
+/* 
+ * CVS identifier:
+ * 
+ * $Id$
+ * 
+ * Class:                   PackedRGBSrc
+ * 
+ * Description:             Defines a method to get the final 8 bit
+ *                          RGB pixels of an image source.
+ * 
+ * 
+ * 
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Raphal Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askelf (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, Flix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ * */
+package jj2000.j2k.image;
+
+/**
+ * This interface is implemented by the sources of image data that can
+ * produce the final 8 bit RGB value of their pixels in a single pass, instead
+ * of component by component. It is typically implemented by the last
+ * transformation of the decoding chain, such as a color space mapper, whose
+ * output is then packed into pixels without any further processing.
+ *
+ * <P>Each 8 bit sample is the one that would be obtained from the component
+ * data returned by the getInternCompData() method by inversely level
+ * shifting it, clipping it to the nominal range and scaling it to 8 bits,
+ * as ImgWriterPacked does. Transformations computed in fixed point instead
+ * of floating point may round a few samples differently, by one or two.
+ *
+ * <P>As for BlkImgDataSrc, all coordinates and dimensions are relative to
+ * the current tile.
+ *
+ * @see BlkImgDataSrc
+ *
+ * @see jj2000.j2k.image.output.ImgWriterPacked
+ * */
+public interface PackedRGBSrc extends BlkImgDataSrc {
+
+    /**
+     * Returns true if the pixels of the image can be obtained with the
+     * getPackedRGB() method. This depends on the image, for instance on the
+     * number of components and on their bit depth.
+     *
+     * @return Whether getPackedRGB() can be used.
+     * */
+    public boolean isPackable();
+
+    /**
+     * Returns, in the blk argument, the pixels of the specified rectangular
+     * area. Each pixel is an int with the 8 bit R, G and B samples in bits 16
+     * to 23, 8 to 15 and 0 to 7, and 0xFF in bits 24 to 31. For greyscale
+     * images R, G and B are equal.
+     *
+     * <P>The rectangular area is specified by the 'ulx', 'uly', 'w' and 'h'
+     * members of the 'blk' argument, which are not modified. The 'offset' of
+     * the returned data is 0 and its 'scanw' is 'w'. If the data array in
+     * 'blk' is null or too small a new one is allocated.
+     *
+     * <P>The returned data has its 'progressive' attribute set if any of the
+     * component data it is obtained from is progressive.
+     *
+     * @param blk Its coordinates and dimensions specify the area to return.
+     * Some fields in this object are modified to return the data.
+     *
+     * @return The requested DataBlk
+     * */
+    public DataBlkInt getPackedRGB(DataBlkInt blk);
+}
@@ -97,7 +97,32 @@ public class InvCompTransf extends ImgDataAdapter implements BlkImgDataSrc {
      * part I only support NONE, FORW_RCT and FORW_ICT types*/
     private int transfType = NONE;
 
-    /** Buffer for each component of output data */
+    /** Whether the ICT of the current tile is done on fixed-point int data,
+     * because the wavelet filters work on such data */
+    private boolean fixedPointICT = false;
+
+    /** The number of fractional bits of the fixed-point ICT coefficients */
+    private final static int ICT_BITS = 16;
+
+    /** The value to add before shifting out the fractional bits of the ICT
+     * coefficients, to round to nearest */
+    private final static long ICT_RND = 1L<<(ICT_BITS-1);
+
+    /** The contribution of Cr to R, in fixed-point */
+    private final static long ICT_CR_R = Math.round(1.402*(1<<ICT_BITS));
+
+    /** The contribution of Cb to G, in fixed-point */
+    private final static long ICT_CB_G = Math.round(0.34413*(1<<ICT_BITS));
+
+    /** The contribution of Cr to G, in fixed-point */
+    private final static long ICT_CR_G = Math.round(0.71414*(1<<ICT_BITS));
+
+    /** The contribution of Cb to B, in fixed-point */
+    private final static long ICT_CB_B = Math.round(1.772*(1<<ICT_BITS));
+
+    /** The buffer of each of the 3 first components of output data. They
+     * are reused by each transform, their scan width is the width of the
+     * buffered area. */
     private int[][] outdata = new int[3][];
 
     /** Block used to request component 0 */
@@ -113,6 +138,10 @@ public class InvCompTransf extends ImgDataAdapter implements BlkImgDataSrc {
 	of the buffered blocks */
     private DataBlkInt dbi = new DataBlkInt();
 
+    /** Whether the buffers contain the transformed data of the area of
+     * 'dbi' in the current tile */
+    private boolean buffered = false;
+
     /** The bit-depths of un-transformed components */
     private int utdepth[];
 
@@ -316,20 +345,41 @@ public class InvCompTransf extends ImgDataAdapter implements BlkImgDataSrc {
         if (c>=3 || transfType == NONE || noCompTransf) {
             return src.getCompData(blk,c);
         }
-        else { // We can use getInternCompData (since data is a copy anyways)
-            return getInternCompData(blk,c);
+        else { // Copy the transformed data from the internal buffer
+            int i;
+            int w = blk.w;
+            int h = blk.h;
+            int data[] = (int[]) blk.getData();
+
+            if (data==null || data.length<w*h) {
+                data = new int[w*h];
+                blk.setData(data);
+            }
+            if (!isBuffered(blk)) {
+                transform(blk);
+            }
+            for (i=0; i<h; i++) {
+                System.arraycopy(outdata[c],
+                                 (blk.uly-dbi.uly+i)*dbi.w+blk.ulx-dbi.ulx,
+                                 data,i*w,w);
+            }
+            blk.progressive = dbi.progressive;
+            blk.offset = 0;
+            blk.scanw = w;
+            return blk;
         }
     }
 
     /**
      * Apply the inverse component transformation associated with the current
      * tile. If no component transformation has been requested by the user,
-     * data are not modified. Else, appropriate method is called (invRCT or
-     * invICT).
+     * data are not modified. Else, the 3 first components of the requested
+     * area are transformed together (see transform()) and the requested one
+     * is returned as a reference to the internal buffer. Requests of the
+     * other components in the same area are served from the buffer, without
+     * getting the data from the source again.
      *
-     * @see #invRCT
-     *
-     * @see #invICT
+     * @see #transform
      *
      * @param blk Determines the rectangular area to return.
      *
@@ -348,128 +398,285 @@ public class InvCompTransf extends ImgDataAdapter implements BlkImgDataSrc {
             return src.getInternCompData(blk,c);
             
         case INV_RCT:
-	    return invRCT(blk,c);
         case INV_ICT:
-	    return invICT(blk,c);
+            if (c>=3 && c<getNumComps()) {
+                // Requesting a component whose index is greater than 3
+                if (transfType==INV_ICT && !fixedPointICT) {
+                    return convertFloatComp(blk,c);
+                }
+                return src.getInternCompData(blk,c);
+            }
+            if (c<0 || c>=3) {
+                // Requesting a non valid component index
+                throw new IllegalArgumentException();
+            }
+            if (!isBuffered(blk)) {
+                transform(blk);
+            }
+            blk.setData(outdata[c]);
+            blk.progressive = dbi.progressive;
+            blk.offset = (blk.uly-dbi.uly)*dbi.w+blk.ulx-dbi.ulx;
+            blk.scanw = dbi.w;
+            return blk;
         default:
             throw new IllegalArgumentException("Non JPEG 2000 part I"+
                                                " component transformation");
         }
     }
 
-    /** 
-     * Apply inverse component transformation to obtain requested component
-     * from specified block of data. Whatever the type of requested DataBlk,
-     * it always returns a DataBlkInt.
+    /**
+     * Returns the same area of the 3 first components at once, as
+     * getInternCompData() would for each of them, so that an output writer
+     * can get all the components of a strip with a single transform. The
+     * data is returned as references to the internal buffers, it can not be
+     * modified by the caller and is only valid until the next request to
+     * this object.
      *
-     * @param blk Determine the rectangular area to return 
+     * <P>The image must have at least 3 components.
      *
-     * @param c The index of the requested component
+     * @param blks The blocks where to return the components 0, 1 and 2. The
+     * area to return is the one of 'blks[0]'. The elements must be non-null
+     * DataBlkInt objects.
      *
-     * @return Data of requested component
+     * @return The array 'blks'.
+     *
+     * @see #getInternCompData(DataBlk,int)
      * */
-    private DataBlk invRCT(DataBlk blk,int c){
-        // If the component number is three or greater, return original data
-        if (c>=3 && c < getNumComps()) {
-            // Requesting a component whose index is greater than 3
-            return src.getInternCompData(blk,c);
+    public DataBlk[] getInternCompData(DataBlk blks[]) {
+        int c;
+
+        for (c=1; c<3; c++) {
+            blks[c].ulx = blks[0].ulx;
+            blks[c].uly = blks[0].uly;
+            blks[c].w = blks[0].w;
+            blks[c].h = blks[0].h;
         }
-        // If asking a component for the first time for this block,
-	// do transform for the 3 components
-        else if ((outdata[c] == null)||
-	    (dbi.ulx > blk.ulx) || (dbi.uly > blk.uly) ||
-            (dbi.ulx+dbi.w < blk.ulx+blk.w) ||
-            (dbi.uly+dbi.h < blk.uly+blk.h)) {
-	    int k,k0,k1,k2,mink,i;
-	    int w = blk.w; //width of output block
-	    int h = blk.h; //height of ouput block
-	    
-            //Reference to output block data array
-            outdata[c] = (int[]) blk.getData();
-
-            //Create data array of blk if necessary
-            if(outdata[c] == null || outdata[c].length!=h*w){
-                outdata[c] = new int[h * w];
-                blk.setData(outdata[c]);
+        if (!noCompTransf && transfType!=NONE) {
+            // Transform the area once, if needed, for all the components
+            if (!isBuffered(blks[0])) {
+                transform(blks[0]);
             }
+        }
+        for (c=0; c<3; c++) {
+            blks[c] = getInternCompData(blks[c],c);
+        }
+        return blks;
+    }
 
-	    outdata[(c+1)%3] = new int[outdata[c].length];
-	    outdata[(c+2)%3] = new int[outdata[c].length];
-     
-	    if(block0==null || block0.getDataType()!=DataBlk.TYPE_INT)
-		block0 = new DataBlkInt();
-	    if(block1==null || block1.getDataType()!=DataBlk.TYPE_INT)
-		block1 = new DataBlkInt();
-	    if(block2==null || block2.getDataType()!=DataBlk.TYPE_INT)
-		block2 = new DataBlkInt(); 
-	    block0.w = block1.w = block2.w = blk.w;
-	    block0.h = block1.h = block2.h = blk.h;
-	    block0.ulx = block1.ulx = block2.ulx = blk.ulx;
-	    block0.uly = block1.uly = block2.uly = blk.uly;
-
-            int data0[],data1[],data2[]; // input data arrays
-
-            // Fill in buffer blocks (to be read only)
-            // Returned blocks may have different size and position
-            block0 = (DataBlkInt)src.getInternCompData(block0, 0);
-            data0 = (int[]) block0.getData();
-            block1 = (DataBlkInt)src.getInternCompData(block1, 1);
-            data1 = (int[]) block1.getData();
-            block2 = (DataBlkInt)src.getInternCompData(block2, 2);
-            data2 = (int[]) block2.getData();
-
-            // Set the progressiveness of the output data
-            blk.progressive = block0.progressive || block1.progressive ||
-                block2.progressive;
-            blk.offset = 0;
-            blk.scanw = w;
+    /**
+     * Returns true if the specified area of the 3 first components is in the
+     * internal buffers, as the result of a previous transform() in the
+     * current tile. Progressive data is never considered buffered, since the
+     * source may have better data.
+     *
+     * @param blk The area.
+     *
+     * @return Whether the area is buffered.
+     * */
+    private boolean isBuffered(DataBlk blk) {
+        return buffered && !dbi.progressive &&
+            dbi.ulx <= blk.ulx && dbi.uly <= blk.uly &&
+            dbi.ulx+dbi.w >= blk.ulx+blk.w &&
+            dbi.uly+dbi.h >= blk.uly+blk.h;
+    }
 
-	    // set attributes of the DataBlk used for buffering
-	    dbi.progressive = blk.progressive;
-	    dbi.ulx = blk.ulx;
-	    dbi.uly = blk.uly;
-            dbi.w = blk.w;
-            dbi.h = blk.h;
-
-            // Perform conversion
-
-            // Initialize general indexes
-            k = w*h-1;
-            k0 = block0.offset+(h-1)*block0.scanw+w-1;
-            k1 = block1.offset+(h-1)*block1.scanw+w-1;
-            k2 = block2.offset+(h-1)*block2.scanw+w-1;
-
-	    for( i = h-1; i >=0; i--){
-		for(mink = k-w; k > mink; k--, k0--, k1--, k2--){
-		    outdata[1][k] = (data0[k0] - ((data1[k1]+data2[k2])>>2) );
-		    outdata[0][k] = data2[k2] + outdata[1][k];
-		    outdata[2][k] = data1[k1] + outdata[1][k];
-		}
-		// Jump to beggining of previous line in input
-		k0 -= block0.scanw - w;
-		k1 -= block1.scanw - w;
-		k2 -= block2.scanw - w;
-	    }
-	    outdata[c] = null;
+    /**
+     * Gets the specified area of the 3 first components from the source and
+     * applies the inverse component transformation of the current tile to
+     * it, calling invRCT(), invICT() or invICTFixed(). The results are
+     * written to the internal buffers, which are kept from one call to the
+     * next and only grow when a larger area is requested. Their scan width
+     * is the width of the area.
+     *
+     * @param blk Determines the rectangular area to transform.
+     *
+     * @see #invRCT
+     *
+     * @see #invICT
+     *
+     * @see #invICTFixed
+     * */
+    private void transform(DataBlk blk) {
+        int c;
+        int type = (transfType==INV_ICT && !fixedPointICT) ?
+            DataBlk.TYPE_FLOAT : DataBlk.TYPE_INT;
+
+        for (c=0; c<3; c++) {
+            if (outdata[c]==null || outdata[c].length<blk.w*blk.h) {
+                outdata[c] = new int[blk.w*blk.h];
+            }
         }
-	else if((c>=0)&&(c<3)){ //Asking for the 2nd or 3rd block component
-	    blk.setData(outdata[c]);
-	    blk.progressive = dbi.progressive;
-            blk.offset = (blk.uly-dbi.uly)*dbi.w+blk.ulx-dbi.ulx;
-            blk.scanw = dbi.w;
-	    outdata[c] = null;
-	}
-        else {
-            // Requesting a non valid component index
-            throw new IllegalArgumentException();
+
+        if(block0==null || block0.getDataType()!=type)
+            block0 = (type==DataBlk.TYPE_INT) ? (DataBlk) new DataBlkInt() :
+                new DataBlkFloat();
+        if(block1==null || block1.getDataType()!=type)
+            block1 = (type==DataBlk.TYPE_INT) ? (DataBlk) new DataBlkInt() :
+                new DataBlkFloat();
+        if(block2==null || block2.getDataType()!=type)
+            block2 = (type==DataBlk.TYPE_INT) ? (DataBlk) new DataBlkInt() :
+                new DataBlkFloat();
+        block0.w = block1.w = block2.w = blk.w;
+        block0.h = block1.h = block2.h = blk.h;
+        block0.ulx = block1.ulx = block2.ulx = blk.ulx;
+        block0.uly = block1.uly = block2.uly = blk.uly;
+
+        // Fill in buffer blocks (to be read only)
+        // Returned blocks may have different size and position
+        block0 = src.getInternCompData(block0, 0);
+        block1 = src.getInternCompData(block1, 1);
+        block2 = src.getInternCompData(block2, 2);
+
+        // set attributes of the DataBlk used for buffering
+        buffered = true;
+        dbi.progressive = block0.progressive || block1.progressive ||
+            block2.progressive;
+        dbi.ulx = blk.ulx;
+        dbi.uly = blk.uly;
+        dbi.w = blk.w;
+        dbi.h = blk.h;
+
+        // Perform conversion
+        switch (transfType) {
+        case INV_RCT:
+            invRCT(blk.w,blk.h);
+            break;
+        case INV_ICT:
+            if (fixedPointICT) {
+                invICTFixed(blk.w,blk.h);
+            } else {
+                invICT(blk.w,blk.h);
+            }
+            break;
+        }
+    }
+
+    /** 
+     * Apply the inverse reversible component transformation to the blocks
+     * of the 3 first components obtained from the source, writing the
+     * results to the internal buffers.
+     *
+     * @param w The width of the area to transform.
+     *
+     * @param h The height of the area to transform.
+     * */
+    private void invRCT(int w, int h){
+        int k,k0,k1,k2,mink,i;
+        int data0[] = (int[]) block0.getData(); // input data arrays
+        int data1[] = (int[]) block1.getData();
+        int data2[] = (int[]) block2.getData();
+        int out0[] = outdata[0];                // output data arrays
+        int out1[] = outdata[1];
+        int out2[] = outdata[2];
+
+        // Initialize general indexes
+        k = w*h-1;
+        k0 = block0.offset+(h-1)*block0.scanw+w-1;
+        k1 = block1.offset+(h-1)*block1.scanw+w-1;
+        k2 = block2.offset+(h-1)*block2.scanw+w-1;
+
+        for( i = h-1; i >=0; i--){
+            for(mink = k-w; k > mink; k--, k0--, k1--, k2--){
+                out1[k] = (data0[k0] - ((data1[k1]+data2[k2])>>2) );
+                out0[k] = data2[k2] + out1[k];
+                out2[k] = data1[k1] + out1[k];
+            }
+            // Jump to beggining of previous line in input
+            k0 -= block0.scanw - w;
+            k1 -= block1.scanw - w;
+            k2 -= block2.scanw - w;
         }
-	return blk;
     } 
 
     /** 
-     * Apply inverse irreversible component transformation to obtain requested
-     * component from specified block of data. Whatever the type of requested
-     * DataBlk, it always returns a DataBlkFloat.
+     * Apply the inverse irreversible component transformation to the
+     * floating-point blocks of the 3 first components obtained from the
+     * source, writing the results, rounded to int, to the internal buffers.
+     *
+     * @param w The width of the area to transform.
+     *
+     * @param h The height of the area to transform.
+     * */
+    private void invICT(int w, int h){
+        int k,k0,k1,k2,mink,i;
+        float data0[] = (float[]) block0.getData(); // Y
+        float data2[] = (float[]) block1.getData(); // Cb
+        float data1[] = (float[]) block2.getData(); // Cr
+        int out0[] = outdata[0];                    // output data arrays
+        int out1[] = outdata[1];
+        int out2[] = outdata[2];
+
+        // Initialize general indexes
+        k = w*h-1;
+        k0 = block0.offset+(h-1)*block0.scanw+w-1;
+        k2 = block1.offset+(h-1)*block1.scanw+w-1;
+        k1 = block2.offset+(h-1)*block2.scanw+w-1;
+
+        for( i = h-1; i >=0; i--){
+            for(mink = k-w; k > mink; k--, k0--, k2--, k1--){
+                out0[k] = (int)(data0[k0]+1.402f*data1[k1]+0.5f);
+                out1[k] =
+                    (int) (data0[k0]-0.34413f*data2[k2]-0.71414f*data1[k1] 
+                           + 0.5f);
+                out2[k] = (int)(data0[k0]+1.772f*data2[k2]+0.5f);
+            }
+            // Jump to beggining of previous line in input
+            k0 -= block0.scanw - w;
+            k2 -= block1.scanw - w;
+            k1 -= block2.scanw - w;
+        }
+    }
+
+    /** 
+     * Apply the inverse irreversible component transformation to the blocks
+     * of the 3 first components obtained from the source, when the data is
+     * fixed-point int data, writing the results to the internal buffers. The
+     * coefficients are in fixed-point with ICT_BITS fractional bits and the
+     * results keep the fixed point of the input data, so that the error is
+     * at most half a unit of its least significant bit.
+     *
+     * @param w The width of the area to transform.
+     *
+     * @param h The height of the area to transform.
+     * */
+    private void invICTFixed(int w, int h){
+        int k,k0,k1,k2,mink,i;
+        int y,cb,cr;
+        int data0[] = (int[]) block0.getData(); // input data arrays
+        int data1[] = (int[]) block1.getData();
+        int data2[] = (int[]) block2.getData();
+        int out0[] = outdata[0];                // output data arrays
+        int out1[] = outdata[1];
+        int out2[] = outdata[2];
+
+        // Initialize general indexes
+        k = w*h-1;
+        k0 = block0.offset+(h-1)*block0.scanw+w-1;
+        k1 = block1.offset+(h-1)*block1.scanw+w-1;
+        k2 = block2.offset+(h-1)*block2.scanw+w-1;
+
+        for( i = h-1; i >=0; i--){
+            for(mink = k-w; k > mink; k--, k0--, k1--, k2--){
+                y = data0[k0];
+                cb = data1[k1];
+                cr = data2[k2];
+                out0[k] = y + (int)((ICT_CR_R*cr + ICT_RND)>>ICT_BITS);
+                out1[k] = y - (int)((ICT_CB_G*cb + ICT_CR_G*cr +
+                                     ICT_RND)>>ICT_BITS);
+                out2[k] = y + (int)((ICT_CB_B*cb + ICT_RND)>>ICT_BITS);
+            }
+            // Jump to beggining of previous line in input
+            k0 -= block0.scanw - w;
+            k1 -= block1.scanw - w;
+            k2 -= block2.scanw - w;
+        }
+    } 
+
+    /** 
+     * Returns a component whose index is 3 or greater, when the irreversible
+     * component transformation is done on floating-point data. The component
+     * is not transformed, it is just converted to int. Whatever the type of
+     * requested DataBlk, it always returns a DataBlkInt.
      *
      * @param blk Determine the rectangular area to return 
      *
@@ -477,145 +684,50 @@ public class InvCompTransf extends ImgDataAdapter implements BlkImgDataSrc {
      *
      * @return Data of requested component
      * */
-    private DataBlk invICT(DataBlk blk,int c){
-        if(c>=3 && c<getNumComps()) {
-            // Requesting a component whose index is greater than 3            
-	    int k,k0,k1,k2,mink,i;
-	    int w = blk.w; //width of output block
-	    int h = blk.h; //height of ouput block
-	    
-	    int outdata[]; // array of output data
-	    
-	    //Reference to output block data array
-	    outdata = (int[]) blk.getData();
-	    
-	    //Create data array of blk if necessary
-	    if( outdata == null ) {
-		outdata = new int[h * w];
-		blk.setData(outdata);
-	    }
-
-            // Variables
-            DataBlkFloat indb = new DataBlkFloat(blk.ulx,blk.uly,w,h);
-            float indata[]; // input data array
-
-            // Get the input data
-            // (returned block may be larger than requested one)
-            src.getInternCompData(indb,c);
-            indata = (float[]) indb.getData();
-
-            // Copy the data converting from int to int
-            k = w*h-1;
-            k0 = indb.offset+(h-1)*indb.scanw+w-1;
-            for (i=h-1; i >=0; i--) {
-                for (mink = k-w; k > mink; k--, k0--) {
-                    outdata[k] = (int) (indata[k0]);
-                }
-                // Jump to beggining of previous line in input
-                k0 -= indb.scanw - w;
-            }
-            
-            // Set the progressivity and offset
-            blk.progressive = indb.progressive;
-            blk.offset = 0;
-            blk.scanw = w;
-        }
+    private DataBlk convertFloatComp(DataBlk blk,int c){
+        int k,k0,mink,i;
+        int w = blk.w; //width of output block
+        int h = blk.h; //height of ouput block
 
-        // If asking a component for the first time for this block,
-	// do transform for the 3 components
-        else if ((outdata[c] == null)||
-	    (dbi.ulx > blk.ulx) || (dbi.uly > blk.uly) ||
-            (dbi.ulx+dbi.w < blk.ulx+blk.w) ||
-            (dbi.uly+dbi.h < blk.uly+blk.h)) {
-	    int k,k0,k1,k2,mink,i;
-	    int w = blk.w; //width of output block
-	    int h = blk.h; //height of ouput block
-	    
-	    //Reference to output block data array
-	    outdata[c] = (int[]) blk.getData();
-	    
-	    //Create data array of blk if necessary
-	    if(outdata[c] == null || outdata[c].length!=w*h){
-		outdata[c] = new int[h * w];
-		blk.setData(outdata[c]);
-	    }
-    
-	    outdata[(c+1)%3] = new int[outdata[c].length];
-	    outdata[(c+2)%3] = new int[outdata[c].length];
- 
-	    if(block0==null || block0.getDataType()!=DataBlk.TYPE_FLOAT)
-		block0 = new DataBlkFloat();
-	    if(block2==null || block2.getDataType()!=DataBlk.TYPE_FLOAT)
-		block2 = new DataBlkFloat();
-	    if(block1==null || block1.getDataType()!=DataBlk.TYPE_FLOAT)
-		block1 = new DataBlkFloat(); 
-	    block0.w = block2.w = block1.w = blk.w;
-	    block0.h = block2.h = block1.h = blk.h;
-	    block0.ulx = block2.ulx = block1.ulx = blk.ulx;
-	    block0.uly = block2.uly = block1.uly = blk.uly;
-
-            float data0[],data1[],data2[]; // input data arrays
-
-            // Fill in buffer blocks (to be read only)
-            // Returned blocks may have different size and position
-            block0 = (DataBlkFloat)src.getInternCompData(block0, 0);
-            data0  = (float[]) block0.getData();
-            block2 = (DataBlkFloat)src.getInternCompData(block2, 1);
-            data2 = (float[]) block2.getData();
-            block1 = (DataBlkFloat)src.getInternCompData(block1, 2);
-            data1 = (float[]) block1.getData();
-
-            // Set the progressiveness of the output data
-            blk.progressive = block0.progressive || block1.progressive ||
-                block2.progressive;
-            blk.offset = 0;
-            blk.scanw = w;
+        int outdata[]; // array of output data
 
-	    // set attributes of the DataBlk used for buffering
-	    dbi.progressive = blk.progressive;
-	    dbi.ulx = blk.ulx;
-	    dbi.uly = blk.uly;
-            dbi.w = blk.w;
-            dbi.h = blk.h;
-
-            //Perform conversion
-
-            // Initialize general indexes
-            k = w*h-1;
-            k0 = block0.offset+(h-1)*block0.scanw+w-1;
-            k2 = block2.offset+(h-1)*block2.scanw+w-1;
-            k1 = block1.offset+(h-1)*block1.scanw+w-1;
-
-	    for( i = h-1; i >=0; i--){
-		for(mink = k-w; k > mink; k--, k0--, k2--, k1--){
-  		    outdata[0][k] = (int)(data0[k0]+1.402f*data1[k1]+0.5f);
-  		    outdata[1][k] =
-  			(int) (data0[k0]-0.34413f*data2[k2]-0.71414f*data1[k1] 
-                               + 0.5f);
-  		    outdata[2][k] = (int)(data0[k0]+1.772f*data2[k2]+0.5f);
-		}
-		// Jump to beggining of previous line in input
-		k0 -= block0.scanw - w;
-		k2 -= block2.scanw - w;
-		k1 -= block1.scanw - w;
-  	    }
-	    outdata[c] = null;
-        }
-        else if((c>=0)&&(c<=3)){//Asking for the 2nd or 3rd block component
-            blk.setData(outdata[c]);
-            blk.progressive = dbi.progressive;
-            blk.offset = (blk.uly-dbi.uly)*dbi.w+blk.ulx-dbi.ulx;
-            blk.scanw = dbi.w;
-            outdata[c] = null;
+        //Reference to output block data array
+        outdata = (int[]) blk.getData();
+
+        //Create data array of blk if necessary
+        if( outdata == null ) {
+            outdata = new int[h * w];
+            blk.setData(outdata);
         }
-        else {
-            // Requesting a non valid component index
-            throw new IllegalArgumentException();
+
+        // Variables
+        DataBlkFloat indb = new DataBlkFloat(blk.ulx,blk.uly,w,h);
+        float indata[]; // input data array
+
+        // Get the input data
+        // (returned block may be larger than requested one)
+        src.getInternCompData(indb,c);
+        indata = (float[]) indb.getData();
+
+        // Copy the data converting from int to int
+        k = w*h-1;
+        k0 = indb.offset+(h-1)*indb.scanw+w-1;
+        for (i=h-1; i >=0; i--) {
+            for (mink = k-w; k > mink; k--, k0--) {
+                outdata[k] = (int) (indata[k0]);
+            }
+            // Jump to beggining of previous line in input
+            k0 -= indb.scanw - w;
         }
-	return blk;
+
+        // Set the progressivity and offset
+        blk.progressive = indb.progressive;
+        blk.offset = 0;
+        blk.scanw = w;
+        return blk;
     }
 
-        /**
+    /**
      * Changes the current tile, given the new indexes. An
      * IllegalArgumentException is thrown if the indexes do not
      * correspond to a valid tile.
@@ -630,6 +742,7 @@ public class InvCompTransf extends ImgDataAdapter implements BlkImgDataSrc {
      * */
     public void setTile(int x, int y) {
         src.setTile(x,y);
+        buffered = false;
 	tIdx = getTileIdx(); // index of the current tile
 
         // initializations
@@ -648,6 +761,8 @@ public class InvCompTransf extends ImgDataAdapter implements BlkImgDataSrc {
             else if(rev==0){
                 // All WT irreversible
                 transfType = INV_ICT;
+                fixedPointICT =
+                    (wfs.getWTDataType(tIdx,0)==DataBlk.TYPE_INT);
             }
             else{
                 // Error
@@ -670,6 +785,7 @@ public class InvCompTransf extends ImgDataAdapter implements BlkImgDataSrc {
      * */
     public void nextTile() {
         src.nextTile();
+        buffered = false;
 	tIdx = getTileIdx(); // index of the current tile
 
         // initializations
@@ -688,6 +804,8 @@ public class InvCompTransf extends ImgDataAdapter implements BlkImgDataSrc {
             else if(rev==0){
                 // All WT irreversible
                 transfType = INV_ICT;
+                fixedPointICT =
+                    (wfs.getWTDataType(tIdx,0)==DataBlk.TYPE_INT);
             }
             else{
                 // Error
@@ -1,7 +1,7 @@
 /*
  * CVS identifier:
  *
- * $Id: ImgWriterBitmap.java 169 2012-01-15 18:33:24Z mroland $
+ * $Id: ImgWriter.java 169 2012-01-15 18:33:24Z mroland $
  *
  * Class:                   ImgWriter
  *
@@ -43,8 +43,6 @@
  *  */
 package jj2000.j2k.image.output;
 
-import android.graphics.Bitmap;
-
 import java.io.IOException;
 
 import jj2000.j2k.image.BlkImgDataSrc;
@@ -66,7 +64,7 @@ import jj2000.j2k.image.DataBlk;
  * from only one component (defined in the constructor) while a PPM writer
  * will write 3 components (normally R,G,B).</p>
  * */
-public abstract class ImgWriterBitmap {
+public abstract class ImgWriter {
 
     /** The defaukt height used when writing strip by strip in the 'write()'
      * method. It is 64. */
@@ -82,14 +80,14 @@ public abstract class ImgWriterBitmap {
     protected int h;
 
     /**
-     * Closes the underlying file or netwrok connection to where the data is
-     * written. The implementing class must write all buffered data before
-     * closing the file or resource. Any call to other methods of the class
-     * become illegal after a call to this one.
+     * Returns the image written so far. The implementing class must write
+     * all buffered data before returning it.
+     *
+     * @return The written image, or null if it is not available.
      *
      * @exception IOException If an I/O error occurs.
      * */
-    public abstract Bitmap get() throws IOException;
+    public abstract PixelImage get() throws IOException;
 
     /**
      * Writes the source's current tile to the output. The requests of data
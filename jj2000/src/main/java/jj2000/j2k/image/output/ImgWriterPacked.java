@@ -0,0 +1,680 @@
+/*
+ * CVS identifier:
+ *
+ * $Id$
+ *
+ * Class:                   ImgWriterPacked
+ *
+ * Description:             Image writer packing the components directly
+ *                          into a buffer of pixels.
+ * 
+ *
+ *
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Rapha�l Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askel�f (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, F�lix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ * */
+package jj2000.j2k.image.output;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jj2000.j2k.image.BlkImgDataSrc;
+import jj2000.j2k.image.Coord;
+import jj2000.j2k.image.DataBlk;
+import jj2000.j2k.image.DataBlkInt;
+import jj2000.j2k.image.PackedRGBSrc;
+import jj2000.j2k.image.invcomptransf.InvCompTransf;
+import jj2000.j2k.util.WorkerPool;
+
+/**
+ * This class writes an image to a buffer of pixels in one of the PixelImage
+ * formats RGBA_8888, RGB_565 or GREY_8. If the image has at least 3
+ * components, the first 3 are written as R, G and B, otherwise the first one
+ * is written as a greyscale. Greyscale data is replicated to R, G and B in
+ * RGBA_8888 and RGB_565, and RGB data is converted to luminance in GREY_8.
+ *
+ * <p>Each component is inversly level-shifted, "saturated" to its nominal
+ * range and scaled to 8 bits, then packed into its place in the pixel
+ * buffer. The buffer can be supplied by the caller, for instance to reuse it
+ * among images of the same size.</p>
+ *
+ * <p>If the source implements PackedRGBSrc and can produce the pixels of
+ * the image, the 8 bit samples are obtained from it already packed and are
+ * only stored in the output format.</p>
+ *
+ * <p>No component subsampling is allowed in any of the components that are
+ * written.</p>
+ *
+ * <p>A window of the image can be written instead of the whole image: the
+ * buffer then only holds the window, and only the parts of the tiles inside
+ * of it are requested from the source.</p>
+ *
+ * <p>The write() methods of an object of this class may not be called
+ * concurrently from different threads. Tiled images can however be decoded
+ * and written concurrently with writeAll(BlkImgDataSrc[]), given several
+ * decoding chains of the image.</p>
+ * */
+public class ImgWriterPacked extends ImgWriter {
+
+    /** The pixel format of the output */
+    private int format;
+
+    /** The number of bytes per output pixel */
+    private int bpp;
+
+    /** The indexes of the components from where to get the data: R, G and B
+     * or just the greyscale one */
+    private int cps[];
+
+    /** Value used to inverse level shift. One for each written component */
+    private int levShift[];
+
+    /** The maximum value of each written component */
+    private int maxVal[];
+
+    /** The number of bits to shift the value of each written component to
+     * the right (or to the left if negative) to scale it to 8 bits */
+    private int scale[];
+
+    /** The number of fractional bits of each written component */
+    private int fb[];
+
+    /** Where to write the pixels */
+    private ByteBuffer buf;
+
+    /** The horizontal offset of the written window in the image */
+    private int winX;
+
+    /** The vertical offset of the written window in the image */
+    private int winY;
+
+    /** The line buffer, used only if 'buf' is not backed by an array */
+    private byte line[];
+
+    /** The luminance accumulated over the components of the line being
+     * written, used only when writing RGB data in GREY_8 */
+    private int lum[];
+
+    /** Whether 16 bit pixels are stored with the least significant byte
+     * first */
+    private boolean lsbFirst;
+
+    /** A DataBlk, just used to avoid allocating a new one each time
+        it is needed */
+    private DataBlkInt db = new DataBlkInt();
+
+    /** The source, if it is an inverse component transformation and 3
+     * components are written, null otherwise */
+    private InvCompTransf ict;
+
+    /** The blocks used to get the 3 components of a strip at once from
+     * 'ict' */
+    private DataBlk dbs[];
+
+    /** The source, if it produces the packed 8 bit pixels of the image,
+     * null otherwise */
+    private PackedRGBSrc rgb;
+
+    /** The block used to get the pixels of a strip from 'rgb' */
+    private DataBlkInt pix;
+
+    /** The weights of R, G and B in the luminance, out of 256 (ITU-R BT.601)
+     * */
+    private static final int LUM_WEIGHTS[] = {77, 150, 29};
+
+    /**
+     * Creates a new writer of the image of 'imgSrc' to a new buffer in the
+     * specified format.
+     *
+     * @param imgSrc The source from where to get the image data to write.
+     *
+     * @param format The pixel format, PixelImage.RGBA_8888, RGB_565 or
+     * GREY_8.
+     * */
+    public ImgWriterPacked(BlkImgDataSrc imgSrc, int format) {
+        this(imgSrc,format,null);
+    }
+
+    /**
+     * Creates a new writer of the image of 'imgSrc' to the specified buffer
+     * in the specified format.
+     *
+     * @param imgSrc The source from where to get the image data to write.
+     *
+     * @param format The pixel format, PixelImage.RGBA_8888, RGB_565 or
+     * GREY_8.
+     *
+     * @param buf The buffer where to write the pixels, starting at index 0.
+     * It must have room for at least getBufferSize() bytes. If null a new
+     * one is allocated.
+     * */
+    public ImgWriterPacked(BlkImgDataSrc imgSrc, int format,
+                           ByteBuffer buf) {
+        this(imgSrc,format,buf,0,0,imgSrc.getImgWidth(),
+             imgSrc.getImgHeight());
+    }
+
+    /**
+     * Creates a new writer of a window of the image of 'imgSrc' to the
+     * specified buffer in the specified format. The written image is the
+     * window, the pixel at (x,y) of the image being the first one of the
+     * buffer.
+     *
+     * @param imgSrc The source from where to get the image data to write.
+     *
+     * @param format The pixel format, PixelImage.RGBA_8888, RGB_565 or
+     * GREY_8.
+     *
+     * @param buf The buffer where to write the pixels, starting at index 0.
+     * It must have room for at least getBufferSize() bytes. If null a new
+     * one is allocated.
+     *
+     * @param x The horizontal offset of the window in the image.
+     *
+     * @param y The vertical offset of the window in the image.
+     *
+     * @param w The width of the window.
+     *
+     * @param h The height of the window.
+     * */
+    public ImgWriterPacked(BlkImgDataSrc imgSrc, int format,
+                           ByteBuffer buf, int x, int y, int w, int h) {
+        int c,nb,ncw,cw,ch;
+
+        bpp = PixelImage.getBytesPerPixel(format);
+        ncw = (imgSrc.getNumComps()>=3) ? 3 : 1;
+        cps = new int[ncw];
+        levShift = new int[ncw];
+        maxVal = new int[ncw];
+        scale = new int[ncw];
+        fb = new int[ncw];
+
+        // Initialize
+        cw = imgSrc.getCompImgWidth(0);
+        ch = imgSrc.getCompImgHeight(0);
+        for(c=0; c<ncw; c++) {
+            // Check that all components have same width and height
+            if(cw!=imgSrc.getCompImgWidth(c) ||
+               ch!=imgSrc.getCompImgHeight(c)) {
+                throw new IllegalArgumentException("All components must "+
+                                                   "have the same "+
+                                                   "dimensions and no "+
+                                                   "subsampling");
+            }
+            nb = imgSrc.getNomRangeBits(c);
+            cps[c] = c;
+            levShift[c] = 1<<(nb-1);
+            maxVal[c] = (1<<nb)-1;
+            scale[c] = nb-8;
+            fb[c] = imgSrc.getFixedPoint(c);
+        }
+        if(x<0 || y<0 || w<=0 || h<=0 || x+w>imgSrc.getImgWidth() ||
+           y+h>imgSrc.getImgHeight()) {
+            throw new IllegalArgumentException("Window "+w+"x"+h+" at ("+
+                                               x+","+y+") outside of the "+
+                                               "image");
+        }
+        this.w = w;
+        this.h = h;
+        winX = x;
+        winY = y;
+
+        if(buf==null) {
+            buf = ByteBuffer.allocate(w*h*bpp);
+        } else if(buf.capacity()<w*h*bpp) {
+            throw new IllegalArgumentException("Buffer too small for a "+
+                                               w+"x"+h+" image");
+        }
+        src = imgSrc;
+        this.format = format;
+        this.buf = buf;
+        if(imgSrc instanceof PackedRGBSrc &&
+           ((PackedRGBSrc)imgSrc).isPackable()) {
+            rgb = (PackedRGBSrc)imgSrc;
+            pix = new DataBlkInt();
+        } else if(ncw==3 && imgSrc instanceof InvCompTransf) {
+            ict = (InvCompTransf)imgSrc;
+            dbs = new DataBlk[] {new DataBlkInt(), new DataBlkInt(),
+                                 new DataBlkInt()};
+        }
+        lsbFirst = ByteOrder.nativeOrder()==ByteOrder.LITTLE_ENDIAN;
+    }
+
+    /**
+     * Returns the number of bytes of the buffer where the image is written.
+     *
+     * @return The size of the image in bytes.
+     * */
+    public int getBufferSize() {
+        return w*h*bpp;
+    }
+
+    /**
+     * Returns the buffer where the image is written, with its position set to
+     * 0.
+     *
+     * @return The pixel buffer.
+     * */
+    public ByteBuffer getBuffer() {
+        buf.rewind();
+        return buf;
+    }
+
+    /**
+     * Returns the written image. Its pixels are in the buffer of this
+     * writer, they are not copied.
+     *
+     * @return The image.
+     * */
+    public PixelImage get() {
+        return new PixelImage(w,h,format,buf);
+    }
+
+    /**
+     * Writes the data of the specified area to the buffer, coordinates are
+     * relative to the current tile of the source. Before writing, the
+     * coefficients are limited to the nominal range.
+     *
+     * <p>This method may not be called concurrently from different
+     * threads.</p>
+     *
+     * <p>If the data returned from the BlkImgDataSrc source is progressive,
+     * then it is requested over and over until it is not progressive
+     * anymore.</p>
+     *
+     * <p>The data is requested line by line and component by component,
+     * except if the source is an inverse component transformation: then the
+     * 3 components of the whole area are obtained at once, with a single
+     * transform, and packed from its buffers; or if the source produces the
+     * packed pixels: then those of the whole area are obtained at once and
+     * only stored in the output format.</p>
+     *
+     * @param ulx The horizontal coordinate of the upper-left corner of the
+     * area to write, relative to the current tile.
+     *
+     * @param uly The vertical coordinate of the upper-left corner of the area
+     * to write, relative to the current tile.
+     *
+     * @param w The width of the area to write.
+     *
+     * @param h The height of the area to write.
+     * */
+    public void write(int ulx, int uly, int w, int h) {
+        int i,j,k,c,ncw;
+        int tOffx, tOffy;      // Active tile offset in the X and Y direction
+        int data[];
+        int off;               // Index of the first sample of the line
+        byte dst[];            // Where the pixels of the line are written
+        int doff;              // Index of the first pixel of the line in dst
+        int shift,max,sc,fracbits,tmp,v;
+        
+        // Active tiles in all components have same offset since they are at
+        // same resolution (no subsampling supported). Made relative to the
+        // window.
+        tOffx = getTileOffX()-winX;
+        tOffy = getTileOffY()-winY;
+
+        if(rgb!=null) {
+            writePacked(ulx,uly,w,h,tOffx,tOffy);
+            return;
+        }
+
+        // Check the array size
+        if(db.data!=null && db.data.length<w) {
+            // A new one will be allocated by getInternCompData()
+            db.data = null;
+        }
+        if(!buf.hasArray() && (line==null || line.length<w*bpp)) {
+            line = new byte[w*bpp];
+        }
+        ncw = cps.length;
+        if(ncw==3 && format==PixelImage.GREY_8 &&
+           (lum==null || lum.length<w)) {
+            lum = new int[w];
+        }
+
+        // Get all the components of the area at once, if possible
+        if(ict!=null) {
+            dbs[0].ulx = ulx;
+            dbs[0].uly = uly;
+            dbs[0].w = w;
+            dbs[0].h = h;
+            do {
+                dbs = ict.getInternCompData(dbs);
+            } while (dbs[0].progressive || dbs[1].progressive ||
+                     dbs[2].progressive);
+        }
+
+        // Write line by line, each component directly into its place in the
+        // pixels
+        for(i=0; i<h; i++) {
+            if(buf.hasArray()) {
+                dst = buf.array();
+                doff = buf.arrayOffset()+
+                    (this.w*(uly+tOffy+i)+ulx+tOffx)*bpp;
+            } else {
+                dst = line;
+                doff = 0;
+            }
+
+            for(c=0; c<ncw; c++) {
+                max = maxVal[c];
+                sc = scale[c];
+                fracbits = fb[c];
+                // Level shift and round to nearest before dropping the
+                // fractional bits
+                shift = (levShift[c]<<fracbits)+
+                    ((fracbits>0) ? 1<<(fracbits-1) : 0);
+
+                if(ict!=null) {
+                    data = (int[])dbs[c].getData();
+                    off = dbs[c].offset+i*dbs[c].scanw;
+                } else {
+                    // Initialize db
+                    db.ulx = ulx;
+                    db.uly = uly+i;
+                    db.w = w;
+                    db.h = 1;
+
+                    // Request the data and make sure it is not progressive
+                    do {
+                        db = (DataBlkInt)src.getInternCompData(db,cps[c]);
+                    } while (db.progressive);
+                    data = db.data;
+                    off = db.offset;
+                }
+
+                for(j=0, k=off; j<w; j++, k++) {
+                    tmp = (data[k]+shift)>>fracbits;
+                    tmp = (tmp<0) ? 0 : ((tmp>max) ? max : tmp);
+                    v = (sc>=0) ? tmp>>sc : tmp<<-sc;
+
+                    switch(format) {
+                    case PixelImage.RGBA_8888:
+                        // Bytes are R, G, B and A in memory
+                        if(ncw==1) {
+                            dst[doff+4*j] = dst[doff+4*j+1] =
+                                dst[doff+4*j+2] = (byte)v;
+                        } else {
+                            dst[doff+4*j+c] = (byte)v;
+                        }
+                        dst[doff+4*j+3] = (byte)0xFF;
+                        break;
+                    case PixelImage.RGB_565:
+                        if(ncw==1) {
+                            tmp = ((v>>3)<<11)|((v>>2)<<5)|(v>>3);
+                        } else if(c==0) {
+                            tmp = (v>>3)<<11;
+                        } else if(c==1) {
+                            tmp = get565(dst,doff+2*j)|((v>>2)<<5);
+                        } else {
+                            tmp = get565(dst,doff+2*j)|(v>>3);
+                        }
+                        if(lsbFirst) {
+                            dst[doff+2*j] = (byte)tmp;
+                            dst[doff+2*j+1] = (byte)(tmp>>8);
+                        } else {
+                            dst[doff+2*j] = (byte)(tmp>>8);
+                            dst[doff+2*j+1] = (byte)tmp;
+                        }
+                        break;
+                    case PixelImage.GREY_8:
+                        if(ncw==1) {
+                            dst[doff+j] = (byte)v;
+                        } else if(c==0) {
+                            lum[j] = LUM_WEIGHTS[0]*v;
+                        } else if(c==1) {
+                            lum[j] += LUM_WEIGHTS[1]*v;
+                        } else {
+                            dst[doff+j] =
+                                (byte)((lum[j]+LUM_WEIGHTS[2]*v+128)>>8);
+                        }
+                        break;
+                    }
+                }
+            }
+
+            // Copy the line to the buffer if it was written apart
+            if(dst==line) {
+                buf.position((this.w*(uly+tOffy+i)+ulx+tOffx)*bpp);
+                buf.put(line,0,w*bpp);
+            }
+        }
+    }
+
+    /**
+     * Writes the pixels of the specified area, obtained already packed from
+     * the source, to the buffer. Coordinates are relative to the current tile
+     * of the source.
+     *
+     * @param ulx The horizontal coordinate of the upper-left corner of the
+     * area to write, relative to the current tile.
+     *
+     * @param uly The vertical coordinate of the upper-left corner of the area
+     * to write, relative to the current tile.
+     *
+     * @param w The width of the area to write.
+     *
+     * @param h The height of the area to write.
+     *
+     * @param tOffx The horizontal offset of the current tile in the image.
+     *
+     * @param tOffy The vertical offset of the current tile in the image.
+     *
+     * @see PackedRGBSrc
+     * */
+    private void writePacked(int ulx, int uly, int w, int h,
+                             int tOffx, int tOffy) {
+        int i,j,k,p,tmp;
+        int data[];
+        byte dst[];            // Where the pixels of the line are written
+        int doff;              // Index of the first pixel of the line in dst
+
+        if(!buf.hasArray() && (line==null || line.length<w*bpp)) {
+            line = new byte[w*bpp];
+        }
+
+        // Get the pixels of the whole area and make sure they are not
+        // progressive
+        pix.ulx = ulx;
+        pix.uly = uly;
+        pix.w = w;
+        pix.h = h;
+        do {
+            pix = rgb.getPackedRGB(pix);
+        } while(pix.progressive);
+        data = pix.data;
+
+        for(i=0, k=pix.offset; i<h; i++, k+=pix.scanw-w) {
+            if(buf.hasArray()) {
+                dst = buf.array();
+                doff = buf.arrayOffset()+
+                    (this.w*(uly+tOffy+i)+ulx+tOffx)*bpp;
+            } else {
+                dst = line;
+                doff = 0;
+            }
+
+            switch(format) {
+            case PixelImage.RGBA_8888:
+                // Bytes are R, G, B and A in memory
+                for(j=0; j<w; j++, k++, doff+=4) {
+                    p = data[k];
+                    dst[doff] = (byte)(p>>16);
+                    dst[doff+1] = (byte)(p>>8);
+                    dst[doff+2] = (byte)p;
+                    dst[doff+3] = (byte)(p>>24);
+                }
+                break;
+            case PixelImage.RGB_565:
+                for(j=0; j<w; j++, k++, doff+=2) {
+                    p = data[k];
+                    tmp = ((p>>8)&0xF800)|((p>>5)&0x07E0)|((p>>3)&0x001F);
+                    if(lsbFirst) {
+                        dst[doff] = (byte)tmp;
+                        dst[doff+1] = (byte)(tmp>>8);
+                    } else {
+                        dst[doff] = (byte)(tmp>>8);
+                        dst[doff+1] = (byte)tmp;
+                    }
+                }
+                break;
+            case PixelImage.GREY_8:
+                for(j=0; j<w; j++, k++) {
+                    p = data[k];
+                    dst[doff+j] = (byte)((LUM_WEIGHTS[0]*((p>>16)&0xFF)+
+                                          LUM_WEIGHTS[1]*((p>>8)&0xFF)+
+                                          LUM_WEIGHTS[2]*(p&0xFF)+128)>>8);
+                }
+                break;
+            }
+
+            // Copy the line to the buffer if it was written apart
+            if(dst==line) {
+                buf.position((this.w*(uly+tOffy+i)+ulx+tOffx)*bpp);
+                buf.put(line,0,w*bpp);
+            }
+        }
+    }
+
+    /**
+     * Returns the 16 bit pixel at the specified index of the array, in the
+     * native byte order.
+     *
+     * @param arr The array of pixels.
+     *
+     * @param idx The index of the first byte of the pixel.
+     *
+     * @return The pixel value.
+     * */
+    private int get565(byte arr[], int idx) {
+        if(lsbFirst) {
+            return (arr[idx]&0xFF)|((arr[idx+1]&0xFF)<<8);
+        } else {
+            return ((arr[idx]&0xFF)<<8)|(arr[idx+1]&0xFF);
+        }
+    }
+
+    /**
+     * Returns the horizontal offset of the source's current tile in the
+     * image.
+     *
+     * @return The offset of the tile.
+     * */
+    private int getTileOffX() {
+        return src.getCompULX(cps[0]) -
+            (int)Math.ceil(src.getImgULX()/(double)src.getCompSubsX(cps[0]));
+    }
+
+    /**
+     * Returns the vertical offset of the source's current tile in the image.
+     *
+     * @return The offset of the tile.
+     * */
+    private int getTileOffY() {
+        return src.getCompULY(cps[0]) -
+            (int)Math.ceil(src.getImgULY()/(double)src.getCompSubsY(cps[0]));
+    }
+
+    /**
+     * Writes the source's current tile to the output. The requests of data
+     * issued to the source BlkImgDataSrc object are done by strips, in order
+     * to reduce memory usage.
+     *
+     * <P>If the data returned from the BlkImgDataSrc source is progressive,
+     * then it is requested over and over until it is not progressive any
+     * more.
+     *
+     * <p>If a window is written only the part of the tile inside it is
+     * requested, and nothing if the tile is outside of it, so that the tile
+     * is not decoded.</p>
+     * */
+    public void write() {
+        int i;
+        int tIdx = src.getTileIdx();
+        int tw = src.getTileCompWidth(tIdx,cps[0]);  // Tile width 
+        int th = src.getTileCompHeight(tIdx,cps[0]);  // Tile height
+        int tOffx = getTileOffX();
+        int tOffy = getTileOffY();
+        // The part of the tile inside the window
+        int x0 = Math.max(winX-tOffx,0);
+        int y0 = Math.max(winY-tOffy,0);
+        int x1 = Math.min(winX+w-tOffx,tw);
+        int y1 = Math.min(winY+h-tOffy,th);
+        // Write in strips
+        for(i=y0; i<y1 && x0<x1; i+=DEF_STRIP_HEIGHT) {
+            write(x0,i,x1-x0,
+                  ((y1-i)<DEF_STRIP_HEIGHT) ? y1-i : DEF_STRIP_HEIGHT);
+        }
+    }
+
+    /**
+     * Writes the entire image, decoding several tiles at once. The tiles are
+     * obtained from the given sources instead of the one of this writer:
+     * each source is a different decoding chain of the same image, that can
+     * decode any tile independently of the other ones. Every source is used
+     * by a different task of the shared worker pool, which takes the next
+     * tile to decode and writes it to its own part of the buffer, until all
+     * the tiles are written.
+     *
+     * @param srcs The sources from where to get the image data to write. They
+     * must all have the same image as the source of this writer.
+     *
+     * @see WorkerPool
+     * */
+    public void writeAll(BlkImgDataSrc srcs[]) {
+        final AtomicInteger next = new AtomicInteger();
+        final int ntx,nt;
+        Runnable tasks[] = new Runnable[srcs.length];
+        Coord nT = src.getNumTiles(null);
+        int i;
+
+        ntx = nT.x;
+        nt = nT.x*nT.y;
+        for(i=0; i<srcs.length; i++) {
+            // Each writer has its own position in the buffer
+            final ImgWriterPacked wr =
+                new ImgWriterPacked(srcs[i],format,buf.duplicate(),winX,winY,
+                                    w,h);
+            tasks[i] = new Runnable() {
+                    public void run() {
+                        int t;
+                        while((t=next.getAndIncrement())<nt) {
+                            wr.src.setTile(t%ntx,t/ntx);
+                            wr.write();
+                        }
+                    }
+                };
+        }
+        WorkerPool.invokeAll(tasks);
+    }
+}
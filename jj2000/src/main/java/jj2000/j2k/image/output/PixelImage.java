@@ -0,0 +1,230 @@
+/*
+ * CVS identifier:
+ *
+ * $Id$
+ *
+ * Class:                   PixelImage
+ *
+ * Description:             A decoded image, as a buffer of packed pixels
+ * 
+ *
+ *
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Rapha�l Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askel�f (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, F�lix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ * */
+package jj2000.j2k.image.output;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * This class holds a decoded image as a buffer of packed pixels, in one of
+ * the formats RGBA_8888, RGB_565 or GREY_8, together with its width and
+ * height. The pixels are stored line by line, from the top-left corner,
+ * with no padding between lines.
+ *
+ * <p>The layout of the pixels is the one of the Android bitmap formats
+ * ARGB_8888, RGB_565 and ALPHA_8 respectively, so that the buffer can be
+ * copied to a bitmap without conversion, but this class does not depend on
+ * Android.</p>
+ *
+ * @see ImgWriterPacked
+ * */
+public class PixelImage {
+
+    /** The format where each pixel is 4 bytes: R, G, B and A, in that
+     * order in memory. A is always 0xFF. */
+    public final static int RGBA_8888 = 0;
+
+    /** The format where each pixel is a 16 bit value with 5 bits of R (the
+     * most significant ones), 6 of G and 5 of B, stored in the native byte
+     * order. */
+    public final static int RGB_565 = 1;
+
+    /** The format where each pixel is 1 byte of luminance. */
+    public final static int GREY_8 = 2;
+
+    /** The width of the image */
+    private final int w;
+
+    /** The height of the image */
+    private final int h;
+
+    /** The pixel format of the image */
+    private final int format;
+
+    /** The buffer holding the pixels, from index 0 */
+    private final ByteBuffer buf;
+
+    /**
+     * Creates a new image over the specified buffer of pixels.
+     *
+     * @param w The width of the image.
+     *
+     * @param h The height of the image.
+     *
+     * @param format The pixel format, RGBA_8888, RGB_565 or GREY_8.
+     *
+     * @param buf The buffer holding the pixels, from index 0. It is not
+     * copied.
+     * */
+    public PixelImage(int w, int h, int format, ByteBuffer buf) {
+        if(w<0 || h<0 || buf.capacity()<w*h*getBytesPerPixel(format)) {
+            throw new IllegalArgumentException("Buffer too small for a "+
+                                               w+"x"+h+" image");
+        }
+        this.w = w;
+        this.h = h;
+        this.format = format;
+        this.buf = buf;
+    }
+
+    /**
+     * Returns the number of bytes of each pixel in the specified format.
+     *
+     * @param format The pixel format, RGBA_8888, RGB_565 or GREY_8.
+     *
+     * @return The number of bytes per pixel.
+     * */
+    public static int getBytesPerPixel(int format) {
+        switch(format) {
+        case RGBA_8888:
+            return 4;
+        case RGB_565:
+            return 2;
+        case GREY_8:
+            return 1;
+        default:
+            throw new IllegalArgumentException("Unsupported pixel format "+
+                                               format);
+        }
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return The width in pixels.
+     * */
+    public int getWidth() {
+        return w;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return The height in pixels.
+     * */
+    public int getHeight() {
+        return h;
+    }
+
+    /**
+     * Returns the pixel format of the image.
+     *
+     * @return RGBA_8888, RGB_565 or GREY_8.
+     * */
+    public int getFormat() {
+        return format;
+    }
+
+    /**
+     * Returns the number of bytes of the pixels of the image.
+     *
+     * @return The size of the image in bytes.
+     * */
+    public int getByteCount() {
+        return w*h*getBytesPerPixel(format);
+    }
+
+    /**
+     * Returns the pixels of the image. The returned buffer shares its
+     * content with the one of the image, but has its own position, which is
+     * 0, and limit, which is getByteCount(). Its byte order is the native
+     * one.
+     *
+     * @return The pixel buffer.
+     * */
+    public ByteBuffer getBuffer() {
+        ByteBuffer b = buf.duplicate();
+        b.clear();
+        b.limit(getByteCount());
+        return b.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Returns the pixels of the image as 0xAARRGGBB values, as used by
+     * java.awt.image.BufferedImage.setRGB() and the Android Bitmap.setPixels()
+     * methods. Greyscale pixels are replicated to R, G and B.
+     *
+     * @param argb The array where to write the pixels. If it is null or too
+     * small a new one is allocated.
+     *
+     * @return The array of pixels, line by line from the top-left corner.
+     * */
+    public int[] getARGB(int argb[]) {
+        int i,v,r,g,b;
+        int n = w*h;
+        ByteBuffer src = getBuffer();
+
+        if(argb==null || argb.length<n) {
+            argb = new int[n];
+        }
+        switch(format) {
+        case RGBA_8888:
+            for(i=0; i<n; i++) {
+                v = src.getInt(4*i);
+                if(src.order()==ByteOrder.LITTLE_ENDIAN) {
+                    v = Integer.reverseBytes(v);
+                }
+                // v is now 0xRRGGBBAA
+                argb[i] = (v<<24)|(v>>>8);
+            }
+            break;
+        case RGB_565:
+            for(i=0; i<n; i++) {
+                v = src.getShort(2*i)&0xFFFF;
+                r = (v>>11)&0x1F;
+                g = (v>>5)&0x3F;
+                b = v&0x1F;
+                argb[i] = 0xFF000000|(((r<<3)|(r>>2))<<16)|
+                    (((g<<2)|(g>>4))<<8)|((b<<3)|(b>>2));
+            }
+            break;
+        case GREY_8:
+            for(i=0; i<n; i++) {
+                v = src.get(i)&0xFF;
+                argb[i] = 0xFF000000|(v<<16)|(v<<8)|v;
+            }
+            break;
+        }
+        return argb;
+    }
+}
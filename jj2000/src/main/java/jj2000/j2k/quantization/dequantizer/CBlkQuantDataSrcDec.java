@@ -165,4 +165,31 @@ public interface CBlkQuantDataSrcDec extends InvWTData {
      * */
     public DataBlk getInternCodeBlock(int c, int m, int n, SubbandSyn sb,
                                       DataBlk cblk);
+
+    /**
+     * Returns all the code-blocks of the specified subband, in the current
+     * tile for the specified component, as copies (see getCodeBlock()). This
+     * is equivalent to calling getCodeBlock() for each code-block of the
+     * subband, in raster order, but allows the implementation to process
+     * several code-blocks concurrently.
+     *
+     * <p>Only the code-blocks needed to reconstruct the decoded window are
+     * returned, see SubbandSyn.isCBlkNeeded(). The elements of the array
+     * for the other ones are left as they are.</p>
+     *
+     * @param c The component for which to return the code-blocks.
+     *
+     * @param sb The subband in which the code-blocks to return are.
+     *
+     * @param cblks If non-null, and long enough, this array will be used to
+     * return the code-blocks, reusing its non-null elements as in
+     * getCodeBlock(). Otherwise a new array is allocated.
+     *
+     * @return The code-blocks of the subband, the code-block with vertical
+     * index 'm' and horizontal index 'n' being at index
+     * 'm*sb.numCb.x+n'.
+     *
+     * @see #getCodeBlock
+     * */
+    public DataBlk[] getCodeBlocks(int c, SubbandSyn sb, DataBlk cblks[]);
 }
@@ -44,6 +44,9 @@ package jj2000.j2k.quantization.dequantizer;
 
 import jj2000.j2k.decoder.DecoderSpecs;
 import jj2000.j2k.image.CompTransfSpec;
+import jj2000.j2k.image.DataBlk;
+import jj2000.j2k.image.DataBlkFloat;
+import jj2000.j2k.image.DataBlkInt;
 import jj2000.j2k.image.invcomptransf.InvCompTransf;
 import jj2000.j2k.wavelet.Subband;
 import jj2000.j2k.wavelet.synthesis.CBlkWTDataSrcDec;
@@ -101,6 +104,10 @@ public abstract class Dequantizer extends MultiResImgDataAdapter
     /** Reference to the wavelet filter specifications */
     private SynWTFilterSpec wfs;
 
+    /** The code-blocks used by the default implementation of
+     * getSubbandData() */
+    private DataBlk subbBlks[];
+
     /**
      * Initializes the source of compressed data.
      *
@@ -188,6 +195,59 @@ public abstract class Dequantizer extends MultiResImgDataAdapter
         return src.getCbULY();
     }
 
+    /**
+     * Writes the dequantized coefficients of all the code-blocks of the
+     * specified subband, in the current tile for the specified component,
+     * directly at their place in the block 'img' (see
+     * CBlkWTDataSrcDec).
+     *
+     * <p>This default implementation gets the code-blocks with
+     * getCodeBlocks() and copies them, line by line, into 'img'.</p>
+     *
+     * @param c The component for which to get the coefficients.
+     *
+     * @param sb The subband in which the code-blocks to get are.
+     *
+     * @param img The block where to write the coefficients.
+     * */
+    public void getSubbandData(int c, SubbandSyn sb, DataBlk img) {
+        int i,k,ncb,ncbx,type;
+        Object src_data,dst_data;
+        DataBlk cblk;
+
+        ncbx = sb.numCb.x;
+        ncb = ncbx*sb.numCb.y;
+        type = img.getDataType();
+        if (subbBlks==null || subbBlks.length<ncb) {
+            subbBlks = new DataBlk[ncb];
+        }
+        for (k=0; k<ncb; k++) {
+            if (subbBlks[k]==null || subbBlks[k].getDataType()!=type) {
+                if(type==DataBlk.TYPE_INT) {
+                    subbBlks[k] = new DataBlkInt();
+                } else {
+                    subbBlks[k] = new DataBlkFloat();
+                }
+            }
+        }
+        subbBlks = getCodeBlocks(c,sb,subbBlks);
+        dst_data = img.getData();
+        for (k=0; k<ncb; k++) {
+            if (!sb.isCBlkNeeded(k/ncbx,k%ncbx)) {
+                continue;
+            }
+            cblk = subbBlks[k];
+            src_data = cblk.getData();
+            // Copy the data line by line
+            for (i=cblk.h-1; i>=0; i--) {
+                System.arraycopy(src_data,cblk.offset+i*cblk.scanw,
+                                 dst_data,img.offset+
+                                 (cblk.uly-img.uly+i)*img.scanw+
+                                 cblk.ulx-img.ulx,cblk.w);
+            }
+        }
+    }
+
     /**
      * Returns the parameters that are used in this class and
      * implementing classes. It returns a 2D String array. Each of the
@@ -48,12 +48,13 @@ package jj2000.j2k.quantization.dequantizer;
 
 import jj2000.j2k.decoder.DecoderSpecs;
 import jj2000.j2k.image.DataBlk;
-import jj2000.j2k.image.DataBlkFloat;
 import jj2000.j2k.image.DataBlkInt;
 import jj2000.j2k.quantization.GuardBitsSpec;
 import jj2000.j2k.quantization.QuantStepSizeSpec;
 import jj2000.j2k.quantization.QuantTypeSpec;
+import jj2000.j2k.roi.ROIDeScaler;
 import jj2000.j2k.wavelet.synthesis.SubbandSyn;
+import jj2000.j2k.wavelet.synthesis.SynWTFilterSpec;
 
 /**
  * This class implements a scalar dequantizer with deadzone. The output can be
@@ -72,9 +73,10 @@ import jj2000.j2k.wavelet.synthesis.SubbandSyn;
  * fixed-point) output, since there is no true quantization.</p>
  *
  * <p>The output data is fixed-point two's complement for 'int' output and
- * floating-point for 'float' output. The type of output and the number number
- * of fractional bits for 'int' output are defined at the constructor. Each
- * component may have a different number of fractional bits.</p>
+ * floating-point for 'float' output. The type of output is the one of the
+ * code-blocks requested by the inverse wavelet transform. The 'int' output of
+ * irreversible quantizations has fractional bits when the wavelet filter
+ * works on fixed-point int data (see getFixedPoint()).</p>
  *
  * <p>The reconstruction levels used by the dequantizer are exactly what is
  * received from the entropy decoder. It is assumed that the entropy decoder
@@ -92,6 +94,17 @@ public class StdDequantizer extends Dequantizer {
 
     /** The number of guard bits spec */
     private GuardBitsSpec gbs;
+
+    /** The wavelet filters specifications */
+    private SynWTFilterSpec wfs;
+
+    /** The maximum number of fractional bits of the fixed-point output */
+    private final static int MAX_FRAC_BITS = 13;
+
+    /** The number of fractional bits of the fixed-point output. The
+     * integral part keeps 11 bits more than the range bits, for the sign, the
+     * guard bits and the gain of the inverse transforms. */
+    private int fracBits;
     
     /** The decoding parameters of the dequantizer */
     private StdDequantizerParams params;
@@ -100,8 +113,16 @@ public class StdDequantizer extends Dequantizer {
      * not int */
     private DataBlkInt inblk;
 
-    /** Type of the current output data */
-    private int outdtype;
+    /** The 'DataBlkInt' objects used to request the data of all the
+     * code-blocks of a subband at once, used when output data is not int */
+    private DataBlkInt inblks[];
+
+    /** The source, if it is the ROI de-scaler, null otherwise */
+    private ROIDeScaler roi;
+
+    /** The code-blocks used to request the quantized data of a subband in
+     * getSubbandData() */
+    private DataBlk qblks[];
 
     /**
      * Initializes the source of compressed data. And sets the number of range
@@ -134,6 +155,16 @@ public class StdDequantizer extends Dequantizer {
         this.qsss = decSpec.qsss;
 	this.qts = decSpec.qts;
         this.gbs = decSpec.gbs;
+        this.wfs = decSpec.wfs;
+
+        int maxrb = 0;
+        for(int c=utrb.length-1; c>=0; c--) {
+            if(utrb[c]>maxrb) maxrb = utrb[c];
+        }
+        fracBits = Math.max(0,Math.min(MAX_FRAC_BITS,21-maxrb));
+        if (src instanceof ROIDeScaler) {
+            roi = (ROIDeScaler) src;
+        }
     }
 
     /**
@@ -146,7 +177,10 @@ public class StdDequantizer extends Dequantizer {
      * least significant bit in the data. If the output data is 'float' then 0
      * is always returned.
      *
-     * <p><u>Note:</u> Fractional bits are no more supported by JJ2000.</p>
+     * <p>Only the irreversible quantizations of the components whose
+     * wavelet filter in the current tile is irreversible and works on int
+     * data have fractional bits. They are the same for all those components:
+     * 13 for images of up to 8 bits, and less for deeper images.</p>
      *
      * @param c The index of the component.
      *
@@ -154,7 +188,12 @@ public class StdDequantizer extends Dequantizer {
      * number of fractional bits. For floating-point data 0 is returned.
      * */
     public int getFixedPoint(int c) {
-        return 0;
+        int tIdx = getTileIdx();
+        if(qts.isReversible(tIdx,c) || wfs.isReversible(tIdx,c) ||
+           wfs.getWTDataType(tIdx,c)!=DataBlk.TYPE_INT) {
+            return 0;
+        }
+        return fracBits;
     }
 
     /**
@@ -244,6 +283,247 @@ public class StdDequantizer extends Dequantizer {
 				   DataBlk cblk) {
         // This method is declared final since getNextCodeBlock() relies on
         // the actual implementation of this method.
+
+        // Get source data
+        switch (cblk.getDataType()) {
+        case DataBlk.TYPE_INT:
+            // With int data we can use the same DataBlk object to get the
+            // data from the source and return the dequantized data, and we
+            // can also work "in place" (i.e. same buffer).
+            cblk = src.getCodeBlock(c,m,n,sb,cblk);
+            return dequantize(c,sb,cblk,cblk);
+        case DataBlk.TYPE_FLOAT:
+            // With float data we must use a different DataBlk objects to get
+            // the data from the source and to return the dequantized data.
+            inblk = (DataBlkInt) src.getInternCodeBlock(c,m,n,sb,inblk);
+            return dequantize(c,sb,inblk,cblk);
+        default:
+            throw new IllegalArgumentException("Unsupported data type");
+        }
+    }
+
+    /**
+     * Returns all the code-blocks of the specified subband, in the current
+     * tile for the specified component, as copies (see getCodeBlock()). The
+     * quantized code-blocks are obtained all at once from the source, and
+     * then dequantized.
+     *
+     * <p>The type of the data of each returned code-block is the one of the
+     * corresponding element of 'cblks', if non-null, and integer
+     * otherwise.</p>
+     *
+     * @param c The component for which to return the code-blocks.
+     *
+     * @param sb The subband in which the code-blocks to return are.
+     *
+     * @param cblks If non-null, and long enough, this array will be used to
+     * return the code-blocks, reusing its non-null elements as in
+     * getCodeBlock(). Otherwise a new array is allocated.
+     *
+     * @return The code-blocks of the subband, the code-block with vertical
+     * index 'm' and horizontal index 'n' being at index
+     * 'm*sb.numCb.x+n'.
+     * */
+    public DataBlk[] getCodeBlocks(int c, SubbandSyn sb, DataBlk cblks[]) {
+        int k,ncb,ncbx;
+        DataBlk in[];
+        DataBlkInt tmp[];
+
+        ncbx = sb.numCb.x;
+        ncb = ncbx*sb.numCb.y;
+        if (cblks==null || cblks.length<ncb) {
+            in = new DataBlk[ncb];
+            if (cblks!=null) System.arraycopy(cblks,0,in,0,cblks.length);
+            cblks = in;
+        }
+        if (inblks==null || inblks.length<ncb) {
+            tmp = new DataBlkInt[ncb];
+            if (inblks!=null) System.arraycopy(inblks,0,tmp,0,inblks.length);
+            inblks = tmp;
+        }
+
+        // Int data is dequantized "in place", float data needs separate int
+        // blocks to get the data from the source
+        in = new DataBlk[ncb];
+        for (k=0; k<ncb; k++) {
+            if (cblks[k]==null || cblks[k].getDataType()==DataBlk.TYPE_INT) {
+                in[k] = cblks[k];
+            } else {
+                in[k] = inblks[k];
+            }
+        }
+        in = src.getCodeBlocks(c,sb,in);
+        for (k=0; k<ncb; k++) {
+            if (!sb.isCBlkNeeded(k/ncbx,k%ncbx)) {
+                continue;
+            }
+            if (cblks[k]==null || cblks[k].getDataType()==DataBlk.TYPE_INT) {
+                cblks[k] = dequantize(c,sb,in[k],in[k]);
+            } else {
+                inblks[k] = (DataBlkInt) in[k];
+                cblks[k] = dequantize(c,sb,inblks[k],cblks[k]);
+            }
+        }
+        return cblks;
+    }
+
+    /**
+     * Writes the dequantized coefficients of all the code-blocks of the
+     * specified subband, in the current tile for the specified component,
+     * directly at their place in the block 'img' (see CBlkWTDataSrcDec).
+     *
+     * <p>The quantized code-blocks are obtained all at once from the
+     * source. If it is the ROI de-scaler and there are ROIs in the
+     * tile-component, the code-blocks are obtained before being de-scaled,
+     * and the de-scaling is done in the same pass as the dequantization. In
+     * this way each coefficient is read and written only once, and no output
+     * code-block is needed.</p>
+     *
+     * @param c The component for which to get the coefficients.
+     *
+     * @param sb The subband in which the code-blocks to get are.
+     *
+     * @param img The block where to write the coefficients.
+     * */
+    public void getSubbandData(int c, SubbandSyn sb, DataBlk img) {
+        int i,k,n,ncb,ncbx,w,h;
+        int si,sj,di;
+        int temp;
+        int boost;
+        int magBits,shiftBits;
+        int inarr[],outiarr[];
+        float outfarr[];
+        float step;
+        DataBlk in;
+        int outdtype = img.getDataType();
+        boolean reversible = qts.isReversible(tIdx,c);
+
+        if (reversible && outdtype!=DataBlk.TYPE_INT) {
+            throw new IllegalArgumentException("Reversible quantizations "+
+                                               "must use int data");
+        }
+
+        // Get the quantized code-blocks, not de-scaled if there are ROIs
+        ncbx = sb.numCb.x;
+        ncb = ncbx*sb.numCb.y;
+        if (qblks==null || qblks.length<ncb) {
+            qblks = new DataBlk[ncb];
+        }
+        boost = (roi!=null) ? roi.getMaxShift(c) : -1;
+        if (boost>=0) {
+            qblks = roi.getScaledCodeBlocks(c,sb,qblks);
+        } else {
+            qblks = src.getCodeBlocks(c,sb,qblks);
+        }
+
+        magBits = sb.magbits;
+        shiftBits = 31-magBits;
+        step = reversible ? 0f : getStep(c,sb);
+        outiarr = null;
+        outfarr = null;
+        if (outdtype==DataBlk.TYPE_INT) {
+            outiarr = (int[]) img.getData();
+            // The output is fixed-point if the wavelet filter is
+            step *= 1<<getFixedPoint(c);
+        } else {
+            outfarr = (float[]) img.getData();
+        }
+
+        for (n=0; n<ncb; n++) {
+            if (!sb.isCBlkNeeded(n/ncbx,n%ncbx)) {
+                continue;
+            }
+            in = qblks[n];
+            inarr = (int[]) in.getData();
+            w = in.w;
+            h = in.h;
+            for (i=0; i<h; i++) {
+                si = in.offset+i*in.scanw;
+                sj = si+w;
+                di = img.offset+(in.uly-img.uly+i)*img.scanw+in.ulx-img.ulx;
+                if (reversible) {
+                    for (k=si; k<sj; k++, di++) {
+                        temp = inarr[k];
+                        if (boost>=0) {
+                            temp = ROIDeScaler.deScale(temp,boost,magBits);
+                        }
+                        outiarr[di] = (temp>=0) ? (temp>>shiftBits) :
+                            -((temp&0x7FFFFFFF)>>shiftBits);
+                    }
+                } else if (outiarr!=null) {
+                    for (k=si; k<sj; k++, di++) {
+                        temp = inarr[k];
+                        if (boost>=0) {
+                            temp = ROIDeScaler.deScale(temp,boost,magBits);
+                        }
+                        outiarr[di] = (int)(((float)((temp >= 0) ? temp :
+                                                     -(temp&0x7FFFFFFF)))*
+                                            step);
+                    }
+                } else {
+                    for (k=si; k<sj; k++, di++) {
+                        temp = inarr[k];
+                        if (boost>=0) {
+                            temp = ROIDeScaler.deScale(temp,boost,magBits);
+                        }
+                        outfarr[di] = ((float)((temp >= 0) ? temp :
+                                               -(temp&0x7FFFFFFF)))*step;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the quantization step of the specified subband, in the
+     * current tile for the specified component, for irreversible
+     * quantizations. The step is adjusted to the magnitude bits of the
+     * subband, so that it applies directly to the sign-magnitude data
+     * obtained from the source.
+     *
+     * @param c The index of the component.
+     *
+     * @param sb The subband.
+     *
+     * @return The quantization step, for floating-point output.
+     * */
+    private float getStep(int c, SubbandSyn sb) {
+        float step;
+	StdDequantizerParams 
+	    params = (StdDequantizerParams)qsss.getTileCompVal(tIdx,c);
+
+        if(qts.isDerived(tIdx,c)) {
+            // Max resolution level
+            int mrl = src.getSynSubbandTree(getTileIdx(),c).resLvl;
+            step = params.nStep[0][0] *
+                (1L<<(rb[c]+sb.anGainExp+mrl-sb.level));
+        } else {
+            step = params.nStep[sb.resLvl][sb.sbandIdx] *
+                (1L<<(rb[c]+sb.anGainExp));
+        }
+
+        // Adjust step to the number of shiftBits
+        step /= (1<<(31-sb.magbits));
+        return step;
+    }
+
+    /**
+     * Dequantizes a code-block obtained from the source.
+     *
+     * @param c The component of the code-block.
+     *
+     * @param sb The subband in which the code-block is.
+     *
+     * @param in The quantized code-block, as obtained from the source.
+     *
+     * @param cblk The object used to return the dequantized code-block, which
+     * determines the output data type. For int data it must be 'in' itself,
+     * since the dequantization is done "in place".
+     *
+     * @return The dequantized code-block, 'cblk'.
+     * */
+    private DataBlk dequantize(int c, SubbandSyn sb, DataBlk in,
+                               DataBlk cblk) {
         int j,jmin,k;
         int temp;
         float step;
@@ -252,11 +532,8 @@ public class StdDequantizer extends Dequantizer {
         int[] outiarr,inarr;
         float[] outfarr;
         int w,h;
+        int outdtype;
 	boolean reversible = qts.isReversible(tIdx,c);
-	boolean derived = qts.isDerived(tIdx,c);
-	StdDequantizerParams 
-	    params = (StdDequantizerParams)qsss.getTileCompVal(tIdx,c);
-        int G = ((Integer)gbs.getTileCompVal(tIdx,c)).intValue();
 	
         outdtype = cblk.getDataType();
 
@@ -270,32 +547,22 @@ public class StdDequantizer extends Dequantizer {
         outfarr = null;
         inarr = null;
 
-        // Get source data and initialize output DataBlk object.
+        // Initialize output DataBlk object.
         switch (outdtype) {
         case DataBlk.TYPE_INT:
-            // With int data we can use the same DataBlk object to get the
-            // data from the source and return the dequantized data, and we
-            // can also work "in place" (i.e. same buffer).
-            cblk = src.getCodeBlock(c,m,n,sb,cblk);
             // Input and output arrays are the same
             outiarr = (int[]) cblk.getData();
             break;
         case DataBlk.TYPE_FLOAT:
-            // With float data we must use a different DataBlk objects to get
-            // the data from the source and to return the dequantized data.
-            inblk = (DataBlkInt) src.getInternCodeBlock(c,m,n,sb,inblk);
-            inarr = inblk.getDataInt();
-            if (cblk == null) {
-                cblk = new DataBlkFloat();
-            }
+            inarr = (int[]) in.getData();
             // Copy the attributes of the CodeBlock object
-            cblk.ulx = inblk.ulx;
-            cblk.uly = inblk.uly;
-            cblk.w = inblk.w;
-            cblk.h = inblk.h;
+            cblk.ulx = in.ulx;
+            cblk.uly = in.uly;
+            cblk.w = in.w;
+            cblk.h = in.h;
             cblk.offset = 0;
             cblk.scanw = cblk.w;
-            cblk.progressive = inblk.progressive;
+            cblk.progressive = in.progressive;
             // Get output data array and check its size
             outfarr = (float[]) cblk.getData();
             if (outfarr==null || outfarr.length<cblk.w*cblk.h) {
@@ -321,25 +588,15 @@ public class StdDequantizer extends Dequantizer {
                     -((temp&0x7FFFFFFF)>>shiftBits);
             }
         } else { // Not reversible 
-            if(derived) {
-                // Max resolution level
-                int mrl = src.getSynSubbandTree(getTileIdx(),c).resLvl;
-                step = params.nStep[0][0] *
-                    (1L<<(rb[c]+sb.anGainExp+mrl-sb.level));
-            } else {
-                step = params.nStep[sb.resLvl][sb.sbandIdx] *
-                    (1L<<(rb[c]+sb.anGainExp));
-            }
-            shiftBits=31-magBits;
-
-            // Adjust step to the number of shiftBits
-            step /= (1<<shiftBits);
+            step = getStep(c,sb);
 
             switch (outdtype) {
             case DataBlk.TYPE_INT:
                 // For int data Inverse quantization happens "in-place". The
                 // input array has an offset of 0 and scan width equal to the
-                // code-block width.
+                // code-block width. The output is fixed-point if the wavelet
+                // filter is.
+                step *= 1<<getFixedPoint(c);
                 for (j=outiarr.length-1; j>=0; j--) {
                     temp = outiarr[j]; // input array is same as output one
                     outiarr[j] = (int)(((float)((temp >= 0) ? temp :
@@ -351,7 +608,7 @@ public class StdDequantizer extends Dequantizer {
                 // "in-place".
                 w = cblk.w;
                 h = cblk.h;
-                for (j=w*h-1, k=inblk.offset+(h-1)*inblk.scanw+w-1,
+                for (j=w*h-1, k=in.offset+(h-1)*in.scanw+w-1,
                          jmin = w*(h-1); j>=0; jmin -= w) {
                     for (; j>=jmin; k--, j--) {
                         temp = inarr[k];
@@ -359,7 +616,7 @@ public class StdDequantizer extends Dequantizer {
                                               -(temp&0x7FFFFFFF)))*step;
                     }
                     // Jump to beggining of previous line in input
-                    k -= inblk.scanw - w;
+                    k -= in.scanw - w;
                 }
                 break;
             }
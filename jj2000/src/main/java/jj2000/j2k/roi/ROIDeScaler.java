@@ -241,15 +241,138 @@ public class ROIDeScaler extends MultiResImgDataAdapter
      * */
     public DataBlk getInternCodeBlock(int c,int m,int n,SubbandSyn sb,
                                       DataBlk cblk) {
+        // Get data block from entropy decoder
+        cblk = src.getInternCodeBlock(c,m,n,sb,cblk);
+
+        return deScale(c,sb,cblk);
+    }
+
+    /**
+     * Returns all the code-blocks of the specified subband, in the current
+     * tile for the specified component, as copies (see getCodeBlock()). The
+     * code-blocks are obtained all at once from the entropy decoder, and
+     * then descaled.
+     *
+     * @param c The component for which to return the code-blocks.
+     *
+     * @param sb The subband in which the code-blocks to return are.
+     *
+     * @param cblks If non-null, and long enough, this array will be used to
+     * return the code-blocks, reusing its non-null elements as in
+     * getCodeBlock(). Otherwise a new array is allocated.
+     *
+     * @return The code-blocks of the subband, the code-block with vertical
+     * index 'm' and horizontal index 'n' being at index
+     * 'm*sb.numCb.x+n'.
+     * */
+    public DataBlk[] getCodeBlocks(int c, SubbandSyn sb, DataBlk cblks[]) {
+        int k,ncb,ncbx;
+
+        cblks = src.getCodeBlocks(c,sb,cblks);
+        ncbx = sb.numCb.x;
+        ncb = ncbx*sb.numCb.y;
+        for (k=0; k<ncb; k++) {
+            if (!sb.isCBlkNeeded(k/ncbx,k%ncbx)) {
+                continue;
+            }
+            cblks[k] = deScale(c,sb,cblks[k]);
+        }
+        return cblks;
+    }
+
+    /**
+     * Returns all the code-blocks of the specified subband, in the current
+     * tile for the specified component, as copies, like getCodeBlocks() but
+     * without de-scaling them. This lets the dequantizer de-scale the
+     * coefficients in its own pass over them, using getMaxShift() and
+     * deScale(int,int,int).
+     *
+     * @param c The component for which to return the code-blocks.
+     *
+     * @param sb The subband in which the code-blocks to return are.
+     *
+     * @param cblks If non-null, and long enough, this array will be used to
+     * return the code-blocks, reusing its non-null elements as in
+     * getCodeBlock(). Otherwise a new array is allocated.
+     *
+     * @return The code-blocks of the subband, not de-scaled, the code-block
+     * with vertical index 'm' and horizontal index 'n' being at index
+     * 'm*sb.numCb.x+n'.
+     *
+     * @see #getCodeBlocks
+     * */
+    public DataBlk[] getScaledCodeBlocks(int c, SubbandSyn sb,
+                                        DataBlk cblks[]) {
+        return src.getCodeBlocks(c,sb,cblks);
+    }
+
+    /**
+     * Returns the scaling value of the ROIs (i.e. the number of bit-planes
+     * by which the ROI coefficients are shifted up) in the current tile for
+     * the specified component.
+     *
+     * @param c The index of the component.
+     *
+     * @return The scaling value, or -1 if there are no ROIs in the
+     * tile-component, or if they are ignored.
+     * */
+    public int getMaxShift(int c) {
+        Integer boost;
+
+        if (mss==null) {
+            return -1;
+        }
+        boost = (Integer) mss.getTileCompVal(getTileIdx(),c);
+        return (boost==null) ? -1 : boost.intValue();
+    }
+
+    /**
+     * Descales a coefficient of a code-block obtained from the entropy
+     * decoder. If the magnitude of the coefficient is lower than 2 pow
+     * 31-magBits then it is a background coefficient and it is up-scaled,
+     * otherwise it is an ROI one.
+     *
+     * @param coeff The coefficient, in sign-magnitude representation.
+     *
+     * @param boost The scaling value of the ROIs, see getMaxShift().
+     *
+     * @param magBits The number of magnitude bits of the subband.
+     *
+     * @return The descaled coefficient.
+     * */
+    public static int deScale(int coeff, int boost, int magBits) {
+        int mask = ((1<<magBits)-1)<<(31-magBits);
+        int mask2 = (~mask)&0x7FFFFFFF;
+
+        if ((coeff & mask) == 0) { // BG
+            return (coeff & 0x80000000) | (coeff << boost);
+        }
+        if ((coeff & mask2) != 0) { // ROI
+            // decoded more than magbits bit-planes, set quantization
+            // mid-interval approx. bit just after the magbits.
+            return (coeff&(~mask2)) | (1<<(30-magBits));
+        }
+        return coeff;
+    }
+
+    /**
+     * Descales, in place, the coefficients of a code-block obtained from the
+     * entropy decoder, if there are ROIs in the current tile-component.
+     *
+     * @param c The component of the code-block.
+     *
+     * @param sb The subband in which the code-block is.
+     *
+     * @param cblk The code-block to descale. It may be null.
+     *
+     * @return The descaled code-block, 'cblk'.
+     * */
+    private DataBlk deScale(int c, SubbandSyn sb, DataBlk cblk) {
         int mi,i,j,k,wrap;
         int ulx, uly, w, h;
         int[] data;                       // local copy of quantized data
-        int tmp;
         int limit;
 
-        // Get data block from entropy decoder
-        cblk = src.getInternCodeBlock(c,m,n,sb,cblk);
-
         // If there are no ROIs in the tile, Or if we already got all blocks
         boolean noRoiInTile = false;
         if(mss==null || mss.getTileCompVal(getTileIdx(),c)==null )
@@ -264,29 +387,14 @@ public class ROIDeScaler extends MultiResImgDataAdapter
         w = cblk.w;
         h = cblk.h;
 
-	// Scale coefficients according to magnitude. If the magnitude of a
-	// coefficient is lower than 2 pow 31-magbits then it is a background
-	// coeff and should be up-scaled
+	// Scale coefficients according to magnitude, see deScale()
 	int boost = ((Integer) mss.getTileCompVal(getTileIdx(),c)).intValue();
-        int mask = ((1<<sb.magbits)-1)<<(31-sb.magbits);
-        int mask2 = (~mask)&0x7FFFFFFF;
 
 	wrap=cblk.scanw-w;
 	i=cblk.offset+cblk.scanw*(h-1)+w-1;
 	for(j=h;j>0;j--){
 	    for(k=w;k>0;k--,i--){
-		tmp=data[i];
-		if((tmp & mask) == 0 ) { // BG
-		    data[i] = (tmp & 0x80000000) | (tmp << boost);
-		}
-                else { // ROI
-                    if ((tmp & mask2) != 0) {
-                        // decoded more than magbits bit-planes, set
-                        // quantization mid-interval approx. bit just after
-                        // the magbits.
-                        data[i] = (tmp&(~mask2)) | (1<<(30-sb.magbits));
-                    }
-                }
+		data[i] = deScale(data[i],boost,sb.magbits);
 	    }
 	    i-=wrap;
 	}
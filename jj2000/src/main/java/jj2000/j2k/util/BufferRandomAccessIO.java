@@ -0,0 +1,432 @@
+/*
+ * CVS identifier:
+ *
+ * $Id$
+ *
+ * Class:                   BufferRandomAccessIO
+ *
+ * Description:             Read-only RandomAccessIO over the data of a
+ *                          ByteBuffer, without copying it.
+ *
+ *
+ *
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Raphal Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askelf (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, Flix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ * */
+package jj2000.j2k.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jj2000.j2k.io.EndianType;
+import jj2000.j2k.io.RandomAccessIO;
+
+/**
+ * This class implements a read-only RandomAccessIO over data that is already
+ * in memory, either in a byte array or in a ByteBuffer. The data is read in
+ * place, it is never copied nor cached, so this is the class to use when the
+ * whole codestream is available before decoding starts. Direct and
+ * memory-mapped buffers are supported as well as heap ones.
+ *
+ * <p>The RandomAccessIO stream starts at the position of the ByteBuffer when
+ * the object is created and ends at its limit. The position and limit of the
+ * ByteBuffer given to the constructor are not modified. The data should not
+ * be modified while it is being read.</p>
+ *
+ * <p>Multi-byte data is read in big-endian order. This class can only be
+ * used for data input, not output.</p>
+ * */
+public class BufferRandomAccessIO implements RandomAccessIO {
+
+    /** The data, whose position is the position in the stream */
+    private ByteBuffer buf;
+
+    /**
+     * Creates a new RandomAccessIO over the remaining data of the ByteBuffer
+     * 'buf'.
+     *
+     * @param buf The buffer with the data, from its position to its limit.
+     * */
+    public BufferRandomAccessIO(ByteBuffer buf) {
+        if (buf == null) {
+            throw new IllegalArgumentException();
+        }
+        this.buf = buf.slice();
+        this.buf.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Creates a new RandomAccessIO over 'len' bytes of the array 'b',
+     * starting at index 'off'.
+     *
+     * @param b The array with the data.
+     *
+     * @param off The index of the first byte of data in 'b'.
+     *
+     * @param len The number of bytes of data.
+     * */
+    public BufferRandomAccessIO(byte b[], int off, int len) {
+        this(ByteBuffer.wrap(b,off,len));
+    }
+
+    /**
+     * Creates a new RandomAccessIO over all the bytes of the array 'b'.
+     *
+     * @param b The array with the data.
+     * */
+    public BufferRandomAccessIO(byte b[]) {
+        this(b,0,b.length);
+    }
+
+    /**
+     * Returns a new RandomAccessIO over the same data as this one, with its
+     * own position, which starts at 0. The two objects can be read
+     * concurrently.
+     *
+     * @return The new RandomAccessIO.
+     * */
+    public BufferRandomAccessIO duplicate() {
+        ByteBuffer d = buf.duplicate();
+        d.position(0);
+        return new BufferRandomAccessIO(d);
+    }
+
+    /**
+     * Returns the byte array holding the data, so that it can be read without
+     * being copied. The byte at position 'p' in the stream is at index
+     * 'p+arrayOffset()' in the array. The array must not be modified.
+     *
+     * @return The byte array, or null if the data is not held in an
+     * accessible array (e.g. direct or read-only buffers).
+     * */
+    public byte[] array() {
+        return buf.hasArray() ? buf.array() : null;
+    }
+
+    /**
+     * Returns the index, in the array returned by array(), of the first byte
+     * of the stream.
+     *
+     * @return The offset of the stream in the array.
+     * */
+    public int arrayOffset() {
+        return buf.hasArray() ? buf.arrayOffset() : 0;
+    }
+
+    /**
+     * Closes this object for reading. The data is no longer referenced.
+     * */
+    public void close() throws IOException {
+        buf = null;
+    }
+
+    /**
+     * Returns the current position in the stream, which is the position from
+     * where the next byte of data would be read. The first byte in the stream
+     * is in position 0.
+     * */
+    public int getPos() throws IOException {
+        return buf.position();
+    }
+
+    /**
+     * Moves the current position for the next read operation to offset. The
+     * offset is measured from the beginning of the stream.
+     *
+     * @param off The offset where to move to.
+     *
+     * @exception EOFException If seeking beyond EOF.
+     * */
+    public void seek(int off) throws IOException {
+        if (off < 0 || off > buf.limit()) {
+            throw new EOFException();
+        }
+        buf.position(off);
+    }
+
+    /**
+     * Returns the length of the stream.
+     *
+     * @return The length of the stream, in bytes.
+     * */
+    public int length() throws IOException {
+        return buf.limit();
+    }
+
+    /**
+     * Reads a byte of data from the stream.
+     *
+     * @return The byte read, as an int in the range [0-255].
+     *
+     * @exception EOFException If the end-of file was reached.
+     * */
+    public int read() throws IOException {
+        try {
+            return 0xFF & buf.get();
+        } catch (BufferUnderflowException e) {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * Reads 'len' bytes of data from this file into an array of bytes.
+     *
+     * @param b The buffer into which the data is to be read. It must be long
+     * enough.
+     *
+     * @param off The index in 'b' where to place the first byte read.
+     *
+     * @param len The number of bytes to read.
+     *
+     * @exception EOFException If the end-of file was reached before getting
+     * all the necessary data.
+     * */
+    public void readFully(byte b[], int off, int n) throws IOException {
+        try {
+            buf.get(b,off,n);
+        } catch (BufferUnderflowException e) {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * Returns the endianess (i.e., byte ordering) of multi-byte I/O
+     * operations. Always EndianType.BIG_ENDIAN since this class implements
+     * only big-endian.
+     *
+     * @return Always EndianType.BIG_ENDIAN.
+     *
+     * @see EndianType
+     * */
+    public int getByteOrdering() {
+        return EndianType.BIG_ENDIAN;
+    }
+
+    /**
+     * Reads a signed byte (8 bit) from the input.
+     *
+     * @return The next byte-aligned signed byte (8 bit) from the input.
+     *
+     * @exception EOFException If the end-of file was reached before getting
+     * all the necessary data.
+     * */
+    public byte readByte() throws IOException {
+        try {
+            return buf.get();
+        } catch (BufferUnderflowException e) {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * Reads an unsigned byte (8 bit) from the input.
+     *
+     * @return The next byte-aligned unsigned byte (8 bit) from the input.
+     *
+     * @exception EOFException If the end-of file was reached before getting
+     * all the necessary data.
+     * */
+    public int readUnsignedByte() throws IOException {
+        return read();
+    }
+
+    /**
+     * Reads a signed short (16 bit) from the input.
+     *
+     * @return The next byte-aligned signed short (16 bit) from the input.
+     *
+     * @exception EOFException If the end-of file was reached before getting
+     * all the necessary data.
+     * */
+    public short readShort() throws IOException {
+        try {
+            return buf.getShort();
+        } catch (BufferUnderflowException e) {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * Reads an unsigned short (16 bit) from the input.
+     *
+     * @return The next byte-aligned unsigned short (16 bit) from the input.
+     *
+     * @exception EOFException If the end-of file was reached before getting
+     * all the necessary data.
+     * */
+    public int readUnsignedShort() throws IOException {
+        return 0xFFFF & readShort();
+    }
+
+    /**
+     * Reads a signed int (32 bit) from the input.
+     *
+     * @return The next byte-aligned signed int (32 bit) from the
+     * input.
+     *
+     * @exception EOFException If the end-of file was reached before getting
+     * all the necessary data.
+     * */
+    public int readInt() throws IOException {
+        try {
+            return buf.getInt();
+        } catch (BufferUnderflowException e) {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * Reads a unsigned int (32 bit) from the input.
+     *
+     * @return The next byte-aligned unsigned int (32 bit) from the input.
+     *
+     * @exception EOFException If the end-of file was reached before getting
+     * all the necessary data.
+     * */
+    public long readUnsignedInt() throws IOException {
+        return 0xFFFFFFFFL & readInt();
+    }
+
+    /**
+     * Reads a signed long (64 bit) from the input.
+     *
+     * @return The next byte-aligned signed long (64 bit) from the input.
+     *
+     * @exception EOFException If the end-of file was reached before getting
+     * all the necessary data.
+     * */
+    public long readLong() throws IOException {
+        try {
+            return buf.getLong();
+        } catch (BufferUnderflowException e) {
+            throw new EOFException();
+        }
+    }
+
+    /**
+     * Reads an IEEE single precision (i.e., 32 bit) floating-point number
+     * from the input.
+     *
+     * @return The next byte-aligned IEEE float (32 bit) from the input.
+     *
+     * @exception EOFException If the end-of file was reached before getting
+     * all the necessary data.
+     * */
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    /**
+     * Reads an IEEE double precision (i.e., 64 bit) floating-point number
+     * from the input.
+     *
+     * @return The next byte-aligned IEEE double (64 bit) from the input.
+     *
+     * @exception EOFException If the end-of file was reached before getting
+     * all the necessary data.
+     * */
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Skips 'n' bytes from the input.
+     *
+     * @param n The number of bytes to skip
+     *
+     * @return Always n.
+     *
+     * @exception EOFException If the end-of file was reached before all the
+     * bytes could be skipped.
+     * */
+    public int skipBytes(int n) throws IOException {
+        seek(buf.position()+n);
+        return n;
+    }
+
+    /**
+     * Does nothing since this class does not implement data output.  
+     * */
+    public void flush() { /* no-op */
+    }
+
+    /**
+     * Throws an IOException since this class does not implement data output.
+     * */
+    public void write(int b) throws IOException {
+        throw new IOException("read-only");
+    }
+
+    /**
+     * Throws an IOException since this class does not implement data output.
+     * */
+    public void writeByte(int v) throws IOException {
+        throw new IOException("read-only");
+    }
+
+    /**
+     * Throws an IOException since this class does not implement data output.
+     * */
+    public void writeShort(int v) throws IOException {
+        throw new IOException("read-only");
+    }
+
+    /**
+     * Throws an IOException since this class does not implement data output.
+     * */
+    public void writeInt(int v) throws IOException {
+        throw new IOException("read-only");
+    }
+
+    /**
+     * Throws an IOException since this class does not implement data output.
+     * */
+    public void writeLong(long v) throws IOException {
+        throw new IOException("read-only");
+    }
+
+    /**
+     * Throws an IOException since this class does not implement data output.
+     * */
+    public void writeFloat(float v) throws IOException {
+        throw new IOException("read-only");
+    }
+
+    /**
+     * Throws an IOException since this class does not implement data output.
+     * */
+    public void writeDouble(double v) throws IOException {
+        throw new IOException("read-only");
+    }
+}
@@ -105,6 +105,9 @@ public class ISRandomAccessIO implements RandomAccessIO {
      * has been reached. */
     private boolean complete;
 
+    /* The length of the data if known in advance, -1 otherwise */
+    private int knownLen = -1;
+
     /**
      * Creates a new RandomAccessIO wrapper for the given InputStream
      * 'is'. The internal cache buffer will have size 'size' and will
@@ -147,6 +150,22 @@ public class ISRandomAccessIO implements RandomAccessIO {
         this(is,1<<18,1<<18,Integer.MAX_VALUE);
     }
 
+    /**
+     * Creates a new RandomAccessIO wrapper for the given InputStream 'is',
+     * whose length is known in advance. The internal cache buffer is
+     * allocated to that size, and 'length()' returns it without waiting for
+     * all the data to be received. If the InputStream ends before, reading
+     * beyond its end throws an EOFException as usual.
+     *
+     * @param is The input from where to get the data.
+     *
+     * @param length The length of the data, in bytes.
+     * */
+    public ISRandomAccessIO(InputStream is, int length) {
+        this(is,length,1<<18,Integer.MAX_VALUE);
+        knownLen = length;
+    }
+
     /**
      * Grows the cache buffer by 'inc', upto a maximum of 'maxsize'. The
      * buffer size will be increased by at least one byte, if no exception is
@@ -212,6 +231,45 @@ public class ISRandomAccessIO implements RandomAccessIO {
         }
     }
 
+    /**
+     * Reads data from the wrapped InputStream until at least 'n' bytes are
+     * cached or the EOF is reached, blocking as necessary.
+     *
+     * @param n The number of bytes that should be cached.
+     *
+     * @return The number of bytes cached, which is less than 'n' only if EOF
+     * has been reached.
+     *
+     * @exception IOException An I/O error occurred, out of meory to grow
+     * cache or maximum cache size reached.
+     * */
+    public int fill(int n) throws IOException {
+        while (!complete && len < n) {
+            readInput();
+        }
+        return len;
+    }
+
+    /**
+     * Returns the number of bytes received so far from the wrapped
+     * InputStream. Reading them does not block.
+     *
+     * @return The number of cached bytes.
+     * */
+    public int getCachedLength() {
+        return len;
+    }
+
+    /**
+     * Returns whether all the data has been received from the wrapped
+     * InputStream, that is if its EOF has been reached.
+     *
+     * @return True if all the data is cached.
+     * */
+    public boolean isComplete() {
+        return complete;
+    }
+
     /**
      * Closes this object for reading as well as the wrapped InputStream, if
      * not already closed. The memory used by the cache is released.
@@ -264,15 +322,19 @@ public class ISRandomAccessIO implements RandomAccessIO {
     }
 
     /**
-     * Returns the length of the stream. This will cause all the data to be
-     * read. This method will block until all the data is read, which can be
-     * lengthy across the network.
+     * Returns the length of the stream. Unless the length was given to the
+     * constructor, this will cause all the data to be read. This method will
+     * block until all the data is read, which can be lengthy across the
+     * network.
      *
      * @return The length of the stream, in bytes.
      *
      * @exception IOException If an I/O error ocurred.  
      * */
     public int length() throws IOException {
+        if (knownLen >= 0 && !complete) {
+            return knownLen;
+        }
         while (!complete) { /* read until we reach EOF */
             readInput();
         }
@@ -0,0 +1,143 @@
+/*
+ * CVS identifier:
+ *
+ * $Id$
+ *
+ * Class:                   WorkerPool
+ *
+ * Description:             Shared pool of decoding threads.
+ *
+ *
+ *
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Raphal Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askelf (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, Flix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ * 
+ * 
+ * 
+ */
+
+package jj2000.j2k.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class contains a process-wide pool of worker threads, shared by all
+ * the decoders, and the static methods to run work on it.
+ *
+ * <p>The pool is bounded to the number of available processors, so that
+ * decoding several images at once does not create more threads than can run
+ * concurrently. It is a fork-join pool: work submitted from within one of
+ * its own threads is run by the submitting thread and the idle workers,
+ * which allows nested use without deadlocks. The threads are daemon threads
+ * and are created lazily, the first time some work is submitted.</p>
+ * */
+public class WorkerPool {
+
+    /** The shared pool, created on first use */
+    private static ForkJoinPool pool;
+
+    /** This class only contains static methods */
+    private WorkerPool() {
+    }
+
+    /**
+     * Returns the shared pool, creating it if necessary.
+     *
+     * @return The shared pool.
+     * */
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(getParallelism());
+        }
+        return pool;
+    }
+
+    /**
+     * Returns the number of threads of the shared pool, which is the number
+     * of available processors.
+     *
+     * @return The parallelism of the shared pool.
+     * */
+    public static int getParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Runs all the given tasks on the shared pool and waits for all of them
+     * to complete. The calling thread takes part in the work: the first task
+     * is always run on it, so that if only one task is given the pool is not
+     * used.
+     *
+     * <p>If any of the tasks throws an unchecked exception or error, it is
+     * rethrown by this method once the tasks complete.</p>
+     *
+     * @param tasks The tasks to run. They must be independent of each other.
+     * */
+    public static void invokeAll(Runnable tasks[]) {
+        ForkJoinTask<?> fjt[];
+        ForkJoinPool p;
+        int i;
+
+        if (tasks.length == 0) return;
+        if (tasks.length == 1) {
+            tasks[0].run();
+            return;
+        }
+
+        fjt = new ForkJoinTask<?>[tasks.length];
+        for (i=0; i<tasks.length; i++) {
+            fjt[i] = ForkJoinTask.adapt(tasks[i]);
+        }
+
+        p = getPool();
+        if (ForkJoinTask.getPool() == p) {
+            // Already in one of the pool's threads, fork from it
+            ForkJoinTask.invokeAll(fjt);
+        } else {
+            // The calling thread runs the first task instead of just waiting
+            // for the other ones, which are run by the pool
+            for (i=1; i<fjt.length; i++) {
+                p.execute(fjt[i]);
+            }
+            try {
+                tasks[0].run();
+            } finally {
+                for (i=1; i<fjt.length; i++) {
+                    fjt[i].quietlyJoin();
+                }
+            }
+            for (i=1; i<fjt.length; i++) {
+                fjt[i].join();
+            }
+        }
+    }
+}
@@ -187,4 +187,59 @@ public interface CBlkWTDataSrcDec extends InvWTData {
      * */
     public DataBlk getInternCodeBlock(int c, int m, int n, SubbandSyn sb,
                                       DataBlk cblk);
+
+    /**
+     * Returns all the code-blocks of the specified subband, in the current
+     * tile for the specified component, as copies (see getCodeBlock()). This
+     * is equivalent to calling getCodeBlock() for each code-block of the
+     * subband, in raster order, but allows the implementation to process
+     * several code-blocks concurrently.
+     *
+     * <p>The type of the data of each returned code-block is the one of the
+     * corresponding element of 'cblks', if non-null, as in getCodeBlock(),
+     * and integer otherwise.</p>
+     *
+     * <p>Only the code-blocks needed to reconstruct the decoded window are
+     * returned, see SubbandSyn.isCBlkNeeded(). The elements of the array
+     * for the other ones are left as they are.</p>
+     *
+     * @param c The component for which to return the code-blocks.
+     *
+     * @param sb The subband in which the code-blocks to return are.
+     *
+     * @param cblks If non-null, and long enough, this array will be used to
+     * return the code-blocks, reusing its non-null elements as in
+     * getCodeBlock(). Otherwise a new array is allocated.
+     *
+     * @return The code-blocks of the subband, the code-block with vertical
+     * index 'm' and horizontal index 'n' being at index
+     * 'm*sb.numCb.x+n'.
+     *
+     * @see #getCodeBlock
+     * */
+    public DataBlk[] getCodeBlocks(int c, SubbandSyn sb, DataBlk cblks[]);
+
+    /**
+     * Writes the coefficients of all the code-blocks of the specified
+     * subband, in the current tile for the specified component, directly at
+     * their place in the block 'img'. The result is the same as copying each
+     * code-block returned by getCodeBlocks() into 'img', line by line, but
+     * the implementation may avoid the intermediate code-blocks.
+     *
+     * <p>The type of the data written is the one of 'img'. Its 'ulx' and
+     * 'uly' are the coordinates, with respect to the tile, of the sample at
+     * index 'offset' of its data, and it must contain the whole subband. The
+     * samples of 'img' outside the subband are not modified, nor are the
+     * ones of the code-blocks not needed to reconstruct the decoded window
+     * (see SubbandSyn.isCBlkNeeded()).</p>
+     *
+     * @param c The component for which to get the coefficients.
+     *
+     * @param sb The subband in which the code-blocks to get are.
+     *
+     * @param img The block where to write the coefficients.
+     *
+     * @see #getCodeBlocks
+     * */
+    public void getSubbandData(int c, SubbandSyn sb, DataBlk img);
 }
@@ -135,14 +135,14 @@ public abstract class InvWTAdapter implements InvWT {
      * @return The total current tile's width in pixels.
      * */
     public int getTileWidth() {
-        // Retrieves the tile maximum resolution level index and request the
-        // width from the source module.
+        // Retrieves the tile reconstructed resolution level index and
+        // request the width from the source module.
 	int tIdx = getTileIdx();
         int rl = 10000;
         int mrl;
         int nc = mressrc.getNumComps();
         for(int c=0; c<nc; c++) {
-            mrl = mressrc.getSynSubbandTree(tIdx,c).resLvl;
+            mrl = mressrc.getSynSubbandTree(tIdx,c).resLvl-maxImgRes+reslvl;
             if(mrl<rl) rl = mrl;
         }
         return mressrc.getTileWidth(rl);
@@ -160,14 +160,14 @@ public abstract class InvWTAdapter implements InvWT {
      * @return The total current tile's height in pixels.
      * */
     public int getTileHeight() {
-        // Retrieves the tile maximum resolution level index and request the
-        // height from the source module.
+        // Retrieves the tile reconstructed resolution level index and
+        // request the height from the source module.
 	int tIdx = getTileIdx();
         int rl = 10000;
         int mrl;
         int nc = mressrc.getNumComps();
         for(int c=0; c<nc; c++) {
-            mrl = mressrc.getSynSubbandTree(tIdx,c).resLvl;
+            mrl = mressrc.getSynSubbandTree(tIdx,c).resLvl-maxImgRes+reslvl;
             if(mrl<rl) rl = mrl;
         }
         return mressrc.getTileHeight(rl);
@@ -258,9 +258,9 @@ public abstract class InvWTAdapter implements InvWT {
      * @return The width in pixels of component <tt>n</tt> in tile <tt>t</tt>.
      * */
     public int getTileCompWidth(int t,int c) {
-        // Retrieves the tile-component maximum resolution index and gets the
-        // width from the source.
-        int rl = mressrc.getSynSubbandTree(t,c).resLvl;
+        // Retrieves the tile-component reconstructed resolution index and
+        // gets the width from the source.
+        int rl = mressrc.getSynSubbandTree(t,c).resLvl-maxImgRes+reslvl;
         return mressrc.getTileCompWidth(t,c,rl);
     }
 
@@ -278,9 +278,9 @@ public abstract class InvWTAdapter implements InvWT {
      * <tt>t</tt>. 
      * */
     public int getTileCompHeight(int t,int c) {
-        // Retrieves the tile-component maximum resolution index and gets the
-        // height from the source.
-        int rl = mressrc.getSynSubbandTree(t,c).resLvl;
+        // Retrieves the tile-component reconstructed resolution index and
+        // gets the height from the source.
+        int rl = mressrc.getSynSubbandTree(t,c).resLvl-maxImgRes+reslvl;
         return mressrc.getTileCompHeight(t,c,rl);
     }
 
@@ -294,9 +294,9 @@ public abstract class InvWTAdapter implements InvWT {
      * image.
      * */
     public int getCompImgWidth(int c) {
-        // Retrieves the component maximum resolution index and gets the width
-        // from the source module.
-        int rl = decSpec.dls.getMinInComp(c);
+        // Retrieves the component reconstructed resolution index and gets
+        // the width from the source module.
+        int rl = decSpec.dls.getMinInComp(c)-maxImgRes+reslvl;
         return mressrc.getCompImgWidth(c,rl);
     }
 
@@ -313,9 +313,9 @@ public abstract class InvWTAdapter implements InvWT {
      * image.
      * */
     public int getCompImgHeight(int c) {
-        // Retrieves the component maximum resolution index and gets the
-        // height from the source module.
-        int rl = decSpec.dls.getMinInComp(c);
+        // Retrieves the component reconstructed resolution index and gets
+        // the height from the source module.
+        int rl = decSpec.dls.getMinInComp(c)-maxImgRes+reslvl;
         return mressrc.getCompImgHeight(c,rl);
     }
 
@@ -379,10 +379,10 @@ public abstract class InvWTAdapter implements InvWT {
      * @param c The component index.
      * */
     public int getCompULX(int c) {
-	// Find tile-component maximum resolution index and gets information
-        // from the source module.
+	// Find tile-component reconstructed resolution index and gets
+        // information from the source module.
 	int tIdx = getTileIdx();
-	int rl = mressrc.getSynSubbandTree(tIdx,c).resLvl;
+	int rl = mressrc.getSynSubbandTree(tIdx,c).resLvl-maxImgRes+reslvl;
         return mressrc.getResULX(c,rl);
     }
 
@@ -393,10 +393,10 @@ public abstract class InvWTAdapter implements InvWT {
      * @param c The component index.
      * */
     public int getCompULY(int c) {
-	// Find tile-component maximum resolution index and gets information
-        // from the source module.
+	// Find tile-component reconstructed resolution index and gets
+        // information from the source module.
 	int tIdx = getTileIdx();
-	int rl = mressrc.getSynSubbandTree(tIdx,c).resLvl;
+	int rl = mressrc.getSynSubbandTree(tIdx,c).resLvl-maxImgRes+reslvl;
         return mressrc.getResULY(c,rl);
     }
 
@@ -0,0 +1,1261 @@
+/* 
+ * CVS identifier:
+ * 
+ * $Id: InvWTFull.java 169 2012-01-15 18:33:24Z mroland $
+ * 
+ * Class:                   InvWTFull
+ * 
+ * Description:             This class implements a full page inverse DWT for
+ *                          int and float data.
+ * 
+ *                          the InvWTFullInt and InvWTFullFloat
+ *                          classes by Bertrand Berthelot, Apr-19-1999
+ * 
+ * 
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Raphal Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askelf (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, Flix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ * */
+package jj2000.j2k.wavelet.synthesis;
+
+import java.util.Arrays;
+
+import jj2000.j2k.decoder.DecodeStats;
+import jj2000.j2k.decoder.DecoderSpecs;
+import jj2000.j2k.image.DataBlk;
+import jj2000.j2k.image.DataBlkFloat;
+import jj2000.j2k.image.DataBlkInt;
+import jj2000.j2k.util.WorkerPool;
+import jj2000.j2k.wavelet.Subband;
+import jj2000.j2k.wavelet.WaveletTransform;
+
+/**
+ * This class implements the InverseWT with the full-page approach for int and
+ * float data.
+ *
+ * <p>The image can be reconstructed at different (image) resolution levels
+ * indexed from the lowest resolution available for each tile-component. This
+ * is controlled by the setImgResLevel() method.</p>
+ *
+ * <p>Note: Image resolution level indexes may differ from tile-component
+ * resolution index. They are indeed indexed starting from the lowest number
+ * of decomposition levels of each component of each tile.</p>
+ *
+ * <p>Example: For an image (1 tile) with 2 components (component 0 having 2
+ * decomposition levels and component 1 having 3 decomposition levels), the
+ * first (tile-) component has 3 resolution levels and the second one has 4
+ * resolution levels, whereas the image has only 3 resolution levels
+ * available.</p>
+ *
+ * <p>This implementation does not support progressive data: Data is
+ * considered to be non-progressive (i.e. "final" data) and the 'progressive'
+ * attribute of the 'DataBlk' class is always set to false, see the 'DataBlk'
+ * class.</p>
+ *
+ * @see DataBlk
+ * */
+public class InvWTFull extends InverseWT {
+
+    /** The total number of code-blocks to decode */
+    private int cblkToDecode = 0;
+
+    /** the code-block buffer's source i.e. the quantizer */
+    private CBlkWTDataSrcDec src;
+    
+    /** Current data type */
+    private int dtype;
+    
+    /** Block storing the reconstructed image for each component */
+    private DataBlk reconstructedComps[];
+
+    /** The blocks of the previous tile, or image, for each component, whose
+     * data arrays are reused to reconstruct the current one */
+    private DataBlk spareComps[];
+
+    /** Number of decomposition levels in each component */
+    private int[] ndl;
+
+    /** The maximum number of columns filtered at once by the vertical
+     * synthesis. A line of a strip then fills a 64 byte cache line, and the
+     * strips of the columns of passport-sized images fit in the data
+     * cache. */
+    private static final int STRIP_WIDTH = 16;
+
+    /** The minimum number of samples of a subband, or of a tile-component,
+     * to reconstruct it with several threads. Below it the overhead of
+     * dispatching the work is not worth it. */
+    private static final int MIN_PAR_SAMPLES = 1<<15;
+
+    /** The maximum number of threads used to reconstruct a subband, or the
+     * components of a tile */
+    private int nThreads;
+
+    /** The window to reconstruct, as {x,y,w,h} relative to the image at the
+     * reconstructed resolution level, or null for the whole image */
+    private int win[];
+
+    /**
+     * The working storage of a thread doing the synthesis. The scratch
+     * buffers are kept and reused for all the subbands, components, tiles
+     * and images the thread reconstructs.
+     * */
+    private static class WorkerState {
+
+        /** The scratch buffer for the synthesis of int data */
+        int bufInt[];
+
+        /** The scratch buffer for the synthesis of float data */
+        float bufFloat[];
+
+        /** Whether the CPU time of the thread is being recorded, so that
+         * the nested tasks it runs are not counted twice */
+        boolean timing;
+    }
+
+    /** The working storage of each thread */
+    private static final ThreadLocal<WorkerState> workers =
+        new ThreadLocal<WorkerState>();
+
+    /**
+     * The reversible flag for each component in each tile. The first index is
+     * the tile index, the second one is the component index. The
+     * reversibility of the components for each tile are calculated on a as
+     * needed basis.
+     * */
+    private boolean reversible[][];
+
+    /**
+     * Initializes this object with the given source of wavelet
+     * coefficients. It initializes the resolution level for full resolutioin
+     * reconstruction.
+     *
+     * @param src from where the wavelet coefficinets should be obtained.
+     *
+     * @param decSpec The decoder specifications
+     * */
+    public InvWTFull(CBlkWTDataSrcDec src, DecoderSpecs decSpec){
+        this(src,decSpec,0);
+    }
+
+    /**
+     * Initializes this object with the given source of wavelet
+     * coefficients and the maximum number of threads to use. It initializes
+     * the resolution level for full resolutioin reconstruction.
+     *
+     * <p>The lines, and then the columns, of the large subbands are
+     * reconstructed concurrently, as well as the components of the large
+     * tiles. The work is run on the shared worker pool.</p>
+     *
+     * @param src from where the wavelet coefficinets should be obtained.
+     *
+     * @param decSpec The decoder specifications
+     *
+     * @param nThreads The maximum number of threads to use. If 0 or
+     * negative, the parallelism of the shared worker pool is used.
+     *
+     * @see WorkerPool
+     * */
+    public InvWTFull(CBlkWTDataSrcDec src, DecoderSpecs decSpec,
+                     int nThreads){
+        super(src,decSpec);
+        this.src = src;
+        int nc = src.getNumComps();
+        reconstructedComps = new DataBlk[nc];
+        spareComps = new DataBlk[nc];
+        ndl = new int[nc];
+        if (nThreads<=0) nThreads = WorkerPool.getParallelism();
+        this.nThreads = nThreads;
+    }
+
+   /**
+     * Returns the reversibility of the current subband. It computes
+     * iteratively the reversibility of the child subbands. For each subband
+     * it tests the reversibility of the horizontal and vertical synthesis
+     * filters used to reconstruct this subband.
+     *
+     * @param subband The current subband.
+     *
+     * @return true if all the  filters used to reconstruct the current 
+     * subband are reversible
+     * */
+    private boolean isSubbandReversible(Subband subband) {
+        if(subband.isNode) {
+            // It's reversible if the filters to obtain the 4 subbands are
+            // reversible and the ones for this one are reversible too.
+            return
+                isSubbandReversible(subband.getLL()) &&
+                isSubbandReversible(subband.getHL()) &&
+                isSubbandReversible(subband.getLH()) &&
+                isSubbandReversible(subband.getHH()) &&
+                ((SubbandSyn)subband).hFilter.isReversible() && 
+                ((SubbandSyn)subband).vFilter.isReversible();
+        } else {
+            // Leaf subband. Reversibility of data depends on source, so say
+            // it's true
+            return true;
+        } 
+    }
+
+    /**
+     * Returns the reversibility of the wavelet transform for the specified
+     * component, in the current tile. A wavelet transform is reversible when
+     * it is suitable for lossless and lossy-to-lossless compression.
+     *
+     * @param t The index of the tile.
+     *
+     * @param c The index of the component.
+     *
+     * @return true is the wavelet transform is reversible, false if not.
+     * */
+    public boolean isReversible(int t,int c) {
+        if (reversible[t] == null) {
+            // Reversibility not yet calculated for this tile
+            reversible[t] = new boolean[getNumComps()];
+            for (int i=reversible.length-1; i>=0 ; i--) {
+                reversible[t][i] =
+                    isSubbandReversible(src.getSynSubbandTree(t,i));
+            }
+        }
+        return reversible[t][c];
+    }
+    
+    /**
+     * Returns the number of bits, referred to as the "range bits",
+     * corresponding to the nominal range of the data in the specified
+     * component.
+     *
+     * <p>The returned value corresponds to the nominal dynamic range of the
+     * reconstructed image data, as long as the getNomRangeBits() method of
+     * the source returns a value corresponding to the nominal dynamic range
+     * of the image data and not not of the wavelet coefficients.</p>
+     *
+     * <p>If this number is <i>b</b> then for unsigned data the nominal range
+     * is between 0 and 2^b-1, and for signed data it is between -2^(b-1) and
+     * 2^(b-1)-1.</p>
+     *
+     * @param c The index of the component.
+     *
+     * @return The number of bits corresponding to the nominal range of the
+     * data.
+     * */
+    public int getNomRangeBits(int c) {
+        return src.getNomRangeBits(c);
+    }
+    
+    /**
+     * Returns the position of the fixed point in the specified
+     * component. This is the position of the least significant integral
+     * (i.e. non-fractional) bit, which is equivalent to the number of
+     * fractional bits. For instance, for fixed-point values with 2 fractional
+     * bits, 2 is returned. For floating-point data this value does not apply
+     * and 0 should be returned. Position 0 is the position of the least
+     * significant bit in the data.
+     *
+     * <p>This default implementation assumes that the wavelet transform does
+     * not modify the fixed point. If that were the case this method should be
+     * overriden.</p>
+     *
+     * @param c The index of the component.
+     *
+     * @return The position of the fixed-point, which is the same as the
+     * number of fractional bits. For floating-point data 0 is returned.
+     * */
+    public int getFixedPoint(int c) {
+        return src.getFixedPoint(c);
+    }
+    
+    /**
+     * Returns a block of image data containing the specifed rectangular area,
+     * in the specified component, as a reference to the internal buffer (see
+     * below). The rectangular area is specified by the coordinates and
+     * dimensions of the 'blk' object.
+     *
+     * <p>The area to return is specified by the 'ulx', 'uly', 'w' and 'h'
+     * members of the 'blk' argument. These members are not modified by this
+     * method.</p>
+     *
+     * <p>The data returned by this method can be the data in the internal
+     * buffer of this object, if any, and thus can not be modified by the
+     * caller. The 'offset' and 'scanw' of the returned data can be
+     * arbitrary. See the 'DataBlk' class.</p>
+     *
+     * <p>The returned data has its 'progressive' attribute unset
+     * (i.e. false).</p>
+     *
+     * @param blk Its coordinates and dimensions specify the area to return.
+     *
+     * @param c The index of the component from which to get the data.
+     *
+     * @return The requested DataBlk
+     *
+     * @see #getInternCompData
+     * */
+    public final DataBlk getInternCompData(DataBlk blk, int c) {
+        int tIdx = getTileIdx();
+        dtype = getCompDataType(tIdx,c);
+
+        //If the source image has not been decomposed 
+        if(reconstructedComps[c]==null) {
+            //Reconstruct source image
+            if(stats!=null) stats.begin(DecodeStats.WAVELET);
+            reconstruct(tIdx,c);
+            if(stats!=null) stats.end(DecodeStats.WAVELET);
+        }
+        
+	if(blk.getDataType()!=dtype) {
+	    if(dtype==DataBlk.TYPE_INT) {
+		blk = new DataBlkInt(blk.ulx,blk.uly,blk.w,blk.h);
+	    } else {
+		blk = new DataBlkFloat(blk.ulx,blk.uly,blk.w,blk.h);
+	    }
+	}
+        // Set the reference to the internal buffer
+        blk.setData(reconstructedComps[c].getData());
+        blk.offset = reconstructedComps[c].w*blk.uly+blk.ulx;
+        blk.scanw = reconstructedComps[c].w;
+        blk.progressive = false;
+	return blk;
+    }
+
+    /**
+     * Returns the type of the data in which the specified tile-component is
+     * reconstructed, which is the one of its synthesis filters.
+     *
+     * @param t The index of the tile.
+     *
+     * @param c The index of the component.
+     *
+     * @return The data type, TYPE_INT or TYPE_FLOAT.
+     * */
+    private int getCompDataType(int t,int c) {
+        SynWTFilter hFilter = src.getSynSubbandTree(t,c).hFilter;
+
+        return (hFilter==null) ? DataBlk.TYPE_INT : hFilter.getDataType();
+    }
+
+    /**
+     * Reconstructs the specified component of the current tile. If several
+     * threads may be used and the tile-component is large enough, the other
+     * components that are not reconstructed yet are reconstructed as well,
+     * concurrently.
+     *
+     * <p>The coefficients of all the components to reconstruct are first
+     * obtained from the source, on the calling thread, since the source is
+     * not thread-safe. Then the components are synthetized, each one by a
+     * task of the shared worker pool.</p>
+     *
+     * @param tIdx The index of the current tile.
+     *
+     * @param c The index of the component.
+     * */
+    private void reconstruct(int tIdx,int c) {
+        int nc = reconstructedComps.length;
+        int comps[] = new int[nc];
+        int i,n,type;
+        boolean all;
+        Runnable tasks[];
+
+        all = nThreads>1 && getTileCompWidth(tIdx,c)*
+            getTileCompHeight(tIdx,c)>=MIN_PAR_SAMPLES;
+
+        n = 0;
+        for (i=0; i<nc; i++) {
+            if (i!=c && (!all || reconstructedComps[i]!=null)) {
+                continue;
+            }
+            //Allocate component data buffer, reusing the spare one if
+            //possible
+            type = getCompDataType(tIdx,i);
+            reconstructedComps[i] =
+                getCompBuffer(spareComps[i],type,getTileCompWidth(tIdx,i),
+                              getTileCompHeight(tIdx,i));
+            spareComps[i] = null;
+            //Restrict the subbands to the window, if any
+            setSubbandWindows(tIdx,i);
+            //Get the coefficients of all the subbands
+            loadSubbands(reconstructedComps[i],src.getSynSubbandTree(tIdx,i),
+                         i);
+            comps[n++] = i;
+        }
+
+        if (n==1) {
+            waveletTreeReconstruction(reconstructedComps[c],
+                                      src.getSynSubbandTree(tIdx,c),c);
+            return;
+        }
+        tasks = new Runnable[n];
+        for (i=0; i<n; i++) {
+            final int fc = comps[i];
+            final DataBlk img = reconstructedComps[fc];
+            final SubbandSyn root = src.getSynSubbandTree(tIdx,fc);
+            tasks[i] = new Runnable() {
+                    public void run() {
+                        waveletTreeReconstruction(img,root,fc);
+                    }
+                };
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * Restricts the reconstruction of the window to a range of lines and one
+     * of columns of the subbands of a tile-component. The window is mapped
+     * to the component's sampling grid, with a margin of one sample if the
+     * component is subsampled, and then from each subband to its childs,
+     * through the supports of its synthesis filters (see
+     * setSubbandWindow()). Without a window all the subbands are needed.
+     *
+     * @param tIdx The index of the current tile.
+     *
+     * @param c The index of the component.
+     * */
+    private void setSubbandWindows(int tIdx,int c) {
+        SubbandSyn sb = src.getSynSubbandTree(tIdx,c);
+        int rl = reslvl-maxImgRes+ndl[c];
+        int sx,sy,x0,y0,x1,y1;
+
+        if (win==null) {
+            setSubbandWindow(sb,null);
+            return;
+        }
+        // The subbands of the higher resolution levels are not used
+        while (sb.isNode && sb.resLvl>rl) {
+            sb = (SubbandSyn)sb.getLL();
+        }
+        sx = getCompSubsX(c);
+        sy = getCompSubsY(c);
+        x0 = getImgULX()+win[0];
+        y0 = getImgULY()+win[1];
+        x1 = x0+win[2];
+        y1 = y0+win[3];
+        x0 = x0/sx-((sx>1) ? 1 : 0);
+        y0 = y0/sy-((sy>1) ? 1 : 0);
+        x1 = (x1+sx-1)/sx+((sx>1) ? 1 : 0);
+        y1 = (y1+sy-1)/sy+((sy>1) ? 1 : 0);
+        // From the component to the subband's canvas coordinates
+        x0 += sb.ulcx-getCompULX(c);
+        x1 += sb.ulcx-getCompULX(c);
+        y0 += sb.ulcy-getCompULY(c);
+        y1 += sb.ulcy-getCompULY(c);
+        setSubbandWindow(sb,new int[]{x0,y0,x1,y1});
+    }
+
+    /**
+     * Sets the area of a subband, and recursively of its childs, needed to
+     * reconstruct the window. The area of a low-pass child covers the
+     * samples whose synthesis filter reaches the subband's area, and so does
+     * the one of a high-pass child, with a margin of one sample so that the
+     * lifting steps of the area are all computed from valid samples. For the
+     * leaves the range of code-blocks overlapping the area is set as well.
+     *
+     * @param sb The subband.
+     *
+     * @param a The area of the subband needed, as {x0,y0,x1,y1}, clipped to
+     * the subband by this method, or null if all of it is needed.
+     * */
+    private void setSubbandWindow(SubbandSyn sb,int a[]) {
+        int mx,my,lx0,ly0,hx0,hy0,x1,y1;
+
+        if (a!=null) {
+            if (a[2]<=a[0] || a[3]<=a[1]) {
+                a[2] = a[0]; // Empty, as well as its childs
+            }
+            a[0] = Math.max(a[0],sb.ulcx);
+            a[1] = Math.max(a[1],sb.ulcy);
+            a[2] = Math.max(Math.min(a[2],sb.ulcx+sb.w),a[0]);
+            a[3] = Math.max(Math.min(a[3],sb.ulcy+sb.h),a[1]);
+        }
+        sb.win = a;
+        sb.cbWin = null;
+        if (!sb.isNode) {
+            if (a!=null && sb.w>0 && sb.h>0) {
+                sb.cbWin = getCBlkRange(sb,a);
+            }
+            return;
+        }
+        if (a==null) {
+            setSubbandWindow((SubbandSyn)sb.getLL(),null);
+            setSubbandWindow((SubbandSyn)sb.getHL(),null);
+            setSubbandWindow((SubbandSyn)sb.getLH(),null);
+            setSubbandWindow((SubbandSyn)sb.getHH(),null);
+            return;
+        }
+        mx = getSupport(sb.hFilter);
+        my = getSupport(sb.vFilter);
+        // Low-pass sample k is at 2k, high-pass sample k at 2k+1
+        lx0 = (a[0]-mx)>>1;
+        hx0 = (a[0]-mx-1)>>1;
+        x1 = ((a[2]-1+mx)>>1)+1;
+        ly0 = (a[1]-my)>>1;
+        hy0 = (a[1]-my-1)>>1;
+        y1 = ((a[3]-1+my)>>1)+1;
+        setSubbandWindow((SubbandSyn)sb.getLL(),new int[]{lx0,ly0,x1,y1});
+        setSubbandWindow((SubbandSyn)sb.getHL(),new int[]{hx0,ly0,x1,y1});
+        setSubbandWindow((SubbandSyn)sb.getLH(),new int[]{lx0,hy0,x1,y1});
+        setSubbandWindow((SubbandSyn)sb.getHH(),new int[]{hx0,hy0,x1,y1});
+    }
+
+    /**
+     * Returns the largest support of a synthesis filter, plus one sample.
+     *
+     * @param f The filter.
+     *
+     * @return The number of samples of the margin.
+     * */
+    private static int getSupport(SynWTFilter f) {
+        return Math.max(Math.max(f.getSynLowNegSupport(),
+                                 f.getSynLowPosSupport()),
+                        Math.max(f.getSynHighNegSupport(),
+                                 f.getSynHighPosSupport()))+1;
+    }
+
+    /**
+     * Returns the range of the code-blocks of a leaf that overlap an area
+     * of it, as in SubbandSyn.cbWin.
+     *
+     * @param sb The subband, which must not be empty.
+     *
+     * @param a The area, as {x0,y0,x1,y1}, within the subband.
+     *
+     * @return The range, as {m0,n0,m1,n1}.
+     * */
+    private int[] getCBlkRange(SubbandSyn sb,int a[]) {
+        // The code-block partition origin, projected to the subband as in
+        // BitstreamReaderAgent.initSubbandsFields()
+        int acb0x = (sb.sbandIdx==Subband.WT_ORIENT_HL ||
+                     sb.sbandIdx==Subband.WT_ORIENT_HH) ? 0 : src.getCbULX();
+        int acb0y = (sb.sbandIdx==Subband.WT_ORIENT_LH ||
+                     sb.sbandIdx==Subband.WT_ORIENT_HH) ? 0 : src.getCbULY();
+        int k0x = (sb.ulcx-acb0x)/sb.nomCBlkW;
+        int k0y = (sb.ulcy-acb0y)/sb.nomCBlkH;
+
+        if (a[2]<=a[0] || a[3]<=a[1]) {
+            return new int[]{0,0,0,0};
+        }
+        return new int[]{(a[1]-acb0y)/sb.nomCBlkH-k0y,
+                         (a[0]-acb0x)/sb.nomCBlkW-k0x,
+                         (a[3]-1-acb0y)/sb.nomCBlkH-k0y+1,
+                         (a[2]-1-acb0x)/sb.nomCBlkW-k0x+1};
+    }
+
+    /**
+     * Runs the given tasks on the shared worker pool, recording the CPU
+     * time of the threads other than the decoding one in the statistics, if
+     * they are collected.
+     *
+     * @param tasks The tasks to run. They must be independent of each other.
+     * */
+    private void invokeAll(Runnable tasks[]) {
+        final DecodeStats st = stats;
+
+        if (st!=null) {
+            for (int i=tasks.length-1; i>=0; i--) {
+                final Runnable task = tasks[i];
+                tasks[i] = new Runnable() {
+                        public void run() {
+                            WorkerState ws = getWorker();
+                            long t0;
+                            if (st.isDecodingThread() || ws.timing) {
+                                task.run();
+                                return;
+                            }
+                            ws.timing = true;
+                            t0 = st.getThreadCpuTime();
+                            try {
+                                task.run();
+                            } finally {
+                                ws.timing = false;
+                                st.addCpuTime(DecodeStats.WAVELET,
+                                    st.getThreadCpuTime()-t0);
+                            }
+                        }
+                    };
+            }
+        }
+        WorkerPool.invokeAll(tasks);
+    }
+
+    /**
+     * Returns a block of the specified type and dimensions, with its upper
+     * left corner at (0,0). The block 'spare' and its data array are reused
+     * if they have that type and the array is large enough, otherwise a new
+     * block is allocated.
+     *
+     * @param spare The block to reuse, or null.
+     *
+     * @param dtype The data type of the block.
+     *
+     * @param w The width of the block.
+     *
+     * @param h The height of the block.
+     *
+     * @return The block, whose data is set to 0.
+     * */
+    private static DataBlk getCompBuffer(DataBlk spare, int dtype, int w,
+                                         int h) {
+        Object data;
+
+        if(spare!=null && spare.getDataType()==dtype) {
+            data = spare.getData();
+            if(data!=null &&
+               ((dtype==DataBlk.TYPE_INT) ? ((int[])data).length :
+                ((float[])data).length)>=w*h) {
+                // The reconstruction relies on unwritten samples being 0
+                if(dtype==DataBlk.TYPE_INT) {
+                    Arrays.fill((int[])data,0,w*h,0);
+                } else {
+                    Arrays.fill((float[])data,0,w*h,0f);
+                }
+                spare.ulx = 0;
+                spare.uly = 0;
+                spare.w = w;
+                spare.h = h;
+                spare.offset = 0;
+                spare.scanw = w;
+                spare.progressive = false;
+                return spare;
+            }
+        }
+        switch (dtype) {
+        case DataBlk.TYPE_FLOAT:
+            return new DataBlkFloat(0,0,w,h);
+        case DataBlk.TYPE_INT:
+            return new DataBlkInt(0,0,w,h);
+        default:
+            throw new IllegalArgumentException("Data type not supported");
+        }
+    }
+
+    /**
+     * Returns a block of image data containing the specifed rectangular area,
+     * in the specified component, as a copy (see below). The rectangular area
+     * is specified by the coordinates and dimensions of the 'blk' object.
+     *
+     * <p>The area to return is specified by the 'ulx', 'uly', 'w' and 'h'
+     * members of the 'blk' argument. These members are not modified by this
+     * method.</p>
+     *
+     * <p>The data returned by this method is always a copy of the internal
+     * data of this object, if any, and it can be modified "in place" without
+     * any problems after being returned. The 'offset' of the returned data is
+     * 0, and the 'scanw' is the same as the block's width. See the 'DataBlk'
+     * class.</p>
+     *
+     * <p>If the data array in 'blk' is <tt>null</tt>, then a new one is
+     * created. If the data array is not <tt>null</tt> then it must be big
+     * enough to contain the requested area.</p>
+     *
+     * <p>The returned data always has its 'progressive' attribute unset (i.e
+     * false)</p>
+     *
+     * @param blk Its coordinates and dimensions specify the area to
+     * return. If it contains a non-null data array, then it must be large
+     * enough. If it contains a null data array a new one is created. The
+     * fields in this object are modified to return the data.
+     *
+     * @param c The index of the component from which to get the data.
+     *
+     * @return The requested DataBlk
+     *
+     * @see #getCompData
+     * */
+    public DataBlk getCompData(DataBlk blk, int c) {
+        int j;
+        Object src_data,dst_data;
+        int src_data_int[],dst_data_int[];
+        float src_data_float[],dst_data_float[];
+
+        // To keep compiler happy
+        dst_data = null;
+
+        // Ensure output buffer
+        switch (blk.getDataType()) {
+        case DataBlk.TYPE_INT:
+            dst_data_int = (int[]) blk.getData();
+            if (dst_data_int == null || dst_data_int.length < blk.w*blk.h) {
+                dst_data_int = new int[blk.w*blk.h];
+            }
+            dst_data = dst_data_int;
+            break;
+        case DataBlk.TYPE_FLOAT:
+            dst_data_float = (float[]) blk.getData();
+            if (dst_data_float==null || dst_data_float.length<blk.w*blk.h) {
+                dst_data_float = new float[blk.w*blk.h];
+            }
+            dst_data = dst_data_float;
+            break;
+        }
+
+        // Use getInternCompData() to get the data, since getInternCompData()
+        // returns reference to internal buffer, we must copy it.
+        blk = getInternCompData(blk,c);
+
+        // Copy the data
+        blk.setData(dst_data);
+        blk.offset = 0;
+        blk.scanw = blk.w;
+	return blk;
+    }
+
+    /**
+     * Returns the working storage of the calling thread, allocating it if
+     * the thread has none yet.
+     *
+     * @return The working storage of the calling thread.
+     * */
+    private static WorkerState getWorker() {
+        WorkerState ws = workers.get();
+        if (ws==null) {
+            ws = new WorkerState();
+            workers.set(ws);
+        }
+        return ws;
+    }
+
+    /**
+     * Returns a scratch buffer of the calling thread, of the specified type,
+     * with at least the specified length. The buffer is only reallocated
+     * when a larger one is needed.
+     *
+     * @param type The data type of the buffer.
+     *
+     * @param len The minimum length of the buffer.
+     *
+     * @return The buffer, an int[] or a float[].
+     * */
+    private static Object getScratch(int type, int len) {
+        WorkerState ws = getWorker();
+
+        switch (type) {
+        case DataBlk.TYPE_INT:
+            if (ws.bufInt==null || ws.bufInt.length<len) {
+                ws.bufInt = new int[len];
+            }
+            return ws.bufInt;
+        case DataBlk.TYPE_FLOAT:
+            if (ws.bufFloat==null || ws.bufFloat.length<len) {
+                ws.bufFloat = new float[len];
+            }
+            return ws.bufFloat;
+        default:
+            throw new IllegalArgumentException("Data type not supported");
+        }
+    }
+
+    /**
+     * Interleaves the low-pass and high-pass samples of a line of a
+     * subband, as the in-place synthesis filters expect them. The 'lowLen'
+     * low-pass samples, followed by the high-pass ones, are read from 'src'
+     * and written to the even samples of 'dst' if 'lp' is 0, or to its odd
+     * samples if 'lp' is 1, the high-pass ones filling the other samples.
+     *
+     * @param src The array containing the line, an int[] or a float[].
+     *
+     * @param off The index in src of the first sample of the line.
+     *
+     * @param dst The array where to write the interleaved samples, from
+     * index 0. It must be of the same type as src.
+     *
+     * @param len The number of samples of the line.
+     *
+     * @param lowLen The number of low-pass samples.
+     *
+     * @param lp The index in dst of the first low-pass sample (0 or 1).
+     * */
+    private static void interleave(Object src, int off, Object dst, int len,
+                                   int lowLen, int lp) {
+        int i,k;
+
+        if (src instanceof int[]) {
+            int src_int[] = (int[]) src;
+            int dst_int[] = (int[]) dst;
+            for (i=lp, k=off; i<2*lowLen; i+=2, k++) {
+                dst_int[i] = src_int[k];
+            }
+            for (i=1-lp; i<len; i+=2, k++) {
+                dst_int[i] = src_int[k];
+            }
+        } else {
+            float src_float[] = (float[]) src;
+            float dst_float[] = (float[]) dst;
+            for (i=lp, k=off; i<2*lowLen; i+=2, k++) {
+                dst_float[i] = src_float[k];
+            }
+            for (i=1-lp; i<len; i+=2, k++) {
+                dst_float[i] = src_float[k];
+            }
+        }
+    }
+
+    /**
+     * Performs the 2D inverse wavelet transform on a subband of the image, on
+     * the specified component. This method will successively perform 1D
+     * filtering steps on all lines and then all columns of the subband.
+     *
+     * <p>If the subband is large enough, the lines, and then the strips of
+     * columns, are split among several tasks run concurrently on the shared
+     * worker pool.</p>
+     *
+     * <p>If a window is reconstructed only the lines of the low-pass and
+     * high-pass subbands, and then the columns, needed for it are
+     * filtered. The lines are still filtered in full, so that the filters
+     * extend their edges as for the whole subband.</p>
+     *
+     * @param db the buffer for the image/wavelet data.
+     *
+     * @param sb The subband to reconstruct.
+     * */
+    private void wavelet2DReconstruction(final DataBlk db,
+                                         final SubbandSyn sb) {
+        SubbandSyn ll,lh;
+        int nt;
+
+        // If subband is empty (i.e. zero size) nothing to do
+        if (sb.w==0 || sb.h==0) {
+            return;
+        }
+
+        if (sb.win==null) {
+            nt = (sb.w*sb.h<MIN_PAR_SAMPLES) ? 1 : nThreads;
+            horizontalSynthesis(db,sb,0,sb.h,nt);
+            verticalSynthesis(db,sb,0,sb.w,nt);
+            return;
+        }
+
+        // The lines of the low-pass subbands are above the ones of the
+        // high-pass subbands
+        ll = (SubbandSyn)sb.getLL();
+        lh = (SubbandSyn)sb.getLH();
+        nt = ((sb.win[2]-sb.win[0])*sb.h<MIN_PAR_SAMPLES) ? 1 : nThreads;
+        horizontalSynthesis(db,sb,ll.win[1]-ll.ulcy,ll.win[3]-ll.ulcy,nt);
+        horizontalSynthesis(db,sb,ll.h+lh.win[1]-lh.ulcy,
+                            ll.h+lh.win[3]-lh.ulcy,nt);
+        verticalSynthesis(db,sb,sb.win[0]-sb.ulcx,sb.win[2]-sb.ulcx,nt);
+    }
+
+    /**
+     * Performs the horizontal synthesis of a range of lines of a subband,
+     * splitting them among several tasks if more than one thread is to be
+     * used.
+     *
+     * @param db the buffer for the image/wavelet data.
+     *
+     * @param sb The subband to reconstruct.
+     *
+     * @param i0 The index, in the subband, of the first line to filter.
+     *
+     * @param i1 The index, in the subband, of the line after the last one
+     * to filter.
+     *
+     * @param nt The maximum number of threads to use.
+     * */
+    private void horizontalSynthesis(final DataBlk db,final SubbandSyn sb,
+                                     int i0,int i1,int nt) {
+        int k,n;
+        Runnable tasks[];
+
+        n = i1-i0;
+        if (n<=0) {
+            return;
+        }
+        if (nt<=1) {
+            horizontalSynthesis(db,sb,i0,i1);
+            return;
+        }
+
+        //Perform the horizontal reconstruction, by ranges of lines
+        tasks = new Runnable[Math.min(nt,n)];
+        for (k=0; k<tasks.length; k++) {
+            final int s0 = i0+k*n/tasks.length;
+            final int s1 = i0+(k+1)*n/tasks.length;
+            tasks[k] = new Runnable() {
+                    public void run() {
+                        horizontalSynthesis(db,sb,s0,s1);
+                    }
+                };
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * Performs the vertical synthesis of a range of columns of a subband,
+     * splitting their strips among several tasks if more than one thread is
+     * to be used.
+     *
+     * @param db the buffer for the image/wavelet data.
+     *
+     * @param sb The subband to reconstruct.
+     *
+     * @param j0 The index, in the subband, of the first column to filter.
+     *
+     * @param j1 The index, in the subband, of the column after the last one
+     * to filter.
+     *
+     * @param nt The maximum number of threads to use.
+     * */
+    private void verticalSynthesis(final DataBlk db,final SubbandSyn sb,
+                                   final int j0,final int j1,int nt) {
+        int k,ns;
+        Runnable tasks[];
+
+        if (j1<=j0) {
+            return;
+        }
+        if (nt<=1) {
+            verticalSynthesis(db,sb,j0,j1);
+            return;
+        }
+
+        //Perform the vertical reconstruction, by ranges of strips
+        ns = (j1-j0+STRIP_WIDTH-1)/STRIP_WIDTH;
+        tasks = new Runnable[Math.min(nt,ns)];
+        for (k=0; k<tasks.length; k++) {
+            final int s0 = j0+(k*ns/tasks.length)*STRIP_WIDTH;
+            final int s1 = Math.min(j0+((k+1)*ns/tasks.length)*STRIP_WIDTH,
+                                    j1);
+            tasks[k] = new Runnable() {
+                    public void run() {
+                        verticalSynthesis(db,sb,s0,s1);
+                    }
+                };
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * Performs the 1D inverse wavelet transform on a range of lines of a
+     * subband. Each line is interleaved in a scratch buffer of the calling
+     * thread, filtered in place and copied back.
+     *
+     * @param db the buffer for the image/wavelet data.
+     *
+     * @param sb The subband to reconstruct.
+     *
+     * @param i0 The index, in the subband, of the first line to filter.
+     *
+     * @param i1 The index, in the subband, of the line after the last one
+     * to filter.
+     * */
+    private static void horizontalSynthesis(DataBlk db,SubbandSyn sb,
+                                            int i0,int i1) {
+        Object data,buf;
+        int i;
+        int offset;
+        int w = sb.w;
+        int lp; // Index of the first low-pass sample (0 or 1)
+        int lowLen; // Number of low-pass samples
+
+        data = db.getData();
+        buf = getScratch(sb.getHorWFilter().getDataType(),w);
+
+        offset = (sb.uly+i0-db.uly)*db.w + sb.ulx-db.ulx;
+        lp = sb.ulcx%2; // start index is even => use LPF, else use HPF
+        lowLen = (lp==0) ? (w+1)/2 : w/2;
+        for(i=i0; i<i1; i++, offset += db.w) {
+            interleave(data,offset,buf,w,lowLen,lp);
+            if (lp==0) {
+                sb.hFilter.synthetize_lpf_inplace(buf,0,w,1,1);
+            } else {
+                sb.hFilter.synthetize_hpf_inplace(buf,0,w,1,1);
+            }
+            System.arraycopy(buf,0,data,offset,w);
+        }
+    }
+
+    /**
+     * Performs the 1D inverse wavelet transform on a range of columns of a
+     * subband. The columns are filtered by strips of STRIP_WIDTH columns:
+     * the lines of the strip are copied, interleaved, in a scratch buffer of
+     * the calling thread, where all the columns are filtered at once, the
+     * inner loops of the filters running along the lines, and copied back.
+     *
+     * @param db the buffer for the image/wavelet data.
+     *
+     * @param sb The subband to reconstruct.
+     *
+     * @param j0 The index, in the subband, of the first column to filter.
+     *
+     * @param j1 The index, in the subband, of the column after the last one
+     * to filter.
+     * */
+    private static void verticalSynthesis(DataBlk db,SubbandSyn sb,
+                                          int j0,int j1) {
+        Object data,buf;
+        int i,j,k;
+        int offset;
+        int h = sb.h;
+        int lp; // Index of the first low-pass sample (0 or 1)
+        int lowLen; // Number of low-pass samples
+        int sw; // Width of the current strip of columns
+
+        data = db.getData();
+        buf = getScratch(sb.getVerWFilter().getDataType(),
+                         h*Math.min(j1-j0,STRIP_WIDTH));
+
+        offset = (sb.uly-db.uly)*db.w + sb.ulx+j0-db.ulx;
+        lp = sb.ulcy%2; // start index is even => use LPF, else use HPF
+        lowLen = (lp==0) ? (h+1)/2 : h/2;
+        for(j=j0; j<j1; j+=sw, offset+=sw) {
+            sw = (j1-j<STRIP_WIDTH) ? j1-j : STRIP_WIDTH;
+            // Interleave the lines of the low-pass and high-pass subbands
+            for(i=0, k=offset; i<h; i++, k+=db.w) {
+                System.arraycopy(data,k,buf,
+                                 ((i<lowLen) ? 2*i+lp :
+                                  2*(i-lowLen)+1-lp)*sw,sw);
+            }
+            if (lp==0) {
+                sb.vFilter.synthetize_lpf_inplace(buf,0,h,sw,sw);
+            } else {
+                sb.vFilter.synthetize_hpf_inplace(buf,0,h,sw,sw);
+            }
+            for(i=0, k=offset; i<h; i++, k+=db.w) {
+                System.arraycopy(buf,i*sw,data,k,sw);
+            }
+        }
+    }
+    
+    /**
+     * Gets the coefficients of all the subbands needed to reconstruct the
+     * component from the source, which writes them directly in the component
+     * buffer. This method is recursive, the first call to it the 'sb' must
+     * be the root of the subband tree.
+     *
+     * @param img The buffer for the image/wavelet data.
+     *
+     * @param sb The subband whose coefficients to get.
+     *
+     * @param c The index of the component to reconstruct 
+     * */
+    private void loadSubbands(DataBlk img,SubbandSyn sb,int c) {
+        // If the current subband is a leaf then get the data from the source
+        if(!sb.isNode) {
+            if (sb.w==0 || sb.h==0) {
+                return; // If empty subband do nothing
+            }
+
+            // Write all the code-blocks of the subband in the buffer
+            if(stats!=null) stats.begin(DecodeStats.DEQUANTIZATION);
+            src.getSubbandData(c,sb,img);
+            if(stats!=null) stats.end(DecodeStats.DEQUANTIZATION);
+        } else {
+            // Get the lower resolution levels if the current subbands is a
+            // node
+            loadSubbands(img,(SubbandSyn)sb.getLL(),c);
+            
+            if(sb.resLvl<=reslvl-maxImgRes+ndl[c]){
+                // Get the other subbands
+                loadSubbands(img,(SubbandSyn)sb.getHL(),c);
+                loadSubbands(img,(SubbandSyn)sb.getLH(),c);
+                loadSubbands(img,(SubbandSyn)sb.getHH(),c);
+            }
+        }
+    }
+
+    /**
+     * Performs the inverse wavelet transform on the whole component. It
+     * iteratively reconstructs the subbands from leaves up to the root
+     * node. This method is recursive, the first call to it the 'sb' must be
+     * the root of the subband tree. The method will then process the entire
+     * subband tree by calling itslef recursively.
+     *
+     * <p>The coefficients of the subbands must have been copied in the
+     * buffer beforehand, see loadSubbands().</p>
+     *
+     * @param img The buffer for the image/wavelet data.
+     *
+     * @param sb The subband to reconstruct.
+     *
+     * @param c The index of the component to reconstruct 
+     * */
+    private void waveletTreeReconstruction(DataBlk img,SubbandSyn sb,int c) {
+        // Leaves are already in the buffer, nodes are reconstructed from
+        // their subbands
+        if(sb.isNode) {
+            //Perform the reconstruction of the LL subband
+            waveletTreeReconstruction(img,(SubbandSyn)sb.getLL(),c);
+            
+            if(sb.resLvl<=reslvl-maxImgRes+ndl[c]){
+                //Perform the 2D wavelet decomposition of the current subband
+                wavelet2DReconstruction(img,(SubbandSyn)sb);
+            } 
+        }
+    }
+
+    /**
+     * Returns the implementation type of this wavelet transform, WT_IMPL_FULL
+     * (full-page based transform). All components return the same.
+     *
+     * @param c The index of the component.
+     *
+     * @return WT_IMPL_FULL
+     *
+     * @see WaveletTransform#WT_IMPL_FULL
+     * */
+    public int getImplementationType(int c) {
+        return WaveletTransform.WT_IMPL_FULL;
+    }
+
+    /**
+     * Changes the current tile, given the new indexes. An
+     * IllegalArgumentException is thrown if the indexes do not correspond to
+     * a valid tile.
+     *
+     * @param x The horizontal index of the tile.
+     *
+     * @param y The vertical index of the new tile.
+     * */
+    public void setTile(int x,int y) {
+        int i;
+
+        // Change tile
+        super.setTile(x,y);
+
+        int nc = src.getNumComps();
+        int tIdx = src.getTileIdx();
+        for(int c=0; c<nc; c++) {
+            ndl[c] = src.getSynSubbandTree(tIdx,c).resLvl;
+        }
+        
+        // Reset the decomposed component buffers, keeping them to be reused
+        for (i=reconstructedComps.length-1; i>=0; i--) {
+            if (reconstructedComps[i] != null) {
+                spareComps[i] = reconstructedComps[i];
+                reconstructedComps[i] = null;
+            }
+        }
+
+	cblkToDecode = 0;
+	SubbandSyn root,sb;
+	for(int c=0; c<nc; c++) {
+	    root = src.getSynSubbandTree(tIdx,c);
+	    for(int r=0; r<=reslvl-maxImgRes+root.resLvl; r++) {
+		if(r==0) {
+		    sb = (SubbandSyn)root.getSubbandByIdx(0,0);
+		    if(sb!=null) cblkToDecode += sb.numCb.x*sb.numCb.y;
+		} else {
+		    sb = (SubbandSyn)root.getSubbandByIdx(r,1);
+		    if(sb!=null) cblkToDecode += sb.numCb.x*sb.numCb.y;
+		    sb = (SubbandSyn)root.getSubbandByIdx(r,2);
+		    if(sb!=null) cblkToDecode += sb.numCb.x*sb.numCb.y;
+		    sb = (SubbandSyn)root.getSubbandByIdx(r,3);
+		    if(sb!=null) cblkToDecode += sb.numCb.x*sb.numCb.y;
+		}
+	    } // Loop on resolution levels
+	} // Loop on components
+    }
+
+    /**
+     * Advances to the next tile, in standard scan-line order (by rows then
+     * columns). An 'NoNextElementException' is thrown if the current tile is
+     * the last one (i.e. there is no next tile).
+     * */
+    public void nextTile() {
+        int i;
+
+        // Change tile
+        super.nextTile();
+        
+        int nc = src.getNumComps();
+        int tIdx = src.getTileIdx();
+        for(int c=0; c<nc; c++) {
+            ndl[c] = src.getSynSubbandTree(tIdx,c).resLvl;
+        }
+        
+        // Reset the decomposed component buffers, keeping them to be reused
+        for (i=reconstructedComps.length-1; i>=0; i--) {
+            if (reconstructedComps[i] != null) {
+                spareComps[i] = reconstructedComps[i];
+                reconstructedComps[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the buffers in which this object reconstructs the image, so
+     * that they can be reused by another one, for instance to decode the
+     * next image. This object may not be used anymore afterwards.
+     *
+     * @return The buffers, one per component, some of which may be null.
+     *
+     * @see #reuseBuffers
+     * */
+    public DataBlk[] releaseBuffers() {
+        DataBlk bufs[] = new DataBlk[spareComps.length];
+
+        for (int c=bufs.length-1; c>=0; c--) {
+            bufs[c] = (reconstructedComps[c]!=null) ?
+                reconstructedComps[c] : spareComps[c];
+            reconstructedComps[c] = null;
+            spareComps[c] = null;
+        }
+        return bufs;
+    }
+
+    /**
+     * Gives buffers released by another object to this one, which reuses
+     * their data arrays when they are large enough, instead of allocating
+     * new ones.
+     *
+     * @param bufs The buffers, as returned by releaseBuffers(), the one at
+     * index 'c' being reused for component 'c'. It may be null.
+     *
+     * @see #releaseBuffers
+     * */
+    public void reuseBuffers(DataBlk bufs[]) {
+        if (bufs == null) return;
+        for (int c=Math.min(bufs.length,spareComps.length)-1; c>=0; c--) {
+            if (spareComps[c] == null) spareComps[c] = bufs[c];
+        }
+    }
+
+    /**
+     * Restricts the reconstruction to a window of the image. Only the
+     * code-blocks overlapping the window, extended by the supports of the
+     * synthesis filters at each level, are requested from the source, and
+     * only the lines and columns of the subbands that contribute to the
+     * window are filtered. It applies from the next tile-component to be
+     * reconstructed.
+     *
+     * @param x The horizontal offset of the window, from the upper-left
+     * corner of the image, at the reconstructed resolution level.
+     *
+     * @param y The vertical offset of the window, from the upper-left
+     * corner of the image, at the reconstructed resolution level.
+     *
+     * @param w The width of the window, or 0 to reconstruct the whole
+     * image.
+     *
+     * @param h The height of the window, or 0 to reconstruct the whole
+     * image.
+     * */
+    public void setWindow(int x, int y, int w, int h) {
+        win = (w>0 && h>0) ? new int[]{x,y,w,h} : null;
+    }
+}
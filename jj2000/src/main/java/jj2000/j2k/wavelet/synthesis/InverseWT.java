@@ -43,8 +43,11 @@
  * */
 package jj2000.j2k.wavelet.synthesis;
 
+import jj2000.j2k.decoder.DecodeStats;
 import jj2000.j2k.decoder.DecoderSpecs;
 import jj2000.j2k.image.BlkImgDataSrc;
+import jj2000.j2k.image.DataBlk;
+import jj2000.j2k.util.ParameterList;
 
 /**
  * This abstract class extends the WaveletTransform one with the specifics of
@@ -66,6 +69,19 @@ import jj2000.j2k.image.BlkImgDataSrc;
  * */
 public abstract class InverseWT extends InvWTAdapter implements BlkImgDataSrc {
 
+    /** The prefix for inverse wavelet transform options: 'W' */
+    public final static char OPT_PREFIX = 'W';
+
+    /** The list of parameters that is accepted by the inverse wavelet
+     * transforms. They start with 'W'. */
+    private final static String [][] pinfo = {
+        {"Wthreads", "<number of threads>",
+         "", "0"},
+    };
+
+    /** Where to record the timings of the inverse transform, or null */
+    protected DecodeStats stats;
+
     /**
      * Initializes this object with the given source of wavelet
      * coefficients. It initializes the resolution level for full resolutioin
@@ -87,19 +103,107 @@ public abstract class InverseWT extends InvWTAdapter implements BlkImgDataSrc {
     /**
      * Creates an InverseWT object that works on the data type of the source,
      * with the special additional parameters from the parameter
-     * list. Currently the parameter list is ignored since no special
-     * parameters can be specified for the inverse wavelet transform yet.
+     * list. The only parameter is the maximum number of threads used by the
+     * inverse transform, 'Wthreads'.
      *
      * @param src The source of data for the inverse wavelet
      * transform.
      *
+     * @param decSpec The decoder specifications
+     *
      * @param pl The parameter list containing parameters applicable to the
      * inverse wavelet transform (other parameters can also be present).
      * */
     public static InverseWT createInstance(CBlkWTDataSrcDec src,
-                                           DecoderSpecs decSpec) {
+                                           DecoderSpecs decSpec,
+                                           ParameterList pl) {
+
+        // Check parameters
+        pl.checkList(OPT_PREFIX,ParameterList.toNameArray(pinfo));
 
         // full page wavelet transform
-        return new InvWTFull(src,decSpec);
+        return new InvWTFull(src,decSpec,pl.getIntParameter("Wthreads"));
+    }
+
+    /**
+     * Returns the parameters that are used in this class and implementing
+     * classes. It returns a 2D String array. Each of the 1D arrays is for a
+     * different option, and they have 3 elements. The first element is the
+     * option name, the second one is the synopsis and the third one is a long
+     * description of what the parameter is. The synopsis or description may
+     * be 'null', in which case it is assumed that there is no synopsis or
+     * description of the option, respectively. Null may be returned if no
+     * options are supported.
+     *
+     * @return the options name, their synopsis and their explanation, or
+     * null if no options are supported.
+     * */
+    public static String[][] getParameterInfo() {
+        return pinfo;
+    }
+
+    /**
+     * Returns the buffers in which this object reconstructs the image, so
+     * that they can be reused by another one, for instance to decode the
+     * next image. This object may not be used anymore afterwards.
+     *
+     * <p>This default implementation has no buffers to release and returns
+     * null.</p>
+     *
+     * @return The buffers, or null if there are none.
+     *
+     * @see #reuseBuffers
+     * */
+    public DataBlk[] releaseBuffers() {
+        return null;
+    }
+
+    /**
+     * Gives buffers released by another object to this one, which reuses
+     * their data arrays when they are large enough, instead of allocating
+     * new ones.
+     *
+     * <p>This default implementation ignores them.</p>
+     *
+     * @param bufs The buffers, as returned by releaseBuffers(). It may be
+     * null.
+     *
+     * @see #releaseBuffers
+     * */
+    public void reuseBuffers(DataBlk bufs[]) {
+    }
+
+    /**
+     * Restricts the reconstruction to a window of the image, so that the
+     * samples outside of it, and the code-blocks that do not contribute to
+     * it, need not be decoded. Only the data inside the window is then valid.
+     *
+     * <p>This default implementation ignores the window and reconstructs
+     * the whole image.</p>
+     *
+     * @param x The horizontal offset of the window, from the upper-left
+     * corner of the image, at the reconstructed resolution level.
+     *
+     * @param y The vertical offset of the window, from the upper-left
+     * corner of the image, at the reconstructed resolution level.
+     *
+     * @param w The width of the window, or 0 to reconstruct the whole
+     * image.
+     *
+     * @param h The height of the window, or 0 to reconstruct the whole
+     * image.
+     * */
+    public void setWindow(int x, int y, int w, int h) {
+    }
+
+    /**
+     * Sets where to record the time spent in the inverse transform and in
+     * the dequantization.
+     *
+     * @param stats The statistics of the image being decoded, or null if
+     * they are not collected.
+     * */
+    public void setStats(DecodeStats stats) {
+        this.stats = stats;
     }
 }
@@ -96,6 +96,17 @@ public class SubbandSyn extends Subband {
     /** The number of magnitude bits */
     public int magbits = 0;
 
+    /** The area of this subband needed to reconstruct the decoded window,
+     * as {ulcx,ulcy,ulcx+w,ulcy+h} in the subband's canvas coordinates, or
+     * null if all of it is needed. It is set by the inverse wavelet
+     * transform before the subband is requested. */
+    public int win[];
+
+    /** The range of the code-blocks of this leaf that overlap 'win', as
+     * {m0,n0,m1,n1}, the code-blocks (m,n) with m0<=m<m1 and n0<=n<n1
+     * being needed, or null if all of them are. */
+    public int cbWin[];
+
     /**
      * Creates a SubbandSyn element with all the default values. The
      * dimensions are (0,0) and the upper left corner is (0,0).
@@ -230,6 +241,51 @@ public class SubbandSyn extends Subband {
         // Return reference to LL subband
         return subb_LL;
     }
+
+    /**
+     * Returns whether a code-block of this subband is needed to reconstruct
+     * the decoded window. The code-blocks that are not needed do not have to
+     * be decoded.
+     *
+     * @param m The vertical index of the code-block, in the subband.
+     *
+     * @param n The horizontal index of the code-block, in the subband.
+     *
+     * @return True if the code-block is needed.
+     * */
+    public final boolean isCBlkNeeded(int m, int n) {
+        return cbWin==null || (m>=cbWin[0] && m<cbWin[2] &&
+                               n>=cbWin[1] && n<cbWin[3]);
+    }
+
+    /**
+     * Returns the indices of the code-blocks of this subband needed to
+     * reconstruct the decoded window, in raster order, the code-block with
+     * vertical index 'm' and horizontal index 'n' having index
+     * 'm*numCb.x+n'.
+     *
+     * @return The indices, or null if all the code-blocks are needed.
+     *
+     * @see #isCBlkNeeded
+     * */
+    public int[] getNeededCBlks() {
+        int idx[];
+        int m,n,k;
+
+        if (cbWin==null) {
+            return null;
+        }
+        k = 0;
+        idx = new int[Math.max(cbWin[2]-cbWin[0],0)*
+                      Math.max(cbWin[3]-cbWin[1],0)];
+        for (m=cbWin[0]; m<cbWin[2]; m++) {
+            for (n=cbWin[1]; n<cbWin[3]; n++) {
+                idx[k++] = m*numCb.x+n;
+            }
+        }
+        return idx;
+    }
+
     /** 
      * This function returns the horizontal wavelet filter relevant to this
      * subband
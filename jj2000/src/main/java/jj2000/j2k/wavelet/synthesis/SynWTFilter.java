@@ -230,6 +230,68 @@ public abstract class SynWTFilter implements WaveletFilter, Markers {
                             int lowStep, Object highSig, int highOff, 
                             int highLen, int highStep, 
                             Object outSig, int outOff, int outStep);
+
+    /**
+     * Reconstructs a signal in place, from its interleaved low-pass and
+     * high-pass samples, with the low pass first filtering convention. The
+     * even samples of the input are the low-pass ones and the odd samples
+     * the high-pass ones. The result is the same as the one of
+     * synthetize_lpf() on the de-interleaved signals.
+     *
+     * <p>Sample 'i' of the signal is at index off+i*step of the sig array,
+     * and is made of 'n' values, at consecutive indexes, which are filtered
+     * independently. This allows to reconstruct at once several adjacent
+     * columns of a 2-D signal, copied line by line in the sig array with a
+     * step equal to 'n', the inner loops running along the lines.</p>
+     *
+     * @param sig This is the array that contains the signal. It must be of
+     * the correct type (e.g., it must be int[] if getDataType() returns
+     * TYPE_INT).
+     *
+     * @param off This is the index in sig of the first sample.
+     *
+     * @param len This is the number of samples of the signal.
+     *
+     * @param step This is the step between the samples in the sig array. It
+     * must be at least 'n'.
+     *
+     * @param n This is the number of values in each sample.
+     *
+     * @see #synthetize_lpf
+     * */
+    public abstract
+        void synthetize_lpf_inplace(Object sig, int off, int len, int step,
+                                    int n);
+
+    /**
+     * Reconstructs a signal in place, from its interleaved low-pass and
+     * high-pass samples, with the high pass first filtering convention. The
+     * even samples of the input are the high-pass ones and the odd samples
+     * the low-pass ones. The result is the same as the one of
+     * synthetize_hpf() on the de-interleaved signals.
+     *
+     * <p>The samples are organized in the sig array as for
+     * synthetize_lpf_inplace().</p>
+     *
+     * @param sig This is the array that contains the signal. It must be of
+     * the correct type (e.g., it must be int[] if getDataType() returns
+     * TYPE_INT).
+     *
+     * @param off This is the index in sig of the first sample.
+     *
+     * @param len This is the number of samples of the signal.
+     *
+     * @param step This is the step between the samples in the sig array. It
+     * must be at least 'n'.
+     *
+     * @param n This is the number of values in each sample.
+     *
+     * @see #synthetize_hpf
+     * @see #synthetize_lpf_inplace
+     * */
+    public abstract
+        void synthetize_hpf_inplace(Object sig, int off, int len, int step,
+                                    int n);
 }
 
 
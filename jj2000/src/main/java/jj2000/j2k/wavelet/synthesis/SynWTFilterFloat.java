@@ -274,6 +274,100 @@ public abstract class SynWTFilterFloat extends SynWTFilter {
                    (float[])outSig, outOff, outStep);                   
         }
         
+    /**
+     * A specific version of the synthetize_lpf_inplace() method that works
+     * on float data. See the general description of the
+     * synthetize_lpf_inplace() method in the SynWTFilter class for more
+     * details.
+     *
+     * @param sig This is the array that contains the signal.
+     *
+     * @param off This is the index in sig of the first sample.
+     *
+     * @param len This is the number of samples of the signal.
+     *
+     * @param step This is the step between the samples in the sig array.
+     *
+     * @param n This is the number of values in each sample.
+     *
+     * @see SynWTFilter#synthetize_lpf_inplace
+     * */
+    public abstract
+        void synthetize_lpf_inplace(float[] sig, int off, int len, int step,
+                                    int n);
+
+    /**
+     * The general version of the synthetize_lpf_inplace() method, it just
+     * calls the specialized version. See the description of the
+     * synthetize_lpf_inplace() method of the SynWTFilter class for more
+     * details.
+     *
+     * @param sig This is the array that contains the signal. It must be an
+     * float[].
+     *
+     * @param off This is the index in sig of the first sample.
+     *
+     * @param len This is the number of samples of the signal.
+     *
+     * @param step This is the step between the samples in the sig array.
+     *
+     * @param n This is the number of values in each sample.
+     *
+     * @see SynWTFilter#synthetize_lpf_inplace
+     * */
+    public
+        void synthetize_lpf_inplace(Object sig, int off, int len, int step,
+                                    int n) {
+        synthetize_lpf_inplace((float[])sig, off, len, step, n);
+    }
+
+    /**
+     * A specific version of the synthetize_hpf_inplace() method that works
+     * on float data. See the general description of the
+     * synthetize_hpf_inplace() method in the SynWTFilter class for more
+     * details.
+     *
+     * @param sig This is the array that contains the signal.
+     *
+     * @param off This is the index in sig of the first sample.
+     *
+     * @param len This is the number of samples of the signal.
+     *
+     * @param step This is the step between the samples in the sig array.
+     *
+     * @param n This is the number of values in each sample.
+     *
+     * @see SynWTFilter#synthetize_hpf_inplace
+     * */
+    public abstract
+        void synthetize_hpf_inplace(float[] sig, int off, int len, int step,
+                                    int n);
+
+    /**
+     * The general version of the synthetize_hpf_inplace() method, it just
+     * calls the specialized version. See the description of the
+     * synthetize_hpf_inplace() method of the SynWTFilter class for more
+     * details.
+     *
+     * @param sig This is the array that contains the signal. It must be an
+     * float[].
+     *
+     * @param off This is the index in sig of the first sample.
+     *
+     * @param len This is the number of samples of the signal.
+     *
+     * @param step This is the step between the samples in the sig array.
+     *
+     * @param n This is the number of values in each sample.
+     *
+     * @see SynWTFilter#synthetize_hpf_inplace
+     * */
+    public
+        void synthetize_hpf_inplace(Object sig, int off, int len, int step,
+                                    int n) {
+        synthetize_hpf_inplace((float[])sig, off, len, step, n);
+    }
+
     /**
      * Returns the type of data on which this filter works, as defined
      * in the DataBlk interface, which is always TYPE_FLOAT for this
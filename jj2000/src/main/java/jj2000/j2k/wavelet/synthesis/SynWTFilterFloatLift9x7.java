@@ -407,6 +407,269 @@ public class SynWTFilterFloatLift9x7 extends SynWTFilterFloat {
         }
     }
     
+    /**
+     * An implementation of the synthetize_lpf_inplace() method that works
+     * on float data, for the inverse 9x7 wavelet transform using the lifting
+     * scheme. It applies the lifting steps of synthetize_lpf() in place, on
+     * the interleaved samples. See the general description of the
+     * synthetize_lpf_inplace() method in the SynWTFilter class for more
+     * details.
+     *
+     * @param sig This is the array that contains the signal.
+     *
+     * @param off This is the index in sig of the first sample.
+     *
+     * @param len This is the number of samples of the signal.
+     *
+     * @param step This is the step between the samples in the sig array.
+     *
+     * @param n This is the number of values in each sample.
+     *
+     * @see SynWTFilter#synthetize_lpf_inplace
+     * */
+    public
+        void synthetize_lpf_inplace(float[] sig, int off, int len, int step,
+                                    int n) {
+
+        int i, j;
+        int iStep = 2*step; //Step between the samples of the same parity
+        int k; //Indexing the samples in sig
+        int kEnd; //End of the values of the current sample
+
+        // Generate intermediate low frequency subband
+
+        //Initialize counters
+        k = off;
+
+        //Handle tail boundary effect. Use symmetric extension
+        if(len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] = sig[j]/KL - 2*DELTA*sig[j+step]/KH;
+            }
+        }
+        k += iStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] = sig[j]/KL - DELTA*(sig[j-step] + sig[j+step])/KH;
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==1 && len>2) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] = sig[j]/KL - 2*DELTA*sig[j-step]/KH;
+            }
+        }
+
+        // Generate intermediate high frequency subband
+
+        //Initialize counters
+        k = off + step;
+
+        //Apply lifting step to each "inner" sample
+        for(i=1; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] = sig[j]/KH - GAMMA*(sig[j-step] + sig[j+step]);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==0) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] = sig[j]/KH - 2*GAMMA*sig[j-step];
+            }
+        }
+
+        // Generate even samples (inverse low-pass filter)
+
+        //Initialize counters
+        k = off;
+
+        //Handle tail boundary effect. Use symmetric extension
+        if(len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= 2*BETA*sig[j+step];
+            }
+        }
+        k += iStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= BETA*(sig[j-step] + sig[j+step]);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==1 && len>2) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= 2*BETA*sig[j-step];
+            }
+        }
+
+        // Generate odd samples (inverse high-pass filter)
+
+        //Initialize counters
+        k = off + step;
+
+        //Apply lifting step to each "inner" sample
+        for(i=1; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= ALPHA*(sig[j-step] + sig[j+step]);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==0) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= 2*ALPHA*sig[j-step];
+            }
+        }
+    }
+
+    /**
+     * An implementation of the synthetize_hpf_inplace() method that works
+     * on float data, for the inverse 9x7 wavelet transform using the lifting
+     * scheme. It applies the lifting steps of synthetize_hpf() in place, on
+     * the interleaved samples. See the general description of the
+     * synthetize_hpf_inplace() method in the SynWTFilter class for more
+     * details.
+     *
+     * @param sig This is the array that contains the signal.
+     *
+     * @param off This is the index in sig of the first sample.
+     *
+     * @param len This is the number of samples of the signal.
+     *
+     * @param step This is the step between the samples in the sig array.
+     *
+     * @param n This is the number of values in each sample.
+     *
+     * @see SynWTFilter#synthetize_hpf_inplace
+     * */
+    public
+        void synthetize_hpf_inplace(float[] sig, int off, int len, int step,
+                                    int n) {
+
+        int i, j;
+        int iStep = 2*step; //Step between the samples of the same parity
+        int k; //Indexing the samples in sig
+        int kEnd; //End of the values of the current sample
+
+        if(len!=1) {
+            // "Inverse normalize" each sample
+            for(i=0, k=off; i<len; i+=2, k+=iStep) {
+                for(j=k, kEnd=k+n; j<kEnd; j++) {
+                    sig[j] = sig[j]/KH;
+                }
+            }
+            for(i=1, k=off+step; i<len; i+=2, k+=iStep) {
+                for(j=k, kEnd=k+n; j<kEnd; j++) {
+                    sig[j] = sig[j]/KL;
+                }
+            }
+        } else {
+            // Normalize for Nyquist gain
+            for(j=off, kEnd=off+n; j<kEnd; j++) {
+                sig[j] /= 2;
+            }
+        }
+
+        // Generate intermediate low frequency subband
+
+        //Initialize counters
+        k = off + step;
+
+        //Apply lifting step to each "inner" sample
+        for(i=1; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= DELTA*(sig[j-step] + sig[j+step]);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==0 && len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= 2*DELTA*sig[j-step];
+            }
+        }
+
+        // Generate intermediate high frequency subband
+
+        //Initialize counters
+        k = off;
+
+        //Handle tail boundary effect. Use symmetric extension
+        if(len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= 2*GAMMA*sig[j+step];
+            }
+        }
+        k += iStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= GAMMA*(sig[j-step] + sig[j+step]);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==1 && len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= 2*GAMMA*sig[j-step];
+            }
+        }
+
+        // Generate odd samples (inverse low-pass filter)
+
+        //Initialize counters
+        k = off + step;
+
+        //Apply lifting step to each "inner" sample
+        for(i=1; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= BETA*(sig[j-step] + sig[j+step]);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==0 && len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= 2*BETA*sig[j-step];
+            }
+        }
+
+        // Generate even samples (inverse high-pass filter)
+
+        //Initialize counters
+        k = off;
+
+        //Handle tail boundary effect. Use symmetric extension
+        if(len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= 2*ALPHA*sig[j+step];
+            }
+        }
+        k += iStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= ALPHA*(sig[j-step] + sig[j+step]);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==1 && len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= 2*ALPHA*sig[j-step];
+            }
+        }
+    }
+
     /**
      * Returns the negative support of the low-pass analysis filter. That is
      * the number of taps of the filter in the negative direction.
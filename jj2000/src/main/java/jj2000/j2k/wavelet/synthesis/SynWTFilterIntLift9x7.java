@@ -0,0 +1,885 @@
+/*
+ * CVS identifier:
+ *
+ * $Id$
+ *
+ * Class:                   SynWTFilterIntLift9x7
+ *
+ * Description:             A synthetizing wavelet filter implementing the
+ *                          lifting 9x7 transform on fixed-point int data.
+ *
+ *
+ *
+ * COPYRIGHT:
+ * 
+ * This software module was originally developed by Raphal Grosbois and
+ * Diego Santa Cruz (Swiss Federal Institute of Technology-EPFL); Joel
+ * Askelf (Ericsson Radio Systems AB); and Bertrand Berthelot, David
+ * Bouchard, Flix Henry, Gerard Mozelle and Patrice Onno (Canon Research
+ * Centre France S.A) in the course of development of the JPEG2000
+ * standard as specified by ISO/IEC 15444 (JPEG 2000 Standard). This
+ * software module is an implementation of a part of the JPEG 2000
+ * Standard. Swiss Federal Institute of Technology-EPFL, Ericsson Radio
+ * Systems AB and Canon Research Centre France S.A (collectively JJ2000
+ * Partners) agree not to assert against ISO/IEC and users of the JPEG
+ * 2000 Standard (Users) any of their rights under the copyright, not
+ * including other intellectual property rights, for this software module
+ * with respect to the usage by ISO/IEC and Users of this software module
+ * or modifications thereof for use in hardware or software products
+ * claiming conformance to the JPEG 2000 Standard. Those intending to use
+ * this software module in hardware or software products are advised that
+ * their use may infringe existing patents. The original developers of
+ * this software module, JJ2000 Partners and ISO/IEC assume no liability
+ * for use of this software module or modifications thereof. No license
+ * or right to this software module is granted for non JPEG 2000 Standard
+ * conforming products. JJ2000 Partners have full right to use this
+ * software module for his/her own purpose, assign or donate this
+ * software module to any third party and to inhibit third parties from
+ * using this software module for non JPEG 2000 Standard conforming
+ * products. This copyright notice must be included in all copies or
+ * derivative works of this software module.
+ * 
+ * Copyright (c) 1999/2000 JJ2000 Partners.
+ *  */
+package jj2000.j2k.wavelet.synthesis;
+
+/**
+ * This class inherits from the synthesis wavelet filter definition for int
+ * data. It implements the inverse wavelet transform specifically for the 9x7
+ * filter, on fixed-point data. The implementation is based on the lifting
+ * scheme.
+ *
+ * <P>The lifting steps are the ones of SynWTFilterFloatLift9x7, with the
+ * coefficients in fixed-point with COEF_BITS fractional bits. The products
+ * are computed on 64 bits and rounded to the nearest int, so that the data
+ * stays in int arrays, with whatever number of fractional bits it has. Since
+ * the filter is linear the fixed point of the output is the same as the one
+ * of the input.
+ *
+ * <P>The error of each lifting step is at most half a unit of the least
+ * significant bit of the data, plus the one due to the rounding of the
+ * coefficients, which is below 2^-25 of the filtered values. With the 13
+ * fractional bits the dequantizer gives to 8 bit images, the reconstructed
+ * samples differ from the ones of the floating-point implementation by a
+ * few thousandths at most, so that the decoded samples are within 1 of
+ * them.
+ *
+ * <P>See the SynWTFilter class for details such as normalization, how to
+ * split odd-length signals, etc. In particular, this method assumes that the
+ * low-pass coefficient is computed first.
+ *
+ * @see SynWTFilter
+ * @see SynWTFilterInt
+ * @see SynWTFilterFloatLift9x7
+ * */
+public class SynWTFilterIntLift9x7 extends SynWTFilterInt {
+
+    /** The number of fractional bits of the fixed-point coefficients */
+    public final static int COEF_BITS = 24;
+
+    /** The value to add before shifting out the fractional bits of the
+     * coefficients, to round to nearest */
+    private final static long RND = 1L<<(COEF_BITS-1);
+
+    /** The value of the first lifting step coefficient, in fixed-point */
+    private final static long ALPHA =
+        Math.round(SynWTFilterFloatLift9x7.ALPHA*(1<<COEF_BITS));
+
+    /** The value of the second lifting step coefficient, in fixed-point */
+    private final static long BETA =
+        Math.round(SynWTFilterFloatLift9x7.BETA*(1<<COEF_BITS));
+
+    /** The value of the third lifting step coefficient, in fixed-point */
+    private final static long GAMMA =
+        Math.round(SynWTFilterFloatLift9x7.GAMMA*(1<<COEF_BITS));
+
+    /** The value of the fourth lifting step coefficient, in fixed-point */
+    private final static long DELTA =
+        Math.round(SynWTFilterFloatLift9x7.DELTA*(1<<COEF_BITS));
+
+    /** The value of the fourth lifting step coefficient divided by the
+     * high-pass subband normalization factor, in fixed-point */
+    private final static long DELTA_KH =
+        Math.round(SynWTFilterFloatLift9x7.DELTA/SynWTFilterFloatLift9x7.KH*
+                   (1<<COEF_BITS));
+
+    /** The inverse of the low-pass subband normalization factor, in
+     * fixed-point */
+    private final static long INV_KL =
+        Math.round((1<<COEF_BITS)/SynWTFilterFloatLift9x7.KL);
+
+    /** The inverse of the high-pass subband normalization factor, in
+     * fixed-point */
+    private final static long INV_KH =
+        Math.round((1<<COEF_BITS)/SynWTFilterFloatLift9x7.KH);
+
+    /**
+     * An implementation of the synthetize_lpf() method that works on int
+     * data, for the inverse 9x7 wavelet transform using the lifting
+     * scheme. See the general description of the synthetize_lpf() method in
+     * the SynWTFilter class for more details.
+     *
+     * <P>The low-pass and high-pass subbands are normalized by respectively a
+     * factor of 1/KL and a factor of 1/KH
+     *
+     * <P>The coefficients of the first lifting step are [-DELTA 1 -DELTA].
+     *
+     * <P>The coefficients of the second lifting step are [-GAMMA 1 -GAMMA].
+     *
+     * <P>The coefficients of the third lifting step are [-BETA 1 -BETA].
+     *
+     * <P>The coefficients of the fourth lifting step are [-ALPHA 1 -ALPHA].
+     *
+     * @param lowSig This is the array that contains the low-pass input
+     * signal.
+     *
+     * @param lowOff This is the index in lowSig of the first sample to
+     * filter.
+     *
+     * @param lowLen This is the number of samples in the low-pass input
+     * signal to filter.
+     *
+     * @param lowStep This is the step, or interleave factor, of the low-pass
+     * input signal samples in the lowSig array.
+     *
+     * @param highSig This is the array that contains the high-pass input
+     * signal.
+     *
+     * @param highOff This is the index in highSig of the first sample to
+     * filter.
+     *
+     * @param highLen This is the number of samples in the high-pass input
+     * signal to filter.
+     *
+     * @param highStep This is the step, or interleave factor, of the
+     * high-pass input signal samples in the highSig array.
+     *
+     * @param outSig This is the array where the output signal is placed. It
+     * should be long enough to contain the output signal.
+     *
+     * @param outOff This is the index in outSig of the element where to put
+     * the first output sample.
+     *
+     * @param outStep This is the step, or interleave factor, of the output
+     * samples in the outSig array.
+     *
+     * @see SynWTFilter#synthetize_lpf
+     * */
+    public
+        void synthetize_lpf(int[] lowSig,int lowOff,int lowLen,int lowStep,
+                            int[] highSig,int highOff,int highLen,
+                            int highStep,
+                            int[] outSig, int outOff, int outStep) {
+
+        int i;
+        int outLen = lowLen + highLen; //Length of the output signal
+        int iStep = 2*outStep; //Upsampling in outSig
+        int ik; //Indexing outSig
+        int lk; //Indexing lowSig
+        int hk; //Indexing highSig
+
+        // Generate intermediate low frequency subband
+
+        //Initialize counters
+        lk = lowOff;
+        hk = highOff;
+        ik = outOff;
+
+        //Handle tail boundary effect. Use symmetric extension
+        if(outLen>1) {
+            outSig[ik] = (int)((INV_KL*lowSig[lk] -
+                                DELTA_KH*2*highSig[hk] + RND)>>COEF_BITS);
+        }
+	else {
+	    outSig[ik] = lowSig[lk];
+	}
+
+        lk += lowStep;
+        hk += highStep;
+    	ik += iStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<outLen-1; i+=2, ik+=iStep, lk+=lowStep, hk+=highStep) {
+            outSig[ik] = (int)((INV_KL*lowSig[lk] -
+                                DELTA_KH*((long)highSig[hk-highStep] +
+                                          highSig[hk]) + RND)>>COEF_BITS);
+        }
+
+        //Handle head boundary effect if input signal has odd length
+        if(outLen%2 == 1) {
+            if(outLen>2){
+                outSig[ik] = (int)((INV_KL*lowSig[lk] -
+                                    DELTA_KH*2*highSig[hk-highStep] +
+                                    RND)>>COEF_BITS);
+            }
+        }
+
+        // Generate intermediate high frequency subband
+
+        //Initialize counters
+        lk = lowOff;
+        hk = highOff;
+    	ik = outOff + outStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i = 1; i<outLen-1; i+=2, ik+=iStep, hk+=highStep, lk+=lowStep) {
+            outSig[ik] = (int)((INV_KH*highSig[hk] -
+                                GAMMA*((long)outSig[ik-outStep] +
+                                       outSig[ik+outStep]) + RND)>>COEF_BITS);
+    	}
+
+        //Handle head boundary effect if output signal has even length
+        if(outLen % 2 == 0) {
+            outSig[ik] = (int)((INV_KH*highSig[hk] -
+                                GAMMA*2*outSig[ik-outStep] + RND)>>COEF_BITS);
+        }
+
+        // Generate even samples (inverse low-pass filter)
+
+        //Initialize counters
+        ik = outOff;
+
+        //Handle tail boundary effect
+        //If access the overlap then perform the lifting step.
+    	if(outLen>1) {
+            outSig[ik] -= (int)((BETA*2*outSig[ik+outStep] + RND)>>COEF_BITS);
+        }
+        ik += iStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<outLen-1; i+=2, ik+=iStep) {
+            outSig[ik] -= (int)((BETA*((long)outSig[ik-outStep] +
+                                       outSig[ik+outStep]) + RND)>>COEF_BITS);
+        }
+
+        //Handle head boundary effect if input signal has odd length
+        if(outLen%2 == 1 && outLen>2) {
+            outSig[ik] -= (int)((BETA*2*outSig[ik-outStep] + RND)>>COEF_BITS);
+        }
+
+        // Generate odd samples (inverse high pass-filter)
+
+        //Initialize counters
+        ik = outOff + outStep;
+
+        //Apply first lifting step to each "inner" sample
+        for(i=1; i<outLen-1; i+=2, ik+=iStep) {
+            outSig[ik] -= (int)((ALPHA*((long)outSig[ik-outStep] +
+                                        outSig[ik+outStep]) + RND)>>COEF_BITS);
+        }
+
+        //Handle head boundary effect if input signal has even length
+        if(outLen%2 == 0) {
+            outSig[ik] -= (int)((ALPHA*2*outSig[ik-outStep] + RND)>>COEF_BITS);
+        }
+    }
+
+    /**
+     * An implementation of the synthetize_hpf() method that works on int
+     * data, for the inverse 9x7 wavelet transform using the lifting
+     * scheme. See the general description of the synthetize_hpf() method in
+     * the SynWTFilter class for more details.
+     *
+     * <P>The low-pass and high-pass subbands are normalized by respectively
+     * a factor of 1/KL and a factor of 1/KH
+     *
+     * <P>The coefficients of the first lifting step are [-DELTA 1 -DELTA].
+     *
+     * <P>The coefficients of the second lifting step are [-GAMMA 1 -GAMMA].
+     *
+     * <P>The coefficients of the third lifting step are [-BETA 1 -BETA].
+     *
+     * <P>The coefficients of the fourth lifting step are [-ALPHA 1 -ALPHA].
+     *
+     * @param lowSig This is the array that contains the low-pass
+     * input signal.
+     *
+     * @param lowOff This is the index in lowSig of the first sample to
+     * filter.
+     *
+     * @param lowLen This is the number of samples in the low-pass input
+     * signal to filter.
+     *
+     * @param lowStep This is the step, or interleave factor, of the low-pass
+     * input signal samples in the lowSig array.
+     *
+     * @param highSig This is the array that contains the high-pass input
+     * signal.
+     *
+     * @param highOff This is the index in highSig of the first sample to
+     * filter.
+     *
+     * @param highLen This is the number of samples in the high-pass input
+     * signal to filter.
+     *
+     * @param highStep This is the step, or interleave factor, of the
+     * high-pass input signal samples in the highSig array.
+     *
+     * @param outSig This is the array where the output signal is placed. It
+     * should be long enough to contain the output signal.
+     *
+     * @param outOff This is the index in outSig of the element where to put
+     * the first output sample.
+     *
+     * @param outStep This is the step, or interleave factor, of the output
+     * samples in the outSig array.
+     *
+     * @see SynWTFilter#synthetize_hpf
+     * */
+    public
+        void synthetize_hpf(int[] lowSig,int lowOff,int lowLen,int lowStep,
+			    int[] highSig,int highOff,int highLen,
+			    int highStep,int[] outSig,int outOff,
+			    int outStep) {
+
+        int i;
+        int outLen = lowLen + highLen; //Length of the output signal
+        int iStep = 2*outStep; //Upsampling in outSig
+        int ik; //Indexing outSig
+        int lk; //Indexing lowSig
+        int hk; //Indexing highSig
+
+        // Initialize counters
+        lk = lowOff;
+        hk = highOff;
+
+        if(outLen!=1) {
+	    int outLen2 = outLen>>1;
+            // "Inverse normalize" each sample
+            for(i=0; i<outLen2; i++) {
+                lowSig[lk] = (int)((INV_KL*lowSig[lk] + RND)>>COEF_BITS);
+                highSig[hk] = (int)((INV_KH*highSig[hk] + RND)>>COEF_BITS);
+                lk += lowStep;
+                hk += highStep;
+            }
+            // "Inverse normalise" last high pass coefficient
+            if(outLen%2==1) {
+		highSig[hk] = (int)((INV_KH*highSig[hk] + RND)>>COEF_BITS);
+            }
+        } else {
+	    // Normalize for Nyquist gain
+	    highSig[highOff] >>= 1;
+	}
+
+        // Generate intermediate low frequency subband
+
+        //Initialize counters
+        lk = lowOff;
+        hk = highOff;
+        ik = outOff + outStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=1; i<outLen-1; i+=2 ) {
+            outSig[ik] = lowSig[lk] -
+                (int)((DELTA*((long)highSig[hk] + highSig[hk+highStep]) +
+                       RND)>>COEF_BITS);
+            ik += iStep;
+            lk += lowStep;
+            hk += highStep;
+        }
+
+        if(outLen%2==0 && outLen>1) {
+            //Use symmetric extension
+            outSig[ik] = lowSig[lk] -
+                (int)((DELTA*2*highSig[hk] + RND)>>COEF_BITS);
+        }
+
+        // Generate intermediate high frequency subband
+
+        //Initialize counters
+        hk = highOff;
+        ik = outOff;
+
+        if(outLen>1) {
+            outSig[ik] = highSig[hk] -
+                (int)((GAMMA*2*outSig[ik+outStep] + RND)>>COEF_BITS);
+        } else {
+            outSig[ik] = highSig[hk];
+        }
+
+        ik += iStep;
+        hk += highStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<outLen-1; i+=2 ) {
+            outSig[ik] = highSig[hk] -
+                (int)((GAMMA*((long)outSig[ik-outStep] + outSig[ik+outStep]) +
+                       RND)>>COEF_BITS);
+            ik += iStep;
+            hk += highStep;
+        }
+
+        //Handle head boundary effect if output signal has even length
+        if(outLen%2==1 && outLen>1) {
+            //Use symmetric extension
+            outSig[ik] = highSig[hk] -
+                (int)((GAMMA*2*outSig[ik-outStep] + RND)>>COEF_BITS);
+        }
+
+        // Generate even samples (inverse low-pass filter)
+
+        //Initialize counters
+        ik = outOff + outStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=1; i<outLen-1; i+=2 ) {
+            outSig[ik] -= (int)((BETA*((long)outSig[ik-outStep] +
+                                       outSig[ik+outStep]) + RND)>>COEF_BITS);
+            ik += iStep;
+        }
+
+        if(outLen%2==0 && outLen>1) {
+            // symmetric extension.
+            outSig[ik] -= (int)((BETA*2*outSig[ik-outStep] + RND)>>COEF_BITS);
+        }
+
+        // Generate odd samples (inverse high pass-filter)
+
+        //Initialize counters
+        ik = outOff;
+
+        if(outLen>1) {
+            // symmetric extension.
+            outSig[ik] -= (int)((ALPHA*2*outSig[ik+outStep] + RND)>>COEF_BITS);
+        }
+        ik += iStep;
+
+        //Apply first lifting step to each "inner" sample
+        for(i=2; i<outLen-1 ; i+=2) {
+            outSig[ik] -= (int)((ALPHA*((long)outSig[ik-outStep] +
+                                        outSig[ik+outStep]) + RND)>>COEF_BITS);
+            ik += iStep;
+        }
+
+        //Handle head boundary effect if input signal has even length
+        if((outLen%2==1) && (outLen>1)) {
+            //Use symmetric extension
+            outSig[ik] -= (int)((ALPHA*2*outSig[ik-outStep] + RND)>>COEF_BITS);
+        }
+    }
+
+    /**
+     * An implementation of the synthetize_lpf_inplace() method that works
+     * on int data, for the inverse 9x7 wavelet transform using the lifting
+     * scheme. It applies the lifting steps of synthetize_lpf() in place, on
+     * the interleaved samples. See the general description of the
+     * synthetize_lpf_inplace() method in the SynWTFilter class for more
+     * details.
+     *
+     * @param sig This is the array that contains the signal.
+     *
+     * @param off This is the index in sig of the first sample.
+     *
+     * @param len This is the number of samples of the signal.
+     *
+     * @param step This is the step between the samples in the sig array.
+     *
+     * @param n This is the number of values in each sample.
+     *
+     * @see SynWTFilter#synthetize_lpf_inplace
+     * */
+    public
+        void synthetize_lpf_inplace(int[] sig, int off, int len, int step,
+                                    int n) {
+
+        int i, j;
+        int iStep = 2*step; //Step between the samples of the same parity
+        int k; //Indexing the samples in sig
+        int kEnd; //End of the values of the current sample
+
+        // Generate intermediate low frequency subband
+
+        //Initialize counters
+        k = off;
+
+        //Handle tail boundary effect. Use symmetric extension
+        if(len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] = (int)((INV_KL*sig[j] - DELTA_KH*2*sig[j+step] + RND)>>COEF_BITS);
+            }
+        }
+        k += iStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] = (int)((INV_KL*sig[j] - DELTA_KH*((long)sig[j-step] + sig[j+step]) + RND)>>COEF_BITS);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==1 && len>2) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] = (int)((INV_KL*sig[j] - DELTA_KH*2*sig[j-step] + RND)>>COEF_BITS);
+            }
+        }
+
+        // Generate intermediate high frequency subband
+
+        //Initialize counters
+        k = off + step;
+
+        //Apply lifting step to each "inner" sample
+        for(i=1; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] = (int)((INV_KH*sig[j] - GAMMA*((long)sig[j-step] + sig[j+step]) + RND)>>COEF_BITS);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==0) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] = (int)((INV_KH*sig[j] - GAMMA*2*sig[j-step] + RND)>>COEF_BITS);
+            }
+        }
+
+        // Generate even samples (inverse low-pass filter)
+
+        //Initialize counters
+        k = off;
+
+        //Handle tail boundary effect. Use symmetric extension
+        if(len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((BETA*2*sig[j+step] + RND)>>COEF_BITS);
+            }
+        }
+        k += iStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((BETA*((long)sig[j-step] + sig[j+step]) + RND)>>COEF_BITS);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==1 && len>2) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((BETA*2*sig[j-step] + RND)>>COEF_BITS);
+            }
+        }
+
+        // Generate odd samples (inverse high-pass filter)
+
+        //Initialize counters
+        k = off + step;
+
+        //Apply lifting step to each "inner" sample
+        for(i=1; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((ALPHA*((long)sig[j-step] + sig[j+step]) + RND)>>COEF_BITS);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==0) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((ALPHA*2*sig[j-step] + RND)>>COEF_BITS);
+            }
+        }
+    }
+
+    /**
+     * An implementation of the synthetize_hpf_inplace() method that works
+     * on int data, for the inverse 9x7 wavelet transform using the lifting
+     * scheme. It applies the lifting steps of synthetize_hpf() in place, on
+     * the interleaved samples. See the general description of the
+     * synthetize_hpf_inplace() method in the SynWTFilter class for more
+     * details.
+     *
+     * @param sig This is the array that contains the signal.
+     *
+     * @param off This is the index in sig of the first sample.
+     *
+     * @param len This is the number of samples of the signal.
+     *
+     * @param step This is the step between the samples in the sig array.
+     *
+     * @param n This is the number of values in each sample.
+     *
+     * @see SynWTFilter#synthetize_hpf_inplace
+     * */
+    public
+        void synthetize_hpf_inplace(int[] sig, int off, int len, int step,
+                                    int n) {
+
+        int i, j;
+        int iStep = 2*step; //Step between the samples of the same parity
+        int k; //Indexing the samples in sig
+        int kEnd; //End of the values of the current sample
+
+        if(len!=1) {
+            // "Inverse normalize" each sample
+            for(i=0, k=off; i<len; i+=2, k+=iStep) {
+                for(j=k, kEnd=k+n; j<kEnd; j++) {
+                    sig[j] = (int)((INV_KH*sig[j] + RND)>>COEF_BITS);
+                }
+            }
+            for(i=1, k=off+step; i<len; i+=2, k+=iStep) {
+                for(j=k, kEnd=k+n; j<kEnd; j++) {
+                    sig[j] = (int)((INV_KL*sig[j] + RND)>>COEF_BITS);
+                }
+            }
+        } else {
+            // Normalize for Nyquist gain
+            for(j=off, kEnd=off+n; j<kEnd; j++) {
+                sig[j] >>= 1;
+            }
+        }
+
+        // Generate intermediate low frequency subband
+
+        //Initialize counters
+        k = off + step;
+
+        //Apply lifting step to each "inner" sample
+        for(i=1; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((DELTA*((long)sig[j-step] + sig[j+step]) + RND)>>COEF_BITS);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==0 && len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((DELTA*2*sig[j-step] + RND)>>COEF_BITS);
+            }
+        }
+
+        // Generate intermediate high frequency subband
+
+        //Initialize counters
+        k = off;
+
+        //Handle tail boundary effect. Use symmetric extension
+        if(len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((GAMMA*2*sig[j+step] + RND)>>COEF_BITS);
+            }
+        }
+        k += iStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((GAMMA*((long)sig[j-step] + sig[j+step]) + RND)>>COEF_BITS);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==1 && len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((GAMMA*2*sig[j-step] + RND)>>COEF_BITS);
+            }
+        }
+
+        // Generate odd samples (inverse low-pass filter)
+
+        //Initialize counters
+        k = off + step;
+
+        //Apply lifting step to each "inner" sample
+        for(i=1; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((BETA*((long)sig[j-step] + sig[j+step]) + RND)>>COEF_BITS);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==0 && len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((BETA*2*sig[j-step] + RND)>>COEF_BITS);
+            }
+        }
+
+        // Generate even samples (inverse high-pass filter)
+
+        //Initialize counters
+        k = off;
+
+        //Handle tail boundary effect. Use symmetric extension
+        if(len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((ALPHA*2*sig[j+step] + RND)>>COEF_BITS);
+            }
+        }
+        k += iStep;
+
+        //Apply lifting step to each "inner" sample
+        for(i=2; i<len-1; i+=2, k+=iStep) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((ALPHA*((long)sig[j-step] + sig[j+step]) + RND)>>COEF_BITS);
+            }
+        }
+
+        //Handle head boundary effect. Use symmetric extension
+        if(len%2==1 && len>1) {
+            for(j=k, kEnd=k+n; j<kEnd; j++) {
+                sig[j] -= (int)((ALPHA*2*sig[j-step] + RND)>>COEF_BITS);
+            }
+        }
+    }
+
+    /**
+     * Returns the negative support of the low-pass analysis filter. That is
+     * the number of taps of the filter in the negative direction.
+     *
+     * @return 2
+     * */
+    public int getAnLowNegSupport() {
+        return 4;
+    }
+
+    /**
+     * Returns the positive support of the low-pass analysis filter. That is
+     * the number of taps of the filter in the negative direction.
+     *
+     * @return The number of taps of the low-pass analysis filter in the
+     * positive direction
+     * */
+    public int getAnLowPosSupport() {
+        return 4;
+    }
+
+    /**
+     * Returns the negative support of the high-pass analysis filter. That is
+     * the number of taps of the filter in the negative direction.
+     *
+     * @return The number of taps of the high-pass analysis filter in
+     * the negative direction
+     * */
+    public int getAnHighNegSupport() {
+        return 3;
+    }
+
+    /**
+     * Returns the positive support of the high-pass analysis filter. That is
+     * the number of taps of the filter in the negative direction.
+     *
+     * @return The number of taps of the high-pass analysis filter in the
+     * positive direction
+     * */
+    public int getAnHighPosSupport() {
+        return 3;
+    }
+
+    /**
+     * Returns the negative support of the low-pass synthesis filter. That is
+     * the number of taps of the filter in the negative direction.
+     *
+     * <P>A MORE PRECISE DEFINITION IS NEEDED
+     *
+     * @return The number of taps of the low-pass synthesis filter in the
+     * negative direction
+     * */
+    public int getSynLowNegSupport() {
+        return 3;
+    }
+
+    /**
+     * Returns the positive support of the low-pass synthesis filter. That is
+     * the number of taps of the filter in the negative direction.
+     *
+     * <P>A MORE PRECISE DEFINITION IS NEEDED
+     *
+     * @return The number of taps of the low-pass synthesis filter in the
+     * positive direction
+     * */
+    public int getSynLowPosSupport() {
+        return 3;
+    }
+
+    /**
+     * Returns the negative support of the high-pass synthesis filter. That is
+     * the number of taps of the filter in the negative direction.
+     *
+     * <P>A MORE PRECISE DEFINITION IS NEEDED
+     *
+     * @return The number of taps of the high-pass synthesis filter in the
+     * negative direction
+     * */
+    public int getSynHighNegSupport() {
+        return 4;
+    }
+
+    /**
+     * Returns the positive support of the high-pass synthesis filter. That is
+     * the number of taps of the filter in the negative direction.
+     *
+     * <P>A MORE PRECISE DEFINITION IS NEEDED
+     *
+     * @return The number of taps of the high-pass synthesis filter in the
+     * positive direction
+     * */
+    public int getSynHighPosSupport() {
+        return 4;
+    }
+
+    /**
+     * Returns the implementation type of this filter, as defined in this
+     * class, such as WT_FILTER_INT_LIFT, WT_FILTER_FLOAT_LIFT,
+     * WT_FILTER_FLOAT_CONVOL.
+     *
+     * @return WT_FILTER_INT_LIFT.
+     * */
+    public int getImplType() {
+        return WT_FILTER_INT_LIFT;
+    }
+
+    /**
+     * Returns the reversibility of the filter. A filter is considered
+     * reversible if it is suitable for lossless coding.
+     *
+     * @return false since the 9x7 is not reversible.
+     * */
+    public boolean isReversible() {
+        return false; 
+    }
+    
+    /**
+     * Returns true if the wavelet filter computes or uses the
+     * same "inner" subband coefficient as the full frame wavelet transform,
+     * and false otherwise. In particular, for block based transforms with 
+     * reduced overlap, this method should return false. The term "inner"
+     * indicates that this applies only with respect to the coefficient that 
+     * are not affected by image boundaries processings such as symmetric
+     * extension, since there is not reference method for this.
+     *
+     * <P>The result depends on the length of the allowed overlap when
+     * compared to the overlap required by the wavelet filter. It also
+     * depends on how overlap processing is implemented in the wavelet
+     * filter.
+     *
+     * @param tailOvrlp This is the number of samples in the input
+     * signal before the first sample to filter that can be used for
+     * overlap.
+     *
+     * @param headOvrlp This is the number of samples in the input
+     * signal after the last sample to filter that can be used for
+     * overlap.
+     *
+     * @param inLen This is the lenght of the input signal to filter.The
+     * required number of samples in the input signal after the last sample
+     * depends on the length of the input signal.
+     *
+     * @return true if both overlaps are greater than 2, and correct 
+     * processing is applied in the analyze() method.
+     *
+     *
+     *
+     */
+    public boolean isSameAsFullWT(int tailOvrlp, int headOvrlp, int inLen) {
+        
+        //If the input signal has even length.
+        if(inLen % 2 == 0) {
+            if(tailOvrlp >= 2 && headOvrlp >= 1) return true;
+            else return false;
+        }
+        //Else if the input signal has odd length.
+        else {
+            if(tailOvrlp >= 2 && headOvrlp >= 2) return true;
+            else return false;
+        }
+    }
+}
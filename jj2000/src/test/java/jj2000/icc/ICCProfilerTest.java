@@ -0,0 +1,109 @@
+package jj2000.icc;
+
+import java.util.Arrays;
+
+import jj2000.j2k.decoder.TestChain;
+import jj2000.j2k.image.BlkImgDataSrc;
+import jj2000.j2k.image.DataBlk;
+import jj2000.j2k.image.DataBlkInt;
+
+import org.junit.Test;
+
+import static jj2000.j2k.decoder.TestImages.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the strips transformed once by ICCProfiler for all the
+ * components give the data of a profiler transforming each request anew.
+ */
+public class ICCProfilerTest {
+
+    /** The images of the corpus with an ICC profile. */
+    static final String[] PROFILED = {
+        "face240x320_53_icclut.jp2",
+        "face240x320_97_icc.jp2",
+        "face240x320_grey97_icc.jp2",
+    };
+
+    /**
+     * Returns the samples of a block, without its offset and scan width.
+     */
+    static int[] samples(DataBlk blk) {
+        int[] data = (int[]) blk.getData();
+        int[] s = new int[blk.w * blk.h];
+        for (int y = 0; y < blk.h; y++) {
+            System.arraycopy(data, blk.offset + y * blk.scanw, s, y * blk.w,
+                    blk.w);
+        }
+        return s;
+    }
+
+    /**
+     * Returns the samples of an area of a component, as obtained from a new
+     * profiler, which has nothing computed yet.
+     */
+    private static int[] fresh(byte[] data, int[] area, int c)
+            throws Exception {
+        BlkImgDataSrc src = TestChain.build(data);
+        src.setTile(0, 0);
+        return samples(src.getCompData(
+                new DataBlkInt(area[0], area[1], area[2], area[3]), c));
+    }
+
+    @Test
+    public void stripsEqualFreshTransform() throws Exception {
+        for (String name : PROFILED) {
+            byte[] data = read("/corpus/" + name);
+            BlkImgDataSrc src = TestChain.build(data);
+            assertTrue(name + " profiler", src instanceof ICCProfiler);
+            src.setTile(0, 0);
+            int w = src.getTileCompWidth(0, 0);
+            int h = src.getTileCompHeight(0, 0);
+            int nc = src.getNumComps();
+
+            // Consecutive strips, the same one again, areas overlapping the
+            // previous ones, and the whole tile
+            int[][] areas = {
+                {0, 0, w, 16},
+                {0, 16, w, 16},
+                {0, 16, w, 16},
+                {10, 24, w / 2, 16},
+                {10, 24, w / 2, 17},
+                {0, h - 20, w, 20},
+                {0, 0, w, h},
+            };
+            for (int[] area : areas) {
+                String msg = name + " area " + area[0] + "," + area[1] +
+                        " " + area[2] + "x" + area[3];
+                int[][] ref = new int[nc][];
+                for (int c = 0; c < nc; c++) {
+                    ref[c] = fresh(data, area, c);
+                }
+
+                // The components are requested in any order, each one
+                // several times, as a reference and as a copy
+                for (int c = nc - 1; c >= 0; c--) {
+                    DataBlkInt blk = new DataBlkInt(area[0], area[1],
+                            area[2], area[3]);
+                    assertArrayEquals(msg + " component " + c, ref[c],
+                            samples(src.getInternCompData(blk, c)));
+                }
+                for (int c = 0; c < nc; c++) {
+                    DataBlkInt blk = new DataBlkInt(area[0], area[1],
+                            area[2], area[3]);
+                    int[] copy = samples(src.getCompData(blk, c));
+                    assertArrayEquals(msg + " copy of component " + c,
+                            ref[c], copy);
+
+                    // Changing the copy does not change the next results
+                    Arrays.fill((int[]) blk.getData(), -1);
+                    blk = new DataBlkInt(area[0], area[1], area[2],
+                            area[3]);
+                    assertArrayEquals(msg + " component " + c +
+                            " after changing a copy", ref[c],
+                            samples(src.getInternCompData(blk, c)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package jj2000.icc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jj2000.j2k.decoder.TestChain;
+import jj2000.j2k.image.output.PixelImage;
+
+import org.junit.Test;
+
+import static jj2000.icc.ICCProfilerTest.PROFILED;
+import static jj2000.j2k.decoder.TestImages.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the profiles and transforms shared through ICCTransformCache
+ * give the same pixels as those built for a single image.
+ */
+public class ICCTransformCacheTest {
+
+    /** The formats the images are written in. */
+    private static final int[] FORMATS = {
+        PixelImage.RGBA_8888, PixelImage.GREY_8,
+    };
+
+    @Test
+    public void cachedTransformEqualsNewOne() throws Exception {
+        for (String name : PROFILED) {
+            byte[] data = read("/corpus/" + name);
+            for (int format : FORMATS) {
+                for (boolean packed : new boolean[] {false, true}) {
+                    String msg = name + " format " + format +
+                            (packed ? " packed" : " by component");
+                    ICCTransformCache.clear();
+                    PixelImage ref = TestChain.write(TestChain.build(data),
+                            format, packed);
+                    for (int i = 0; i < 2; i++) {
+                        assertSameImage(msg + " cached " + i, ref,
+                                TestChain.write(TestChain.build(data), format,
+                                        packed));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void concurrentDecodesEqualSingleOne() throws Exception {
+        List<Callable<PixelImage>> tasks = new ArrayList<>();
+        List<PixelImage> refs = new ArrayList<>();
+        for (String name : PROFILED) {
+            final byte[] data = read("/corpus/" + name);
+            for (final boolean packed : new boolean[] {false, true}) {
+                ICCTransformCache.clear();
+                PixelImage ref = TestChain.write(TestChain.build(data),
+                        PixelImage.RGBA_8888, packed);
+
+                // The decodes share the tables of the transform, each with
+                // its own working buffer
+                for (int i = 0; i < 4; i++) {
+                    tasks.add(() -> TestChain.write(TestChain.build(data),
+                            PixelImage.RGBA_8888, packed));
+                    refs.add(ref);
+                }
+            }
+        }
+        ExecutorService exec = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<PixelImage>> results = exec.invokeAll(tasks);
+            for (int i = 0; i < results.size(); i++) {
+                assertSameImage("decode " + i, refs.get(i),
+                        results.get(i).get());
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+}
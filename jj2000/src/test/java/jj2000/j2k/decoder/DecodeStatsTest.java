@@ -0,0 +1,42 @@
+package jj2000.j2k.decoder;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static jj2000.j2k.decoder.TestImages.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the statistics collected by the decoder.
+ */
+public class DecodeStatsTest {
+
+    @Test
+    public void cpuTimesUseTheGivenClock() throws IOException {
+        byte[] data = read("/corpus/face480x640_97_tiled.j2k");
+        final AtomicLong calls = new AtomicLong();
+        Decoder dec = new Decoder(parameters());
+
+        // Each reading of the clock advances it by one microsecond
+        dec.setStatsEnabled(true, () -> 1000 * calls.incrementAndGet());
+        copy("clock", dec, dec.run(data));
+        DecodeStats stats = dec.getStats();
+        assertTrue("clock not called", calls.get() > 0);
+        assertTrue("total CPU time", stats.getTotalCpuTime() > 0);
+        assertTrue("total CPU time", stats.getTotalCpuTime() <=
+                1000 * calls.get());
+        for (int s = 0; s < DecodeStats.NUM_STAGES; s++) {
+            assertTrue(DecodeStats.getStageName(s) + " CPU time",
+                    stats.getCpuTime(s) >= 0);
+        }
+
+        // A reset decoder goes back to the clock of the JVM
+        long n = calls.get();
+        dec.reset();
+        dec.setStatsEnabled(true);
+        copy("reset", dec, dec.run(data));
+        assertEquals("clock called after reset", n, calls.get());
+    }
+}
@@ -0,0 +1,38 @@
+package jj2000.j2k.decoder;
+
+import java.io.IOException;
+
+import jj2000.j2k.image.output.PixelImage;
+
+import org.junit.Test;
+
+import static jj2000.j2k.decoder.TestImages.*;
+
+/**
+ * Checks that a decoder reused from a pool gives the same pixels as a new
+ * one.
+ */
+public class DecoderPoolTest {
+
+    @Test
+    public void pooledDecoderEqualsFreshOne() throws IOException {
+        byte[][] data = new byte[CORPUS.length][];
+        PixelImage[] ref = new PixelImage[CORPUS.length];
+        for (int i = 0; i < CORPUS.length; i++) {
+            data[i] = read("/corpus/" + CORPUS[i]);
+            ref[i] = decode(CORPUS[i], data[i]);
+        }
+
+        // The same decoder decodes images of different sizes and formats in
+        // turn, and each of them several times
+        DecoderPool pool = new DecoderPool(parameters(), 1);
+        for (int pass = 0; pass < 3; pass++) {
+            for (int i = 0; i < CORPUS.length; i++) {
+                Decoder dec = pool.acquire();
+                PixelImage img = copy(CORPUS[i], dec, dec.run(data[i]));
+                pool.release(dec);
+                assertSameImage(CORPUS[i] + " pass " + pass, ref[i], img);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package jj2000.j2k.decoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import jj2000.j2k.image.output.PixelImage;
+
+import org.junit.Test;
+
+import static jj2000.j2k.decoder.TestImages.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the fixed-point decoding of the corpus images is close to the
+ * floating-point one.
+ */
+public class FixedPointTest {
+
+    /** The largest difference allowed in a sample, for most images. */
+    private static final int MAX_DIFF = 2;
+
+    /**
+     * The largest difference allowed in a sample of the RGB profiled image.
+     * The lookup tables of its profile map a step of one level in the dark
+     * tones to up to three levels of output, so that a sample within 2 of
+     * the float one before the profile can end up 6 away from it.
+     */
+    private static final int MAX_DIFF_ICC_RGB = 6;
+
+    @Test
+    public void fixedPointIsCloseToFloat() throws IOException {
+        for (String name : CORPUS) {
+            byte[] data = read("/corpus/" + name);
+            PixelImage ref = decode(name, data, "fixed_point", "off");
+            PixelImage img = decode(name, data, "fixed_point", "on");
+            assertEquals(name + " width", ref.getWidth(), img.getWidth());
+            assertEquals(name + " height", ref.getHeight(), img.getHeight());
+            assertEquals(name + " format", ref.getFormat(), img.getFormat());
+
+            ByteBuffer a = ref.getBuffer();
+            ByteBuffer b = img.getBuffer();
+            int maxDiff = 0;
+            while (a.hasRemaining()) {
+                maxDiff = Math.max(maxDiff,
+                        Math.abs((a.get() & 0xff) - (b.get() & 0xff)));
+            }
+            int bound = name.equals("face240x320_97_icc.jp2") ?
+                    MAX_DIFF_ICC_RGB : MAX_DIFF;
+            assertTrue(name + " differs by " + maxDiff, maxDiff <= bound);
+            if (name.contains("_53")) {
+                // Reversible images do not use the fixed-point path
+                assertEquals(name + " reversible", 0, maxDiff);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package jj2000.j2k.decoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import jj2000.j2k.image.output.PixelImage;
+
+import org.junit.Test;
+
+import static jj2000.j2k.decoder.TestImages.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the decoding of the corpus images with limits on the decoded
+ * data, and their progressive decoding.
+ */
+public class LimitTest {
+
+    /** The image of the corpus with several quality layers. */
+    private static final String LAYERED = "face480x640_97_l4.j2k";
+
+    /** The number of quality layers of LAYERED. */
+    private static final int NUM_LAYERS = 4;
+
+    /**
+     * Returns the mean absolute difference between the samples of two
+     * images of the same size and format.
+     */
+    private static double meanError(PixelImage expected, PixelImage actual) {
+        ByteBuffer a = expected.getBuffer();
+        ByteBuffer b = actual.getBuffer();
+        assertEquals("image size", a.remaining(), b.remaining());
+        long sum = 0;
+        int n = a.remaining();
+        while (a.hasRemaining()) {
+            sum += Math.abs((a.get() & 0xff) - (b.get() & 0xff));
+        }
+        return sum / (double) n;
+    }
+
+    /**
+     * Decodes an image with a new decoder limited by setLimits().
+     */
+    private static PixelImage decodeLimited(String name, byte[] data,
+            int layers, int bytes, int bitPlanes) {
+        Decoder dec = new Decoder(parameters());
+        dec.setStatsEnabled(true);
+        dec.setLimits(layers, bytes, bitPlanes);
+        return copy(name, dec, dec.run(data));
+    }
+
+    @Test
+    public void lQuitDecodesRequestedLayers() throws IOException {
+        byte[] data = read("/corpus/" + LAYERED);
+        PixelImage full = decode(LAYERED, data);
+
+        // Each layer brings the image closer to the full one, and the last
+        // one gives it
+        double prev = Double.MAX_VALUE;
+        for (int l = 1; l <= NUM_LAYERS; l++) {
+            PixelImage img = decode(LAYERED, data, "l_quit",
+                    Integer.toString(l));
+            double err = meanError(full, img);
+            assertTrue(LAYERED + " l_quit " + l + " error " + err,
+                    err < prev);
+            prev = err;
+        }
+        assertEquals(LAYERED + " all layers", 0, prev, 0);
+    }
+
+    @Test
+    public void limitsEqualParameters() throws IOException {
+        for (String name : CORPUS) {
+            byte[] data = read("/corpus/" + name);
+            for (int l = 1; l <= NUM_LAYERS; l++) {
+                assertSameImage(name + " layers " + l,
+                        decode(name, data, "l_quit", Integer.toString(l)),
+                        decodeLimited(name, data, l, 0, 0));
+            }
+            for (int b = 1; b <= 8; b *= 2) {
+                assertSameImage(name + " bit-planes " + b,
+                        decode(name, data, "m_quit", Integer.toString(b)),
+                        decodeLimited(name, data, 0, 0, b));
+            }
+            int bytes = data.length / 3;
+            assertSameImage(name + " bytes " + bytes,
+                    decode(name, data, "nbytes", Integer.toString(bytes)),
+                    decodeLimited(name, data, 0, bytes, 0));
+
+            // The lowest of the limit and the parameter is used
+            assertSameImage(name + " lowest of the two",
+                    decode(name, data, "m_quit", "2"),
+                    decodeLimited(name, data, 0, 0, 2));
+            Decoder dec = new Decoder(parameters("m_quit", "2"));
+            dec.setLimits(0, 0, 4);
+            assertSameImage(name + " lowest of the two",
+                    decode(name, data, "m_quit", "2"),
+                    copy(name, dec, dec.run(data)));
+        }
+    }
+
+    @Test
+    public void progressiveImagesImprove() throws IOException {
+        for (String name : CORPUS) {
+            byte[] data = read("/corpus/" + name);
+            PixelImage full = decode(name, data);
+
+            final List<PixelImage> previews = new ArrayList<>();
+            final Decoder dec = new Decoder(parameters());
+            PixelImage img = copy(name, dec, dec.run(ByteBuffer.wrap(data),
+                    0, 0, 0, preview -> previews.add(copy(name, dec,
+                            preview))));
+            assertSameImage(name + " last image", full, img);
+            assertTrue(name + " previews", previews.size() > 0);
+
+            double prev = Double.MAX_VALUE;
+            for (int i = 0; i < previews.size(); i++) {
+                double err = meanError(full, previews.get(i));
+                assertTrue(name + " preview " + i + " error " + err,
+                        err < prev && err > 0);
+                prev = err;
+            }
+        }
+        // The layered image is refined layer by layer
+        byte[] data = read("/corpus/" + LAYERED);
+        assertSameImage(LAYERED + " first image",
+                decode(LAYERED, data, "l_quit", "1", "m_quit", "2"),
+                firstImage(LAYERED, data, 0));
+    }
+
+    @Test
+    public void timeLimitedDecodeReturnsImage() throws IOException {
+        for (String name : CORPUS) {
+            byte[] data = read("/corpus/" + name);
+
+            // No second image can be decoded in a millisecond, so the first,
+            // coarse one is returned
+            assertSameImage(name + " time limited", firstImage(name, data, 0),
+                    firstImage(name, data, 1));
+        }
+    }
+
+    /**
+     * Returns the first image of the progressive decoding of an image.
+     */
+    private static PixelImage firstImage(String name, byte[] data,
+            long timeLimit) {
+        final List<PixelImage> images = new ArrayList<>();
+        final Decoder dec = new Decoder(parameters());
+        PixelImage img = copy(name, dec, dec.run(ByteBuffer.wrap(data), 0, 0,
+                timeLimit, preview -> images.add(copy(name, dec, preview))));
+        return images.isEmpty() ? img : images.get(0);
+    }
+}
@@ -0,0 +1,69 @@
+package jj2000.j2k.decoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jj2000.j2k.image.output.PixelImage;
+
+import org.junit.Test;
+
+import static jj2000.j2k.decoder.TestImages.*;
+
+/**
+ * Checks the decoding of codestreams signalling the packet lengths in PLT
+ * marker segments, whose packets that are not requested by the 'res' and
+ * 'l_quit' options are skipped instead of being read. The PLT codestreams
+ * are those of the corpus with PLT marker segments added.
+ */
+public class PacketLengthTest {
+
+    /** The codestreams of the corpus and the same ones with PLT */
+    private static final String[][] IMAGES = {
+        {"/corpus/face480x640_97_l4.j2k", "/plt/face480x640_97_l4_plt.j2k"},
+        {"/corpus/face480x640_97_rlcp.j2k",
+         "/plt/face480x640_97_rlcp_plt.j2k"},
+    };
+
+    /**
+     * Returns the name and value pairs of the given options, leaving out
+     * those whose value is null.
+     */
+    private static String[] options(String... nameValues) {
+        List<String> opts = new ArrayList<String>();
+        for (int i = 0; i < nameValues.length; i += 2) {
+            if (nameValues[i + 1] != null) {
+                opts.add(nameValues[i]);
+                opts.add(nameValues[i + 1]);
+            }
+        }
+        return opts.toArray(new String[opts.size()]);
+    }
+
+    @Test
+    public void skippedPacketsGiveSameOutput() throws IOException {
+        for (String[] image : IMAGES) {
+            byte[] data = read(image[0]);
+            byte[] plt = read(image[1]);
+            for (String parsing : new String[] {"on", "off"}) {
+                for (String lQuit : new String[] {null, "1", "2"}) {
+                    for (String res : new String[] {null, "3", "1"}) {
+                        // At 0.6 bpp the whole codestream fits in the rate,
+                        // so that the PLT marker segments make no difference
+                        String[] opts = options("parsing", parsing,
+                                "l_quit", lQuit, "res", res, "rate", "0.6");
+                        String msg = image[1] + " parsing=" + parsing +
+                                " l_quit=" + lQuit + " res=" + res;
+                        PixelImage ref = decode(image[0], data, opts);
+                        assertSameImage(msg, ref, decode(msg, plt, opts));
+
+                        // At a lower rate the codestream is truncated
+                        decode(msg + " rate=0.3", plt, options("parsing",
+                                parsing, "l_quit", lQuit, "res", res,
+                                "rate", "0.3"));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package jj2000.j2k.decoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import jj2000.j2k.image.output.PixelImage;
+
+import org.junit.Test;
+
+import static jj2000.j2k.decoder.TestImages.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that decoding the corpus images as they are read from a stream
+ * gives the same pixels as decoding them from an array.
+ */
+public class StreamTest {
+
+    /**
+     * An input stream delivering its data in small chunks, as received from
+     * a slow connection, so that the decoder does not get it all at once.
+     */
+    private static class ChunkedInputStream extends ByteArrayInputStream {
+
+        private static final int CHUNK = 1024;
+
+        ChunkedInputStream(byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public synchronized int available() {
+            return Math.min(super.available(), CHUNK);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, CHUNK));
+        }
+    }
+
+    @Test
+    public void streamEqualsArray() throws IOException {
+        for (String name : CORPUS) {
+            byte[] data = read("/corpus/" + name);
+            PixelImage ref = decode(name, data);
+
+            Decoder dec = new Decoder(parameters());
+            assertSameImage(name + " stream", ref, copy(name, dec,
+                    dec.run(new ByteArrayInputStream(data), data.length,
+                            0, 0, null)));
+
+            dec = new Decoder(parameters());
+            assertSameImage(name + " stream of unknown length", ref,
+                    copy(name, dec, dec.run(new ByteArrayInputStream(data),
+                            0, 0, 0, null)));
+        }
+    }
+
+    @Test
+    public void previewsDoNotChangeOutput() throws IOException {
+        for (String name : CORPUS) {
+            byte[] data = read("/corpus/" + name);
+            PixelImage ref = decode(name, data);
+
+            final int[] previews = new int[1];
+            Decoder dec = new Decoder(parameters());
+            assertSameImage(name + " stream with previews", ref,
+                    copy(name, dec, dec.run(new ChunkedInputStream(data),
+                            data.length, 0, 0, preview -> previews[0]++)));
+            assertTrue(name + " previews", previews[0] > 0);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package jj2000.j2k.decoder;
+
+import java.io.IOException;
+
+import jj2000.colorspace.ColorSpace;
+import jj2000.j2k.codestream.HeaderInfo;
+import jj2000.j2k.codestream.reader.BitstreamReaderAgent;
+import jj2000.j2k.codestream.reader.HeaderDecoder;
+import jj2000.j2k.fileformat.reader.FileFormatReader;
+import jj2000.j2k.image.BlkImgDataSrc;
+import jj2000.j2k.image.DataBlk;
+import jj2000.j2k.image.ImgDataAdapter;
+import jj2000.j2k.image.ImgDataConverter;
+import jj2000.j2k.image.invcomptransf.InvCompTransf;
+import jj2000.j2k.image.output.ImgWriterPacked;
+import jj2000.j2k.image.output.PixelImage;
+import jj2000.j2k.roi.ROIDeScaler;
+import jj2000.j2k.util.BufferRandomAccessIO;
+import jj2000.j2k.util.ParameterList;
+import jj2000.j2k.wavelet.synthesis.InverseWT;
+
+/**
+ * Builds the decoding chain of an image module by module, as Decoder.run()
+ * does, so that the tests can get the data of its last stages directly.
+ */
+public final class TestChain {
+
+    /**
+     * A source giving the data of another one component by component. It
+     * hides the other interfaces of that source, such as PackedRGBSrc, so
+     * that the writers use their general path.
+     */
+    private static final class ComponentSrc extends ImgDataAdapter
+            implements BlkImgDataSrc {
+
+        private final BlkImgDataSrc src;
+
+        ComponentSrc(BlkImgDataSrc src) {
+            super(src);
+            this.src = src;
+        }
+
+        @Override
+        public int getFixedPoint(int c) {
+            return src.getFixedPoint(c);
+        }
+
+        @Override
+        public DataBlk getInternCompData(DataBlk blk, int c) {
+            return src.getInternCompData(blk, c);
+        }
+
+        @Override
+        public DataBlk getCompData(DataBlk blk, int c) {
+            return src.getCompData(blk, c);
+        }
+    }
+
+    private TestChain() {
+    }
+
+    /**
+     * Builds the decoding chain of an image, with the default parameters
+     * overridden by the given name and value pairs, and returns its last
+     * stage: the color space mapper of JP2 images, or the inverse component
+     * transform of codestreams.
+     */
+    public static BlkImgDataSrc build(byte[] data, String... nameValues)
+            throws Exception {
+        ParameterList pl = TestImages.parameters(nameValues);
+        BufferRandomAccessIO in = new BufferRandomAccessIO(data);
+
+        FileFormatReader ff = new FileFormatReader(in);
+        ff.readFileFormat();
+        if (ff.JP2FFUsed) {
+            in.seek(ff.getFirstCodeStreamPos());
+        }
+        HeaderInfo hi = new HeaderInfo();
+        HeaderDecoder hd = new HeaderDecoder(in, pl, hi);
+        DecoderSpecs decSpec = hd.getDecoderSpecs();
+        int[] depth = new int[hd.getNumComps()];
+        for (int i = 0; i < depth.length; i++) {
+            depth[i] = hd.getOriginalBitDepth(i);
+        }
+
+        BitstreamReaderAgent breader = BitstreamReaderAgent.createInstance(
+                in, hd, pl, decSpec, false, hi);
+        ROIDeScaler roids = hd.createROIDeScaler(
+                hd.createEntropyDecoder(breader, pl), pl, decSpec);
+        InverseWT invWT = InverseWT.createInstance(
+                hd.createDequantizer(roids, depth, decSpec), decSpec, pl);
+        invWT.setImgResLevel(breader.getImgRes());
+        BlkImgDataSrc converter = pl.getBooleanParameter("fixed_point") ?
+                invWT : new ImgDataConverter(invWT, 0);
+        BlkImgDataSrc ictransf = new InvCompTransf(converter, decSpec, depth,
+                pl);
+        if (!ff.JP2FFUsed) {
+            return ictransf;
+        }
+
+        ColorSpace csMap = new ColorSpace(in, hd, pl);
+        BlkImgDataSrc channels = hd.createChannelDefinitionMapper(ictransf,
+                csMap);
+        BlkImgDataSrc resampled = hd.createResampler(channels, csMap);
+        BlkImgDataSrc palettized = hd.createPalettizedColorSpaceMapper(
+                resampled, csMap);
+        return hd.createColorSpaceMapper(palettized, csMap);
+    }
+
+    /**
+     * Writes the image of a source in the given format. If 'packed' is
+     * false, the writer gets the data of the source component by component,
+     * even if it could get the pixels.
+     */
+    public static PixelImage write(BlkImgDataSrc src, int format,
+            boolean packed) throws IOException {
+        ImgWriterPacked writer = new ImgWriterPacked(
+                packed ? src : new ComponentSrc(src), format);
+        writer.writeAll();
+        return writer.get();
+    }
+}
@@ -0,0 +1,110 @@
+package jj2000.j2k.decoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import jj2000.j2k.image.output.PixelImage;
+import jj2000.j2k.util.ParameterList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reads the images of the tests and decodes them. The corpus images are
+ * those of the benchmark module, in its resources.
+ */
+public final class TestImages {
+
+    /** The images of the corpus, in the corpus resources. */
+    public static final String[] CORPUS = {
+        "face240x320_53.jp2",
+        "face240x320_53_cb16x64.j2k",
+        "face240x320_53_icclut.jp2",
+        "face240x320_97.jp2",
+        "face240x320_97_cb32.j2k",
+        "face240x320_97_icc.jp2",
+        "face240x320_97_sycc.jp2",
+        "face240x320_grey97.jp2",
+        "face240x320_grey97_icc.jp2",
+        "face480x640_97_l4.j2k",
+        "face480x640_97_rlcp.j2k",
+        "face480x640_97_tiled.j2k",
+    };
+
+    private TestImages() {
+    }
+
+    /**
+     * Reads a resource of the tests.
+     */
+    public static byte[] read(String name) throws IOException {
+        try (InputStream is = TestImages.class.getResourceAsStream(name)) {
+            if (is == null) {
+                throw new IOException("No resource " + name);
+            }
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = is.read(buf)) > 0) {
+                os.write(buf, 0, n);
+            }
+            return os.toByteArray();
+        }
+    }
+
+    /**
+     * Returns the default parameters of the decoder, overridden by the
+     * given name and value pairs.
+     */
+    public static ParameterList parameters(String... nameValues) {
+        ParameterList defpl = new ParameterList();
+        for (String[] p : Decoder.getAllParameters()) {
+            if (p[3] != null) {
+                defpl.put(p[0], p[3]);
+            }
+        }
+        ParameterList pl = new ParameterList(defpl);
+        for (int i = 0; i < nameValues.length; i += 2) {
+            pl.put(nameValues[i], nameValues[i + 1]);
+        }
+        return pl;
+    }
+
+    /**
+     * Returns a copy of an image decoded by a decoder, which may reuse its
+     * buffer for the next image. Fails if it could not be decoded.
+     */
+    public static PixelImage copy(String name, Decoder dec, PixelImage img) {
+        assertNotNull(name + ": " + ((dec.getStats() != null) ?
+                dec.getStats().getFailure() : "not decoded"), img);
+        ByteBuffer buf = ByteBuffer.allocate(img.getByteCount());
+        buf.put(img.getBuffer());
+        return new PixelImage(img.getWidth(), img.getHeight(),
+                img.getFormat(), buf);
+    }
+
+    /**
+     * Decodes an image with a new decoder using the given parameters.
+     */
+    public static PixelImage decode(String name, byte[] data,
+            String... nameValues) {
+        Decoder dec = new Decoder(parameters(nameValues));
+        dec.setStatsEnabled(true);
+        return copy(name, dec, dec.run(data));
+    }
+
+    /**
+     * Checks that two images have the same size, format and pixels.
+     */
+    public static void assertSameImage(String name, PixelImage expected,
+            PixelImage actual) {
+        assertEquals(name + " width", expected.getWidth(), actual.getWidth());
+        assertEquals(name + " height", expected.getHeight(),
+                actual.getHeight());
+        assertEquals(name + " format", expected.getFormat(),
+                actual.getFormat());
+        assertTrue(name + " pixels",
+                expected.getBuffer().equals(actual.getBuffer()));
+    }
+}
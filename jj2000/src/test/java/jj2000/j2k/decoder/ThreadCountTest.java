@@ -0,0 +1,64 @@
+package jj2000.j2k.decoder;
+
+import java.io.IOException;
+
+import jj2000.j2k.image.output.PixelImage;
+
+import org.junit.Test;
+
+import static jj2000.j2k.decoder.TestImages.*;
+
+/**
+ * Checks that decoding the corpus images with several threads gives the
+ * same pixels as with a single thread.
+ */
+public class ThreadCountTest {
+
+    /** The parameters setting the number of threads of each stage */
+    private static final String[] THREAD_PARAMETERS = {
+        "Cthreads", "Wthreads", "tile_threads",
+    };
+
+    /**
+     * Checks that each corpus image decoded with 2, 3 and 8 threads in the
+     * stage set by the given parameter, and one thread in the other
+     * stages, is identical to the one decoded with a single thread.
+     */
+    private static void assertThreadCountsGiveIdenticalOutput(String param)
+            throws IOException {
+        String[] opts = new String[2 * THREAD_PARAMETERS.length];
+        int idx = 0;
+        for (int i = 0; i < THREAD_PARAMETERS.length; i++) {
+            opts[2 * i] = THREAD_PARAMETERS[i];
+            opts[2 * i + 1] = "1";
+            if (THREAD_PARAMETERS[i].equals(param)) {
+                idx = 2 * i + 1;
+            }
+        }
+        for (String name : CORPUS) {
+            byte[] data = read("/corpus/" + name);
+            opts[idx] = "1";
+            PixelImage ref = decode(name, data, opts);
+            for (String n : new String[] {"2", "3", "8"}) {
+                opts[idx] = n;
+                assertSameImage(name + " " + param + "=" + n, ref,
+                        decode(name, data, opts));
+            }
+        }
+    }
+
+    @Test
+    public void entropyDecoderThreads() throws IOException {
+        assertThreadCountsGiveIdenticalOutput("Cthreads");
+    }
+
+    @Test
+    public void inverseWaveletThreads() throws IOException {
+        assertThreadCountsGiveIdenticalOutput("Wthreads");
+    }
+
+    @Test
+    public void tileThreads() throws IOException {
+        assertThreadCountsGiveIdenticalOutput("tile_threads");
+    }
+}
@@ -0,0 +1,55 @@
+package jj2000.j2k.decoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import jj2000.j2k.image.output.PixelImage;
+
+import org.junit.Test;
+
+import static jj2000.j2k.decoder.TestImages.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that decoding a window of the corpus images gives the pixels of
+ * the same window in the whole image.
+ */
+public class WindowTest {
+
+    @Test
+    public void windowEqualsCropOfFullImage() throws IOException {
+        for (String name : CORPUS) {
+            byte[] data = read("/corpus/" + name);
+            PixelImage full = decode(name, data);
+            int w = full.getWidth();
+            int h = full.getHeight();
+            int bpp = PixelImage.getBytesPerPixel(full.getFormat());
+            int[][] windows = {
+                {0, 0, 17, 23},
+                {w / 3, h / 4, w / 2, h / 3},
+                {w - 40, h - 30, 40, 30},
+                {5, 7, w - 5, h - 7},
+                {w / 2, h / 2, 1, 1},
+            };
+            for (int[] win : windows) {
+                String msg = name + " window " + win[0] + "," + win[1] +
+                        " " + win[2] + "x" + win[3];
+                Decoder dec = new Decoder(parameters());
+                dec.setWindow(win[0], win[1], win[2], win[3]);
+                PixelImage img = copy(msg, dec, dec.run(data));
+                assertEquals(msg + " width", win[2], img.getWidth());
+                assertEquals(msg + " height", win[3], img.getHeight());
+
+                ByteBuffer crop = ByteBuffer.allocate(img.getByteCount());
+                ByteBuffer src = full.getBuffer();
+                for (int y = win[1]; y < win[1] + win[3]; y++) {
+                    src.limit((y * w + win[0] + win[2]) * bpp);
+                    src.position((y * w + win[0]) * bpp);
+                    crop.put(src);
+                }
+                assertSameImage(msg, new PixelImage(win[2], win[3],
+                        full.getFormat(), crop), img);
+            }
+        }
+    }
+}
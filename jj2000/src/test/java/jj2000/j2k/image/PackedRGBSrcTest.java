@@ -0,0 +1,71 @@
+package jj2000.j2k.image;
+
+import java.nio.ByteBuffer;
+
+import jj2000.j2k.decoder.TestChain;
+import jj2000.j2k.image.output.PixelImage;
+
+import org.junit.Test;
+
+import static jj2000.j2k.decoder.TestImages.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the pixels produced in one pass by the color space mappers of
+ * the JP2 corpus images are those obtained component by component.
+ */
+public class PackedRGBSrcTest {
+
+    /**
+     * The largest difference allowed in a sample. The fused transforms are
+     * computed in fixed point and may round a few samples differently.
+     */
+    private static final int MAX_DIFF = 2;
+
+    /** The largest fraction of the samples that may differ. */
+    private static final double MAX_DIFF_RATIO = 0.001;
+
+    /** The formats the images are written in. */
+    private static final int[] FORMATS = {
+        PixelImage.RGBA_8888, PixelImage.GREY_8,
+    };
+
+    @Test
+    public void packedPixelsEqualComponents() throws Exception {
+        for (String name : CORPUS) {
+            if (!name.endsWith(".jp2")) {
+                continue;
+            }
+            byte[] data = read("/corpus/" + name);
+            for (int format : FORMATS) {
+                String msg = name + " format " + format;
+                BlkImgDataSrc src = TestChain.build(data);
+                assertTrue(msg + " packable " +
+                        src.getClass().getSimpleName(),
+                        src instanceof PackedRGBSrc &&
+                        ((PackedRGBSrc) src).isPackable());
+                PixelImage img = TestChain.write(src, format, true);
+                PixelImage ref = TestChain.write(TestChain.build(data),
+                        format, false);
+                assertEquals(msg + " size", ref.getByteCount(),
+                        img.getByteCount());
+
+                ByteBuffer a = ref.getBuffer();
+                ByteBuffer b = img.getBuffer();
+                int n = a.remaining();
+                int maxDiff = 0;
+                int count = 0;
+                while (a.hasRemaining()) {
+                    int d = Math.abs((a.get() & 0xff) - (b.get() & 0xff));
+                    if (d > 0) {
+                        count++;
+                        maxDiff = Math.max(maxDiff, d);
+                    }
+                }
+                assertTrue(msg + " differs by " + maxDiff, maxDiff <= MAX_DIFF);
+                assertTrue(msg + " " + count + " samples differ",
+                        count <= n * MAX_DIFF_RATIO);
+            }
+        }
+    }
+}
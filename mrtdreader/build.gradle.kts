@@ -67,6 +67,7 @@ android {
 }
 
 dependencies {
+    api(project(":jj2000"))
     implementation(libs.androidx.core.ktx)
     implementation(libs.androidx.lifecycle.runtime.ktx)
     implementation(libs.androidx.activity.compose)
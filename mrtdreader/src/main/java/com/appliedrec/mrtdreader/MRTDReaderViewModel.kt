@@ -204,6 +204,8 @@ internal class MRTDReaderViewModel(application: Application) : AndroidViewModel(
                                     outputStream.toByteArray()
                                 }
 
+                                // DG2 has already been read from the chip, so there is no transfer
+                                // to overlap the decoding with: decode the bytes in place
                                 faceImage = JJ2000Frontend.decode(imageData)
                                     ?: BitmapFactory.decodeByteArray(imageData, 0, imageData.size)
                             }
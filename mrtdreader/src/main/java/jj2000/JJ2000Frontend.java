@@ -34,18 +34,428 @@
 package jj2000;
 
 import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.function.LongSupplier;
 
 import jj2000.j2k.decoder.Decoder;
+import jj2000.j2k.decoder.DecoderPool;
+import jj2000.j2k.image.output.PixelImage;
 import jj2000.j2k.util.ParameterList;
 
 /**
- * Frontend for JJ2000 library.
+ * Frontend for JJ2000 library, decoding images into Android bitmaps.
  */
 public class JJ2000Frontend {
+  /** The tag of the log messages. */
+  private static final String TAG = "JJ2000Frontend";
+
+  /**
+   * Receives the preview images decoded before the final one, while an
+   * image is being read or refined.
+   */
+  public interface PreviewListener {
+    /**
+     * Called each time a preview image has been decoded, from the decoding
+     * thread, which is blocked until it returns.
+     *
+     * @param preview The preview image, at the size of the final one.
+     */
+    void previewDecoded(Bitmap preview);
+  }
+
+  /**
+   * The CPU time of the calling thread, in nanoseconds, for the statistics
+   * of the decoders, since the one of the JVM is not available on Android:
+   * dec.setStatsEnabled(true, JJ2000Frontend.THREAD_CPU_CLOCK).
+   */
+  public static final LongSupplier THREAD_CPU_CLOCK = new LongSupplier() {
+    @Override
+    public long getAsLong() {
+      return SystemClock.currentThreadTimeMillis() * 1000000L;
+    }
+  };
+
   /** The parameter info, with all possible options. */
   private static String pinfoDecoder[][] = Decoder.getAllParameters();
 
+  /** The maximum number of idle decoders kept for reuse. */
+  private static final int MAX_IDLE_DECODERS = 2;
+
+  /** The decoders, reused from one image to the next. */
+  private static final DecoderPool pool =
+      new DecoderPool(createParameterList(), MAX_IDLE_DECODERS);
+
   public static Bitmap decode(byte[] input) {
+    return decode(input, 0, 0);
+  }
+
+  /**
+   * Decodes the image at a reduced resolution, which is the lowest one at
+   * which the image still covers maxWidth x maxHeight pixels (or the full
+   * resolution if the image is smaller). Only the data of that resolution
+   * level is decoded, which is much cheaper than decoding the full image
+   * and scaling it down when only a thumbnail is needed.
+   *
+   * @param input The JPEG 2000 codestream or JP2 file.
+   * @param maxWidth The width the image is to be displayed at, 0 if not
+   *                 constrained.
+   * @param maxHeight The height the image is to be displayed at, 0 if not
+   *                  constrained.
+   * @return The decoded image, or null if it could not be decoded.
+   */
+  public static Bitmap decode(byte[] input, int maxWidth, int maxHeight) {
+    return decode(input, maxWidth, maxHeight, Bitmap.Config.ARGB_8888);
+  }
+
+  /**
+   * Decodes the image at a reduced resolution into a bitmap with the given
+   * pixel format. The pixels are packed directly in that format, so
+   * RGB_565 or ALPHA_8 (luminance) need a half or a quarter of the memory
+   * of ARGB_8888.
+   *
+   * @param input The JPEG 2000 codestream or JP2 file.
+   * @param maxWidth The width the image is to be displayed at, 0 if not
+   *                 constrained.
+   * @param maxHeight The height the image is to be displayed at, 0 if not
+   *                  constrained.
+   * @param config The pixel format, ARGB_8888, RGB_565 or ALPHA_8.
+   * @return The decoded image, or null if it could not be decoded.
+   */
+  public static Bitmap decode(byte[] input, int maxWidth, int maxHeight,
+                              Bitmap.Config config) {
+    if (input == null) return null;
+
+    return decode(ByteBuffer.wrap(input), maxWidth, maxHeight, config);
+  }
+
+  /**
+   * Decodes the image in the remaining data of the buffer, which is read in
+   * place without being copied. Direct and memory-mapped buffers can be
+   * used, and a part of an array can be decoded by wrapping it with
+   * ByteBuffer.wrap(array, offset, length).
+   *
+   * @param input The JPEG 2000 codestream or JP2 file, from the position
+   *              to the limit of the buffer, which are not modified.
+   * @return The decoded image, or null if it could not be decoded.
+   */
+  public static Bitmap decode(ByteBuffer input) {
+    return decode(input, 0, 0, Bitmap.Config.ARGB_8888);
+  }
+
+  /**
+   * Decodes the image in the remaining data of the buffer at a reduced
+   * resolution into a bitmap with the given pixel format.
+   *
+   * @param input The JPEG 2000 codestream or JP2 file, from the position
+   *              to the limit of the buffer, which are not modified.
+   * @param maxWidth The width the image is to be displayed at, 0 if not
+   *                 constrained.
+   * @param maxHeight The height the image is to be displayed at, 0 if not
+   *                  constrained.
+   * @param config The pixel format, ARGB_8888, RGB_565 or ALPHA_8.
+   * @return The decoded image, or null if it could not be decoded.
+   * @see #decode(byte[], int, int, Bitmap.Config)
+   */
+  public static Bitmap decode(ByteBuffer input, int maxWidth, int maxHeight,
+                              Bitmap.Config config) {
+    int format = toFormat(config);
+    Decoder dec = pool.acquire();
+    try {
+      dec.setOutputFormat(format);
+      return toBitmap(dec.run(input, maxWidth, maxHeight), config);
+    } finally {
+      pool.release(dec);
+    }
+  }
+
+  /**
+   * Decodes the image in the remaining data of the buffer at a reduced
+   * resolution into a bitmap of the caller, in the pixel format of that
+   * bitmap, so that the same bitmap can be reused for several images. The
+   * bitmap is reconfigured to the size of the image if its allocation is
+   * large enough, otherwise a new bitmap is created.
+   *
+   * @param input The JPEG 2000 codestream or JP2 file, from the position
+   *              to the limit of the buffer, which are not modified.
+   * @param maxWidth The width the image is to be displayed at, 0 if not
+   *                 constrained.
+   * @param maxHeight The height the image is to be displayed at, 0 if not
+   *                  constrained.
+   * @param target The mutable bitmap where to put the image, in ARGB_8888,
+   *               RGB_565 or ALPHA_8.
+   * @return 'target', or a new bitmap if 'target' is too small or not
+   *         mutable, or null if the image could not be decoded.
+   * @see #decode(ByteBuffer, int, int, Bitmap.Config)
+   */
+  public static Bitmap decode(ByteBuffer input, int maxWidth, int maxHeight,
+                              Bitmap target) {
+    Bitmap.Config config = target.getConfig();
+    int format = toFormat(config);
+    Decoder dec = pool.acquire();
+    try {
+      dec.setOutputFormat(format);
+      PixelImage img = dec.run(input, maxWidth, maxHeight);
+      if (img == null) return null;
+
+      if (!target.isMutable() ||
+          target.getAllocationByteCount() < img.getByteCount()) {
+        return toBitmap(img, config);
+      }
+      if (target.getWidth() != img.getWidth() ||
+          target.getHeight() != img.getHeight()) {
+        target.reconfigure(img.getWidth(), img.getHeight(), config);
+      }
+      target.copyPixelsFromBuffer(img.getBuffer());
+      return target;
+    } finally {
+      pool.release(dec);
+    }
+  }
+
+  /**
+   * Decodes the image in the remaining data of the buffer at a reduced
+   * resolution into a buffer of the caller, so that the same buffer can be
+   * reused for several images. The pixels are written directly to the
+   * buffer, packed in the layout of the given bitmap format, from which
+   * they can be copied to a bitmap with Bitmap.copyPixelsFromBuffer().
+   *
+   * @param input The JPEG 2000 codestream or JP2 file, from the position
+   *              to the limit of the buffer, which are not modified.
+   * @param maxWidth The width the image is to be displayed at, 0 if not
+   *                 constrained.
+   * @param maxHeight The height the image is to be displayed at, 0 if not
+   *                  constrained.
+   * @param config The pixel format, ARGB_8888, RGB_565 or ALPHA_8.
+   * @param output Where to write the pixels, from index 0. If it is too
+   *               small for the image, a new buffer is allocated instead.
+   * @return The decoded image, whose pixels are in 'output' if it is large
+   *         enough, or null if it could not be decoded.
+   * @see Decoder#setOutputBuffer(ByteBuffer)
+   */
+  public static PixelImage decode(ByteBuffer input, int maxWidth,
+                                  int maxHeight, Bitmap.Config config,
+                                  ByteBuffer output) {
+    int format = toFormat(config);
+    Decoder dec = pool.acquire();
+    try {
+      dec.setOutputFormat(format);
+      dec.setOutputBuffer(output);
+      PixelImage img = dec.run(input, maxWidth, maxHeight);
+      if (img == null || output.capacity() >= img.getByteCount()) {
+        return img;
+      }
+
+      // The pixels are in a buffer of the decoder, which is reused for the
+      // next image once the decoder is released
+      ByteBuffer buf = ByteBuffer.allocate(img.getByteCount());
+      buf.put(img.getBuffer());
+      return new PixelImage(img.getWidth(), img.getHeight(), format, buf);
+    } finally {
+      pool.release(dec);
+    }
+  }
+
+  /**
+   * Decodes only a region of the image, for instance to zoom on it. Only
+   * the code-blocks and tiles that contribute to the region are decoded,
+   * so a small region is obtained much faster than the whole image. The
+   * region is decoded at the lowest resolution at which it is still at
+   * least maxWidth wide and maxHeight high.
+   *
+   * @param input The JPEG 2000 codestream or JP2 file, from the position
+   *              to the limit of the buffer, which are not modified.
+   * @param window The region to decode, in pixels of the full resolution
+   *               image. It is clipped to the image.
+   * @param maxWidth The width the region is to be displayed at, 0 if not
+   *                 constrained.
+   * @param maxHeight The height the region is to be displayed at, 0 if not
+   *                  constrained.
+   * @param config The pixel format, ARGB_8888, RGB_565 or ALPHA_8.
+   * @return The decoded region, or null if it could not be decoded or is
+   *         outside of the image.
+   * @see Decoder#setWindow(int, int, int, int)
+   */
+  public static Bitmap decodeRegion(ByteBuffer input, Rect window,
+                                    int maxWidth, int maxHeight,
+                                    Bitmap.Config config) {
+    int left = Math.max(window.left, 0);
+    int top = Math.max(window.top, 0);
+    if (window.right <= left || window.bottom <= top) return null;
+
+    int format = toFormat(config);
+    Decoder dec = pool.acquire();
+    try {
+      dec.setOutputFormat(format);
+      dec.setWindow(left, top, window.right - left, window.bottom - top);
+      return toBitmap(dec.run(input, maxWidth, maxHeight), config);
+    } finally {
+      pool.release(dec);
+    }
+  }
+
+  /**
+   * Decodes a coarser image in less time, using only part of the data of
+   * the image. The layers, bytes and bit-planes beyond the given limits are
+   * not decoded.
+   *
+   * @param input The JPEG 2000 codestream or JP2 file, from the position
+   *              to the limit of the buffer, which are not modified.
+   * @param maxLayers The maximum number of quality layers to decode, 0 if
+   *                  not limited.
+   * @param maxBytes The maximum number of bytes of the codestream to
+   *                 decode, 0 if not limited.
+   * @param maxBitPlanes The maximum number of bit-planes to decode in each
+   *                     code-block, 0 if not limited.
+   * @return The decoded image, or null if it could not be decoded.
+   */
+  public static Bitmap decodeLimited(ByteBuffer input, int maxLayers,
+                                     int maxBytes, int maxBitPlanes) {
+    Decoder dec = pool.acquire();
+    try {
+      dec.setLimits(maxLayers, maxBytes, maxBitPlanes);
+      return toBitmap(dec.run(input), Bitmap.Config.ARGB_8888);
+    } finally {
+      pool.release(dec);
+    }
+  }
+
+  /**
+   * Decodes the best image that can be obtained within the time limit. A
+   * coarse image is decoded first, in a fraction of the time of the full
+   * one, then it is refined layer by layer (or bit-plane by bit-plane if
+   * the image has a single layer) as long as time remains.
+   *
+   * @param input The JPEG 2000 codestream or JP2 file, from the position
+   *              to the limit of the buffer, which are not modified.
+   * @param maxWidth The width the image is to be displayed at, 0 if not
+   *                 constrained.
+   * @param maxHeight The height the image is to be displayed at, 0 if not
+   *                  constrained.
+   * @param timeLimit The time within which the image is to be decoded, in
+   *                  milliseconds, 0 to refine it up to its full quality.
+   * @param listener Receives the images decoded before the last one, null
+   *                 if they are not wanted.
+   * @return The last decoded image, or null if it could not be decoded.
+   * @see Decoder#run(ByteBuffer, int, int, long,
+   *      jj2000.j2k.decoder.PreviewListener)
+   */
+  public static Bitmap decodeProgressive(ByteBuffer input, int maxWidth,
+                                         int maxHeight, long timeLimit,
+                                         PreviewListener listener) {
+    Decoder dec = pool.acquire();
+    try {
+      return toBitmap(dec.run(input, maxWidth, maxHeight, timeLimit,
+          toPreviews(listener)), Bitmap.Config.ARGB_8888);
+    } finally {
+      pool.release(dec);
+    }
+  }
+
+  /**
+   * Decodes the image while it is being read from the stream, for instance
+   * from a chip. The headers and packets are parsed as their data arrives,
+   * so the image is ready shortly after the last byte is read.
+   *
+   * @param input The JPEG 2000 codestream or JP2 file, which is read until
+   *              its end and closed.
+   * @param length The length of the data in the stream, 0 if not known.
+   * @param maxWidth The width the image is to be displayed at, 0 if not
+   *                 constrained.
+   * @param maxHeight The height the image is to be displayed at, 0 if not
+   *                  constrained.
+   * @param listener Receives preview images decoded from the data read so
+   *                 far, null if no previews are wanted.
+   * @return The decoded image, or null if it could not be decoded.
+   */
+  public static Bitmap decode(InputStream input, int length, int maxWidth,
+                              int maxHeight,
+                              PreviewListener listener) {
+    Decoder dec = pool.acquire();
+    try {
+      return toBitmap(dec.run(input, length, maxWidth, maxHeight,
+          toPreviews(listener)), Bitmap.Config.ARGB_8888);
+    } finally {
+      pool.release(dec);
+    }
+  }
+
+  /**
+   * Adapts a listener of preview bitmaps to the decoder's previews.
+   *
+   * @param listener The listener, or null.
+   * @return The decoder's listener, or null if 'listener' is null.
+   */
+  private static jj2000.j2k.decoder.PreviewListener toPreviews(
+      final PreviewListener listener) {
+    if (listener == null) return null;
+
+    return new jj2000.j2k.decoder.PreviewListener() {
+      @Override
+      public void previewDecoded(PixelImage preview) {
+        Bitmap bm = toBitmap(preview, Bitmap.Config.ARGB_8888);
+        if (bm != null) {
+          listener.previewDecoded(bm);
+        }
+      }
+    };
+  }
+
+  /**
+   * Copies a decoded image to a new bitmap.
+   *
+   * @param img The decoded image, or null.
+   * @param config The pixel format of the bitmap, which must correspond to
+   *               the one of the image.
+   * @return The bitmap, or null if the image is null or the bitmap could
+   *         not be created, in which case the reason is logged.
+   */
+  private static Bitmap toBitmap(PixelImage img, Bitmap.Config config) {
+    if (img == null) return null;
+
+    try {
+      Bitmap bm = Bitmap.createBitmap(img.getWidth(), img.getHeight(), config);
+      bm.copyPixelsFromBuffer(img.getBuffer());
+      return bm;
+    } catch (RuntimeException | OutOfMemoryError e) {
+      Log.e(TAG, "Could not copy the decoded " + img.getWidth() + "x" +
+          img.getHeight() + " image to a bitmap", e);
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the decoder pixel format with the same layout as a bitmap
+   * format.
+   *
+   * @param config The bitmap format, ARGB_8888, RGB_565 or ALPHA_8.
+   * @return The corresponding PixelImage format.
+   */
+  private static int toFormat(Bitmap.Config config) {
+    switch (config) {
+      case ARGB_8888:
+        return PixelImage.RGBA_8888;
+      case RGB_565:
+        return PixelImage.RGB_565;
+      case ALPHA_8:
+        return PixelImage.GREY_8;
+      default:
+        throw new IllegalArgumentException("Unsupported pixel format " +
+            config);
+    }
+  }
+
+  /**
+   * Creates the parameter list of the decoders, with the default values.
+   *
+   * @return The parameter list.
+   */
+  private static ParameterList createParameterList() {
     // Get the dfault parameter values
     ParameterList defpl = new ParameterList();
     for (int i = pinfoDecoder.length - 1; i >= 0; --i) {
@@ -58,7 +468,6 @@ public class JJ2000Frontend {
 
     //pl.setProperty("rate", "3");
 
-    Decoder dec = new Decoder(pl);
-    return dec.run(input);
+    return pl;
   }
 }
@@ -30,4 +30,4 @@ dependencyResolutionManagement {
 }
 
 rootProject.name = "Passport reader"
-include(":mrtdreader", ":testapp")
\ No newline at end of file
+include(":jj2000", ":mrtdreader", ":testapp", ":jj2000-benchmark")
\ No newline at end of file